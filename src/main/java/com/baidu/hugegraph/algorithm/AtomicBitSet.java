@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.algorithm;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size bitset which can be set by multiple threads concurrently,
+ * it's used as the visited set and the frontiers of traversals.
+ */
+public class AtomicBitSet {
+
+    private final int size;
+    private final AtomicLongArray words;
+
+    public AtomicBitSet(int size) {
+        this.size = size;
+        this.words = new AtomicLongArray((size + 63) >>> 6);
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean get(int index) {
+        return (this.words.get(index >>> 6) & (1L << index)) != 0L;
+    }
+
+    /**
+     * @return true if the bit is set by this call, false if set already
+     */
+    public boolean set(int index) {
+        int word = index >>> 6;
+        long mask = 1L << index;
+        while (true) {
+            long value = this.words.get(word);
+            if ((value & mask) != 0L) {
+                return false;
+            }
+            if (this.words.compareAndSet(word, value, value | mask)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return the index of the first set bit from the index, or -1 if none
+     */
+    public int nextSetBit(int from) {
+        if (from >= this.size) {
+            return -1;
+        }
+        int word = from >>> 6;
+        long value = this.words.get(word) & (-1L << from);
+        while (true) {
+            if (value != 0L) {
+                int index = (word << 6) + Long.numberOfTrailingZeros(value);
+                return index < this.size ? index : -1;
+            }
+            if (++word >= this.words.length()) {
+                return -1;
+            }
+            value = this.words.get(word);
+        }
+    }
+
+    public boolean isEmpty() {
+        return this.nextSetBit(0) < 0;
+    }
+
+    public int cardinality() {
+        int count = 0;
+        for (int i = 0; i < this.words.length(); i++) {
+            count += Long.bitCount(this.words.get(i));
+        }
+        return count;
+    }
+}
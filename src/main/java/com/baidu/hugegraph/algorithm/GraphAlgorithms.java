@@ -0,0 +1,720 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.algorithm;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntPredicate;
+
+import com.baidu.hugegraph.structure.constant.Direction;
+import com.baidu.hugegraph.structure.graph.CsrColumn;
+import com.baidu.hugegraph.structure.graph.CsrGraph;
+import com.baidu.hugegraph.structure.graph.Graph;
+import com.baidu.hugegraph.util.E;
+
+/**
+ * GraphAlgorithms runs the graph algorithms locally over a CsrGraph
+ * snapshot, the vertices are referred by their indexes in the snapshot,
+ * use `CsrGraph.index()` and `CsrGraph.id()` to convert from and to ids.
+ *
+ * Most algorithms are parallelized by fork-join over vertex or edge ranges
+ * in the given pool, the traversals keep their frontiers in bitsets.
+ */
+public class GraphAlgorithms {
+
+    private static final int UNREACHED = -1;
+
+    private final CsrGraph graph;
+    private final ForkJoinPool pool;
+
+    public GraphAlgorithms(CsrGraph graph) {
+        this(graph, ForkJoinPool.commonPool());
+    }
+
+    public GraphAlgorithms(CsrGraph graph, ForkJoinPool pool) {
+        E.checkNotNull(graph, "graph");
+        E.checkNotNull(pool, "pool");
+        this.graph = graph;
+        this.pool = pool;
+    }
+
+    public static GraphAlgorithms of(Graph graph) {
+        return new GraphAlgorithms(CsrGraph.of(graph));
+    }
+
+    public CsrGraph graph() {
+        return this.graph;
+    }
+
+    /**
+     * Multi-source breadth first search
+     * @param label the edge label to follow, null means any label
+     * @param maxDepth the max depth to search, -1 means no limit
+     * @return the depth of each vertex from the nearest source, or -1 if
+     *         it's not reached
+     */
+    public int[] bfs(int[] sources, Direction direction, String label,
+                     int maxDepth) {
+        E.checkArgument(maxDepth >= 0 || maxDepth == -1,
+                        "The max depth must be >= 0 or == -1, but got %s",
+                        maxDepth);
+        int size = this.graph.verticesSize();
+        int labelCode = this.labelCode(label);
+        int[] depths = new int[size];
+        Arrays.fill(depths, UNREACHED);
+
+        AtomicBitSet visited = new AtomicBitSet(size);
+        AtomicBitSet frontier = new AtomicBitSet(size);
+        for (int source : sources) {
+            this.checkVertex(source);
+            visited.set(source);
+            frontier.set(source);
+            depths[source] = 0;
+        }
+        if (labelCode == UNREACHED && label != null) {
+            return depths;
+        }
+
+        for (int depth = 1; maxDepth == -1 || depth <= maxDepth; depth++) {
+            AtomicBitSet current = frontier;
+            AtomicBitSet next = new AtomicBitSet(size);
+            int level = depth;
+            RangeTasks.forRange(this.pool, 0, size, (start, end) -> {
+                for (int v = current.nextSetBit(start); v >= 0 && v < end;
+                     v = current.nextSetBit(v + 1)) {
+                    this.forEachNeighbor(v, direction, labelCode, (u, e) -> {
+                        if (visited.set(u)) {
+                            depths[u] = level;
+                            next.set(u);
+                        }
+                    });
+                }
+            });
+            if (next.isEmpty()) {
+                break;
+            }
+            frontier = next;
+        }
+        return depths;
+    }
+
+    /**
+     * @return the vertices whose shortest distance from the source is
+     *         exactly the depth, like the kout traverser of server
+     */
+    public int[] kout(int source, Direction direction, String label,
+                      int depth) {
+        E.checkArgument(depth > 0, "The depth must be > 0, but got %s",
+                        depth);
+        int[] depths = this.bfs(new int[]{source}, direction, label, depth);
+        return select(depths, d -> d == depth);
+    }
+
+    /**
+     * @return the vertices within the depth from the source including
+     *         itself, like the kneighbor traverser of server
+     */
+    public int[] kneighbor(int source, Direction direction, String label,
+                           int depth) {
+        E.checkArgument(depth > 0, "The depth must be > 0, but got %s",
+                        depth);
+        int[] depths = this.bfs(new int[]{source}, direction, label, depth);
+        return select(depths, d -> d >= 0);
+    }
+
+    /**
+     * Find the shortest path weighted by an edge property by Dijkstra's
+     * algorithm, it runs sequentially
+     * @param weightKey the property key of edge weight, null means all the
+     *                  edges weigh the default weight
+     * @param defaultWeight the weight of edge without the property
+     * @return the path or null if the target can't be reached
+     */
+    public WeightedPath weightedShortestPath(int source, int target,
+                                             Direction direction,
+                                             String label, String weightKey,
+                                             double defaultWeight) {
+        this.checkVertex(source);
+        this.checkVertex(target);
+        E.checkArgument(defaultWeight >= 0.0D,
+                        "The default weight must be >= 0, but got %s",
+                        defaultWeight);
+        int labelCode = this.labelCode(label);
+        CsrColumn weights = weightKey == null ? null :
+                            this.graph.edgeColumn(weightKey);
+
+        int size = this.graph.verticesSize();
+        double[] distances = new double[size];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        int[] previous = new int[size];
+        Arrays.fill(previous, UNREACHED);
+        boolean[] settled = new boolean[size];
+        IndexedHeap heap = new IndexedHeap(distances);
+
+        distances[source] = 0.0D;
+        heap.update(source);
+        while (!heap.isEmpty()) {
+            int v = heap.poll();
+            if (v == target) {
+                break;
+            }
+            settled[v] = true;
+            if (label != null && labelCode == UNREACHED) {
+                continue;
+            }
+            this.forEachNeighbor(v, direction, labelCode, (u, e) -> {
+                if (settled[u]) {
+                    return;
+                }
+                double weight = weight(weights, e, defaultWeight);
+                double distance = distances[v] + weight;
+                if (distance < distances[u]) {
+                    distances[u] = distance;
+                    previous[u] = v;
+                    heap.update(u);
+                }
+            });
+        }
+
+        if (distances[target] == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+        int length = 1;
+        for (int v = target; v != source; v = previous[v]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int v = target, i = length - 1; i >= 0; v = previous[v], i--) {
+            path[i] = v;
+        }
+        return new WeightedPath(distances[target], path);
+    }
+
+    /**
+     * Weakly connected components by concurrent union-find over edges
+     * @return the component of each vertex, which is the smallest vertex
+     *         index in the component
+     */
+    public int[] weaklyConnectedComponents() {
+        int size = this.graph.verticesSize();
+        AtomicIntegerArray parents = new AtomicIntegerArray(size);
+        RangeTasks.forRange(this.pool, 0, size, (start, end) -> {
+            for (int v = start; v < end; v++) {
+                parents.set(v, v);
+            }
+        });
+        RangeTasks.forRange(this.pool, 0, this.graph.edgesSize(),
+                            (start, end) -> {
+            for (int e = start; e < end; e++) {
+                union(parents, this.graph.edgeSource(e),
+                      this.graph.edgeTarget(e));
+            }
+        });
+        int[] components = new int[size];
+        RangeTasks.forRange(this.pool, 0, size, (start, end) -> {
+            for (int v = start; v < end; v++) {
+                components[v] = find(parents, v);
+            }
+        });
+        return components;
+    }
+
+    /**
+     * Strongly connected components by iterative Tarjan's algorithm, it
+     * runs sequentially
+     * @return the component of each vertex, which is the smallest vertex
+     *         index in the component
+     */
+    public int[] stronglyConnectedComponents() {
+        int size = this.graph.verticesSize();
+        int[] indexes = new int[size];
+        int[] lowLinks = new int[size];
+        Arrays.fill(indexes, UNREACHED);
+        boolean[] onStack = new boolean[size];
+        int[] stack = new int[size];
+        int stackSize = 0;
+        // The call stack of vertices and their next out edges to visit
+        int[] callVertices = new int[size];
+        int[] callEdges = new int[size];
+        int[] components = new int[size];
+        int counter = 0;
+
+        for (int root = 0; root < size; root++) {
+            if (indexes[root] != UNREACHED) {
+                continue;
+            }
+            int depth = 0;
+            callVertices[0] = root;
+            callEdges[0] = this.graph.outStart(root);
+            indexes[root] = lowLinks[root] = counter++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0) {
+                int v = callVertices[depth];
+                int e = callEdges[depth];
+                if (e < this.graph.outEnd(v)) {
+                    callEdges[depth]++;
+                    int u = this.graph.edgeTarget(e);
+                    if (indexes[u] == UNREACHED) {
+                        indexes[u] = lowLinks[u] = counter++;
+                        stack[stackSize++] = u;
+                        onStack[u] = true;
+                        depth++;
+                        callVertices[depth] = u;
+                        callEdges[depth] = this.graph.outStart(u);
+                    } else if (onStack[u]) {
+                        lowLinks[v] = Math.min(lowLinks[v], indexes[u]);
+                    }
+                    continue;
+                }
+
+                if (lowLinks[v] == indexes[v]) {
+                    // Pop the component, the min index is the component id
+                    int start = stackSize;
+                    int min = Integer.MAX_VALUE;
+                    do {
+                        min = Math.min(min, stack[--start]);
+                    } while (stack[start] != v);
+                    for (int i = start; i < stackSize; i++) {
+                        components[stack[i]] = min;
+                        onStack[stack[i]] = false;
+                    }
+                    stackSize = start;
+                }
+                depth--;
+                if (depth >= 0) {
+                    int parent = callVertices[depth];
+                    lowLinks[parent] = Math.min(lowLinks[parent],
+                                                lowLinks[v]);
+                }
+            }
+        }
+        return components;
+    }
+
+    /**
+     * PageRank by pulling the ranks through in edges, the rank of the
+     * vertices without out edges is distributed to all vertices
+     * @param iterations the max count of iterations
+     * @param tolerance stop once the L1 change of ranks is less than it
+     * @return the rank of each vertex, which sums to 1
+     */
+    public double[] pageRank(double damping, int iterations,
+                             double tolerance) {
+        E.checkArgument(damping > 0.0D && damping < 1.0D,
+                        "The damping must be in (0, 1), but got %s",
+                        damping);
+        E.checkArgument(iterations > 0,
+                        "The iterations must be > 0, but got %s", iterations);
+        int size = this.graph.verticesSize();
+        if (size == 0) {
+            return new double[0];
+        }
+        double[] ranks = new double[size];
+        Arrays.fill(ranks, 1.0D / size);
+        double[] nexts = new double[size];
+
+        for (int i = 0; i < iterations; i++) {
+            double[] current = ranks;
+            double[] next = nexts;
+            double dangling = RangeTasks.sumDouble(this.pool, 0, size,
+                                                   (start, end) -> {
+                double sum = 0.0D;
+                for (int v = start; v < end; v++) {
+                    if (this.graph.outDegree(v) == 0) {
+                        sum += current[v];
+                    }
+                }
+                return sum;
+            });
+            double base = (1.0D - damping) / size +
+                          damping * dangling / size;
+            double delta = RangeTasks.sumDouble(this.pool, 0, size,
+                                                (start, end) -> {
+                double sum = 0.0D;
+                for (int v = start; v < end; v++) {
+                    double rank = 0.0D;
+                    for (int j = this.graph.inStart(v);
+                         j < this.graph.inEnd(v); j++) {
+                        int u = this.graph.edgeSource(this.graph.inEdge(j));
+                        rank += current[u] / this.graph.outDegree(u);
+                    }
+                    next[v] = base + damping * rank;
+                    sum += Math.abs(next[v] - current[v]);
+                }
+                return sum;
+            });
+            nexts = ranks;
+            ranks = next;
+            if (delta < tolerance) {
+                break;
+            }
+        }
+        return ranks;
+    }
+
+    /**
+     * Count the triangles regarding the graph as undirected simple graph,
+     * the directions, the parallel edges and the self-loops are ignored
+     */
+    public long triangles() {
+        int size = this.graph.verticesSize();
+        // Keep the neighbors of higher degree to count each triangle once
+        int[] degrees = new int[size];
+        int[][] neighbors = new int[size][];
+        RangeTasks.forRange(this.pool, 0, size, (start, end) -> {
+            for (int v = start; v < end; v++) {
+                neighbors[v] = this.distinctNeighbors(v);
+                degrees[v] = neighbors[v].length;
+            }
+        });
+        int[][] forwards = new int[size][];
+        RangeTasks.forRange(this.pool, 0, size, (start, end) -> {
+            for (int v = start; v < end; v++) {
+                int[] all = neighbors[v];
+                int[] forward = new int[all.length];
+                int count = 0;
+                for (int u : all) {
+                    if (degrees[u] > degrees[v] ||
+                        degrees[u] == degrees[v] && u > v) {
+                        forward[count++] = u;
+                    }
+                }
+                forwards[v] = Arrays.copyOf(forward, count);
+            }
+        });
+        return RangeTasks.sumLong(this.pool, 0, size, (start, end) -> {
+            long count = 0L;
+            for (int v = start; v < end; v++) {
+                for (int u : forwards[v]) {
+                    count += intersect(forwards[v], forwards[u]);
+                }
+            }
+            return count;
+        });
+    }
+
+    /**
+     * Detect the communities by synchronous label propagation regarding the
+     * graph as undirected, each vertex takes the most frequent label of its
+     * neighbors, the smallest label wins a tie
+     * @return the community of each vertex
+     */
+    public int[] labelPropagation(int maxIterations) {
+        E.checkArgument(maxIterations > 0,
+                        "The max iterations must be > 0, but got %s",
+                        maxIterations);
+        int size = this.graph.verticesSize();
+        int[] labels = new int[size];
+        for (int v = 0; v < size; v++) {
+            labels[v] = v;
+        }
+        int[] nexts = new int[size];
+        for (int i = 0; i < maxIterations; i++) {
+            int[] current = labels;
+            int[] next = nexts;
+            AtomicBoolean changed = new AtomicBoolean(false);
+            RangeTasks.forRange(this.pool, 0, size, (start, end) -> {
+                boolean updated = false;
+                for (int v = start; v < end; v++) {
+                    next[v] = this.frequentLabel(v, current);
+                    updated |= next[v] != current[v];
+                }
+                if (updated) {
+                    changed.set(true);
+                }
+            });
+            nexts = labels;
+            labels = next;
+            if (!changed.get()) {
+                break;
+            }
+        }
+        return labels;
+    }
+
+    private int frequentLabel(int vertex, int[] labels) {
+        int degree = this.graph.outDegree(vertex) +
+                     this.graph.inDegree(vertex);
+        if (degree == 0) {
+            return labels[vertex];
+        }
+        int[] neighbors = new int[degree];
+        int[] count = new int[1];
+        this.forEachNeighbor(vertex, Direction.BOTH, UNREACHED, (u, e) -> {
+            neighbors[count[0]++] = labels[u];
+        });
+        Arrays.sort(neighbors);
+        int best = labels[vertex];
+        int bestCount = 0;
+        for (int i = 0; i < neighbors.length;) {
+            int j = i;
+            while (j < neighbors.length && neighbors[j] == neighbors[i]) {
+                j++;
+            }
+            if (j - i > bestCount) {
+                best = neighbors[i];
+                bestCount = j - i;
+            }
+            i = j;
+        }
+        return best;
+    }
+
+    private int[] distinctNeighbors(int vertex) {
+        int degree = this.graph.outDegree(vertex) +
+                     this.graph.inDegree(vertex);
+        int[] neighbors = new int[degree];
+        int[] count = new int[1];
+        this.forEachNeighbor(vertex, Direction.BOTH, UNREACHED, (u, e) -> {
+            if (u != vertex) {
+                neighbors[count[0]++] = u;
+            }
+        });
+        Arrays.sort(neighbors, 0, count[0]);
+        int distinct = 0;
+        for (int i = 0; i < count[0]; i++) {
+            if (distinct == 0 || neighbors[distinct - 1] != neighbors[i]) {
+                neighbors[distinct++] = neighbors[i];
+            }
+        }
+        return Arrays.copyOf(neighbors, distinct);
+    }
+
+    private void forEachNeighbor(int vertex, Direction direction,
+                                 int labelCode, NeighborConsumer consumer) {
+        if (direction != Direction.IN) {
+            for (int e = this.graph.outStart(vertex);
+                 e < this.graph.outEnd(vertex); e++) {
+                if (labelCode == UNREACHED ||
+                    this.graph.edgeLabelCode(e) == labelCode) {
+                    consumer.accept(this.graph.edgeTarget(e), e);
+                }
+            }
+        }
+        if (direction != Direction.OUT) {
+            for (int i = this.graph.inStart(vertex);
+                 i < this.graph.inEnd(vertex); i++) {
+                int e = this.graph.inEdge(i);
+                if (labelCode == UNREACHED ||
+                    this.graph.edgeLabelCode(e) == labelCode) {
+                    consumer.accept(this.graph.edgeSource(e), e);
+                }
+            }
+        }
+    }
+
+    private int labelCode(String label) {
+        return label == null ? UNREACHED : this.graph.edgeLabelCode(label);
+    }
+
+    private void checkVertex(int vertex) {
+        E.checkArgument(vertex >= 0 && vertex < this.graph.verticesSize(),
+                        "Invalid vertex index %s", vertex);
+    }
+
+    private static double weight(CsrColumn weights, int edge,
+                                 double defaultWeight) {
+        if (weights == null) {
+            return defaultWeight;
+        }
+        double weight;
+        if (weights instanceof CsrColumn.DoubleColumn) {
+            if (!weights.present(edge)) {
+                return defaultWeight;
+            }
+            weight = ((CsrColumn.DoubleColumn) weights).getDouble(edge);
+        } else {
+            Object value = weights.get(edge);
+            if (value == null) {
+                return defaultWeight;
+            }
+            E.checkArgument(value instanceof Number,
+                            "The weight must be number, but got '%s'", value);
+            weight = ((Number) value).doubleValue();
+        }
+        E.checkArgument(weight >= 0.0D,
+                        "The weight must be >= 0, but got %s", weight);
+        return weight;
+    }
+
+    private static int[] select(int[] depths, IntPredicate predicate) {
+        int count = 0;
+        for (int i = 0; i < depths.length; i++) {
+            if (predicate.test(depths[i])) {
+                count++;
+            }
+        }
+        int[] vertices = new int[count];
+        count = 0;
+        for (int i = 0; i < depths.length; i++) {
+            if (predicate.test(depths[i])) {
+                vertices[count++] = i;
+            }
+        }
+        return vertices;
+    }
+
+    private static long intersect(int[] a, int[] b) {
+        long count = 0L;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private static int find(AtomicIntegerArray parents, int vertex) {
+        int v = vertex;
+        while (true) {
+            int parent = parents.get(v);
+            if (parent == v) {
+                return v;
+            }
+            int grandparent = parents.get(parent);
+            // Path halving
+            parents.compareAndSet(v, parent, grandparent);
+            v = grandparent;
+        }
+    }
+
+    private static void union(AtomicIntegerArray parents, int v1, int v2) {
+        while (true) {
+            int root1 = find(parents, v1);
+            int root2 = find(parents, v2);
+            if (root1 == root2) {
+                return;
+            }
+            // Link the larger root to the smaller one
+            int min = Math.min(root1, root2);
+            int max = Math.max(root1, root2);
+            if (parents.compareAndSet(max, max, min)) {
+                return;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface NeighborConsumer {
+
+        void accept(int neighbor, int edge);
+    }
+
+    /**
+     * A binary min-heap of vertices ordered by the distances, which
+     * supports decreasing the distance of a vertex in the heap
+     */
+    private static class IndexedHeap {
+
+        private final double[] keys;
+        private final int[] heap;
+        private final int[] positions;
+        private int size;
+
+        private IndexedHeap(double[] keys) {
+            this.keys = keys;
+            this.heap = new int[keys.length];
+            this.positions = new int[keys.length];
+            Arrays.fill(this.positions, UNREACHED);
+            this.size = 0;
+        }
+
+        private boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        /**
+         * Insert the vertex or move it up after its key decreased
+         */
+        private void update(int vertex) {
+            int position = this.positions[vertex];
+            if (position == UNREACHED) {
+                position = this.size++;
+                this.heap[position] = vertex;
+                this.positions[vertex] = position;
+            }
+            this.up(position);
+        }
+
+        private int poll() {
+            int top = this.heap[0];
+            this.positions[top] = UNREACHED;
+            int last = this.heap[--this.size];
+            if (this.size > 0) {
+                this.heap[0] = last;
+                this.positions[last] = 0;
+                this.down(0);
+            }
+            return top;
+        }
+
+        private void up(int position) {
+            int vertex = this.heap[position];
+            while (position > 0) {
+                int parent = (position - 1) >>> 1;
+                int other = this.heap[parent];
+                if (this.keys[other] <= this.keys[vertex]) {
+                    break;
+                }
+                this.heap[position] = other;
+                this.positions[other] = position;
+                position = parent;
+            }
+            this.heap[position] = vertex;
+            this.positions[vertex] = position;
+        }
+
+        private void down(int position) {
+            int vertex = this.heap[position];
+            while (true) {
+                int child = 2 * position + 1;
+                if (child >= this.size) {
+                    break;
+                }
+                if (child + 1 < this.size &&
+                    this.keys[this.heap[child + 1]] <
+                    this.keys[this.heap[child]]) {
+                    child++;
+                }
+                int other = this.heap[child];
+                if (this.keys[vertex] <= this.keys[other]) {
+                    break;
+                }
+                this.heap[position] = other;
+                this.positions[other] = position;
+                position = child;
+            }
+            this.heap[position] = vertex;
+            this.positions[vertex] = position;
+        }
+    }
+}
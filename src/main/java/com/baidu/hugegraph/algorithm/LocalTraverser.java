@@ -0,0 +1,506 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.baidu.hugegraph.structure.constant.Direction;
+import com.baidu.hugegraph.structure.graph.CsrGraph;
+import com.baidu.hugegraph.structure.graph.Path;
+import com.baidu.hugegraph.util.E;
+
+/**
+ * LocalTraverser answers the traversals of server from a CsrGraph snapshot.
+ *
+ * The server follows the edges in storage order and truncates the results
+ * by `degree`, `capacity` and `limit`, so a truncated result depends on the
+ * order which is unknown locally. Each traversal here returns null instead
+ * of a result unless it's sure that the server result is not truncated,
+ * then the results are the same regardless of order. It also returns null
+ * if the query isn't covered by the snapshot: the label or depth exceeds
+ * the coverage, or the source or target vertex is not in the snapshot.
+ */
+public class LocalTraverser {
+
+    private static final long NO_LIMIT = -1L;
+    private static final int ANY_LABEL = -1;
+    private static final int NO_LABEL = -2;
+
+    private final CsrGraph graph;
+    // The edge labels in the snapshot, null means all the labels
+    private Set<String> labels;
+    private int maxDepth;
+
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    public LocalTraverser(CsrGraph graph) {
+        E.checkNotNull(graph, "graph");
+        this.graph = graph;
+        this.labels = null;
+        this.maxDepth = Integer.MAX_VALUE;
+        this.hits = new AtomicLong(0L);
+        this.misses = new AtomicLong(0L);
+    }
+
+    /**
+     * Declare the snapshot contains the edges of these labels only, the
+     * traversals of other labels or of all labels are not covered
+     */
+    public LocalTraverser labels(String... labels) {
+        this.labels = new HashSet<>(Arrays.asList(labels));
+        return this;
+    }
+
+    /**
+     * Declare the snapshot is reliable within the depth from any vertex,
+     * like a subgraph extracted around some vertices
+     */
+    public LocalTraverser maxDepth(int maxDepth) {
+        E.checkArgument(maxDepth > 0,
+                        "The max depth must be > 0, but got %s", maxDepth);
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    public CsrGraph graph() {
+        return this.graph;
+    }
+
+    /**
+     * @return the count of the traversals answered locally
+     */
+    public long hits() {
+        return this.hits.get();
+    }
+
+    /**
+     * @return the count of the traversals not covered
+     */
+    public long misses() {
+        return this.misses.get();
+    }
+
+    public List<Object> kout(Object sourceId, Direction direction,
+                             String label, int depth, boolean nearest,
+                             long degree, long capacity, long limit) {
+        int source = this.source(sourceId, label, depth);
+        if (source < 0) {
+            return this.miss();
+        }
+        int labelCode = this.labelCode(label);
+        BitSet all = new BitSet();
+        BitSet latest = new BitSet();
+        all.set(source);
+        latest.set(source);
+
+        long remaining = capacity == NO_LIMIT ? NO_LIMIT : capacity - 1L;
+        for (int left = depth; left-- > 0;) {
+            if (left == 0 && limit != NO_LIMIT &&
+                (limit < remaining || remaining == NO_LIMIT)) {
+                remaining = limit;
+            }
+            BitSet next = this.adjacent(latest, direction, labelCode,
+                                        nearest ? all : null, degree);
+            if (next == null || exceed(next.cardinality(), remaining)) {
+                return this.miss();
+            }
+            latest = next;
+            if (nearest) {
+                all.or(next);
+            }
+            if (capacity != NO_LIMIT) {
+                remaining -= next.cardinality();
+                if (remaining <= 0L && left > 0) {
+                    // The server will fail for exceeding capacity
+                    return this.miss();
+                }
+            }
+        }
+        return this.hit(this.ids(latest));
+    }
+
+    public List<Object> kneighbor(Object sourceId, Direction direction,
+                                  String label, int depth,
+                                  long degree, long limit) {
+        int source = this.source(sourceId, label, depth);
+        if (source < 0) {
+            return this.miss();
+        }
+        int labelCode = this.labelCode(label);
+        BitSet all = new BitSet();
+        BitSet latest = new BitSet();
+        all.set(source);
+        latest.set(source);
+
+        for (int left = depth; left-- > 0;) {
+            long remaining = limit == NO_LIMIT ? NO_LIMIT :
+                             limit - all.cardinality();
+            BitSet next = this.adjacent(latest, direction, labelCode, all,
+                                        degree);
+            if (next == null || exceed(next.cardinality(), remaining)) {
+                return this.miss();
+            }
+            latest = next;
+            all.or(next);
+            if (limit != NO_LIMIT && all.cardinality() >= limit) {
+                break;
+            }
+        }
+        // The server returns the source along with its neighbors
+        return this.hit(this.ids(all));
+    }
+
+    /**
+     * @return the shortest path if it's the only one, or null if there are
+     *         more than one shortest paths since the server picks one of
+     *         them by order
+     */
+    public Path shortestPath(Object sourceId, Object targetId,
+                             Direction direction, String label, int maxDepth,
+                             long degree, long capacity) {
+        Region region = this.region(sourceId, targetId, direction, label,
+                                    maxDepth, degree, capacity);
+        if (region == null) {
+            return this.miss();
+        }
+        int target = region.target;
+        int distance = region.forward[target];
+        if (distance < 0) {
+            return this.hit(new Path());
+        }
+
+        // Walk back from the target, there must be a unique predecessor
+        int[] path = new int[distance + 1];
+        path[distance] = target;
+        for (int i = distance; i > 0; i--) {
+            int v = path[i];
+            int[] previous = {-1};
+            int[] count = {0};
+            this.forEachNeighbor(v, opposite(direction), region.labelCode,
+                                 u -> {
+                if (region.forward[u] == region.forward[v] - 1 &&
+                    previous[0] != u) {
+                    previous[0] = u;
+                    count[0]++;
+                }
+            });
+            if (count[0] != 1) {
+                return this.miss();
+            }
+            path[i - 1] = previous[0];
+        }
+        return this.hit(new Path(this.ids(path)));
+    }
+
+    /**
+     * @return all the paths without loop from the source to the target
+     *         within the depth
+     */
+    public List<Path> paths(Object sourceId, Object targetId,
+                            Direction direction, String label, int maxDepth,
+                            long degree, long capacity, long limit) {
+        Region region = this.region(sourceId, targetId, direction, label,
+                                    maxDepth, degree, capacity);
+        if (region == null) {
+            return this.miss();
+        }
+        List<int[]> paths = new ArrayList<>();
+        int[] path = new int[maxDepth + 1];
+        path[0] = region.source;
+        BitSet onPath = new BitSet();
+        onPath.set(region.source);
+        if (!this.paths(region, direction, path, 0, onPath, paths, limit)) {
+            return this.miss();
+        }
+        List<Path> results = new ArrayList<>(paths.size());
+        for (int[] p : paths) {
+            results.add(new Path(this.ids(p)));
+        }
+        return this.hit(results);
+    }
+
+    private boolean paths(Region region, Direction direction, int[] path,
+                          int length, BitSet onPath, List<int[]> paths,
+                          long limit) {
+        int v = path[length];
+        if (v == region.target) {
+            paths.add(Arrays.copyOf(path, length + 1));
+            // More paths than the limit means the server result is partial
+            return limit == NO_LIMIT || paths.size() <= limit;
+        }
+        int left = region.maxDepth - length;
+        boolean[] covered = {true};
+        this.forEachDistinct(v, direction, region.labelCode, u -> {
+            // Only step to the vertex from which the target is reachable
+            if (!covered[0] || onPath.get(u) || region.backward[u] < 0 ||
+                region.backward[u] > left - 1) {
+                return;
+            }
+            path[length + 1] = u;
+            onPath.set(u);
+            covered[0] = this.paths(region, direction, path, length + 1,
+                                    onPath, paths, limit);
+            onPath.clear(u);
+        });
+        return covered[0];
+    }
+
+    /**
+     * Search from both the source and the target within the depth, the
+     * server expands a part of the region, so if the region is within the
+     * degree and capacity, the server won't truncate
+     */
+    private Region region(Object sourceId, Object targetId,
+                          Direction direction, String label, int maxDepth,
+                          long degree, long capacity) {
+        int source = this.source(sourceId, label, maxDepth);
+        int target = this.graph.index(targetId);
+        if (source < 0 || target < 0 || source == target) {
+            return null;
+        }
+        int labelCode = this.labelCode(label);
+        int[] forward = this.distances(source, direction, labelCode,
+                                       maxDepth, degree);
+        int[] backward = this.distances(target, opposite(direction),
+                                        labelCode, maxDepth, degree);
+        if (forward == null || backward == null) {
+            return null;
+        }
+        if (capacity != NO_LIMIT) {
+            long visited = 0L;
+            for (int i = 0; i < forward.length; i++) {
+                visited += (forward[i] >= 0 ? 1 : 0) +
+                           (backward[i] >= 0 ? 1 : 0);
+            }
+            if (visited >= capacity) {
+                return null;
+            }
+        }
+        return new Region(source, target, labelCode, maxDepth,
+                          forward, backward);
+    }
+
+    /**
+     * @return the distances from the source within the depth, or null if
+     *         any vertex to expand exceeds the degree
+     */
+    private int[] distances(int source, Direction direction, int labelCode,
+                            int maxDepth, long degree) {
+        int[] distances = new int[this.graph.verticesSize()];
+        Arrays.fill(distances, -1);
+        distances[source] = 0;
+        BitSet latest = new BitSet();
+        latest.set(source);
+        for (int depth = 1; depth <= maxDepth && !latest.isEmpty();
+             depth++) {
+            BitSet next = new BitSet();
+            for (int v = latest.nextSetBit(0); v >= 0;
+                 v = latest.nextSetBit(v + 1)) {
+                if (exceed(this.degree(v, direction, labelCode), degree)) {
+                    return null;
+                }
+                int level = depth;
+                this.forEachNeighbor(v, direction, labelCode, u -> {
+                    if (distances[u] < 0) {
+                        distances[u] = level;
+                        next.set(u);
+                    }
+                });
+            }
+            latest = next;
+        }
+        return distances;
+    }
+
+    /**
+     * @return the neighbors of the vertices except the excluded ones, or
+     *         null if any vertex exceeds the degree
+     */
+    private BitSet adjacent(BitSet vertices, Direction direction,
+                            int labelCode, BitSet excluded, long degree) {
+        BitSet neighbors = new BitSet();
+        for (int v = vertices.nextSetBit(0); v >= 0;
+             v = vertices.nextSetBit(v + 1)) {
+            if (exceed(this.degree(v, direction, labelCode), degree)) {
+                return null;
+            }
+            this.forEachNeighbor(v, direction, labelCode, u -> {
+                if (excluded == null || !excluded.get(u)) {
+                    neighbors.set(u);
+                }
+            });
+        }
+        return neighbors;
+    }
+
+    private int degree(int vertex, Direction direction, int labelCode) {
+        int[] degree = {0};
+        this.forEachNeighbor(vertex, direction, labelCode, u -> degree[0]++);
+        return degree[0];
+    }
+
+    private void forEachDistinct(int vertex, Direction direction,
+                                 int labelCode, NeighborConsumer consumer) {
+        BitSet seen = new BitSet();
+        this.forEachNeighbor(vertex, direction, labelCode, u -> {
+            if (!seen.get(u)) {
+                seen.set(u);
+                consumer.accept(u);
+            }
+        });
+    }
+
+    private void forEachNeighbor(int vertex, Direction direction,
+                                 int labelCode, NeighborConsumer consumer) {
+        if (labelCode == NO_LABEL) {
+            return;
+        }
+        if (direction != Direction.IN) {
+            for (int e = this.graph.outStart(vertex);
+                 e < this.graph.outEnd(vertex); e++) {
+                if (labelCode == ANY_LABEL ||
+                    this.graph.edgeLabelCode(e) == labelCode) {
+                    consumer.accept(this.graph.edgeTarget(e));
+                }
+            }
+        }
+        if (direction != Direction.OUT) {
+            for (int i = this.graph.inStart(vertex);
+                 i < this.graph.inEnd(vertex); i++) {
+                int e = this.graph.inEdge(i);
+                if (labelCode == ANY_LABEL ||
+                    this.graph.edgeLabelCode(e) == labelCode) {
+                    consumer.accept(this.graph.edgeSource(e));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the index of the source vertex, or -1 if not covered
+     */
+    private int source(Object sourceId, String label, int depth) {
+        if (depth > this.maxDepth) {
+            return -1;
+        }
+        if (this.labels != null &&
+            (label == null || !this.labels.contains(label))) {
+            return -1;
+        }
+        return this.graph.index(sourceId);
+    }
+
+    private int labelCode(String label) {
+        if (label == null) {
+            return ANY_LABEL;
+        }
+        int code = this.graph.edgeLabelCode(label);
+        // The label is covered but no edge has it
+        return code < 0 ? NO_LABEL : code;
+    }
+
+    private List<Object> ids(BitSet vertices) {
+        List<Object> ids = new ArrayList<>(vertices.cardinality());
+        for (int v = vertices.nextSetBit(0); v >= 0;
+             v = vertices.nextSetBit(v + 1)) {
+            ids.add(this.id(v));
+        }
+        return ids;
+    }
+
+    private List<Object> ids(int[] vertices) {
+        List<Object> ids = new ArrayList<>(vertices.length);
+        for (int v : vertices) {
+            ids.add(this.id(v));
+        }
+        return ids;
+    }
+
+    private Object id(int vertex) {
+        Object id = this.graph.id(vertex);
+        // Keep the same type as the numbers decoded from server response
+        if (id instanceof Long) {
+            long value = (Long) id;
+            if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                return (int) value;
+            }
+        }
+        return id;
+    }
+
+    private <T> T hit(T result) {
+        this.hits.incrementAndGet();
+        return result;
+    }
+
+    private <T> T miss() {
+        this.misses.incrementAndGet();
+        return null;
+    }
+
+    private static boolean exceed(long size, long limit) {
+        return limit != NO_LIMIT && size > limit;
+    }
+
+    private static Direction opposite(Direction direction) {
+        switch (direction) {
+            case OUT:
+                return Direction.IN;
+            case IN:
+                return Direction.OUT;
+            default:
+                return Direction.BOTH;
+        }
+    }
+
+    @FunctionalInterface
+    private interface NeighborConsumer {
+
+        void accept(int neighbor);
+    }
+
+    private static class Region {
+
+        private final int source;
+        private final int target;
+        private final int labelCode;
+        private final int maxDepth;
+        // The distances from the source and to the target
+        private final int[] forward;
+        private final int[] backward;
+
+        private Region(int source, int target, int labelCode, int maxDepth,
+                       int[] forward, int[] backward) {
+            this.source = source;
+            this.target = target;
+            this.labelCode = labelCode;
+            this.maxDepth = maxDepth;
+            this.forward = forward;
+            this.backward = backward;
+        }
+    }
+}
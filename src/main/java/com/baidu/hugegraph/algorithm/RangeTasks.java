@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.algorithm;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The fork-join tasks which split a range of vertices or edges into halves
+ * until it's small enough to process sequentially.
+ */
+final class RangeTasks {
+
+    // The max size of range to process sequentially
+    private static final int THRESHOLD = 4096;
+
+    @FunctionalInterface
+    interface RangeAction {
+
+        void run(int start, int end);
+    }
+
+    @FunctionalInterface
+    interface RangeDoubleSum {
+
+        double sum(int start, int end);
+    }
+
+    @FunctionalInterface
+    interface RangeLongSum {
+
+        long sum(int start, int end);
+    }
+
+    static void forRange(ForkJoinPool pool, int start, int end,
+                         RangeAction action) {
+        pool.invoke(new ActionTask(start, end, action));
+    }
+
+    static double sumDouble(ForkJoinPool pool, int start, int end,
+                            RangeDoubleSum sum) {
+        return pool.invoke(new DoubleSumTask(start, end, sum));
+    }
+
+    static long sumLong(ForkJoinPool pool, int start, int end,
+                        RangeLongSum sum) {
+        return pool.invoke(new LongSumTask(start, end, sum));
+    }
+
+    private static class ActionTask extends RecursiveAction {
+
+        private static final long serialVersionUID = -6151366497447409734L;
+
+        private final int start;
+        private final int end;
+        private final RangeAction action;
+
+        private ActionTask(int start, int end, RangeAction action) {
+            this.start = start;
+            this.end = end;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.end - this.start <= THRESHOLD) {
+                this.action.run(this.start, this.end);
+                return;
+            }
+            int middle = (this.start + this.end) >>> 1;
+            invokeAll(new ActionTask(this.start, middle, this.action),
+                      new ActionTask(middle, this.end, this.action));
+        }
+    }
+
+    private static class DoubleSumTask extends RecursiveTask<Double> {
+
+        private static final long serialVersionUID = 2418315328127470313L;
+
+        private final int start;
+        private final int end;
+        private final RangeDoubleSum sum;
+
+        private DoubleSumTask(int start, int end, RangeDoubleSum sum) {
+            this.start = start;
+            this.end = end;
+            this.sum = sum;
+        }
+
+        @Override
+        protected Double compute() {
+            if (this.end - this.start <= THRESHOLD) {
+                return this.sum.sum(this.start, this.end);
+            }
+            int middle = (this.start + this.end) >>> 1;
+            DoubleSumTask left = new DoubleSumTask(this.start, middle,
+                                                   this.sum);
+            left.fork();
+            double right = new DoubleSumTask(middle, this.end, this.sum)
+                           .compute();
+            return left.join() + right;
+        }
+    }
+
+    private static class LongSumTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = -2530925545372366404L;
+
+        private final int start;
+        private final int end;
+        private final RangeLongSum sum;
+
+        private LongSumTask(int start, int end, RangeLongSum sum) {
+            this.start = start;
+            this.end = end;
+            this.sum = sum;
+        }
+
+        @Override
+        protected Long compute() {
+            if (this.end - this.start <= THRESHOLD) {
+                return this.sum.sum(this.start, this.end);
+            }
+            int middle = (this.start + this.end) >>> 1;
+            LongSumTask left = new LongSumTask(this.start, middle, this.sum);
+            left.fork();
+            long right = new LongSumTask(middle, this.end, this.sum)
+                         .compute();
+            return left.join() + right;
+        }
+    }
+}
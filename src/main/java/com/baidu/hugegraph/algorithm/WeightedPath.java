@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * The result of weighted shortest path, the vertices are the indexes of
+ * the CsrGraph from the source to the target.
+ */
+public class WeightedPath {
+
+    private final double weight;
+    private final int[] vertices;
+
+    public WeightedPath(double weight, int[] vertices) {
+        this.weight = weight;
+        this.vertices = vertices;
+    }
+
+    public double weight() {
+        return this.weight;
+    }
+
+    public int[] vertices() {
+        return this.vertices.clone();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WeightedPath{weight=%s, vertices=%s}",
+                             this.weight, Arrays.toString(this.vertices));
+    }
+}
@@ -22,6 +22,7 @@ package com.baidu.hugegraph.api.gremlin;
 import com.baidu.hugegraph.api.API;
 import com.baidu.hugegraph.client.RestClient;
 import com.baidu.hugegraph.rest.RestResult;
+import com.baidu.hugegraph.serializer.ResultIterator;
 import com.baidu.hugegraph.structure.constant.HugeType;
 import com.baidu.hugegraph.structure.gremlin.Response;
 
@@ -41,4 +42,12 @@ public class GremlinAPI extends API {
         RestResult result = this.client.post(this.path(), request);
         return result.readObject(Response.class);
     }
+
+    /**
+     * Same as post() but decode the rows one by one while iterating
+     */
+    public ResultIterator iterate(GremlinRequest request) {
+        RestResult result = this.client.post(this.path(), request);
+        return new ResultIterator(result.content());
+    }
 }
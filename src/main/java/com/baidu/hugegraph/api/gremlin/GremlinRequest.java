@@ -19,16 +19,32 @@
 
 package com.baidu.hugegraph.api.gremlin;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 import com.baidu.hugegraph.driver.GremlinManager;
+import com.baidu.hugegraph.driver.PagedResultIterator;
+import com.baidu.hugegraph.serializer.ResultIterator;
+import com.baidu.hugegraph.structure.graph.Edge;
+import com.baidu.hugegraph.structure.graph.Vertex;
 import com.baidu.hugegraph.structure.gremlin.ResultSet;
+import com.baidu.hugegraph.util.E;
 import com.fasterxml.jackson.annotation.JsonInclude;
 
 @JsonInclude(JsonInclude.Include.NON_EMPTY)
 public class GremlinRequest {
 
+    private static final Pattern BINDING_KEY =
+            Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+
     // See org.apache.tinkerpop.gremlin.server.channel.HttpChannelizer
     public String gremlin;
     public Map<String, Object> bindings;
@@ -55,12 +71,42 @@ public class GremlinRequest {
             return this.manager.execute(this.request);
         }
 
+        public ResultIterator executeStream() {
+            return this.manager.executeStream(this.request);
+        }
+
+        public PagedResultIterator executePaged(int pageSize) {
+            return this.manager.executePaged(this.request, pageSize);
+        }
+
         public long executeAsTask() {
             return this.manager.executeAsTask(this.request);
         }
 
-        public Builder binding(String key, String value) {
-            this.request.bindings.put(key, value);
+        public CompletableFuture<ResultSet> executeAsTaskAsync() {
+            return this.manager.executeAsTaskAsync(this.request);
+        }
+
+        /**
+         * Bind a variable of the gremlin, prefer binding the values that
+         * vary between requests over concatenating them into the gremlin,
+         * so the script compiled by server can be reused
+         */
+        public Builder binding(String key, Object value) {
+            E.checkArgument(key != null && BINDING_KEY.matcher(key).matches(),
+                            "The binding key must be a valid variable " +
+                            "name, but got '%s'", key);
+            E.checkArgumentNotNull(value, "The value of binding '%s' " +
+                                   "can't be null", key);
+            this.request.bindings.put(key, bindingValue(value));
+            return this;
+        }
+
+        public Builder bindings(Map<String, ?> bindings) {
+            E.checkArgumentNotNull(bindings, "The bindings can't be null");
+            for (Map.Entry<String, ?> e : bindings.entrySet()) {
+                this.binding(e.getKey(), e.getValue());
+            }
             return this;
         }
 
@@ -74,4 +120,52 @@ public class GremlinRequest {
             return this;
         }
     }
+
+    /**
+     * Convert a binding value to the form sent to server: a date is sent
+     * as its timestamp, a vertex or an edge is sent as its id, and the
+     * elements of collection, array and map are converted recursively
+     */
+    private static Object bindingValue(Object value) {
+        if (value == null || value instanceof String ||
+            value instanceof Number || value instanceof Boolean) {
+            return value;
+        }
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        }
+        if (value instanceof Vertex || value instanceof Edge) {
+            Object id = value instanceof Vertex ? ((Vertex) value).id() :
+                                                  ((Edge) value).id();
+            E.checkArgument(id != null,
+                            "Can't bind the element without id: %s", value);
+            return id;
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        if (value instanceof Object[]) {
+            value = Arrays.asList((Object[]) value);
+        }
+        if (value instanceof Collection) {
+            Collection<?> values = (Collection<?>) value;
+            List<Object> list = new ArrayList<>(values.size());
+            for (Object v : values) {
+                list.add(bindingValue(v));
+            }
+            return list;
+        }
+        if (value instanceof Map) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+                E.checkArgument(e.getKey() != null,
+                                "The key of binding map can't be null");
+                map.put(e.getKey().toString(), bindingValue(e.getValue()));
+            }
+            return map;
+        }
+        throw new IllegalArgumentException(String.format(
+                  "Unsupported binding value '%s' of type %s",
+                  value, value.getClass().getName()));
+    }
 }
@@ -57,6 +57,20 @@ public class TaskAPI extends API {
         return result.readList(TASKS, Task.class);
     }
 
+    /**
+     * List the tasks of the specified ids in one request, the tasks not
+     * found are absent in the result
+     */
+    public List<Task> list(List<Long> ids) {
+        E.checkArgument(ids != null && !ids.isEmpty(),
+                        "The task ids can't be null or empty");
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("ids", ids);
+        params.put("limit", ids.size());
+        RestResult result = this.client.get(this.path(), params);
+        return result.readList(TASKS, Task.class);
+    }
+
     public Task get(long id) {
         RestResult result = this.client.get(this.path(), String.valueOf(id));
         return result.readObject(Task.class);
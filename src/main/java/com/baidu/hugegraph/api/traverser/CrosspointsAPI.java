@@ -26,6 +26,7 @@ import java.util.Map;
 import com.baidu.hugegraph.api.graph.GraphAPI;
 import com.baidu.hugegraph.client.RestClient;
 import com.baidu.hugegraph.rest.RestResult;
+import com.baidu.hugegraph.serializer.PathIterator;
 import com.baidu.hugegraph.structure.constant.Direction;
 import com.baidu.hugegraph.structure.graph.Path;
 
@@ -44,6 +45,27 @@ public class CrosspointsAPI extends TraversersAPI {
                           Direction direction, String label,
                           int maxDepth, long degree,
                           long capacity, long limit) {
+        RestResult result = this.request(sourceId, targetId, direction, label,
+                                         maxDepth, degree, capacity, limit);
+        return result.readList("crosspoints", Path.class);
+    }
+
+    /**
+     * Same as get() but decode the paths one by one while iterating
+     */
+    public PathIterator iterate(Object sourceId, Object targetId,
+                                Direction direction, String label,
+                                int maxDepth, long degree,
+                                long capacity, long limit) {
+        RestResult result = this.request(sourceId, targetId, direction, label,
+                                         maxDepth, degree, capacity, limit);
+        return new PathIterator(result.content(), "crosspoints");
+    }
+
+    private RestResult request(Object sourceId, Object targetId,
+                               Direction direction, String label,
+                               int maxDepth, long degree,
+                               long capacity, long limit) {
         String source = GraphAPI.formatVertexId(sourceId, false);
         String target = GraphAPI.formatVertexId(targetId, false);
 
@@ -61,7 +83,6 @@ public class CrosspointsAPI extends TraversersAPI {
         params.put("degree", degree);
         params.put("capacity", capacity);
         params.put("limit", limit);
-        RestResult result = this.client.get(this.path(), params);
-        return result.readList("crosspoints", Path.class);
+        return this.client.get(this.path(), params);
     }
 }
@@ -27,6 +27,7 @@ import com.baidu.hugegraph.api.graph.GraphAPI;
 import com.baidu.hugegraph.client.RestClient;
 import com.baidu.hugegraph.rest.RestResult;
 import com.baidu.hugegraph.structure.constant.Direction;
+import com.baidu.hugegraph.structure.graph.IdList;
 
 public class KneighborAPI extends TraversersAPI {
 
@@ -41,6 +42,24 @@ public class KneighborAPI extends TraversersAPI {
 
     public List<Object> get(Object sourceId, Direction direction,
                             String label, int depth, long degree, long limit) {
+        RestResult result = this.request(sourceId, direction, label, depth,
+                                         degree, limit);
+        return result.readList("vertices", Object.class);
+    }
+
+    /**
+     * Same as get() but decode the vertex ids into a compact IdList
+     */
+    public IdList ids(Object sourceId, Direction direction,
+                      String label, int depth, long degree, long limit) {
+        RestResult result = this.request(sourceId, direction, label, depth,
+                                         degree, limit);
+        return IdList.parse(result.content(), "vertices");
+    }
+
+    private RestResult request(Object sourceId, Direction direction,
+                               String label, int depth, long degree,
+                               long limit) {
         String source = GraphAPI.formatVertexId(sourceId, false);
 
         checkPositive(depth, "Depth of k-neighbor");
@@ -54,8 +73,7 @@ public class KneighborAPI extends TraversersAPI {
         params.put("depth", depth);
         params.put("degree", degree);
         params.put("limit", limit);
-        RestResult result = this.client.get(this.path(), params);
-        return result.readList("vertices", Object.class);
+        return this.client.get(this.path(), params);
     }
 }
 
@@ -27,6 +27,7 @@ import com.baidu.hugegraph.api.graph.GraphAPI;
 import com.baidu.hugegraph.client.RestClient;
 import com.baidu.hugegraph.rest.RestResult;
 import com.baidu.hugegraph.structure.constant.Direction;
+import com.baidu.hugegraph.structure.graph.IdList;
 
 public class KoutAPI extends TraversersAPI {
 
@@ -42,6 +43,25 @@ public class KoutAPI extends TraversersAPI {
     public List<Object> get(Object sourceId, Direction direction,
                             String label, int depth, boolean nearest,
                             long degree, long limit, long capacity) {
+        RestResult result = this.request(sourceId, direction, label, depth,
+                                         nearest, degree, limit, capacity);
+        return result.readList("vertices", Object.class);
+    }
+
+    /**
+     * Same as get() but decode the vertex ids into a compact IdList
+     */
+    public IdList ids(Object sourceId, Direction direction,
+                      String label, int depth, boolean nearest,
+                      long degree, long limit, long capacity) {
+        RestResult result = this.request(sourceId, direction, label, depth,
+                                         nearest, degree, limit, capacity);
+        return IdList.parse(result.content(), "vertices");
+    }
+
+    private RestResult request(Object sourceId, Direction direction,
+                               String label, int depth, boolean nearest,
+                               long degree, long limit, long capacity) {
         String source = GraphAPI.formatVertexId(sourceId, false);
 
         checkPositive(depth, "Depth of k-out");
@@ -58,8 +78,7 @@ public class KoutAPI extends TraversersAPI {
         params.put("degree", degree);
         params.put("capacity", capacity);
         params.put("limit", limit);
-        RestResult result = this.client.get(this.path(), params);
-        return result.readList("vertices", Object.class);
+        return this.client.get(this.path(), params);
     }
 }
 
@@ -19,9 +19,20 @@
 
 package com.baidu.hugegraph.client;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
 import javax.ws.rs.core.Response;
 
 import com.baidu.hugegraph.exception.ServerException;
+import com.baidu.hugegraph.rest.ClientException;
 import com.baidu.hugegraph.rest.RestResult;
 import com.baidu.hugegraph.serializer.PathDeserializer;
 import com.baidu.hugegraph.serializer.ShardDeserializer;
@@ -35,6 +46,10 @@ public class RestClient extends com.baidu.hugegraph.rest.RestClient {
 
     private static final int SECOND = 1000;
 
+    private final ConcurrentMap<List<Object>, CompletableFuture<RestResult>>
+                  inflightGets = new ConcurrentHashMap<>();
+    private volatile boolean singleFlight = false;
+
     static {
         SimpleModule module = new SimpleModule();
         module.addDeserializer(Vertex.class, new VertexDeserializer());
@@ -51,6 +66,75 @@ public class RestClient extends com.baidu.hugegraph.rest.RestClient {
         super(url, username, password, timeout * SECOND);
     }
 
+    /**
+     * Collapse the concurrent identical GET requests (same path and
+     * parameters) into one request, the callers waiting for it share the
+     * response and each of them decodes its own objects from the response
+     */
+    public void singleFlight(boolean singleFlight) {
+        this.singleFlight = singleFlight;
+    }
+
+    public boolean singleFlight() {
+        return this.singleFlight;
+    }
+
+    @Override
+    public RestResult get(String path) {
+        if (!this.singleFlight) {
+            return super.get(path);
+        }
+        return this.singleFlight(Arrays.asList(path), () -> super.get(path));
+    }
+
+    @Override
+    public RestResult get(String path, Map<String, Object> params) {
+        if (!this.singleFlight) {
+            return super.get(path, params);
+        }
+        List<Object> key = Arrays.asList(path, new HashMap<>(params));
+        return this.singleFlight(key, () -> super.get(path, params));
+    }
+
+    @Override
+    public RestResult get(String path, String id) {
+        if (!this.singleFlight) {
+            return super.get(path, id);
+        }
+        return this.singleFlight(Arrays.asList(path, id),
+                                 () -> super.get(path, id));
+    }
+
+    private RestResult singleFlight(List<Object> key,
+                                    Supplier<RestResult> request) {
+        CompletableFuture<RestResult> future = new CompletableFuture<>();
+        CompletableFuture<RestResult> inflight;
+        inflight = this.inflightGets.putIfAbsent(key, future);
+        if (inflight != null) {
+            try {
+                return inflight.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new ClientException("Failed to request %s", cause, key);
+            }
+        }
+        try {
+            RestResult result = request.get();
+            future.complete(result);
+            return result;
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.inflightGets.remove(key, future);
+        }
+    }
+
     protected void checkStatus(Response response, Response.Status... statuses) {
         boolean match = false;
         for (Response.Status status : statuses) {
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.driver;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import com.baidu.hugegraph.rest.ClientException;
+import com.baidu.hugegraph.structure.constant.Direction;
+import com.baidu.hugegraph.util.E;
+import com.baidu.hugegraph.util.ExecutorUtil;
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * BatchTraverser runs a traversal for each of many source vertices with
+ * bounded concurrency, the results are returned in completion order as
+ * soon as they are done, and the failure of a source is returned as its
+ * result instead of aborting the others.
+ *
+ * The sources are read lazily, at most twice `parallelism` of them are
+ * read ahead of the consumed results, so the sources can be a stream of
+ * millions of vertices.
+ *
+ * The threads are owned by the batch traverser and shared by all the
+ * results, they exit after being idle for a while or when it's closed.
+ */
+public class BatchTraverser implements AutoCloseable {
+
+    private static final int DEFAULT_PARALLELISM = 8;
+    private static final long IDLE_TIMEOUT = 60000L;
+
+    private final TraverserManager traverser;
+    private int parallelism;
+    private RateLimiter rateLimiter;
+    private ExecutorService executor;
+    private boolean closed;
+
+    public BatchTraverser(TraverserManager traverser) {
+        E.checkNotNull(traverser, "Traverser manager");
+        this.traverser = traverser;
+        this.parallelism = DEFAULT_PARALLELISM;
+        this.rateLimiter = null;
+        this.executor = null;
+        this.closed = false;
+    }
+
+    /**
+     * Set the max traversals running at the same time, the results being
+     * iterated keep running with the old parallelism
+     */
+    public synchronized BatchTraverser parallelism(int parallelism) {
+        E.checkArgument(parallelism > 0,
+                        "The parallelism must be > 0, but got %s",
+                        parallelism);
+        if (this.executor != null && parallelism != this.parallelism) {
+            // Let the running traversals finish on the old threads
+            this.executor.shutdown();
+            this.executor = null;
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Limit the requests sent per second by all the threads together,
+     * -1 means no limit
+     */
+    public BatchTraverser rateLimit(double permitsPerSecond) {
+        E.checkArgument(permitsPerSecond > 0.0D || permitsPerSecond == -1.0D,
+                        "The rate limit must be > 0 or == -1, but got %s",
+                        permitsPerSecond);
+        this.rateLimiter = permitsPerSecond == -1.0D ? null :
+                           RateLimiter.create(permitsPerSecond);
+        return this;
+    }
+
+    public Results<List<Object>> kout(Iterator<?> sources,
+                                      Direction direction, String label,
+                                      int depth, boolean nearest,
+                                      long degree, long capacity,
+                                      long limit) {
+        return this.execute(sources, source -> {
+            return this.traverser.kout(source, direction, label, depth,
+                                       nearest, degree, capacity, limit);
+        });
+    }
+
+    public Results<List<Object>> kneighbor(Iterator<?> sources,
+                                           Direction direction, String label,
+                                           int depth, long degree,
+                                           long limit) {
+        return this.execute(sources, source -> {
+            return this.traverser.kneighbor(source, direction, label, depth,
+                                            degree, limit);
+        });
+    }
+
+    /**
+     * Run the traversal for each source, the results must be closed if
+     * they are not consumed to the end, so use them in try-with-resources
+     */
+    public <R> Results<R> execute(Iterator<?> sources,
+                                  Function<Object, R> traversal) {
+        E.checkNotNull(sources, "sources");
+        E.checkNotNull(traversal, "traversal");
+        return new Results<>(sources, traversal);
+    }
+
+    /**
+     * Stop the threads, the traversals of the results not consumed yet
+     * are interrupted
+     */
+    @Override
+    public synchronized void close() {
+        this.closed = true;
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+            this.executor = null;
+        }
+    }
+
+    private synchronized ExecutorService executor() {
+        E.checkState(!this.closed, "The batch traverser has been closed");
+        if (this.executor == null) {
+            this.executor = ExecutorUtil.newFixedThreadPool(
+                            this.parallelism, "batch-traverser",
+                            IDLE_TIMEOUT);
+        }
+        return this.executor;
+    }
+
+    private <R> Result<R> traverse(Object source,
+                                   Function<Object, R> traversal) {
+        if (this.rateLimiter != null) {
+            this.rateLimiter.acquire();
+        }
+        try {
+            return new Result<>(source, traversal.apply(source), null);
+        } catch (RuntimeException e) {
+            return new Result<>(source, null, e);
+        }
+    }
+
+    /**
+     * The iterator of the results in completion order. It must be used in
+     * try-with-resources if it may not be consumed to the end, like breaking
+     * out of the loop, closing it cancels the traversals read ahead.
+     */
+    public class Results<R> implements Iterator<Result<R>>, AutoCloseable {
+
+        private final Iterator<?> sources;
+        private final Function<Object, R> traversal;
+        private final int readAhead;
+        private final CompletionService<Result<R>> completion;
+        private final Set<Future<Result<R>>> pending;
+        private boolean closed;
+
+        private Results(Iterator<?> sources, Function<Object, R> traversal) {
+            this.sources = sources;
+            this.traversal = traversal;
+            this.readAhead = BatchTraverser.this.parallelism * 2;
+            this.completion = new ExecutorCompletionService<>(
+                              BatchTraverser.this.executor());
+            this.pending = new HashSet<>();
+            this.closed = false;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.closed) {
+                return false;
+            }
+            while (this.pending.size() < this.readAhead &&
+                   this.sources.hasNext()) {
+                Object source = this.sources.next();
+                this.pending.add(this.completion.submit(() -> {
+                    return BatchTraverser.this.traverse(source,
+                                                        this.traversal);
+                }));
+            }
+            if (this.pending.isEmpty()) {
+                this.close();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public Result<R> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                Future<Result<R>> future = this.completion.take();
+                this.pending.remove(future);
+                return future.get();
+            } catch (InterruptedException e) {
+                this.close();
+                Thread.currentThread().interrupt();
+                throw new ClientException("Interrupted while traversing", e);
+            } catch (ExecutionException e) {
+                // The traversal failures are caught, it must be a bug
+                this.close();
+                throw new ClientException("Failed to traverse", e.getCause());
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!this.closed) {
+                this.closed = true;
+                this.pending.forEach(future -> future.cancel(true));
+                this.pending.clear();
+            }
+        }
+    }
+
+    public static class Result<R> {
+
+        private final Object source;
+        private final R result;
+        private final RuntimeException error;
+
+        public Result(Object source, R result, RuntimeException error) {
+            this.source = source;
+            this.result = result;
+            this.error = error;
+        }
+
+        public Object source() {
+            return this.source;
+        }
+
+        /**
+         * @return the result of the traversal, null if it failed
+         */
+        public R result() {
+            return this.result;
+        }
+
+        public RuntimeException error() {
+            return this.error;
+        }
+
+        public boolean succeed() {
+            return this.error == null;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Result{source=%s, %s=%s}", this.source,
+                                 this.succeed() ? "result" : "error",
+                                 this.succeed() ? this.result : this.error);
+        }
+    }
+}
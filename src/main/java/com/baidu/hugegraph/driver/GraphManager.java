@@ -19,12 +19,23 @@
 
 package com.baidu.hugegraph.driver;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.baidu.hugegraph.api.graph.EdgeAPI;
 import com.baidu.hugegraph.api.graph.VertexAPI;
+import com.baidu.hugegraph.api.traverser.EdgesAPI;
+import com.baidu.hugegraph.api.traverser.VerticesAPI;
 import com.baidu.hugegraph.client.RestClient;
 import com.baidu.hugegraph.exception.InvalidOperationException;
 import com.baidu.hugegraph.structure.GraphElement;
@@ -32,28 +43,64 @@ import com.baidu.hugegraph.structure.constant.Direction;
 import com.baidu.hugegraph.structure.constant.T;
 import com.baidu.hugegraph.structure.graph.Edge;
 import com.baidu.hugegraph.structure.graph.GraphIterator;
+import com.baidu.hugegraph.structure.graph.PageSpliterator;
+import com.baidu.hugegraph.structure.graph.RemoveResult;
+import com.baidu.hugegraph.structure.graph.Shard;
+import com.baidu.hugegraph.structure.graph.ShardSpliterator;
 import com.baidu.hugegraph.structure.graph.Vertex;
 import com.baidu.hugegraph.util.E;
+import com.baidu.hugegraph.util.ExecutorUtil;
 
 public class GraphManager {
 
+    private static final int DEFAULT_PARALLELISM = 8;
+
     private final String graph;
     private final VertexAPI vertexAPI;
     private final EdgeAPI edgeAPI;
+    private final VerticesAPI verticesAPI;
+    private final EdgesAPI edgesAPI;
+    private final List<Runnable> writeListeners;
 
     public GraphManager(RestClient client, String graph) {
         this.graph = graph;
         this.vertexAPI = new VertexAPI(client, graph);
         this.edgeAPI = new EdgeAPI(client, graph);
+        this.verticesAPI = new VerticesAPI(client, graph);
+        this.edgesAPI = new EdgesAPI(client, graph);
+        this.writeListeners = new CopyOnWriteArrayList<>();
     }
 
     public String graph() {
         return this.graph;
     }
 
+    /**
+     * Register a listener notified after each write of vertices or edges
+     * through this manager, like to invalidate the cached query results
+     */
+    public void addWriteListener(Runnable listener) {
+        E.checkNotNull(listener, "listener");
+        this.writeListeners.add(listener);
+    }
+
+    public void removeWriteListener(Runnable listener) {
+        this.writeListeners.remove(listener);
+    }
+
+    /**
+     * Open a write-behind session, the property updates of the elements
+     * attached to it are flushed when the count of dirty elements reaches
+     * `batchSize` or every `flushInterval` milliseconds (0 means never)
+     */
+    public GraphSession session(int batchSize, long flushInterval) {
+        return new GraphSession(this, batchSize, flushInterval);
+    }
+
     public Vertex addVertex(Vertex vertex) {
         vertex = this.vertexAPI.create(vertex);
         this.attachManager(vertex);
+        this.notifyWrite();
         return vertex;
     }
 
@@ -78,6 +125,7 @@ public class GraphManager {
             vertex.id(ids.get(i));
             this.attachManager(vertex);
         }
+        this.notifyWrite();
         return vertices;
     }
 
@@ -135,19 +183,75 @@ public class GraphManager {
         });
     }
 
+    public Stream<Vertex> streamVertices(int sizePerPage) {
+        return this.streamVertices(null, null, sizePerPage);
+    }
+
+    public Stream<Vertex> streamVertices(String label, int sizePerPage) {
+        return this.streamVertices(label, null, sizePerPage);
+    }
+
+    /**
+     * Stream the vertices page by page, the pages are fetched on demand
+     * and no more page is fetched after the stream is closed
+     */
+    public Stream<Vertex> streamVertices(String label,
+                                         Map<String, Object> properties,
+                                         int sizePerPage) {
+        PageSpliterator<Vertex> spliterator = new PageSpliterator<>(this,
+                                              (page) -> {
+            return this.vertexAPI.list(label, properties, 0, page, sizePerPage);
+        });
+        return StreamSupport.stream(spliterator, false)
+                            .onClose(spliterator::close);
+    }
+
+    /**
+     * Stream all the vertices by scanning the shards of `splitSize`, the
+     * stream can be split by shards for parallel processing
+     */
+    public Stream<Vertex> streamVerticesByShards(long splitSize) {
+        List<Shard> shards = this.verticesAPI.shards(splitSize);
+        ShardSpliterator<Vertex> spliterator = new ShardSpliterator<>(
+                                               this, shards,
+                                               this.verticesAPI::scan);
+        return StreamSupport.stream(spliterator, false)
+                            .onClose(spliterator::close);
+    }
+
     public void removeVertex(Object vertexId) {
         this.vertexAPI.delete(vertexId);
+        this.notifyWrite();
+    }
+
+    public RemoveResult removeVertices(Collection<?> vertexIds) {
+        return this.removeVertices(vertexIds.iterator(), DEFAULT_PARALLELISM,
+                                   null);
+    }
+
+    /**
+     * Remove vertices with at most `parallelism` requests in flight, the ids
+     * are consumed lazily so that they can be produced by a scan. The
+     * listener (may be null) is notified after each id is processed with
+     * the failure or null if succeed.
+     */
+    public RemoveResult removeVertices(Iterator<?> vertexIds, int parallelism,
+                                       BiConsumer<Object, Throwable> listener) {
+        return this.removeElements(vertexIds, parallelism, listener,
+                                   this.vertexAPI::delete);
     }
 
     public Vertex appendVertexProperty(Vertex vertex) {
         vertex = this.vertexAPI.append(vertex);
         this.attachManager(vertex);
+        this.notifyWrite();
         return vertex;
     }
 
     public Vertex eliminateVertexProperty(Vertex vertex) {
         vertex = this.vertexAPI.eliminate(vertex);
         this.attachManager(vertex);
+        this.notifyWrite();
         return vertex;
     }
 
@@ -158,6 +262,7 @@ public class GraphManager {
         }
         edge = this.edgeAPI.create(edge);
         this.attachManager(edge);
+        this.notifyWrite();
         return edge;
     }
 
@@ -192,6 +297,7 @@ public class GraphManager {
             edge.id(ids.get(i));
             this.attachManager(edge);
         }
+        this.notifyWrite();
         return edges;
     }
 
@@ -325,22 +431,120 @@ public class GraphManager {
         });
     }
 
+    public Stream<Edge> streamEdges(int sizePerPage) {
+        return this.streamEdges(null, null, null, null, sizePerPage);
+    }
+
+    public Stream<Edge> streamEdges(String label, int sizePerPage) {
+        return this.streamEdges(null, null, label, null, sizePerPage);
+    }
+
+    public Stream<Edge> streamEdges(Object vertexId,
+                                    Direction direction,
+                                    String label,
+                                    Map<String, Object> properties,
+                                    int sizePerPage) {
+        PageSpliterator<Edge> spliterator = new PageSpliterator<>(this,
+                                            (page) -> {
+            return this.edgeAPI.list(vertexId, direction, label, properties,
+                                     0, page, sizePerPage);
+        });
+        return StreamSupport.stream(spliterator, false)
+                            .onClose(spliterator::close);
+    }
+
+    public Stream<Edge> streamEdgesByShards(long splitSize) {
+        List<Shard> shards = this.edgesAPI.shards(splitSize);
+        ShardSpliterator<Edge> spliterator = new ShardSpliterator<>(
+                                             this, shards,
+                                             this.edgesAPI::scan);
+        return StreamSupport.stream(spliterator, false)
+                            .onClose(spliterator::close);
+    }
+
     public void removeEdge(String edgeId) {
         this.edgeAPI.delete(edgeId);
+        this.notifyWrite();
+    }
+
+    public RemoveResult removeEdges(Collection<String> edgeIds) {
+        return this.removeEdges(edgeIds.iterator(), DEFAULT_PARALLELISM, null);
+    }
+
+    public RemoveResult removeEdges(Iterator<String> edgeIds, int parallelism,
+                                    BiConsumer<Object, Throwable> listener) {
+        return this.removeElements(edgeIds, parallelism, listener,
+                                   this.edgeAPI::delete);
     }
 
     public Edge appendEdgeProperty(Edge edge) {
         edge = this.edgeAPI.append(edge);
         this.attachManager(edge);
+        this.notifyWrite();
         return edge;
     }
 
     public Edge eliminateEdgeProperty(Edge edge) {
         edge = this.edgeAPI.eliminate(edge);
         this.attachManager(edge);
+        this.notifyWrite();
         return edge;
     }
 
+    private <I> RemoveResult removeElements(
+                             Iterator<? extends I> ids, int parallelism,
+                             BiConsumer<Object, Throwable> listener,
+                             Consumer<I> remover) {
+        E.checkNotNull(ids, "ids");
+        E.checkArgument(parallelism > 0,
+                        "The parallelism must be > 0, but got %s",
+                        parallelism);
+        RemoveResult result = new RemoveResult();
+        // Bound the ids read ahead of the finished requests
+        Semaphore permits = new Semaphore(parallelism * 2);
+        ExecutorService executor = ExecutorUtil.newFixedThreadPool(
+                                   parallelism, "batch-remover");
+        try {
+            while (ids.hasNext()) {
+                I id = ids.next();
+                permits.acquireUninterruptibly();
+                executor.execute(() -> {
+                    Throwable failure = null;
+                    try {
+                        remover.accept(id);
+                        result.increaseSucceed();
+                    } catch (Throwable e) {
+                        failure = e;
+                        result.fail(id, e);
+                    } finally {
+                        permits.release();
+                    }
+                    if (listener != null) {
+                        listener.accept(id, failure);
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            if (result.succeed() > 0L) {
+                this.notifyWrite();
+            }
+        }
+        return result;
+    }
+
+    private void notifyWrite() {
+        for (Runnable listener : this.writeListeners) {
+            listener.run();
+        }
+    }
+
     private String getValue(String key, Object... keyValues) {
         E.checkArgument((keyValues.length & 0x01) == 0,
                         "The number of parameters must be even");
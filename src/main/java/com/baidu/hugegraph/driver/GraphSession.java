@@ -0,0 +1,416 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.driver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+
+import com.baidu.hugegraph.exception.InvalidOperationException;
+import com.baidu.hugegraph.structure.GraphElement;
+import com.baidu.hugegraph.structure.graph.Edge;
+import com.baidu.hugegraph.structure.graph.Vertex;
+import com.baidu.hugegraph.util.E;
+import com.baidu.hugegraph.util.ExecutorUtil;
+import com.baidu.hugegraph.util.Log;
+import com.google.common.util.concurrent.Futures;
+
+/**
+ * GraphSession is a write-behind buffer of property updates. The attached
+ * elements record their dirty properties locally instead of sending a
+ * request for each `property()`/`removeProperty()` call, and the changes of
+ * an element are flushed as one append and one eliminate request when
+ * `flush()` is called, the count of dirty elements reaches the batch size,
+ * or the flush interval elapses. The dirty elements of a flush are sent in
+ * parallel by the threads owned by the session, which are stopped when
+ * it's closed.
+ */
+public class GraphSession implements AutoCloseable {
+
+    private static final Logger LOG = Log.logger(GraphSession.class);
+
+    public static final int DEFAULT_PARALLELISM = 8;
+    // The writer threads exit after being idle for the time
+    private static final long WRITER_IDLE_TIMEOUT = 60000L;
+
+    private final GraphManager manager;
+    private final int batchSize;
+    private final Object flushLock;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService writer;
+
+    private Map<GraphElement, Changes> dirtyElements;
+    private boolean closed;
+
+    public GraphSession(GraphManager manager, int batchSize,
+                        long flushInterval) {
+        this(manager, batchSize, flushInterval, DEFAULT_PARALLELISM);
+    }
+
+    public GraphSession(GraphManager manager, int batchSize,
+                        long flushInterval, int parallelism) {
+        E.checkNotNull(manager, "Graph manager");
+        E.checkArgument(batchSize > 0,
+                        "The batch size must be > 0, but got %s", batchSize);
+        E.checkArgument(flushInterval >= 0L,
+                        "The flush interval must be >= 0, but got %s",
+                        flushInterval);
+        E.checkArgument(parallelism > 0,
+                        "The parallelism must be > 0, but got %s",
+                        parallelism);
+        this.manager = manager;
+        this.batchSize = batchSize;
+        this.flushLock = new Object();
+        this.dirtyElements = new LinkedHashMap<>();
+        this.closed = false;
+
+        if (parallelism > 1) {
+            this.writer = ExecutorUtil.newFixedThreadPool(
+                          parallelism, "graph-session-writer",
+                          WRITER_IDLE_TIMEOUT);
+        } else {
+            this.writer = null;
+        }
+        if (flushInterval > 0L) {
+            this.scheduler = ExecutorUtil.newScheduledThreadPool(
+                             "graph-session-flusher");
+            this.scheduler.scheduleWithFixedDelay(this::flushQuietly,
+                                                  flushInterval,
+                                                  flushInterval,
+                                                  TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    public <T extends GraphElement> T attach(T element) {
+        E.checkNotNull(element, "element");
+        this.checkOpened();
+        element.attachSession(this);
+        return element;
+    }
+
+    public <T extends GraphElement> T detach(T element) {
+        E.checkNotNull(element, "element");
+        this.flush();
+        element.attachSession(null);
+        return element;
+    }
+
+    /**
+     * Record the update of a property
+     * @param existed whether the element had the property before the update
+     */
+    public void updateProperty(GraphElement element, String key,
+                               Object value, boolean existed) {
+        boolean full;
+        synchronized (this) {
+            if (!this.closed) {
+                Changes changes = this.changes(element);
+                // The server has it unless it's added in the session
+                boolean stored = existed && !changes.added.contains(key) ||
+                                 changes.eliminates.containsKey(key);
+                if (!stored) {
+                    changes.added.add(key);
+                }
+                changes.eliminates.remove(key);
+                changes.appends.put(key, value);
+                full = this.dirtyElements.size() >= this.batchSize;
+            } else {
+                // Write through after the session is closed
+                Changes changes = new Changes();
+                changes.appends.put(key, value);
+                this.flush(element, changes);
+                return;
+            }
+        }
+        if (full) {
+            this.flush();
+        }
+    }
+
+    public void removeProperty(GraphElement element, String key,
+                               Object value) {
+        boolean full;
+        synchronized (this) {
+            if (!this.closed) {
+                Changes changes = this.changes(element);
+                changes.appends.remove(key);
+                if (!changes.added.remove(key)) {
+                    changes.eliminates.put(key, value);
+                } else if (changes.isEmpty()) {
+                    // Only the pending append is dropped
+                    this.dirtyElements.remove(element);
+                }
+                full = this.dirtyElements.size() >= this.batchSize;
+            } else {
+                Changes changes = new Changes();
+                changes.eliminates.put(key, value);
+                this.flush(element, changes);
+                return;
+            }
+        }
+        if (full) {
+            this.flush();
+        }
+    }
+
+    public synchronized int pending() {
+        return this.dirtyElements.size();
+    }
+
+    /**
+     * Send all the pending changes to server, each dirty element costs at
+     * most one append request and one eliminate request, and the elements
+     * are sent with at most `parallelism` requests in flight. The changes
+     * of the elements failed to send are kept pending to be sent again
+     */
+    public void flush() {
+        // Serialize flushes to keep the order of the changes of an element
+        synchronized (this.flushLock) {
+            Map<GraphElement, Changes> elements;
+            synchronized (this) {
+                if (this.dirtyElements.isEmpty()) {
+                    return;
+                }
+                elements = this.dirtyElements;
+                this.dirtyElements = new LinkedHashMap<>();
+            }
+
+            Map<GraphElement, RuntimeException> failures =
+                                                new ConcurrentHashMap<>();
+            if (this.writer == null || elements.size() == 1) {
+                elements.forEach((element, changes) -> {
+                    this.flush(element, changes, failures);
+                });
+            } else {
+                this.flush(elements, failures);
+            }
+            if (failures.isEmpty()) {
+                return;
+            }
+
+            List<Object> ids = new ArrayList<>(failures.size());
+            synchronized (this) {
+                for (GraphElement element : elements.keySet()) {
+                    if (failures.containsKey(element)) {
+                        this.restore(element, elements.get(element));
+                        ids.add(id(element));
+                    }
+                }
+            }
+            throw new InvalidOperationException(String.format(
+                      "Failed to flush %s of %s elements: %s",
+                      ids.size(), elements.size(), ids),
+                      failures.values().iterator().next());
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+        }
+        if (this.scheduler != null) {
+            this.scheduler.shutdown();
+        }
+        try {
+            this.flush();
+        } finally {
+            if (this.writer != null) {
+                this.writer.shutdown();
+            }
+        }
+    }
+
+    private void flush(Map<GraphElement, Changes> elements,
+                       Map<GraphElement, RuntimeException> failures) {
+        List<Future<?>> futures = new ArrayList<>(elements.size());
+        elements.forEach((element, changes) -> {
+            futures.add(this.writer.submit(() -> {
+                this.flush(element, changes, failures);
+            }));
+        });
+        for (Future<?> future : futures) {
+            Futures.getUnchecked(future);
+        }
+    }
+
+    private void flush(GraphElement element, Changes changes,
+                       Map<GraphElement, RuntimeException> failures) {
+        try {
+            this.flush(element, changes);
+        } catch (RuntimeException e) {
+            failures.put(element, e);
+        }
+    }
+
+    private void flush(GraphElement element, Changes changes) {
+        if (element instanceof Vertex) {
+            Vertex vertex = (Vertex) element;
+            if (!changes.eliminates.isEmpty()) {
+                Vertex delta = new Vertex(vertex.label());
+                delta.id(vertex.id());
+                changes.eliminates.forEach(delta::property);
+                this.manager.eliminateVertexProperty(delta);
+                // Don't send the eliminates again if the append failed
+                changes.eliminates.clear();
+            }
+            if (!changes.appends.isEmpty()) {
+                Vertex delta = new Vertex(vertex.label());
+                delta.id(vertex.id());
+                changes.appends.forEach(delta::property);
+                // NOTE: append can also be used to update property
+                delta = this.manager.appendVertexProperty(delta);
+                this.refresh(vertex, delta, changes);
+            }
+        } else {
+            assert element instanceof Edge;
+            Edge edge = (Edge) element;
+            if (!changes.eliminates.isEmpty()) {
+                Edge delta = this.copyEdge(edge);
+                changes.eliminates.forEach(delta::property);
+                this.manager.eliminateEdgeProperty(delta);
+                changes.eliminates.clear();
+            }
+            if (!changes.appends.isEmpty()) {
+                Edge delta = this.copyEdge(edge);
+                changes.appends.forEach(delta::property);
+                delta = this.manager.appendEdgeProperty(delta);
+                this.refresh(edge, delta, changes);
+            }
+        }
+    }
+
+    /**
+     * Put back the changes failed to send, the newer changes of the same
+     * properties made during the flush take precedence
+     */
+    private void restore(GraphElement element, Changes failed) {
+        Changes newer = this.dirtyElements.get(element);
+        if (newer == null) {
+            this.dirtyElements.put(element, failed);
+            return;
+        }
+        for (String key : failed.added) {
+            if (newer.eliminates.remove(key) != null) {
+                // Removed during the flush, the server never had it
+                failed.appends.remove(key);
+            } else {
+                newer.added.add(key);
+            }
+        }
+        failed.appends.forEach((key, value) -> {
+            if (!newer.eliminates.containsKey(key)) {
+                newer.appends.putIfAbsent(key, value);
+            }
+        });
+        failed.eliminates.forEach((key, value) -> {
+            if (!newer.appends.containsKey(key)) {
+                newer.eliminates.putIfAbsent(key, value);
+            }
+        });
+        if (newer.isEmpty()) {
+            this.dirtyElements.remove(element);
+        }
+    }
+
+    private static Object id(GraphElement element) {
+        if (element instanceof Vertex) {
+            return ((Vertex) element).id();
+        }
+        return ((Edge) element).id();
+    }
+
+    private Edge copyEdge(Edge edge) {
+        Edge delta = new Edge(edge.label());
+        delta.id(edge.id());
+        delta.source(edge.source());
+        delta.target(edge.target());
+        return delta;
+    }
+
+    private void refresh(GraphElement element, GraphElement updated,
+                         Changes changes) {
+        /*
+         * Take the values returned by server (like the merged value of
+         * list/set property), unless the property is changed again
+         */
+        synchronized (this) {
+            Changes newer = this.dirtyElements.get(element);
+            for (String key : changes.appends.keySet()) {
+                Object value = updated.property(key);
+                if (value == null ||
+                    newer != null && (newer.appends.containsKey(key) ||
+                                      newer.eliminates.containsKey(key))) {
+                    continue;
+                }
+                element.properties().put(key, value);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            this.flush();
+        } catch (Throwable e) {
+            LOG.warn("Failed to flush graph session, the failed changes " +
+                     "are kept to be flushed again", e);
+        }
+    }
+
+    private Changes changes(GraphElement element) {
+        return this.dirtyElements.computeIfAbsent(element, e -> {
+            return new Changes();
+        });
+    }
+
+    private void checkOpened() {
+        if (this.closed) {
+            throw new InvalidOperationException("The session has been closed");
+        }
+    }
+
+    private static class Changes {
+
+        private final Map<String, Object> appends = new HashMap<>();
+        private final Map<String, Object> eliminates = new HashMap<>();
+        // The appended properties which the server doesn't have
+        private final Set<String> added = new HashSet<>();
+
+        private boolean isEmpty() {
+            return this.appends.isEmpty() && this.eliminates.isEmpty();
+        }
+    }
+}
@@ -19,41 +19,151 @@
 
 package com.baidu.hugegraph.driver;
 
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+
 import com.baidu.hugegraph.api.gremlin.GremlinAPI;
 import com.baidu.hugegraph.api.gremlin.GremlinRequest;
 import com.baidu.hugegraph.api.job.GremlinJobAPI;
+import com.baidu.hugegraph.api.task.TaskAPI;
 import com.baidu.hugegraph.client.RestClient;
+import com.baidu.hugegraph.rest.ClientException;
+import com.baidu.hugegraph.serializer.GremlinResultDeserializer;
+import com.baidu.hugegraph.serializer.ResultIterator;
+import com.baidu.hugegraph.structure.Task;
 import com.baidu.hugegraph.structure.gremlin.Response;
 import com.baidu.hugegraph.structure.gremlin.ResultSet;
+import com.baidu.hugegraph.util.E;
+import com.baidu.hugegraph.util.JsonUtil;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 
 public class GremlinManager {
 
+    private static final int SCRIPT_STATS_CAPACITY = 1000;
+
     private GremlinAPI gremlinAPI;
     private GremlinJobAPI gremlinJobAPI;
+    private TaskPoller taskPoller;
     private String graph;
+    // The recently executed scripts, to count how often a script is reused
+    private Cache<String, Boolean> scripts;
 
     public GremlinManager(RestClient client, String graph) {
         this.gremlinAPI = new GremlinAPI(client);
         this.gremlinJobAPI = new GremlinJobAPI(client, graph);
+        this.taskPoller = new TaskPoller(new TaskAPI(client, graph));
         this.graph = graph;
+        this.scripts = CacheBuilder.newBuilder()
+                                   .maximumSize(SCRIPT_STATS_CAPACITY)
+                                   .recordStats()
+                                   .build();
     }
 
     public ResultSet execute(GremlinRequest request) {
-        // Bind "graph" to all graphs
-        request.aliases.put("graph", this.graph);
-        // Bind "g" to all graphs by custom rule which define in gremlin server.
-        request.aliases.put("g", "__g_" + this.graph);
-
+        this.bindAliases(request);
+        this.recordScript(request);
         Response response = this.gremlinAPI.post(request);
         // TODO: Can add some checks later
         return response.result();
     }
 
+    /**
+     * Execute the gremlin and decode the rows one by one while iterating,
+     * the decoded rows are not held by the iterator
+     */
+    public ResultIterator executeStream(GremlinRequest request) {
+        this.bindAliases(request);
+        return this.iterate(request);
+    }
+
+    /**
+     * Execute the gremlin page by page, each page is fetched by appending
+     * a range step to the gremlin when the rows of previous page have been
+     * consumed, so the gremlin must be a single traversal ending in an
+     * order() step, and each page re-runs it from the start
+     */
+    public PagedResultIterator executePaged(GremlinRequest request,
+                                            int pageSize) {
+        E.checkArgument(pageSize > 0,
+                        "The page size must be > 0, but got %s", pageSize);
+        this.bindAliases(request);
+        return new PagedResultIterator(this, request, pageSize);
+    }
+
     public long executeAsTask(GremlinRequest request) {
         return this.gremlinJobAPI.execute(request);
     }
 
+    /**
+     * Execute the gremlin as a task, the future is completed with the
+     * results of the task once it succeeds, or completed exceptionally if
+     * the task fails. The tasks are polled by a shared scheduler thread
+     * instead of a thread per task
+     */
+    public CompletableFuture<ResultSet> executeAsTaskAsync(
+                                        GremlinRequest request) {
+        long taskId = this.executeAsTask(request);
+        return this.taskPoller.await(taskId).thenApply(task -> {
+            if (!task.success()) {
+                throw new ClientException("Task '%s' is '%s', result is '%s'",
+                                          taskId, task.status(),
+                                          task.result());
+            }
+            return taskResults(task);
+        });
+    }
+
     public GremlinRequest.Builder gremlin(String gremlin) {
         return new GremlinRequest.Builder(gremlin, this);
     }
+
+    /**
+     * Prepare a gremlin template whose text keeps constant, the variables
+     * in it are given as bindings of each execution, so that the script
+     * compiled by server can be reused
+     */
+    public PreparedGremlin prepare(String gremlin) {
+        E.checkArgument(gremlin != null && !gremlin.isEmpty(),
+                        "The gremlin can't be null or empty");
+        return new PreparedGremlin(gremlin, this);
+    }
+
+    /**
+     * @return the statistics of executed scripts, a hit means a request
+     *         reused the text of a recently executed script, and a miss
+     *         means a new script text that server needs to compile
+     */
+    public CacheStats scriptStats() {
+        return this.scripts.stats();
+    }
+
+    ResultIterator iterate(GremlinRequest request) {
+        this.recordScript(request);
+        return this.gremlinAPI.iterate(request);
+    }
+
+    private void recordScript(GremlinRequest request) {
+        if (this.scripts.getIfPresent(request.gremlin) == null) {
+            this.scripts.put(request.gremlin, true);
+        }
+    }
+
+    private static ResultSet taskResults(Task task) {
+        Object result = task.result();
+        if (result == null) {
+            return new ResultSet(new ArrayList<>());
+        }
+        String json = result instanceof String ? (String) result :
+                                                 JsonUtil.toJson(result);
+        return new ResultSet(GremlinResultDeserializer.parse(json));
+    }
+
+    private void bindAliases(GremlinRequest request) {
+        // Bind "graph" to all graphs
+        request.aliases.put("graph", this.graph);
+        // Bind "g" to all graphs by custom rule which define in gremlin server.
+        request.aliases.put("g", "__g_" + this.graph);
+    }
 }
@@ -134,4 +134,20 @@ public class HugeClient {
     public TaskManager task() {
         return this.task;
     }
+
+    /**
+     * Create an orchestrator to rebuild the index labels of many labels
+     * with limited concurrency
+     */
+    public RebuildOrchestrator rebuildOrchestrator() {
+        return new RebuildOrchestrator(this.schema, this.job, this.task);
+    }
+
+    /**
+     * Create a diff to plan the migration of the live schema to a desired
+     * one
+     */
+    public SchemaDiff schemaDiff() {
+        return new SchemaDiff(this.schema, this.task);
+    }
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.baidu.hugegraph.driver;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.baidu.hugegraph.api.gremlin.GremlinRequest;
+import com.baidu.hugegraph.serializer.ResultIterator;
+import com.baidu.hugegraph.structure.gremlin.Result;
+
+/**
+ * PagedResultIterator fetches the rows of a gremlin traversal in pages of
+ * `range(offset, offset + pageSize)`, the next page is requested only when
+ * the rows of current page have been consumed, so at most one page is held
+ * at any time. A page with fewer rows than the page size is the last one.
+ * The traversal must end in an order() step, otherwise the server doesn't
+ * guarantee the same order between the requests and rows may be skipped
+ * or repeated across pages. Each page re-runs the traversal and skips the
+ * rows before the offset, so reading N rows costs about N^2 / pageSize
+ * rows of server work, prefer `GremlinManager.executeStream()` to read a
+ * large result once.
+ */
+public class PagedResultIterator implements Iterator<Result>, AutoCloseable {
+
+    private static final String RANGE_FROM = "__range_from";
+    private static final String RANGE_TO = "__range_to";
+
+    private final GremlinManager manager;
+    private final GremlinRequest request;
+    private final String gremlin;
+    private final int pageSize;
+
+    private ResultIterator page;
+    private long offset;
+    private int pages;
+    private boolean finished;
+
+    PagedResultIterator(GremlinManager manager, GremlinRequest request,
+                        int pageSize) {
+        this.manager = manager;
+        this.request = request;
+        this.gremlin = String.format("%s.range(%s, %s)",
+                                     request.gremlin.trim(),
+                                     RANGE_FROM, RANGE_TO);
+        this.pageSize = pageSize;
+        this.page = null;
+        this.offset = 0L;
+        this.pages = 0;
+        this.finished = false;
+    }
+
+    /**
+     * The count of pages requested so far
+     */
+    public int pages() {
+        return this.pages;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (true) {
+            if (this.page != null) {
+                if (this.page.hasNext()) {
+                    return true;
+                }
+                long rows = this.page.count();
+                this.page.close();
+                this.page = null;
+                this.offset += rows;
+                if (rows < this.pageSize) {
+                    this.finished = true;
+                }
+            }
+            if (this.finished) {
+                return false;
+            }
+            this.page = this.manager.iterate(this.nextPageRequest());
+            this.pages++;
+        }
+    }
+
+    @Override
+    public Result next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return this.page.next();
+    }
+
+    @Override
+    public void close() {
+        this.finished = true;
+        if (this.page != null) {
+            this.page.close();
+            this.page = null;
+        }
+    }
+
+    private GremlinRequest nextPageRequest() {
+        GremlinRequest request = new GremlinRequest(this.gremlin);
+        request.bindings.putAll(this.request.bindings);
+        request.bindings.put(RANGE_FROM, this.offset);
+        request.bindings.put(RANGE_TO, this.offset + this.pageSize);
+        request.language = this.request.language;
+        request.aliases.putAll(this.request.aliases);
+        return request;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.baidu.hugegraph.driver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.baidu.hugegraph.api.gremlin.GremlinRequest;
+import com.baidu.hugegraph.serializer.ResultIterator;
+import com.baidu.hugegraph.structure.gremlin.ResultSet;
+import com.baidu.hugegraph.util.E;
+
+/**
+ * PreparedGremlin is a gremlin template, the text of it keeps constant and
+ * only the bindings vary between executions, so that each execution can
+ * reuse the script compiled by server instead of compiling a new one.
+ */
+public class PreparedGremlin {
+
+    private final String gremlin;
+    private final GremlinManager manager;
+    private final AtomicLong executions;
+
+    PreparedGremlin(String gremlin, GremlinManager manager) {
+        this.gremlin = gremlin;
+        this.manager = manager;
+        this.executions = new AtomicLong(0L);
+    }
+
+    public String gremlin() {
+        return this.gremlin;
+    }
+
+    /**
+     * The count of executions of this template
+     */
+    public long executions() {
+        return this.executions.get();
+    }
+
+    public ResultSet execute(Map<String, ?> bindings) {
+        return this.request(bindings).execute();
+    }
+
+    /**
+     * Execute with the bindings given as key-value pairs
+     */
+    public ResultSet executeWith(Object... keyValues) {
+        return this.execute(bindings(keyValues));
+    }
+
+    public ResultIterator executeStream(Map<String, ?> bindings) {
+        return this.request(bindings).executeStream();
+    }
+
+    public PagedResultIterator executePaged(Map<String, ?> bindings,
+                                            int pageSize) {
+        return this.request(bindings).executePaged(pageSize);
+    }
+
+    private GremlinRequest.Builder request(Map<String, ?> bindings) {
+        GremlinRequest.Builder builder = this.manager.gremlin(this.gremlin)
+                                                     .bindings(bindings);
+        this.executions.incrementAndGet();
+        return builder;
+    }
+
+    private static Map<String, Object> bindings(Object... keyValues) {
+        E.checkArgument(keyValues.length % 2 == 0,
+                        "The bindings must be paired, but got %s items",
+                        keyValues.length);
+        Map<String, Object> bindings = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            E.checkArgument(keyValues[i] instanceof String,
+                            "The binding key must be String, but got '%s'",
+                            keyValues[i]);
+            bindings.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return bindings;
+    }
+}
@@ -0,0 +1,420 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.baidu.hugegraph.driver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+import org.slf4j.Logger;
+
+import com.baidu.hugegraph.rest.ClientException;
+import com.baidu.hugegraph.structure.SchemaElement;
+import com.baidu.hugegraph.structure.Task;
+import com.baidu.hugegraph.structure.constant.HugeType;
+import com.baidu.hugegraph.structure.schema.EdgeLabel;
+import com.baidu.hugegraph.structure.schema.IndexLabel;
+import com.baidu.hugegraph.structure.schema.VertexLabel;
+import com.baidu.hugegraph.util.E;
+import com.baidu.hugegraph.util.Log;
+
+/**
+ * RebuildOrchestrator rebuilds the index labels of many vertex labels and
+ * edge labels with a limited count of rebuild tasks running at the same
+ * time, the index labels are rebuilt in the order of priority and a new
+ * rebuild is submitted as soon as a running one is completed. The tasks
+ * are waited by a TaskWatcher in the calling thread. Each rebuild has its
+ * own TaskProgressTracker in the report, which estimates the remaining
+ * time if the expected count of elements of each index label is given.
+ */
+public class RebuildOrchestrator {
+
+    private static final Logger LOG = Log.logger(RebuildOrchestrator.class);
+
+    public static final int DEFAULT_CONCURRENCY = 2;
+
+    private final SchemaManager schema;
+    private final JobManager job;
+    private final TaskManager task;
+
+    private int concurrency;
+    private Comparator<IndexLabel> priority;
+    private long timeout;
+    private ToLongFunction<IndexLabel> expected;
+    private Consumer<Report> listener;
+
+    public RebuildOrchestrator(SchemaManager schema, JobManager job,
+                               TaskManager task) {
+        E.checkNotNull(schema, "schema manager");
+        E.checkNotNull(job, "job manager");
+        E.checkNotNull(task, "task manager");
+        this.schema = schema;
+        this.job = job;
+        this.task = task;
+        this.concurrency = DEFAULT_CONCURRENCY;
+        this.priority = null;
+        this.timeout = -1L;
+        this.expected = null;
+        this.listener = null;
+    }
+
+    /**
+     * Set the max count of rebuild tasks running at the same time
+     */
+    public RebuildOrchestrator concurrency(int concurrency) {
+        E.checkArgument(concurrency > 0,
+                        "The concurrency must be > 0, but got %s",
+                        concurrency);
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * Set the order to rebuild the index labels, the index labels are
+     * rebuilt in the order they are derived from the given labels if no
+     * priority is set
+     */
+    public RebuildOrchestrator priority(Comparator<IndexLabel> priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    /**
+     * Set the max time in ms to wait for all the rebuilds, -1 means no
+     * timeout
+     */
+    public RebuildOrchestrator timeout(long timeout) {
+        E.checkArgument(timeout > 0L || timeout == -1L,
+                        "The timeout must be > 0 or == -1, but got %s",
+                        timeout);
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Set the function to get the expected count of elements to rebuild
+     * for an index label, like the count of vertices of its base label,
+     * a count <= 0 means unknown. The remaining time of rebuilds can be
+     * estimated only if the counts of all the index labels are known
+     */
+    public RebuildOrchestrator expected(ToLongFunction<IndexLabel> expected) {
+        this.expected = expected;
+        return this;
+    }
+
+    /**
+     * Set the listener called with the report each time a rebuild is
+     * completed
+     */
+    public RebuildOrchestrator listener(Consumer<Report> listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Derive the index labels of the given schema elements: the index
+     * labels on the vertex labels and edge labels, and the index labels
+     * themselves, without duplicates
+     */
+    public List<IndexLabel> indexLabels(
+                            Collection<? extends SchemaElement> elements) {
+        E.checkNotNull(elements, "schema elements");
+        Map<String, IndexLabel> results = new LinkedHashMap<>();
+        List<IndexLabel> indexLabels = null;
+        for (SchemaElement element : elements) {
+            if (element instanceof IndexLabel) {
+                results.putIfAbsent(element.name(), (IndexLabel) element);
+                continue;
+            }
+            HugeType baseType;
+            if (element instanceof VertexLabel) {
+                baseType = HugeType.VERTEX_LABEL;
+            } else if (element instanceof EdgeLabel) {
+                baseType = HugeType.EDGE_LABEL;
+            } else {
+                throw new IllegalArgumentException(String.format(
+                          "Only VertexLabel, EdgeLabel and IndexLabel " +
+                          "support rebuild, but got '%s'", element));
+            }
+            if (indexLabels == null) {
+                // List the index labels once for all the labels
+                indexLabels = this.schema.getIndexLabels();
+            }
+            for (IndexLabel indexLabel : indexLabels) {
+                if (indexLabel.baseType() == baseType &&
+                    element.name().equals(indexLabel.baseValue())) {
+                    results.putIfAbsent(indexLabel.name(), indexLabel);
+                }
+            }
+        }
+        List<IndexLabel> sorted = new ArrayList<>(results.values());
+        if (this.priority != null) {
+            sorted.sort(this.priority);
+        }
+        return sorted;
+    }
+
+    /**
+     * Rebuild the index labels of the given schema elements and wait until
+     * all of them are completed
+     */
+    public Report rebuild(Collection<? extends SchemaElement> elements) {
+        List<IndexLabel> indexLabels = this.indexLabels(elements);
+        TaskProgressTracker tracker = new TaskProgressTracker();
+        Report report = new Report(indexLabels.size(), tracker);
+        for (IndexLabel indexLabel : indexLabels) {
+            long total = this.expected == null ? -1L :
+                         this.expected.applyAsLong(indexLabel);
+            report.expect(indexLabel.name(), total);
+        }
+        Queue<IndexLabel> queue = new LinkedList<>(indexLabels);
+        TaskWatcher watcher = this.task.watcher();
+        watcher.addListener(tracker);
+        Map<Long, String> running = new HashMap<>();
+
+        long deadline = this.timeout == -1L ? Long.MAX_VALUE :
+                        System.currentTimeMillis() + this.timeout;
+        while (!queue.isEmpty() || !running.isEmpty()) {
+            while (!queue.isEmpty() && running.size() < this.concurrency) {
+                IndexLabel indexLabel = queue.poll();
+                try {
+                    long taskId = this.job.rebuild(indexLabel);
+                    long total = report.submit(indexLabel.name(), taskId);
+                    if (total > 0L) {
+                        tracker.expect(taskId, total);
+                    }
+                    running.put(taskId, indexLabel.name());
+                    watcher.watch(taskId);
+                    LOG.debug("Submitted task {} to rebuild index label {}",
+                              taskId, indexLabel.name());
+                } catch (RuntimeException e) {
+                    report.fail(indexLabel.name(), e);
+                    this.notify(report);
+                }
+            }
+            if (running.isEmpty()) {
+                continue;
+            }
+
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0L) {
+                throw new ClientException(
+                          "There are %s rebuild tasks not completed in %s " +
+                          "ms, the pending index labels are %s",
+                          running.size(), this.timeout, running.values());
+            }
+            Task task = watcher.awaitAny(deadline == Long.MAX_VALUE ?
+                                         -1L : remaining);
+            String name = running.remove(task.id());
+            if (task.success()) {
+                report.succeed(name, task);
+            } else {
+                report.fail(name, new ClientException(
+                            "Task '%s' is '%s', result is '%s'",
+                            task.id(), task.status(), task.result()));
+            }
+            this.notify(report);
+        }
+        return report;
+    }
+
+    private void notify(Report report) {
+        Consumer<Report> listener = this.listener;
+        if (listener == null) {
+            return;
+        }
+        try {
+            listener.accept(report);
+        } catch (Throwable e) {
+            LOG.warn("Failed to notify rebuild report {}", report, e);
+        }
+    }
+
+    /**
+     * The outcome of rebuilding, it records the task of each succeeded
+     * index label and the failure of each failed index label, and the
+     * progress of all the index labels
+     */
+    public static class Report {
+
+        private final int total;
+        private final TaskProgressTracker tracker;
+        // The expected count of elements of index labels, -1 if unknown
+        private final Map<String, Long> expected;
+        private final Map<String, Long> tasks;
+        private final Map<String, Task> succeed;
+        private final Map<String, Throwable> failures;
+
+        private Report(int total, TaskProgressTracker tracker) {
+            this.total = total;
+            this.tracker = tracker;
+            this.expected = new LinkedHashMap<>();
+            this.tasks = new HashMap<>();
+            this.succeed = new LinkedHashMap<>();
+            this.failures = new LinkedHashMap<>();
+        }
+
+        private void expect(String indexLabel, long total) {
+            this.expected.put(indexLabel, total > 0L ? total : -1L);
+        }
+
+        private long submit(String indexLabel, long taskId) {
+            this.tasks.put(indexLabel, taskId);
+            return this.expected.get(indexLabel);
+        }
+
+        private void succeed(String indexLabel, Task task) {
+            this.succeed.put(indexLabel, task);
+        }
+
+        private void fail(String indexLabel, Throwable cause) {
+            this.failures.put(indexLabel, cause);
+        }
+
+        public int total() {
+            return this.total;
+        }
+
+        public int completed() {
+            return this.succeed.size() + this.failures.size();
+        }
+
+        public int pending() {
+            return this.total - this.completed();
+        }
+
+        public Map<String, Task> succeed() {
+            return Collections.unmodifiableMap(this.succeed);
+        }
+
+        public Map<String, Throwable> failures() {
+            return Collections.unmodifiableMap(this.failures);
+        }
+
+        /**
+         * The tracker of the rebuild tasks of this report only
+         */
+        public TaskProgressTracker tracker() {
+            return this.tracker;
+        }
+
+        /**
+         * @return the count of elements rebuilt by all the tasks
+         */
+        public long progress() {
+            long progress = 0L;
+            for (String indexLabel : this.tasks.keySet()) {
+                progress += this.progress(indexLabel);
+            }
+            return progress;
+        }
+
+        /**
+         * @return the expected count of elements of all the index labels,
+         *         or -1 if it's unknown for any of them
+         */
+        public long expected() {
+            long expected = 0L;
+            for (long total : this.expected.values()) {
+                if (total < 0L) {
+                    return -1L;
+                }
+                expected += total;
+            }
+            return expected;
+        }
+
+        /**
+         * @return the estimated remaining time in ms until all the index
+         *         labels are completed, including the ones not submitted
+         *         yet, or -1 if it's unknown
+         */
+        public long eta() {
+            if (this.pending() == 0) {
+                return 0L;
+            }
+            long remaining = 0L;
+            for (Map.Entry<String, Long> e : this.expected.entrySet()) {
+                String indexLabel = e.getKey();
+                if (this.succeed.containsKey(indexLabel) ||
+                    this.failures.containsKey(indexLabel)) {
+                    continue;
+                }
+                if (e.getValue() < 0L) {
+                    return -1L;
+                }
+                remaining += Math.max(e.getValue() -
+                                      this.progress(indexLabel), 0L);
+            }
+            double rate = this.rate();
+            if (rate <= 0.0) {
+                return -1L;
+            }
+            return (long) (remaining * 1000.0 / rate);
+        }
+
+        /**
+         * The throughput of the running tasks, or of the last succeeded
+         * one if none of the running tasks is sampled yet, assuming the
+         * later tasks run as fast
+         */
+        private double rate() {
+            double rate = this.tracker.rate();
+            if (rate > 0.0 || this.succeed.isEmpty()) {
+                return rate;
+            }
+            String last = null;
+            for (String indexLabel : this.succeed.keySet()) {
+                last = indexLabel;
+            }
+            TaskProgressTracker.Progress progress =
+                                         this.tracker.progress(
+                                         this.tasks.get(last));
+            return progress == null ? 0.0 : progress.rate();
+        }
+
+        private long progress(String indexLabel) {
+            Long taskId = this.tasks.get(indexLabel);
+            if (taskId == null) {
+                return 0L;
+            }
+            TaskProgressTracker.Progress progress =
+                                         this.tracker.progress(taskId);
+            return progress == null ? 0L : progress.progress();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Report{total=%s, succeed=%s, " +
+                                 "failed=%s, progress=%s/%s}",
+                                 this.total, this.succeed.size(),
+                                 this.failures.size(), this.progress(),
+                                 this.expected());
+        }
+    }
+}
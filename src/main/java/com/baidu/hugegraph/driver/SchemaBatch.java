@@ -0,0 +1,411 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.baidu.hugegraph.driver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BiConsumer;
+
+import com.baidu.hugegraph.rest.ClientException;
+import com.baidu.hugegraph.structure.SchemaElement;
+import com.baidu.hugegraph.structure.constant.HugeType;
+import com.baidu.hugegraph.structure.schema.EdgeLabel;
+import com.baidu.hugegraph.structure.schema.IndexLabel;
+import com.baidu.hugegraph.structure.schema.PropertyKey;
+import com.baidu.hugegraph.structure.schema.SchemaBuilder;
+import com.baidu.hugegraph.structure.schema.VertexLabel;
+import com.baidu.hugegraph.util.E;
+import com.baidu.hugegraph.util.ExecutorUtil;
+import com.baidu.hugegraph.util.JsonUtil;
+
+/**
+ * SchemaBatch creates many schema elements together. An element depends on
+ * the elements of the batch it refers to: a vertex label on its property
+ * keys, an edge label on its property keys and source/target labels, and
+ * an index label on its base label and fields. Each element is created as
+ * soon as its dependencies are created, so the independent elements are
+ * created in parallel. The existing elements are listed once per type, an
+ * element identical to the existing one is skipped and a different one is
+ * reported as a conflict without being created.
+ */
+public class SchemaBatch {
+
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    // The order of types that an element only refers to the former types
+    static final HugeType[] ORDER = new HugeType[]{
+            HugeType.PROPERTY_KEY, HugeType.VERTEX_LABEL,
+            HugeType.EDGE_LABEL, HugeType.INDEX_LABEL
+    };
+    // The fields not defined by user
+    private static final String[] IGNORED_FIELDS = new String[]{
+            "id", "check_exist"
+    };
+
+    private static final String DEFAULT_VALUE = "DEFAULT";
+
+    private final SchemaManager manager;
+    private final Map<HugeType, Map<String, SchemaElement>> elements;
+    private int parallelism;
+
+    public SchemaBatch(SchemaManager manager) {
+        E.checkNotNull(manager, "schema manager");
+        this.manager = manager;
+        this.elements = new EnumMap<>(HugeType.class);
+        for (HugeType type : ORDER) {
+            this.elements.put(type, new LinkedHashMap<>());
+        }
+        this.parallelism = DEFAULT_PARALLELISM;
+    }
+
+    /**
+     * Add the element defined by builder, the builder is built but not
+     * created
+     */
+    public SchemaBatch add(SchemaBuilder<?> builder) {
+        E.checkNotNull(builder, "builder");
+        return this.add(builder.build());
+    }
+
+    public SchemaBatch add(SchemaElement element) {
+        E.checkNotNull(element, "schema element");
+        Map<String, SchemaElement> elements = this.elements.get(
+                                              typeOf(element));
+        E.checkArgument(!elements.containsKey(element.name()),
+                        "The schema element '%s' has been added",
+                        element.name());
+        elements.put(element.name(), element);
+        return this;
+    }
+
+    public SchemaBatch parallelism(int parallelism) {
+        E.checkArgument(parallelism > 0,
+                        "The parallelism must be > 0, but got %s",
+                        parallelism);
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Map<String, SchemaElement> elements : this.elements.values()) {
+            size += elements.size();
+        }
+        return size;
+    }
+
+    /**
+     * Create the elements of the batch and wait until all of them are
+     * created, skipped or failed. An element whose dependency failed is
+     * failed without being created
+     */
+    public Report apply() {
+        Report report = new Report();
+        Map<SchemaElement, CompletableFuture<Void>> futures =
+                                                    new IdentityHashMap<>();
+        ExecutorService executor = ExecutorUtil.newFixedThreadPool(
+                                   this.parallelism, "schema-batch");
+        try {
+            for (HugeType type : ORDER) {
+                Collection<SchemaElement> elements =
+                                          this.elements.get(type).values();
+                if (elements.isEmpty()) {
+                    continue;
+                }
+                Map<String, SchemaElement> existing = this.list(type);
+                for (SchemaElement element : elements) {
+                    SchemaElement old = existing.get(element.name());
+                    if (old != null) {
+                        if (identical(element, old)) {
+                            report.skip(element);
+                        } else {
+                            report.conflict(element, old);
+                        }
+                        futures.put(element,
+                                    CompletableFuture.completedFuture(null));
+                        continue;
+                    }
+                    List<CompletableFuture<Void>> depends = new ArrayList<>();
+                    for (SchemaElement depend : this.dependencies(element)) {
+                        depends.add(futures.get(depend));
+                    }
+                    futures.put(element, this.create(element, depends,
+                                                     executor, report));
+                }
+            }
+            CompletableFuture.allOf(futures.values().toArray(
+                                    new CompletableFuture<?>[0]))
+                             .handle((result, e) -> null)
+                             .join();
+        } finally {
+            executor.shutdown();
+        }
+        return report;
+    }
+
+    private CompletableFuture<Void> create(
+                                    SchemaElement element,
+                                    List<CompletableFuture<Void>> depends,
+                                    ExecutorService executor,
+                                    Report report) {
+        CompletableFuture<?>[] array = depends.toArray(
+                                       new CompletableFuture<?>[0]);
+        return CompletableFuture.allOf(array).handleAsync((result, e) -> {
+            if (e != null) {
+                ClientException cause = new ClientException(
+                        "Skipped creating '%s' since its dependency failed",
+                        element.name());
+                report.fail(element, cause);
+                throw cause;
+            }
+            try {
+                report.create(this.create(element));
+            } catch (RuntimeException ex) {
+                report.fail(element, ex);
+                throw ex;
+            }
+            return null;
+        }, executor);
+    }
+
+    private SchemaElement create(SchemaElement element) {
+        if (element instanceof PropertyKey) {
+            return this.manager.addPropertyKey((PropertyKey) element);
+        } else if (element instanceof VertexLabel) {
+            return this.manager.addVertexLabel((VertexLabel) element);
+        } else if (element instanceof EdgeLabel) {
+            return this.manager.addEdgeLabel((EdgeLabel) element);
+        } else {
+            assert element instanceof IndexLabel;
+            return this.manager.addIndexLabel((IndexLabel) element);
+        }
+    }
+
+    private Map<String, SchemaElement> list(HugeType type) {
+        List<? extends SchemaElement> elements;
+        switch (type) {
+            case PROPERTY_KEY:
+                elements = this.manager.getPropertyKeys();
+                break;
+            case VERTEX_LABEL:
+                elements = this.manager.getVertexLabels();
+                break;
+            case EDGE_LABEL:
+                elements = this.manager.getEdgeLabels();
+                break;
+            default:
+                assert type == HugeType.INDEX_LABEL;
+                elements = this.manager.getIndexLabels();
+                break;
+        }
+        Map<String, SchemaElement> results = new HashMap<>();
+        for (SchemaElement element : elements) {
+            results.put(element.name(), element);
+        }
+        return results;
+    }
+
+    /**
+     * The elements of the batch that the element refers to
+     */
+    private List<SchemaElement> dependencies(SchemaElement element) {
+        List<SchemaElement> dependencies = new ArrayList<>();
+        references(element, (type, name) -> {
+            SchemaElement dependency = this.elements.get(type).get(name);
+            if (dependency != null) {
+                dependencies.add(dependency);
+            }
+        });
+        return dependencies;
+    }
+
+    /**
+     * Visit the type and name of the schema elements that the element
+     * refers to, they must exist before the element is created
+     */
+    static void references(SchemaElement element,
+                           BiConsumer<HugeType, String> consumer) {
+        if (element instanceof IndexLabel) {
+            IndexLabel indexLabel = (IndexLabel) element;
+            HugeType baseType = indexLabel.baseType();
+            if (baseType == HugeType.VERTEX_LABEL ||
+                baseType == HugeType.EDGE_LABEL) {
+                consumer.accept(baseType, indexLabel.baseValue());
+            }
+            for (String field : indexLabel.indexFields()) {
+                consumer.accept(HugeType.PROPERTY_KEY, field);
+            }
+            return;
+        }
+        for (String property : element.properties()) {
+            consumer.accept(HugeType.PROPERTY_KEY, property);
+        }
+        if (element instanceof EdgeLabel) {
+            EdgeLabel edgeLabel = (EdgeLabel) element;
+            if (edgeLabel.sourceLabel() != null) {
+                consumer.accept(HugeType.VERTEX_LABEL,
+                                edgeLabel.sourceLabel());
+            }
+            if (edgeLabel.targetLabel() != null) {
+                consumer.accept(HugeType.VERTEX_LABEL,
+                                edgeLabel.targetLabel());
+            }
+        }
+    }
+
+    static HugeType typeOf(SchemaElement element) {
+        if (element instanceof PropertyKey) {
+            return HugeType.PROPERTY_KEY;
+        } else if (element instanceof VertexLabel) {
+            return HugeType.VERTEX_LABEL;
+        } else if (element instanceof EdgeLabel) {
+            return HugeType.EDGE_LABEL;
+        } else if (element instanceof IndexLabel) {
+            return HugeType.INDEX_LABEL;
+        }
+        throw new IllegalArgumentException(String.format(
+                  "Unsupported schema element '%s'", element));
+    }
+
+    /**
+     * An element is identical to the existing one if all the fields it
+     * defines are equal
+     */
+    private static boolean identical(SchemaElement element,
+                                     SchemaElement existing) {
+        Map<String, Object> current = fields(existing);
+        for (Map.Entry<String, Object> e : definedFields(element).entrySet()) {
+            if (!e.getValue().equals(current.get(e.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The fields of the element in the form of json values
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> fields(SchemaElement element) {
+        Map<String, Object> fields = JsonUtil.fromJson(
+                                     JsonUtil.toJson(element), Map.class);
+        for (String field : IGNORED_FIELDS) {
+            fields.remove(field);
+        }
+        return fields;
+    }
+
+    /**
+     * The fields defined by user, the fields left null or DEFAULT (like
+     * the id strategy and frequency) are decided by server
+     */
+    static Map<String, Object> definedFields(SchemaElement element) {
+        Map<String, Object> fields = fields(element);
+        fields.values().removeIf(value -> {
+            return value == null || DEFAULT_VALUE.equals(value);
+        });
+        return fields;
+    }
+
+    /**
+     * The outcome of a batch, the elements are recorded in the order they
+     * are finished
+     */
+    public static class Report {
+
+        private final List<SchemaElement> created;
+        private final List<SchemaElement> skipped;
+        private final Map<SchemaElement, SchemaElement> conflicts;
+        private final Map<SchemaElement, Throwable> failures;
+
+        private Report() {
+            this.created = new ArrayList<>();
+            this.skipped = new ArrayList<>();
+            this.conflicts = new LinkedHashMap<>();
+            this.failures = new LinkedHashMap<>();
+        }
+
+        private synchronized void create(SchemaElement element) {
+            this.created.add(element);
+        }
+
+        private synchronized void skip(SchemaElement element) {
+            this.skipped.add(element);
+        }
+
+        private synchronized void conflict(SchemaElement element,
+                                           SchemaElement existing) {
+            this.conflicts.put(element, existing);
+        }
+
+        private synchronized void fail(SchemaElement element,
+                                       Throwable cause) {
+            this.failures.put(element, cause);
+        }
+
+        /**
+         * @return the elements created, as returned by server
+         */
+        public synchronized List<SchemaElement> created() {
+            return Collections.unmodifiableList(new ArrayList<>(this.created));
+        }
+
+        /**
+         * @return the elements skipped since identical ones exist
+         */
+        public synchronized List<SchemaElement> skipped() {
+            return Collections.unmodifiableList(new ArrayList<>(this.skipped));
+        }
+
+        /**
+         * @return the elements not created since different ones with the
+         *         same names exist, mapped to the existing ones
+         */
+        public synchronized Map<SchemaElement, SchemaElement> conflicts() {
+            return Collections.unmodifiableMap(
+                   new LinkedHashMap<>(this.conflicts));
+        }
+
+        public synchronized Map<SchemaElement, Throwable> failures() {
+            return Collections.unmodifiableMap(
+                   new LinkedHashMap<>(this.failures));
+        }
+
+        public synchronized boolean success() {
+            return this.conflicts.isEmpty() && this.failures.isEmpty();
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("Report{created=%s, skipped=%s, " +
+                                 "conflicts=%s, failed=%s}",
+                                 this.created.size(), this.skipped.size(),
+                                 this.conflicts.size(), this.failures.size());
+        }
+    }
+}
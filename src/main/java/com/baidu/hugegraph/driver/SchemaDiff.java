@@ -0,0 +1,378 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.baidu.hugegraph.driver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.baidu.hugegraph.driver.SchemaPlan.Action;
+import com.baidu.hugegraph.driver.SchemaPlan.Step;
+import com.baidu.hugegraph.structure.SchemaElement;
+import com.baidu.hugegraph.structure.constant.HugeType;
+import com.baidu.hugegraph.structure.schema.IndexLabel;
+import com.baidu.hugegraph.structure.schema.SchemaBuilder;
+import com.baidu.hugegraph.util.E;
+import com.baidu.hugegraph.util.JsonUtil;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * SchemaDiff compares a desired schema with the live one and generates the
+ * minimal plan to migrate to it. A new element is created, the values
+ * added to the properties, nullable keys or user data of an existing
+ * element are appended and the removed user data is eliminated, any other
+ * change is reported as a conflict, unless `allowRecreate(true)` is set to
+ * recreate the element. Recreating a label removes its index labels, the
+ * ones not in the desired schema are created again from their live
+ * definitions and all of them are rebuilt. The live elements not in the
+ * desired schema are kept unless `removeUnlisted(true)` is set. An element
+ * referred by a kept element can't be recreated or removed, since the
+ * server rejects to remove it, the referring elements have to be changed
+ * in the desired schema too.
+ */
+public class SchemaDiff {
+
+    private static final String USER_DATA = "user_data";
+
+    // The fields that can be changed without recreating the element
+    private static final Map<HugeType, Set<String>> APPENDABLE_FIELDS =
+            ImmutableMap.of(
+            HugeType.PROPERTY_KEY, ImmutableSet.of(USER_DATA),
+            HugeType.VERTEX_LABEL, ImmutableSet.of("properties",
+                                                   "nullable_keys",
+                                                   USER_DATA),
+            HugeType.EDGE_LABEL, ImmutableSet.of("properties",
+                                                 "nullable_keys",
+                                                 USER_DATA),
+            HugeType.INDEX_LABEL, ImmutableSet.of());
+
+    private final SchemaManager schema;
+    private final TaskManager task;
+    private final Map<HugeType, Map<String, SchemaElement>> elements;
+    private boolean removeUnlisted;
+    private boolean allowRecreate;
+
+    public SchemaDiff(SchemaManager schema, TaskManager task) {
+        E.checkNotNull(schema, "schema manager");
+        E.checkNotNull(task, "task manager");
+        this.schema = schema;
+        this.task = task;
+        this.elements = new EnumMap<>(HugeType.class);
+        for (HugeType type : SchemaBatch.ORDER) {
+            this.elements.put(type, new LinkedHashMap<>());
+        }
+        this.removeUnlisted = false;
+        this.allowRecreate = false;
+    }
+
+    /**
+     * Add the element defined by builder to the desired schema, the
+     * builder is built but not created
+     */
+    public SchemaDiff add(SchemaBuilder<?> builder) {
+        E.checkNotNull(builder, "builder");
+        return this.add(builder.build());
+    }
+
+    public SchemaDiff add(SchemaElement element) {
+        E.checkNotNull(element, "schema element");
+        Map<String, SchemaElement> elements = this.elements.get(
+                                              SchemaBatch.typeOf(element));
+        E.checkArgument(!elements.containsKey(element.name()),
+                        "The schema element '%s' has been added",
+                        element.name());
+        elements.put(element.name(), element);
+        return this;
+    }
+
+    /**
+     * Whether to remove the live elements not in the desired schema
+     */
+    public SchemaDiff removeUnlisted(boolean removeUnlisted) {
+        this.removeUnlisted = removeUnlisted;
+        return this;
+    }
+
+    /**
+     * Whether to remove and create the elements which can't be changed by
+     * appending, otherwise they are reported as conflicts and kept
+     */
+    public SchemaDiff allowRecreate(boolean allowRecreate) {
+        this.allowRecreate = allowRecreate;
+        return this;
+    }
+
+    /**
+     * Compare with the live schema, which is listed once per type, and
+     * generate the plan to migrate to the desired schema
+     */
+    public SchemaPlan plan() {
+        Map<HugeType, Map<String, SchemaElement>> lives = this.lives();
+        Map<HugeType, Map<String, Step>> removes =
+                                         new EnumMap<>(HugeType.class);
+        Map<HugeType, Map<String, List<Step>>> changes =
+                                               new EnumMap<>(HugeType.class);
+        Map<SchemaElement, SchemaElement> conflicts = new LinkedHashMap<>();
+        for (HugeType type : SchemaBatch.ORDER) {
+            Map<String, Step> typeRemoves = new LinkedHashMap<>();
+            Map<String, List<Step>> typeChanges = new LinkedHashMap<>();
+            removes.put(type, typeRemoves);
+            changes.put(type, typeChanges);
+
+            Map<String, SchemaElement> live = lives.get(type);
+            for (SchemaElement element : this.elements.get(type).values()) {
+                SchemaElement current = live.get(element.name());
+                List<Step> steps = new ArrayList<>();
+                if (current == null || vanished(current, removes)) {
+                    steps.add(new Step(Action.CREATE, element));
+                } else if (!this.diff(type, element, current, steps)) {
+                    if (this.allowRecreate) {
+                        typeRemoves.put(current.name(),
+                                        new Step(Action.REMOVE, current));
+                        steps.add(new Step(Action.CREATE, element));
+                    } else {
+                        conflicts.put(element, current);
+                    }
+                }
+                if (!steps.isEmpty()) {
+                    typeChanges.put(element.name(), steps);
+                }
+            }
+            for (SchemaElement current : live.values()) {
+                if (this.elements.get(type).containsKey(current.name())) {
+                    continue;
+                }
+                if (vanished(current, removes)) {
+                    if (!this.removeUnlisted) {
+                        // Keep the index label of the recreated label
+                        SchemaElement element = this.recreation(
+                                                (IndexLabel) current);
+                        typeChanges.put(current.name(), ImmutableList.of(
+                                        new Step(Action.CREATE, element)));
+                    }
+                } else if (this.removeUnlisted) {
+                    typeRemoves.put(current.name(),
+                                    new Step(Action.REMOVE, current));
+                }
+            }
+        }
+        checkReferences(lives, removes);
+        return new SchemaPlan(this.schema, this.task,
+                              steps(removes, changes), conflicts);
+    }
+
+    /**
+     * The definition to create the live index label again after its base
+     * label is recreated, it must only index the properties of the label
+     */
+    private SchemaElement recreation(IndexLabel current) {
+        HugeType baseType = current.baseType();
+        SchemaElement base = this.elements.get(baseType)
+                                          .get(current.baseValue());
+        E.checkArgument(base.properties().containsAll(
+                        current.indexFields()),
+                        "Can't keep %s '%s' of the recreated %s '%s' " +
+                        "since the fields %s are not all its properties, " +
+                        "please add a proper one to the desired schema " +
+                        "or set removeUnlisted(true)",
+                        HugeType.INDEX_LABEL.string(), current.name(),
+                        baseType.string(), base.name(),
+                        current.indexFields());
+        Map<String, Object> fields = SchemaBatch.definedFields(current);
+        return JsonUtil.fromJson(JsonUtil.toJson(fields), IndexLabel.class);
+    }
+
+    private Map<HugeType, Map<String, SchemaElement>> lives() {
+        Map<HugeType, Map<String, SchemaElement>> lives =
+                                                  new EnumMap<>(HugeType.class);
+        for (HugeType type : SchemaBatch.ORDER) {
+            lives.put(type, new LinkedHashMap<>());
+        }
+        List<SchemaElement> elements = new ArrayList<>();
+        elements.addAll(this.schema.getPropertyKeys());
+        elements.addAll(this.schema.getVertexLabels());
+        elements.addAll(this.schema.getEdgeLabels());
+        elements.addAll(this.schema.getIndexLabels());
+        for (SchemaElement element : elements) {
+            lives.get(SchemaBatch.typeOf(element)).put(element.name(),
+                                                       element);
+        }
+        return lives;
+    }
+
+    /**
+     * Add the steps to change the current element to the desired one,
+     * return false if it has to be recreated
+     */
+    @SuppressWarnings("unchecked")
+    private boolean diff(HugeType type, SchemaElement element,
+                         SchemaElement current, List<Step> steps) {
+        Set<String> appendable = APPENDABLE_FIELDS.get(type);
+        Map<String, Object> currentFields = SchemaBatch.fields(current);
+        Map<String, Object> appends = new LinkedHashMap<>();
+        Map<String, Object> eliminates = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> e :
+             SchemaBatch.definedFields(element).entrySet()) {
+            String field = e.getKey();
+            Object value = e.getValue();
+            Object currentValue = currentFields.get(field);
+            if (value.equals(currentValue)) {
+                continue;
+            }
+            if (!appendable.contains(field) || currentValue == null) {
+                return false;
+            }
+            if (value instanceof Collection) {
+                // The properties and nullable keys can't be eliminated
+                Set<Object> values = new HashSet<>((Collection<?>) value);
+                if (!values.containsAll((Collection<?>) currentValue)) {
+                    return false;
+                }
+                values.removeAll((Collection<?>) currentValue);
+                if (!values.isEmpty()) {
+                    appends.put(field, values);
+                }
+            } else {
+                assert USER_DATA.equals(field);
+                Map<String, Object> values = (Map<String, Object>) value;
+                Map<String, Object> currentValues =
+                                    (Map<String, Object>) currentValue;
+                Map<String, Object> appended = new LinkedHashMap<>();
+                values.forEach((k, v) -> {
+                    if (!v.equals(currentValues.get(k))) {
+                        appended.put(k, v);
+                    }
+                });
+                Map<String, Object> eliminated = new LinkedHashMap<>();
+                currentValues.forEach((k, v) -> {
+                    if (!values.containsKey(k)) {
+                        eliminated.put(k, v);
+                    }
+                });
+                if (!appended.isEmpty()) {
+                    appends.put(field, appended);
+                }
+                if (!eliminated.isEmpty()) {
+                    eliminates.put(field, eliminated);
+                }
+            }
+        }
+        if (!appends.isEmpty()) {
+            steps.add(new Step(Action.APPEND, delta(element, appends)));
+        }
+        if (!eliminates.isEmpty()) {
+            steps.add(new Step(Action.ELIMINATE, delta(element, eliminates)));
+        }
+        return true;
+    }
+
+    /**
+     * Order the removals from index labels to property keys, then the
+     * changes from property keys to index labels, and link each step to
+     * the steps it depends on
+     */
+    private static List<Step> steps(Map<HugeType, Map<String, Step>> removes,
+                                    Map<HugeType, Map<String, List<Step>>>
+                                    changes) {
+        List<Step> steps = new ArrayList<>();
+        for (int i = SchemaBatch.ORDER.length - 1; i >= 0; i--) {
+            for (Step step : removes.get(SchemaBatch.ORDER[i]).values()) {
+                // An element is removed after the elements referring to it
+                SchemaBatch.references(step.element(), (type, name) -> {
+                    Step referred = removes.get(type).get(name);
+                    if (referred != null) {
+                        referred.dependOn(step);
+                    }
+                });
+                steps.add(step);
+            }
+        }
+        for (HugeType type : SchemaBatch.ORDER) {
+            for (Map.Entry<String, List<Step>> e :
+                 changes.get(type).entrySet()) {
+                Step previous = removes.get(type).get(e.getKey());
+                for (Step step : e.getValue()) {
+                    // The element is changed after the elements it refers to
+                    SchemaBatch.references(step.element(), (refType, name) -> {
+                        List<Step> referred = changes.get(refType).get(name);
+                        if (referred != null) {
+                            referred.forEach(step::dependOn);
+                        }
+                    });
+                    step.dependOn(previous);
+                    steps.add(step);
+                    previous = step;
+                }
+            }
+        }
+        return steps;
+    }
+
+    /**
+     * Check that no kept live element refers to a removed element
+     */
+    private static void checkReferences(Map<HugeType,
+                                            Map<String, SchemaElement>> lives,
+                                        Map<HugeType, Map<String, Step>>
+                                        removes) {
+        for (HugeType type : SchemaBatch.ORDER) {
+            for (SchemaElement current : lives.get(type).values()) {
+                if (removes.get(type).containsKey(current.name()) ||
+                    vanished(current, removes)) {
+                    continue;
+                }
+                SchemaBatch.references(current, (refType, name) -> {
+                    E.checkArgument(!removes.get(refType).containsKey(name),
+                                    "Can't remove or recreate %s '%s' " +
+                                    "since it's referred by %s '%s', " +
+                                    "which is kept", refType.string(), name,
+                                    type.string(), current.name());
+                });
+            }
+        }
+    }
+
+    /**
+     * An index label is removed with its base label
+     */
+    private static boolean vanished(SchemaElement element,
+                                    Map<HugeType, Map<String, Step>> removes) {
+        if (!(element instanceof IndexLabel)) {
+            return false;
+        }
+        IndexLabel indexLabel = (IndexLabel) element;
+        Map<String, Step> baseRemoves = removes.get(indexLabel.baseType());
+        return baseRemoves != null &&
+               baseRemoves.containsKey(indexLabel.baseValue());
+    }
+
+    private static SchemaElement delta(SchemaElement element,
+                                       Map<String, Object> fields) {
+        Map<String, Object> delta = new LinkedHashMap<>(fields);
+        delta.put("name", element.name());
+        return JsonUtil.fromJson(JsonUtil.toJson(delta), element.getClass());
+    }
+}
@@ -19,18 +19,24 @@
 
 package com.baidu.hugegraph.driver;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.zip.CRC32;
 
 import com.baidu.hugegraph.api.schema.EdgeLabelAPI;
 import com.baidu.hugegraph.api.schema.IndexLabelAPI;
 import com.baidu.hugegraph.api.schema.PropertyKeyAPI;
 import com.baidu.hugegraph.api.schema.VertexLabelAPI;
 import com.baidu.hugegraph.client.RestClient;
+import com.baidu.hugegraph.structure.SchemaElement;
 import com.baidu.hugegraph.structure.schema.BuilderProxy;
 import com.baidu.hugegraph.structure.schema.EdgeLabel;
 import com.baidu.hugegraph.structure.schema.IndexLabel;
 import com.baidu.hugegraph.structure.schema.PropertyKey;
 import com.baidu.hugegraph.structure.schema.VertexLabel;
+import com.baidu.hugegraph.util.JsonUtil;
 
 public class SchemaManager {
 
@@ -71,6 +77,13 @@ public class SchemaManager {
         return proxy.proxy();
     }
 
+    /**
+     * Create a batch to create many schema elements in parallel
+     */
+    public SchemaBatch batch() {
+        return new SchemaBatch(this);
+    }
+
     public PropertyKey addPropertyKey(PropertyKey propertyKey) {
         return this.propertyKeyAPI.create(propertyKey);
     }
@@ -158,4 +171,30 @@ public class SchemaManager {
     public List<IndexLabel> getIndexLabels() {
         return this.indexLabelAPI.list();
     }
+
+    /**
+     * The server doesn't maintain a version of schema, the fingerprint is a
+     * checksum of all the schema elements instead, which changes once any
+     * schema element is created, updated or removed
+     */
+    public long fingerprint() {
+        CRC32 crc = new CRC32();
+        update(crc, this.getPropertyKeys());
+        update(crc, this.getVertexLabels());
+        update(crc, this.getEdgeLabels());
+        update(crc, this.getIndexLabels());
+        return crc.getValue();
+    }
+
+    private static void update(CRC32 crc,
+                               List<? extends SchemaElement> elements) {
+        List<SchemaElement> sorted = new ArrayList<>(elements);
+        sorted.sort(Comparator.comparingLong(SchemaElement::id));
+        for (SchemaElement element : sorted) {
+            String json = JsonUtil.toJson(element);
+            crc.update(json.getBytes(StandardCharsets.UTF_8));
+        }
+        // Separate the elements of different types
+        crc.update(0);
+    }
 }
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.baidu.hugegraph.driver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+import com.baidu.hugegraph.rest.ClientException;
+import com.baidu.hugegraph.structure.SchemaElement;
+import com.baidu.hugegraph.structure.Task;
+import com.baidu.hugegraph.structure.constant.HugeType;
+import com.baidu.hugegraph.structure.schema.EdgeLabel;
+import com.baidu.hugegraph.structure.schema.IndexLabel;
+import com.baidu.hugegraph.structure.schema.PropertyKey;
+import com.baidu.hugegraph.structure.schema.VertexLabel;
+import com.baidu.hugegraph.util.E;
+import com.baidu.hugegraph.util.ExecutorUtil;
+
+/**
+ * SchemaPlan is an ordered list of steps to migrate the live schema to the
+ * desired one, generated by SchemaDiff. The removals come first, from
+ * index labels to property keys, then the creations and updates, from
+ * property keys to index labels. Each step records the steps it depends
+ * on, so that the independent steps can be executed in parallel. The
+ * elements which can't be changed without recreating are reported as
+ * conflicts if recreating is not allowed, they have no step in the plan.
+ */
+public class SchemaPlan {
+
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    private final SchemaManager schema;
+    private final TaskManager task;
+    private final List<Step> steps;
+    private final Map<SchemaElement, SchemaElement> conflicts;
+
+    SchemaPlan(SchemaManager schema, TaskManager task, List<Step> steps,
+               Map<SchemaElement, SchemaElement> conflicts) {
+        this.schema = schema;
+        this.task = task;
+        this.steps = Collections.unmodifiableList(steps);
+        this.conflicts = Collections.unmodifiableMap(conflicts);
+    }
+
+    public List<Step> steps() {
+        return this.steps;
+    }
+
+    public boolean isEmpty() {
+        return this.steps.isEmpty();
+    }
+
+    /**
+     * @return the desired elements which have to be recreated, mapped to
+     *         the live ones kept by the plan
+     */
+    public Map<SchemaElement, SchemaElement> conflicts() {
+        return this.conflicts;
+    }
+
+    /**
+     * @return the index labels to be rebuilt by executing the plan
+     */
+    public List<String> rebuilds() {
+        List<String> rebuilds = new ArrayList<>();
+        for (Step step : this.steps) {
+            rebuilds.addAll(step.rebuilds());
+        }
+        return rebuilds;
+    }
+
+    public Report execute() {
+        return this.execute(DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Execute the steps with at most `parallelism` steps at the same time,
+     * a step is executed once the steps it depends on succeed, and it's
+     * failed without being executed if any of them failed
+     */
+    public Report execute(int parallelism) {
+        E.checkArgument(parallelism > 0,
+                        "The parallelism must be > 0, but got %s",
+                        parallelism);
+        Report report = new Report();
+        Map<Step, CompletableFuture<Void>> futures = new IdentityHashMap<>();
+        ExecutorService executor = ExecutorUtil.newFixedThreadPool(
+                                   parallelism, "schema-plan");
+        try {
+            for (Step step : this.steps) {
+                // The steps only depend on the former steps
+                CompletableFuture<?>[] depends =
+                        new CompletableFuture<?>[step.depends.size()];
+                for (int i = 0; i < depends.length; i++) {
+                    depends[i] = futures.get(step.depends.get(i));
+                }
+                futures.put(step, CompletableFuture.allOf(depends)
+                                                   .handleAsync((r, e) -> {
+                    if (e != null) {
+                        ClientException cause = new ClientException(
+                                "Skipped '%s' since its dependency failed",
+                                step);
+                        report.fail(step, cause);
+                        throw cause;
+                    }
+                    try {
+                        this.execute(step);
+                        report.succeed(step);
+                    } catch (RuntimeException ex) {
+                        report.fail(step, ex);
+                        throw ex;
+                    }
+                    return null;
+                }, executor));
+            }
+            CompletableFuture.allOf(futures.values().toArray(
+                                    new CompletableFuture<?>[0]))
+                             .handle((r, e) -> null)
+                             .join();
+        } finally {
+            executor.shutdown();
+        }
+        return report;
+    }
+
+    private void execute(Step step) {
+        SchemaElement element = step.element();
+        switch (step.action()) {
+            case CREATE:
+                if (element instanceof PropertyKey) {
+                    this.schema.addPropertyKey((PropertyKey) element);
+                } else if (element instanceof VertexLabel) {
+                    this.schema.addVertexLabel((VertexLabel) element);
+                } else if (element instanceof EdgeLabel) {
+                    this.schema.addEdgeLabel((EdgeLabel) element);
+                } else {
+                    this.schema.addIndexLabel((IndexLabel) element);
+                }
+                break;
+            case APPEND:
+                if (element instanceof PropertyKey) {
+                    this.schema.appendPropertyKey((PropertyKey) element);
+                } else if (element instanceof VertexLabel) {
+                    this.schema.appendVertexLabel((VertexLabel) element);
+                } else {
+                    this.schema.appendEdgeLabel((EdgeLabel) element);
+                }
+                break;
+            case ELIMINATE:
+                if (element instanceof PropertyKey) {
+                    this.schema.eliminatePropertyKey((PropertyKey) element);
+                } else if (element instanceof VertexLabel) {
+                    this.schema.eliminateVertexLabel((VertexLabel) element);
+                } else {
+                    this.schema.eliminateEdgeLabel((EdgeLabel) element);
+                }
+                break;
+            case REMOVE:
+                this.remove(element);
+                break;
+            default:
+                throw new AssertionError("Unknown action " + step.action());
+        }
+    }
+
+    private void remove(SchemaElement element) {
+        long taskId;
+        if (element instanceof PropertyKey) {
+            this.schema.removePropertyKey(element.name());
+            return;
+        } else if (element instanceof VertexLabel) {
+            taskId = this.schema.removeVertexLabel(element.name());
+        } else if (element instanceof EdgeLabel) {
+            taskId = this.schema.removeEdgeLabel(element.name());
+        } else {
+            taskId = this.schema.removeIndexLabel(element.name());
+        }
+        // The name can't be reused until the removing task is completed
+        Task task = this.task.waitUntilTaskCompletedAsync(taskId).join();
+        if (!task.success()) {
+            throw new ClientException("Task '%s' is '%s', result is '%s'",
+                                      taskId, task.status(), task.result());
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Step step : this.steps) {
+            sb.append(step).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public enum Action {
+
+        CREATE,
+
+        APPEND,
+
+        ELIMINATE,
+
+        REMOVE
+    }
+
+    public static class Step {
+
+        private final Action action;
+        private final SchemaElement element;
+        private final List<String> rebuilds;
+        private final List<Step> depends;
+
+        Step(Action action, SchemaElement element) {
+            this.action = action;
+            this.element = element;
+            this.rebuilds = new ArrayList<>();
+            this.depends = new ArrayList<>();
+            // Creating an index label rebuilds the index of its base label
+            if (action == Action.CREATE && element instanceof IndexLabel) {
+                this.rebuilds.add(element.name());
+            }
+        }
+
+        public Action action() {
+            return this.action;
+        }
+
+        /**
+         * @return the element to create, the delta to append or eliminate,
+         *         or the live element to remove
+         */
+        public SchemaElement element() {
+            return this.element;
+        }
+
+        public HugeType type() {
+            return SchemaBatch.typeOf(this.element);
+        }
+
+        /**
+         * @return the index labels rebuilt by this step
+         */
+        public List<String> rebuilds() {
+            return Collections.unmodifiableList(this.rebuilds);
+        }
+
+        public List<Step> depends() {
+            return Collections.unmodifiableList(this.depends);
+        }
+
+        void dependOn(Step step) {
+            if (step != null && step != this &&
+                !this.depends.contains(step)) {
+                this.depends.add(step);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s '%s'", this.action,
+                                 this.type().string(), this.element.name());
+        }
+    }
+
+    /**
+     * The outcome of executing a plan, the steps are recorded in the order
+     * they are finished
+     */
+    public static class Report {
+
+        private final List<Step> succeed;
+        private final Map<Step, Throwable> failures;
+
+        private Report() {
+            this.succeed = new ArrayList<>();
+            this.failures = new LinkedHashMap<>();
+        }
+
+        private synchronized void succeed(Step step) {
+            this.succeed.add(step);
+        }
+
+        private synchronized void fail(Step step, Throwable cause) {
+            this.failures.put(step, cause);
+        }
+
+        public synchronized List<Step> succeed() {
+            return Collections.unmodifiableList(new ArrayList<>(this.succeed));
+        }
+
+        public synchronized Map<Step, Throwable> failures() {
+            return Collections.unmodifiableMap(
+                   new LinkedHashMap<>(this.failures));
+        }
+
+        public synchronized boolean success() {
+            return this.failures.isEmpty();
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("Report{succeed=%s, failed=%s}",
+                                 this.succeed.size(), this.failures.size());
+        }
+    }
+}
@@ -20,6 +20,7 @@
 package com.baidu.hugegraph.driver;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import com.baidu.hugegraph.api.task.TaskAPI;
 import com.baidu.hugegraph.client.RestClient;
@@ -28,9 +29,11 @@ import com.baidu.hugegraph.structure.Task;
 public class TaskManager {
 
     private TaskAPI taskAPI;
+    private TaskPoller taskPoller;
 
     public TaskManager(RestClient client, String graph) {
         this.taskAPI = new TaskAPI(client, graph);
+        this.taskPoller = new TaskPoller(this.taskAPI);
     }
 
     public List<Task> list() {
@@ -60,4 +63,24 @@ public class TaskManager {
     public void waitUntilTaskCompleted(long taskId, long seconds) {
         this.taskAPI.waitUntilTaskCompleted(taskId, seconds);
     }
+
+    /**
+     * Create a watcher to track many tasks with bulk requests
+     */
+    public TaskWatcher watcher() {
+        return new TaskWatcher(this.taskAPI);
+    }
+
+    /**
+     * Wait for the task without blocking, the future is completed with the
+     * task once it is completed on server, no matter success or not
+     */
+    public CompletableFuture<Task> waitUntilTaskCompletedAsync(long taskId) {
+        return this.taskPoller.await(taskId);
+    }
+
+    public CompletableFuture<Task> waitUntilTaskCompletedAsync(long taskId,
+                                                               long timeout) {
+        return this.taskPoller.await(taskId, timeout);
+    }
 }
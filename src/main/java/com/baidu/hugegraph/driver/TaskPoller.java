@@ -0,0 +1,309 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.baidu.hugegraph.driver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+
+import com.baidu.hugegraph.api.task.TaskAPI;
+import com.baidu.hugegraph.rest.ClientException;
+import com.baidu.hugegraph.structure.Task;
+import com.baidu.hugegraph.util.E;
+import com.baidu.hugegraph.util.ExecutorUtil;
+import com.baidu.hugegraph.util.Log;
+import com.google.common.collect.Lists;
+
+/**
+ * TaskPoller completes the futures of tasks when they are completed on
+ * server. All the pollers share one scheduler thread which only fires the
+ * ticks, the requests are sent by a small shared pool so that a slow server
+ * doesn't delay the ticks of other pollers. The tasks due at a tick are
+ * fetched with one list request per LIST_BATCH_SIZE tasks, each outstanding
+ * task is polled at most once per tick no matter how many futures wait for
+ * it, and the interval of a task starts small and grows by the backoff
+ * factor on each poll up to the max interval, so that short tasks are
+ * noticed quickly while long tasks don't flood the server.
+ */
+public class TaskPoller {
+
+    private static final Logger LOG = Log.logger(TaskPoller.class);
+
+    public static final long DEFAULT_MIN_INTERVAL = 20L;
+    public static final long DEFAULT_MAX_INTERVAL = 2000L;
+    public static final double BACKOFF = 1.5;
+    // Give up a task after it fails to be polled for these times in a row
+    public static final int MAX_FAILURES = 3;
+    public static final int LIST_BATCH_SIZE = 100;
+
+    private static final int FETCHER_THREADS = 4;
+
+    private static final ScheduledExecutorService SCHEDULER =
+            ExecutorUtil.newScheduledThreadPool("task-poller");
+    private static final ExecutorService FETCHERS =
+            ExecutorUtil.newFixedThreadPool(FETCHER_THREADS, "task-fetcher");
+
+    private final TaskAPI taskAPI;
+    private final long minInterval;
+    private final long maxInterval;
+    private final Map<Long, Polling> pollings;
+    // Serialize the ticks of this poller which may run on any fetcher
+    private final Object pollLock;
+
+    private ScheduledFuture<?> tick;
+    private long tickTime;
+
+    public TaskPoller(TaskAPI taskAPI) {
+        this(taskAPI, DEFAULT_MIN_INTERVAL, DEFAULT_MAX_INTERVAL);
+    }
+
+    public TaskPoller(TaskAPI taskAPI, long minInterval, long maxInterval) {
+        E.checkNotNull(taskAPI, "task api");
+        E.checkArgument(minInterval > 0L,
+                        "The min interval must be > 0, but got %s",
+                        minInterval);
+        E.checkArgument(maxInterval >= minInterval,
+                        "The max interval must be >= min interval %s, " +
+                        "but got %s", minInterval, maxInterval);
+        this.taskAPI = taskAPI;
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.pollings = new ConcurrentHashMap<>();
+        this.pollLock = new Object();
+        this.tick = null;
+        this.tickTime = Long.MAX_VALUE;
+    }
+
+    /**
+     * @return the count of tasks being polled
+     */
+    public int pending() {
+        return this.pollings.size();
+    }
+
+    public CompletableFuture<Task> await(long taskId) {
+        return this.await(taskId, -1L);
+    }
+
+    /**
+     * Wait for the task asynchronously, the future is completed with the
+     * task once it is completed on server, or completed exceptionally if
+     * it isn't completed in the timeout (in ms, -1 means no timeout)
+     */
+    public CompletableFuture<Task> await(long taskId, long timeout) {
+        E.checkArgument(timeout > 0L || timeout == -1L,
+                        "The timeout must be > 0 or == -1, but got %s",
+                        timeout);
+        long now = System.currentTimeMillis();
+        Waiter waiter = new Waiter(timeout > 0L ? now + timeout :
+                                                  Long.MAX_VALUE);
+        this.pollings.compute(taskId, (id, polling) -> {
+            if (polling == null) {
+                polling = new Polling(now, this.minInterval);
+            }
+            polling.waiters.add(waiter);
+            return polling;
+        });
+        this.schedule(now);
+        return waiter.future;
+    }
+
+    private synchronized void schedule(long time) {
+        if (this.tick != null && this.tickTime <= time) {
+            return;
+        }
+        if (this.tick != null) {
+            this.tick.cancel(false);
+        }
+        long delay = Math.max(0L, time - System.currentTimeMillis());
+        this.tickTime = time;
+        this.tick = SCHEDULER.schedule(() -> {
+            FETCHERS.execute(this::pollAll);
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void pollAll() {
+        synchronized (this) {
+            this.tick = null;
+            this.tickTime = Long.MAX_VALUE;
+        }
+        long next = Long.MAX_VALUE;
+        try {
+            synchronized (this.pollLock) {
+                Map<Long, Object> results = this.fetch(this.dueIds());
+                for (Map.Entry<Long, Polling> e : this.pollings.entrySet()) {
+                    long time = this.poll(e.getKey(), e.getValue(),
+                                          results.get(e.getKey()));
+                    next = Math.min(next, time);
+                }
+            }
+        } catch (Throwable e) {
+            // Keep polling the remaining tasks at next tick
+            LOG.warn("Failed to poll tasks", e);
+            next = System.currentTimeMillis() + this.minInterval;
+        }
+        if (next != Long.MAX_VALUE) {
+            this.schedule(next);
+        }
+    }
+
+    private List<Long> dueIds() {
+        long now = System.currentTimeMillis();
+        List<Long> ids = new ArrayList<>();
+        for (Map.Entry<Long, Polling> e : this.pollings.entrySet()) {
+            if (e.getValue().nextTime <= now) {
+                ids.add(e.getKey());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Fetch the tasks with one list request per batch, the tasks missing in
+     * the list are fetched one by one
+     * @return the task or the failure of each id
+     */
+    private Map<Long, Object> fetch(List<Long> ids) {
+        Map<Long, Object> results = new HashMap<>();
+        for (List<Long> batch : Lists.partition(ids, LIST_BATCH_SIZE)) {
+            try {
+                for (Task task : this.taskAPI.list(batch)) {
+                    results.put(task.id(), task);
+                }
+            } catch (Throwable e) {
+                for (Long id : batch) {
+                    results.put(id, e);
+                }
+            }
+        }
+        for (Long id : ids) {
+            if (results.containsKey(id)) {
+                continue;
+            }
+            // The task may be created after the list, get it directly
+            try {
+                results.put(id, this.taskAPI.get(id));
+            } catch (Throwable e) {
+                results.put(id, e);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Handle the result of a task if it's polled at this tick, and return
+     * the time it needs to be checked again, or Long.MAX_VALUE if it is
+     * finished
+     */
+    private long poll(long taskId, Polling polling, Object result) {
+        long now = System.currentTimeMillis();
+        if (result != null) {
+            Task task = null;
+            Throwable failure = null;
+            if (result instanceof Task) {
+                task = (Task) result;
+                polling.failures = 0;
+            } else if (++polling.failures >= MAX_FAILURES) {
+                failure = (Throwable) result;
+            }
+            if (task != null && task.completed() || failure != null) {
+                this.pollings.remove(taskId);
+                for (Waiter waiter : polling.waiters) {
+                    if (failure != null) {
+                        waiter.future.completeExceptionally(failure);
+                    } else {
+                        waiter.future.complete(task);
+                    }
+                }
+                return Long.MAX_VALUE;
+            }
+            now = System.currentTimeMillis();
+            polling.nextTime = now + polling.interval;
+            polling.interval = Math.min((long) (polling.interval * BACKOFF),
+                                        this.maxInterval);
+        }
+
+        long next = polling.nextTime;
+        Iterator<Waiter> iter = polling.waiters.iterator();
+        while (iter.hasNext()) {
+            Waiter waiter = iter.next();
+            if (waiter.deadline <= now && !waiter.future.isDone()) {
+                waiter.future.completeExceptionally(new ClientException(
+                        "Task '%s' was not completed in the timeout",
+                        taskId));
+            }
+            if (waiter.future.isDone()) {
+                // Timeout or cancelled by the caller
+                polling.waiters.remove(waiter);
+            } else {
+                next = Math.min(next, waiter.deadline);
+            }
+        }
+        if (polling.waiters.isEmpty()) {
+            /*
+             * Stop polling the task if nobody waits for it, a waiter added
+             * concurrently will register the task again
+             */
+            this.pollings.computeIfPresent(taskId, (id, p) -> {
+                return p.waiters.isEmpty() ? null : p;
+            });
+            if (!this.pollings.containsKey(taskId)) {
+                return Long.MAX_VALUE;
+            }
+        }
+        return next;
+    }
+
+    private static class Polling {
+
+        private final List<Waiter> waiters;
+        private long nextTime;
+        private long interval;
+        private int failures;
+
+        public Polling(long nextTime, long interval) {
+            this.waiters = new CopyOnWriteArrayList<>();
+            this.nextTime = nextTime;
+            this.interval = interval;
+            this.failures = 0;
+        }
+    }
+
+    private static class Waiter {
+
+        private final CompletableFuture<Task> future;
+        private final long deadline;
+
+        public Waiter(long deadline) {
+            this.future = new CompletableFuture<>();
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.baidu.hugegraph.driver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+
+import com.baidu.hugegraph.structure.Task;
+import com.baidu.hugegraph.util.E;
+import com.baidu.hugegraph.util.Log;
+
+/**
+ * TaskProgressTracker estimates the throughput and the remaining time of
+ * tasks from the progress sampled by a TaskWatcher, the throughput is
+ * smoothed by exponential moving average so that a burst or a stall of
+ * one sample doesn't swing the estimation. The remaining time is known
+ * only for the task whose total amount of work is given by expect().
+ *
+ * Usage:
+ *   TaskProgressTracker tracker = new TaskProgressTracker();
+ *   watcher.addListener(tracker);
+ *   tracker.onCompleted(progress -> scheduleNext(progress.id()));
+ */
+public class TaskProgressTracker implements TaskWatcher.Listener {
+
+    private static final Logger LOG = Log.logger(TaskProgressTracker.class);
+
+    public static final double DEFAULT_ALPHA = 0.3;
+
+    private final double alpha;
+    private final Map<Long, Tracking> trackings;
+    private final Map<Long, Long> totals;
+    private final List<Consumer<Progress>> progressCallbacks;
+    private final List<Consumer<Progress>> completedCallbacks;
+
+    public TaskProgressTracker() {
+        this(DEFAULT_ALPHA);
+    }
+
+    /**
+     * @param alpha the weight of the latest sample in the moving average,
+     *              a larger alpha follows the changes of throughput faster
+     */
+    public TaskProgressTracker(double alpha) {
+        E.checkArgument(alpha > 0.0 && alpha <= 1.0,
+                        "The alpha must be in (0, 1], but got %s", alpha);
+        this.alpha = alpha;
+        this.trackings = new ConcurrentHashMap<>();
+        this.totals = new ConcurrentHashMap<>();
+        this.progressCallbacks = new CopyOnWriteArrayList<>();
+        this.completedCallbacks = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Set the total amount of work of the task, in the unit of the task
+     * progress, like the count of elements to rebuild index for
+     */
+    public TaskProgressTracker expect(long taskId, long total) {
+        E.checkArgument(total > 0L, "The total must be > 0, but got %s",
+                        total);
+        this.totals.put(taskId, total);
+        return this;
+    }
+
+    public TaskProgressTracker onProgress(Consumer<Progress> callback) {
+        E.checkNotNull(callback, "callback");
+        this.progressCallbacks.add(callback);
+        return this;
+    }
+
+    public TaskProgressTracker onCompleted(Consumer<Progress> callback) {
+        E.checkNotNull(callback, "callback");
+        this.completedCallbacks.add(callback);
+        return this;
+    }
+
+    /**
+     * @return the latest progress of the task, or null if not sampled
+     */
+    public Progress progress(long taskId) {
+        Tracking tracking = this.trackings.get(taskId);
+        return tracking == null ? null : tracking.snapshot();
+    }
+
+    public List<Progress> progresses() {
+        List<Progress> progresses = new ArrayList<>();
+        for (Tracking tracking : this.trackings.values()) {
+            Progress progress = tracking.snapshot();
+            if (progress != null) {
+                progresses.add(progress);
+            }
+        }
+        return progresses;
+    }
+
+    /**
+     * @return the sum of throughput of all the running tasks, per second
+     */
+    public double rate() {
+        double rate = 0.0;
+        for (Progress progress : this.progresses()) {
+            if (!progress.completed()) {
+                rate += progress.rate();
+            }
+        }
+        return rate;
+    }
+
+    /**
+     * @return the estimated remaining time in ms until all the running
+     *         tasks are completed, or -1 if it's unknown for any of them
+     */
+    public long eta() {
+        long eta = 0L;
+        for (Progress progress : this.progresses()) {
+            long remaining = progress.eta();
+            if (remaining < 0L) {
+                return -1L;
+            }
+            eta = Math.max(eta, remaining);
+        }
+        return eta;
+    }
+
+    @Override
+    public void onProgress(Task task) {
+        Progress progress = this.sample(task);
+        notify(this.progressCallbacks, progress);
+    }
+
+    @Override
+    public void onCompleted(Task task) {
+        Progress progress = this.sample(task);
+        notify(this.completedCallbacks, progress);
+    }
+
+    private Progress sample(Task task) {
+        Tracking tracking = this.trackings.computeIfAbsent(task.id(), id -> {
+            return new Tracking(id);
+        });
+        synchronized (tracking) {
+            tracking.sample(task, this.alpha, this.totals.get(task.id()));
+            return tracking.snapshot();
+        }
+    }
+
+    private static void notify(List<Consumer<Progress>> callbacks,
+                               Progress progress) {
+        for (Consumer<Progress> callback : callbacks) {
+            try {
+                callback.accept(progress);
+            } catch (Throwable e) {
+                LOG.warn("Failed to notify progress {}", progress, e);
+            }
+        }
+    }
+
+    private static class Tracking {
+
+        private final long id;
+        private volatile Progress latest;
+        private long lastProgress;
+        private long lastTime;
+        private double rate;
+
+        public Tracking(long id) {
+            this.id = id;
+            this.latest = null;
+            this.lastProgress = 0L;
+            this.lastTime = 0L;
+            this.rate = -1.0;
+        }
+
+        public void sample(Task task, double alpha, Long total) {
+            long progress = task.progress();
+            // Prefer the update time of server to the time of sampling
+            long time = task.updateTime() > 0L ? task.updateTime() :
+                                                 System.currentTimeMillis();
+            if (this.latest == null && task.createTime() > 0L) {
+                // Start from the creation of task
+                this.lastTime = task.createTime();
+            }
+            if (this.lastTime > 0L && time > this.lastTime) {
+                double current = (progress - this.lastProgress) * 1000.0 /
+                                 (time - this.lastTime);
+                this.rate = this.rate < 0.0 ? current :
+                            alpha * current + (1.0 - alpha) * this.rate;
+            }
+            if (time > this.lastTime) {
+                this.lastProgress = progress;
+                this.lastTime = time;
+            }
+
+            long eta;
+            if (task.completed()) {
+                eta = 0L;
+            } else if (total == null || this.rate <= 0.0) {
+                eta = -1L;
+            } else {
+                eta = (long) (Math.max(total - progress, 0L) * 1000.0 /
+                              this.rate);
+            }
+            this.latest = new Progress(this.id, task.status(), progress,
+                                       total == null ? -1L : total,
+                                       Math.max(this.rate, 0.0), eta,
+                                       task.completed());
+        }
+
+        public Progress snapshot() {
+            return this.latest;
+        }
+    }
+
+    public static final class Progress {
+
+        private final long id;
+        private final String status;
+        private final long progress;
+        private final long total;
+        private final double rate;
+        private final long eta;
+        private final boolean completed;
+
+        private Progress(long id, String status, long progress, long total,
+                         double rate, long eta, boolean completed) {
+            this.id = id;
+            this.status = status;
+            this.progress = progress;
+            this.total = total;
+            this.rate = rate;
+            this.eta = eta;
+            this.completed = completed;
+        }
+
+        public long id() {
+            return this.id;
+        }
+
+        public String status() {
+            return this.status;
+        }
+
+        public long progress() {
+            return this.progress;
+        }
+
+        /**
+         * @return the expected total, or -1 if unknown
+         */
+        public long total() {
+            return this.total;
+        }
+
+        /**
+         * @return the smoothed throughput of progress per second
+         */
+        public double rate() {
+            return this.rate;
+        }
+
+        /**
+         * @return the estimated remaining time in ms, or -1 if unknown
+         */
+        public long eta() {
+            return this.eta;
+        }
+
+        public boolean completed() {
+            return this.completed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Progress{id=%s, status=%s, progress=%s, " +
+                                 "total=%s, rate=%.2f/s, eta=%sms}",
+                                 this.id, this.status, this.progress,
+                                 this.total, this.rate, this.eta);
+        }
+    }
+}
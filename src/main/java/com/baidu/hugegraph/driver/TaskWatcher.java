@@ -0,0 +1,310 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.baidu.hugegraph.driver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+
+import com.baidu.hugegraph.api.task.TaskAPI;
+import com.baidu.hugegraph.rest.ClientException;
+import com.baidu.hugegraph.structure.Task;
+import com.baidu.hugegraph.util.E;
+import com.baidu.hugegraph.util.Log;
+import com.google.common.collect.Lists;
+
+/**
+ * TaskWatcher watches many tasks together, the states of all the pending
+ * tasks are refreshed by listing them in batches of ids instead of getting
+ * them one by one. The listeners are notified when the progress of a task
+ * changes and when a task is completed, and the await methods refresh the
+ * tasks in the calling thread with a growing interval.
+ */
+public class TaskWatcher {
+
+    private static final Logger LOG = Log.logger(TaskWatcher.class);
+
+    public static final int LIST_BATCH_SIZE = 100;
+
+    private final TaskAPI taskAPI;
+    private final long minInterval;
+    private final long maxInterval;
+    // The latest state of each watched task, null before refreshed
+    private final Map<Long, Task> tasks;
+    private final List<Listener> listeners;
+    private final AtomicLong requests;
+
+    public TaskWatcher(TaskAPI taskAPI) {
+        this(taskAPI, TaskPoller.DEFAULT_MIN_INTERVAL,
+             TaskPoller.DEFAULT_MAX_INTERVAL);
+    }
+
+    public TaskWatcher(TaskAPI taskAPI, long minInterval, long maxInterval) {
+        E.checkNotNull(taskAPI, "task api");
+        E.checkArgument(minInterval > 0L,
+                        "The min interval must be > 0, but got %s",
+                        minInterval);
+        E.checkArgument(maxInterval >= minInterval,
+                        "The max interval must be >= min interval %s, " +
+                        "but got %s", minInterval, maxInterval);
+        this.taskAPI = taskAPI;
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.tasks = new LinkedHashMap<>();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.requests = new AtomicLong(0L);
+    }
+
+    public synchronized TaskWatcher watch(long taskId) {
+        if (!this.tasks.containsKey(taskId)) {
+            this.tasks.put(taskId, null);
+        }
+        return this;
+    }
+
+    public TaskWatcher watch(Collection<Long> taskIds) {
+        E.checkNotNull(taskIds, "task ids");
+        for (long taskId : taskIds) {
+            this.watch(taskId);
+        }
+        return this;
+    }
+
+    public synchronized void unwatch(long taskId) {
+        this.tasks.remove(taskId);
+    }
+
+    public TaskWatcher addListener(Listener listener) {
+        E.checkNotNull(listener, "listener");
+        this.listeners.add(listener);
+        return this;
+    }
+
+    public void removeListener(Listener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * @return the count of watched tasks
+     */
+    public synchronized int size() {
+        return this.tasks.size();
+    }
+
+    /**
+     * @return the count of watched tasks not completed yet
+     */
+    public synchronized int pending() {
+        return this.pendingIds().size();
+    }
+
+    /**
+     * @return the latest state of the task, or null if it's not refreshed
+     */
+    public synchronized Task task(long taskId) {
+        return this.tasks.get(taskId);
+    }
+
+    /**
+     * @return the count of requests sent to refresh tasks
+     */
+    public long requests() {
+        return this.requests.get();
+    }
+
+    /**
+     * Refresh the states of all the pending tasks, with one list request
+     * per LIST_BATCH_SIZE tasks, and notify the listeners of the changes
+     * @return the count of tasks completed in this refresh
+     */
+    public int refresh() {
+        List<Long> ids;
+        synchronized (this) {
+            ids = this.pendingIds();
+        }
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        List<Task> fetched = new ArrayList<>(ids.size());
+        for (List<Long> batch : Lists.partition(ids, LIST_BATCH_SIZE)) {
+            fetched.addAll(this.taskAPI.list(batch));
+            this.requests.incrementAndGet();
+        }
+        Set<Long> missing = new HashSet<>(ids);
+        for (Task task : fetched) {
+            missing.remove(task.id());
+        }
+        for (long id : missing) {
+            // The task may be created after the list, get it directly
+            fetched.add(this.taskAPI.get(id));
+            this.requests.incrementAndGet();
+        }
+
+        List<Task> progressed = new ArrayList<>();
+        List<Task> completed = new ArrayList<>();
+        synchronized (this) {
+            for (Task task : fetched) {
+                if (!this.tasks.containsKey(task.id())) {
+                    // Unwatched while refreshing
+                    continue;
+                }
+                Task old = this.tasks.put(task.id(), task);
+                if (old != null && old.completed()) {
+                    continue;
+                }
+                if (task.completed()) {
+                    completed.add(task);
+                } else if (old == null || old.progress() != task.progress()) {
+                    progressed.add(task);
+                }
+            }
+        }
+
+        for (Listener listener : this.listeners) {
+            for (Task task : progressed) {
+                try {
+                    listener.onProgress(task);
+                } catch (Throwable e) {
+                    LOG.warn("Failed to notify progress of task {}",
+                             task.id(), e);
+                }
+            }
+            for (Task task : completed) {
+                try {
+                    listener.onCompleted(task);
+                } catch (Throwable e) {
+                    LOG.warn("Failed to notify completion of task {}",
+                             task.id(), e);
+                }
+            }
+        }
+        return completed.size();
+    }
+
+    /**
+     * Wait until all the watched tasks are completed
+     * @param timeout the max time to wait in ms, -1 means no timeout
+     * @return the completed tasks in the order they were watched
+     */
+    public List<Task> awaitAll(long timeout) {
+        long deadline = deadline(timeout);
+        long interval = this.minInterval;
+        while (true) {
+            this.refresh();
+            synchronized (this) {
+                if (this.pendingIds().isEmpty()) {
+                    return new ArrayList<>(this.tasks.values());
+                }
+            }
+            interval = this.sleep(interval, deadline, timeout);
+        }
+    }
+
+    /**
+     * Wait until any of the watched tasks is completed, the completed task
+     * is returned and won't be watched any more, so the tasks can be taken
+     * one by one in the order they are completed
+     * @param timeout the max time to wait in ms, -1 means no timeout
+     */
+    public Task awaitAny(long timeout) {
+        long deadline = deadline(timeout);
+        long interval = this.minInterval;
+        while (true) {
+            synchronized (this) {
+                E.checkState(!this.tasks.isEmpty(), "No task is watched");
+                Iterator<Task> iter = this.tasks.values().iterator();
+                while (iter.hasNext()) {
+                    Task task = iter.next();
+                    if (task != null && task.completed()) {
+                        iter.remove();
+                        return task;
+                    }
+                }
+            }
+            if (this.refresh() > 0) {
+                continue;
+            }
+            interval = this.sleep(interval, deadline, timeout);
+        }
+    }
+
+    private List<Long> pendingIds() {
+        List<Long> ids = new ArrayList<>();
+        for (Map.Entry<Long, Task> e : this.tasks.entrySet()) {
+            if (e.getValue() == null || !e.getValue().completed()) {
+                ids.add(e.getKey());
+            }
+        }
+        return ids;
+    }
+
+    private long sleep(long interval, long deadline, long timeout) {
+        long now = System.currentTimeMillis();
+        if (now >= deadline) {
+            throw new ClientException(
+                      "There are %s tasks not completed in %s ms",
+                      this.pending(), timeout);
+        }
+        try {
+            Thread.sleep(Math.min(interval, deadline - now));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClientException("Interrupted while waiting for tasks",
+                                      e);
+        }
+        return Math.min((long) (interval * TaskPoller.BACKOFF),
+                        this.maxInterval);
+    }
+
+    private static long deadline(long timeout) {
+        E.checkArgument(timeout > 0L || timeout == -1L,
+                        "The timeout must be > 0 or == -1, but got %s",
+                        timeout);
+        return timeout == -1L ? Long.MAX_VALUE :
+                                System.currentTimeMillis() + timeout;
+    }
+
+    public interface Listener {
+
+        /**
+         * Called when a pending task is refreshed the first time or its
+         * progress is changed
+         */
+        default void onProgress(Task task) {
+            // pass
+        }
+
+        /**
+         * Called once when a task is found completed
+         */
+        default void onCompleted(Task task) {
+            // pass
+        }
+    }
+}
@@ -19,8 +19,29 @@
 
 package com.baidu.hugegraph.driver;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import com.baidu.hugegraph.algorithm.LocalTraverser;
+import com.baidu.hugegraph.api.graph.GraphAPI;
 import com.baidu.hugegraph.api.traverser.CrosspointsAPI;
 import com.baidu.hugegraph.api.traverser.EdgesAPI;
 import com.baidu.hugegraph.api.traverser.KneighborAPI;
@@ -29,15 +50,33 @@ import com.baidu.hugegraph.api.traverser.PathsAPI;
 import com.baidu.hugegraph.api.traverser.ShortestPathAPI;
 import com.baidu.hugegraph.api.traverser.VerticesAPI;
 import com.baidu.hugegraph.client.RestClient;
+import com.baidu.hugegraph.rest.ClientException;
 import com.baidu.hugegraph.structure.constant.Direction;
 import com.baidu.hugegraph.structure.graph.Edge;
+import com.baidu.hugegraph.structure.graph.Graph;
+import com.baidu.hugegraph.structure.graph.IdList;
 import com.baidu.hugegraph.structure.graph.Path;
 import com.baidu.hugegraph.structure.graph.Shard;
 import com.baidu.hugegraph.structure.graph.Vertex;
+import com.baidu.hugegraph.util.E;
+import com.baidu.hugegraph.util.ExecutorUtil;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 public class TraverserManager {
 
+    private static final int SUBGRAPH_PARALLELISM = 8;
+    private static final int VERTICES_BATCH_SIZE = 100;
+    private static final long SUBGRAPH_IDLE_TIMEOUT = 60000L;
+
     private final GraphManager graphManager;
+    // Shared by the subgraph calls, the idle threads exit after a while
+    private final ExecutorService subgraphExecutor;
 
     private ShortestPathAPI shortestPathAPI;
     private PathsAPI pathsAPI;
@@ -47,8 +86,15 @@ public class TraverserManager {
     private VerticesAPI verticesAPI;
     private EdgesAPI edgesAPI;
 
+    private volatile LocalTraverser local;
+    private volatile Cache<List<Object>, Object> cache;
+    private final Runnable invalidator;
+
     public TraverserManager(RestClient client, GraphManager graphManager) {
         this.graphManager = graphManager;
+        this.subgraphExecutor = ExecutorUtil.newFixedThreadPool(
+                                SUBGRAPH_PARALLELISM, "subgraph-fetcher",
+                                SUBGRAPH_IDLE_TIMEOUT);
         String graph = graphManager.graph();
         this.shortestPathAPI = new ShortestPathAPI(client, graph);
         this.pathsAPI = new PathsAPI(client, graph);
@@ -57,6 +103,74 @@ public class TraverserManager {
         this.kneighborAPI = new KneighborAPI(client, graph);
         this.verticesAPI = new VerticesAPI(client, graph);
         this.edgesAPI = new EdgesAPI(client, graph);
+        this.local = null;
+        this.cache = null;
+        this.invalidator = this::invalidateCache;
+    }
+
+    /**
+     * Answer the kout, kneighbor, shortest path and paths traversals from
+     * a local snapshot when it covers the query and the server result is
+     * certain, otherwise send the request to server as usual.
+     * The crosspoint traversal is always sent to server, since which
+     * crosspoints are found depends on the order the server expands.
+     * @param local the local traverser, null means to disable the routing
+     */
+    public void local(LocalTraverser local) {
+        this.local = local;
+    }
+
+    public LocalTraverser local() {
+        return this.local;
+    }
+
+    /**
+     * Cache the results of shortest path, paths, crosspoint, kout and
+     * kneighbor traversals, keyed by the normalized request parameters.
+     * The concurrent identical traversals wait for the first one instead
+     * of sending their own requests. The cached results are shared, so the
+     * lists returned are unmodifiable while the cache is enabled.
+     * @param maxSize           the max count of results to keep
+     * @param ttl               the milliseconds to keep a result
+     * @param invalidateOnWrite whether to clear the cache after each write
+     *                          through the graph manager
+     */
+    public void cache(long maxSize, long ttl, boolean invalidateOnWrite) {
+        E.checkArgument(maxSize > 0L,
+                        "The max size of cache must be > 0, but got %s",
+                        maxSize);
+        E.checkArgument(ttl > 0L,
+                        "The ttl of cache must be > 0, but got %s", ttl);
+        this.disableCache();
+        this.cache = CacheBuilder.newBuilder()
+                                 .maximumSize(maxSize)
+                                 .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+                                 .recordStats()
+                                 .build();
+        if (invalidateOnWrite) {
+            this.graphManager.addWriteListener(this.invalidator);
+        }
+    }
+
+    public void disableCache() {
+        this.graphManager.removeWriteListener(this.invalidator);
+        this.cache = null;
+    }
+
+    public void invalidateCache() {
+        Cache<List<Object>, Object> cache = this.cache;
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * @return the hit/miss/load statistics of the cache, or null if the
+     *         cache is disabled
+     */
+    public CacheStats cacheStats() {
+        Cache<List<Object>, Object> cache = this.cache;
+        return cache == null ? null : cache.stats();
     }
 
     public Path shortestPath(Object sourceId, Object targetId,
@@ -74,6 +188,26 @@ public class TraverserManager {
     public Path shortestPath(Object sourceId, Object targetId,
                              Direction direction, String label, int maxDepth,
                              long degree, long capacity) {
+        return this.cached(() -> {
+            return this.queryShortestPath(sourceId, targetId, direction,
+                                          label, maxDepth, degree, capacity);
+        }, "shortest_path", formatVertexId(sourceId),
+           formatVertexId(targetId), direction, label, maxDepth, degree,
+           capacity);
+    }
+
+    private Path queryShortestPath(Object sourceId, Object targetId,
+                                   Direction direction, String label,
+                                   int maxDepth, long degree, long capacity) {
+        LocalTraverser local = this.local;
+        if (local != null) {
+            Path path = local.shortestPath(sourceId, targetId, direction,
+                                           label, maxDepth, degree,
+                                           capacity);
+            if (path != null) {
+                return path;
+            }
+        }
         return this.shortestPathAPI.get(sourceId, targetId, direction,
                                         label, maxDepth, degree, capacity);
     }
@@ -94,10 +228,59 @@ public class TraverserManager {
     public List<Path> paths(Object sourceId, Object targetId,
                             Direction direction, String label, int maxDepth,
                             long degree, long capacity, long limit) {
+        return this.cached(() -> {
+            return this.queryPaths(sourceId, targetId, direction, label,
+                                   maxDepth, degree, capacity, limit);
+        }, "paths", formatVertexId(sourceId), formatVertexId(targetId),
+           direction, label, maxDepth, degree, capacity, limit);
+    }
+
+    private List<Path> queryPaths(Object sourceId, Object targetId,
+                                  Direction direction, String label,
+                                  int maxDepth, long degree, long capacity,
+                                  long limit) {
+        LocalTraverser local = this.local;
+        if (local != null) {
+            List<Path> paths = local.paths(sourceId, targetId, direction,
+                                           label, maxDepth, degree,
+                                           capacity, limit);
+            if (paths != null) {
+                return paths;
+            }
+        }
         return this.pathsAPI.get(sourceId, targetId, direction, label,
                                  maxDepth, degree, capacity, limit);
     }
 
+    /**
+     * Same as paths() but decode the paths one by one while iterating,
+     * the results are not cached
+     */
+    public Iterator<Path> iteratePaths(Object sourceId, Object targetId,
+                                       Direction direction, String label,
+                                       int maxDepth, long degree,
+                                       long capacity, long limit) {
+        LocalTraverser local = this.local;
+        if (local != null) {
+            List<Path> paths = local.paths(sourceId, targetId, direction,
+                                           label, maxDepth, degree,
+                                           capacity, limit);
+            if (paths != null) {
+                return paths.iterator();
+            }
+        }
+        return this.pathsAPI.iterate(sourceId, targetId, direction, label,
+                                     maxDepth, degree, capacity, limit);
+    }
+
+    public Stream<Path> streamPaths(Object sourceId, Object targetId,
+                                    Direction direction, String label,
+                                    int maxDepth, long degree,
+                                    long capacity, long limit) {
+        return stream(this.iteratePaths(sourceId, targetId, direction, label,
+                                        maxDepth, degree, capacity, limit));
+    }
+
     public List<Path> crosspoint(Object sourceId, Object targetId,
                                  Direction direction, int maxDepth, int limit) {
         return this.crosspoint(sourceId, targetId, direction, null,
@@ -115,8 +298,35 @@ public class TraverserManager {
                                  Direction direction, String label,
                                  int maxDepth, long degree, long capacity,
                                  long limit) {
-        return this.crosspointsAPI.get(sourceId, targetId, direction, label,
-                                       maxDepth, degree, capacity, limit);
+        return this.cached(() -> {
+            return this.crosspointsAPI.get(sourceId, targetId, direction,
+                                           label, maxDepth, degree, capacity,
+                                           limit);
+        }, "crosspoints", formatVertexId(sourceId), formatVertexId(targetId),
+           direction, label, maxDepth, degree, capacity, limit);
+    }
+
+    /**
+     * Same as crosspoint() but decode the paths one by one while iterating,
+     * the results are not cached
+     */
+    public Iterator<Path> iterateCrosspoints(Object sourceId, Object targetId,
+                                             Direction direction,
+                                             String label, int maxDepth,
+                                             long degree, long capacity,
+                                             long limit) {
+        return this.crosspointsAPI.iterate(sourceId, targetId, direction,
+                                           label, maxDepth, degree, capacity,
+                                           limit);
+    }
+
+    public Stream<Path> streamCrosspoints(Object sourceId, Object targetId,
+                                          Direction direction, String label,
+                                          int maxDepth, long degree,
+                                          long capacity, long limit) {
+        return stream(this.iterateCrosspoints(sourceId, targetId, direction,
+                                              label, maxDepth, degree,
+                                              capacity, limit));
     }
 
     public List<Object> kout(Object sourceId, Direction direction, int depth) {
@@ -132,8 +342,50 @@ public class TraverserManager {
     public List<Object> kout(Object sourceId, Direction direction,
                              String label, int depth, boolean nearest,
                              long degree, long capacity, long limit) {
+        return this.cached(() -> {
+            return this.queryKout(sourceId, direction, label, depth, nearest,
+                                  degree, capacity, limit);
+        }, "kout", formatVertexId(sourceId), direction, label, depth,
+           nearest, degree, capacity, limit);
+    }
+
+    private List<Object> queryKout(Object sourceId, Direction direction,
+                                   String label, int depth, boolean nearest,
+                                   long degree, long capacity, long limit) {
+        LocalTraverser local = this.local;
+        if (local != null) {
+            List<Object> ids = local.kout(sourceId, direction, label, depth,
+                                          nearest, degree, capacity, limit);
+            if (ids != null) {
+                return ids;
+            }
+        }
         return this.koutAPI.get(sourceId, direction, label, depth, nearest,
-                                degree, capacity, limit);
+                                degree, limit, capacity);
+    }
+
+    /**
+     * Same as kout() but return the ids in a compact IdList, which holds
+     * the numeric ids in a long[] and the string ids interned. Note that
+     * the numeric ids are returned as Long even if kout() returns Integer
+     */
+    public IdList koutIds(Object sourceId, Direction direction,
+                          String label, int depth, boolean nearest,
+                          long degree, long capacity, long limit) {
+        return this.cached(() -> {
+            LocalTraverser local = this.local;
+            if (local != null) {
+                List<Object> ids = local.kout(sourceId, direction, label,
+                                              depth, nearest, degree,
+                                              capacity, limit);
+                if (ids != null) {
+                    return IdList.of(ids);
+                }
+            }
+            return this.koutAPI.ids(sourceId, direction, label, depth,
+                                    nearest, degree, limit, capacity);
+        }, "kout_ids", formatVertexId(sourceId), direction, label, depth,
+           nearest, degree, capacity, limit);
     }
 
     public List<Object> kneighbor(Object sourceId, Direction direction,
@@ -149,10 +401,227 @@ public class TraverserManager {
     public List<Object> kneighbor(Object sourceId, Direction direction,
                                   String label, int depth,
                                   long degree, long limit) {
+        return this.cached(() -> {
+            return this.queryKneighbor(sourceId, direction, label, depth,
+                                       degree, limit);
+        }, "kneighbor", formatVertexId(sourceId), direction, label, depth,
+           degree, limit);
+    }
+
+    private List<Object> queryKneighbor(Object sourceId, Direction direction,
+                                        String label, int depth,
+                                        long degree, long limit) {
+        LocalTraverser local = this.local;
+        if (local != null) {
+            List<Object> ids = local.kneighbor(sourceId, direction, label,
+                                               depth, degree, limit);
+            if (ids != null) {
+                return ids;
+            }
+        }
         return this.kneighborAPI.get(sourceId, direction, label, depth,
                                      degree, limit);
     }
 
+    /**
+     * Same as kneighbor() but return the ids in a compact IdList, the
+     * numeric ids are returned as Long like koutIds()
+     */
+    public IdList kneighborIds(Object sourceId, Direction direction,
+                               String label, int depth,
+                               long degree, long limit) {
+        return this.cached(() -> {
+            LocalTraverser local = this.local;
+            if (local != null) {
+                List<Object> ids = local.kneighbor(sourceId, direction,
+                                                   label, depth, degree,
+                                                   limit);
+                if (ids != null) {
+                    return IdList.of(ids);
+                }
+            }
+            return this.kneighborAPI.ids(sourceId, direction, label, depth,
+                                         degree, limit);
+        }, "kneighbor_ids", formatVertexId(sourceId), direction, label,
+           depth, degree, limit);
+    }
+
+    /**
+     * @return a batch traverser to run the traversals of many sources
+     */
+    public BatchTraverser batch() {
+        return new BatchTraverser(this);
+    }
+
+    public Graph subgraph(Object sourceId, Direction direction, int depth) {
+        return this.subgraph(sourceId, direction, null, depth, -1L, -1L);
+    }
+
+    /**
+     * Extract the ego network around the source vertex: the vertices within
+     * the depth and the edges traversed to reach them.
+     * The edges of all the vertices at the same level are requested in
+     * parallel, and the vertices are requested in parallel batches at last,
+     * so it costs depth + 1 rounds of requests regardless of the size.
+     * @param labels the edge labels to traverse, null or empty means all
+     * @param degree the max edges traversed from each vertex, -1 for all
+     * @param limit  the max vertices of the subgraph, -1 for no limit
+     */
+    public Graph subgraph(Object sourceId, Direction direction,
+                          List<String> labels, int depth,
+                          long degree, long limit) {
+        E.checkNotNull(sourceId, "source vertex id");
+        E.checkArgument(depth > 0,
+                        "The depth must be > 0, but got %s", depth);
+        E.checkArgument(degree > 0L && degree <= Integer.MAX_VALUE ||
+                        degree == -1L,
+                        "The degree must be in (0, %s] or == -1, but got %s",
+                        Integer.MAX_VALUE, degree);
+        E.checkArgument(limit > 0L || limit == -1L,
+                        "The limit must be > 0 or == -1, but got %s", limit);
+        List<String> edgeLabels = new ArrayList<>();
+        if (labels == null || labels.isEmpty()) {
+            edgeLabels.add(null);
+        } else {
+            edgeLabels.addAll(labels);
+        }
+
+        /*
+         * The ids are keyed by the formatted id, since the id passed in may
+         * be of another type than the one returned by server, like 1 and 1L
+         */
+        Map<String, Object> vertexIds = new LinkedHashMap<>();
+        Map<String, Edge> edges = new LinkedHashMap<>();
+        vertexIds.put(formatVertexId(sourceId), sourceId);
+        List<Object> frontier = Lists.newArrayList(sourceId);
+        ExecutorService executor = this.subgraphExecutor;
+        for (int level = 0; level < depth && !frontier.isEmpty(); level++) {
+            List<Object[]> requests = new ArrayList<>();
+            for (Object vertexId : frontier) {
+                for (String label : edgeLabels) {
+                    requests.add(new Object[]{vertexId, label});
+                }
+            }
+            List<List<Edge>> results = parallel(executor, requests,
+                                                request -> {
+                return this.graphManager.getEdges(request[0], direction,
+                                                  (String) request[1],
+                                                  null, 0, (int) degree);
+            });
+
+            List<Object> next = new ArrayList<>();
+            for (int i = 0; i < frontier.size(); i++) {
+                String vertexId = formatVertexId(frontier.get(i));
+                int size = edgeLabels.size();
+                // The edges of multiple labels are limited together
+                long left = degree;
+                for (List<Edge> adjacency : results.subList(i * size,
+                                                            i * size +
+                                                            size)) {
+                    for (Edge edge : adjacency) {
+                        if (left == 0L) {
+                            break;
+                        }
+                        left--;
+                        Object other = edge.source();
+                        if (vertexId.equals(formatVertexId(other))) {
+                            other = edge.target();
+                        }
+                        String otherId = formatVertexId(other);
+                        if (!vertexIds.containsKey(otherId)) {
+                            if (limit != -1L && vertexIds.size() >= limit) {
+                                continue;
+                            }
+                            vertexIds.put(otherId, other);
+                            next.add(other);
+                        }
+                        edges.put(edge.id(), edge);
+                    }
+                }
+            }
+            frontier = next;
+        }
+
+        List<List<Object>> batches = Lists.partition(
+                                     new ArrayList<>(vertexIds.values()),
+                                     VERTICES_BATCH_SIZE);
+        List<Vertex> vertices = new ArrayList<>(vertexIds.size());
+        parallel(executor, batches, this::vertices).forEach(
+                 vertices::addAll);
+        return new Graph(vertices, new ArrayList<>(edges.values()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> R cached(Supplier<R> traversal, Object... key) {
+        Cache<List<Object>, Object> cache = this.cache;
+        if (cache == null) {
+            return traversal.get();
+        }
+        try {
+            return (R) cache.get(Arrays.asList(key), () -> {
+                R result = traversal.get();
+                // IdList is immutable already
+                if (result instanceof List && !(result instanceof IdList)) {
+                    return Collections.unmodifiableList((List<?>) result);
+                }
+                return result;
+            });
+        } catch (ExecutionException | UncheckedExecutionException |
+                 ExecutionError e) {
+            Throwables.propagateIfPossible(e.getCause());
+            throw new ClientException("Failed to traverse", e.getCause());
+        }
+    }
+
+    private static <T> Stream<T> stream(Iterator<T> iterator) {
+        Stream<T> stream = StreamSupport.stream(
+                           Spliterators.spliteratorUnknownSize(
+                           iterator, Spliterator.ORDERED), false);
+        if (iterator instanceof AutoCloseable) {
+            AutoCloseable closeable = (AutoCloseable) iterator;
+            return stream.onClose(() -> {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    throw new ClientException("Failed to close stream", e);
+                }
+            });
+        }
+        return stream;
+    }
+
+    private static String formatVertexId(Object id) {
+        return GraphAPI.formatVertexId(id, false);
+    }
+
+    private static <T, R> List<R> parallel(ExecutorService executor,
+                                           List<T> inputs,
+                                           Function<T, R> func) {
+        List<Future<R>> futures = new ArrayList<>(inputs.size());
+        for (T input : inputs) {
+            futures.add(executor.submit(() -> func.apply(input)));
+        }
+        List<R> results = new ArrayList<>(inputs.size());
+        try {
+            for (Future<R> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClientException("Interrupted while fetching subgraph",
+                                      e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ClientException("Failed to fetch subgraph", cause);
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return results;
+    }
+
     public List<Shard> vertexShards(long splitSize) {
         return this.verticesAPI.shards(splitSize);
     }
@@ -169,6 +638,18 @@ public class TraverserManager {
         return vertices;
     }
 
+    /**
+     * Get the vertices of the ids lazily, a batch of vertices is requested
+     * when any of them is accessed at the first time, the vertex which
+     * doesn't exist is null
+     */
+    public List<Vertex> lazyVertices(List<?> ids, int batchSize) {
+        E.checkNotNull(ids, "ids");
+        E.checkArgument(batchSize > 0,
+                        "The batch size must be > 0, but got %s", batchSize);
+        return new LazyVertexList(ids, batchSize);
+    }
+
     public List<Vertex> vertices(Shard shard) {
         List<Vertex> vertices = this.verticesAPI.scan(shard);
         for (Vertex vertex : vertices) {
@@ -192,4 +673,52 @@ public class TraverserManager {
         }
         return edges;
     }
+
+    private class LazyVertexList extends AbstractList<Vertex>
+                                 implements RandomAccess {
+
+        private final List<?> ids;
+        private final int batchSize;
+        private final Vertex[][] batches;
+
+        private LazyVertexList(List<?> ids, int batchSize) {
+            this.ids = ids;
+            this.batchSize = batchSize;
+            int count = (ids.size() + batchSize - 1) / batchSize;
+            this.batches = new Vertex[count][];
+        }
+
+        @Override
+        public Vertex get(int index) {
+            E.checkArgument(index >= 0 && index < this.ids.size(),
+                            "Invalid index %s of %s vertices",
+                            index, this.ids.size());
+            return this.batch(index / this.batchSize)[index % this.batchSize];
+        }
+
+        @Override
+        public int size() {
+            return this.ids.size();
+        }
+
+        private synchronized Vertex[] batch(int batch) {
+            if (this.batches[batch] != null) {
+                return this.batches[batch];
+            }
+            int start = batch * this.batchSize;
+            int end = Math.min(start + this.batchSize, this.ids.size());
+            List<Object> ids = new ArrayList<>(this.ids.subList(start, end));
+            // Match by the formatted id since the number types may differ
+            Map<String, Vertex> vertices = new HashMap<>();
+            for (Vertex vertex : TraverserManager.this.vertices(ids)) {
+                vertices.put(formatVertexId(vertex.id()), vertex);
+            }
+            Vertex[] results = new Vertex[ids.size()];
+            for (int i = 0; i < results.length; i++) {
+                results[i] = vertices.get(formatVertexId(ids.get(i)));
+            }
+            this.batches[batch] = results;
+            return results;
+        }
+    }
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.baidu.hugegraph.serializer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.baidu.hugegraph.exception.InvalidResponseException;
+import com.baidu.hugegraph.rest.SerializeException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+/**
+ * GremlinResultDeserializer reads the data of a gremlin result set from
+ * the tokens of response in one pass, the vertices, edges and paths are
+ * built while reading instead of being converted from maps on access.
+ */
+public class GremlinResultDeserializer
+       extends JsonDeserializer<List<Object>> {
+
+    @Override
+    public List<Object> deserialize(JsonParser parser,
+                                    DeserializationContext ctxt)
+                                    throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+            throw InvalidResponseException.expectField("data", "result");
+        }
+        List<Object> results = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            results.add(PathParser.readResult(parser));
+        }
+        return results;
+    }
+
+    /**
+     * Parse the results of gremlin from json, like the result of a gremlin
+     * task, a json array is parsed as the rows and other value as one row
+     */
+    public static List<Object> parse(String json) {
+        try (JsonParser parser = PathParser.factory().createParser(json)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                return new ArrayList<>();
+            }
+            if (token == JsonToken.START_ARRAY) {
+                List<Object> results = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    results.add(PathParser.readResult(parser));
+                }
+                return results;
+            }
+            List<Object> results = new ArrayList<>(1);
+            results.add(PathParser.readResult(parser));
+            return results;
+        } catch (IOException e) {
+            throw new SerializeException("Failed to deserialize json", e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.serializer;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.baidu.hugegraph.exception.InvalidResponseException;
+import com.baidu.hugegraph.rest.SerializeException;
+import com.baidu.hugegraph.structure.graph.Path;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * PathIterator decodes the paths in an array field of a response one by
+ * one while iterating, so the first path can be consumed before the rest
+ * are decoded and the decoded paths needn't be held together.
+ */
+public class PathIterator implements Iterator<Path>, AutoCloseable {
+
+    private final JsonParser parser;
+    private Path next;
+    private boolean finished;
+
+    public PathIterator(String json, String field) {
+        try {
+            this.parser = PathParser.factory().createParser(json);
+            this.seek(field);
+        } catch (IOException e) {
+            throw new SerializeException("Failed to deserialize json", e);
+        }
+        this.next = null;
+        this.finished = false;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.next != null) {
+            return true;
+        }
+        if (this.finished) {
+            return false;
+        }
+        try {
+            if (this.parser.nextToken() == JsonToken.END_ARRAY) {
+                this.close();
+                return false;
+            }
+            this.next = PathParser.read(this.parser);
+        } catch (IOException e) {
+            this.close();
+            throw new SerializeException("Failed to deserialize json", e);
+        }
+        return true;
+    }
+
+    @Override
+    public Path next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Path path = this.next;
+        this.next = null;
+        return path;
+    }
+
+    @Override
+    public void close() {
+        this.finished = true;
+        try {
+            this.parser.close();
+        } catch (IOException ignored) {
+            // The parser of a string can't fail to close
+        }
+    }
+
+    private void seek(String field) throws IOException {
+        if (this.parser.nextToken() != JsonToken.START_OBJECT) {
+            throw InvalidResponseException.expectField(field, "response");
+        }
+        while (this.parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = this.parser.getCurrentName();
+            JsonToken token = this.parser.nextToken();
+            if (field.equals(name) && token == JsonToken.START_ARRAY) {
+                return;
+            }
+            this.parser.skipChildren();
+        }
+        throw InvalidResponseException.expectField(field, "response");
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.serializer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.baidu.hugegraph.exception.InvalidResponseException;
+import com.baidu.hugegraph.structure.graph.Edge;
+import com.baidu.hugegraph.structure.graph.Path;
+import com.baidu.hugegraph.structure.graph.Vertex;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * PathParser reads a path from the tokens of a json object in one pass,
+ * the vertices and edges are built from the values read without a json
+ * tree or any conversion by ObjectMapper, and the elements of a path are
+ * collected before the Path is built at once.
+ */
+final class PathParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private PathParser() {
+    }
+
+    static JsonFactory factory() {
+        return JSON_FACTORY;
+    }
+
+    /**
+     * Read a path, the current token of parser must be the START_OBJECT
+     * of the path, and it will be the END_OBJECT after reading
+     */
+    static Path read(JsonParser parser) throws IOException {
+        JsonToken start = parser.getCurrentToken();
+        if (start != JsonToken.START_OBJECT) {
+            throw InvalidResponseException.expectField("path", start);
+        }
+        List<Object> labels = null;
+        List<Object> objects = null;
+        Object crosspoint = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "labels":
+                    if (token != JsonToken.START_ARRAY) {
+                        throw InvalidResponseException.expectField("labels",
+                                                                   "path");
+                    }
+                    labels = readElements(parser);
+                    break;
+                case "objects":
+                    if (token != JsonToken.START_ARRAY) {
+                        throw InvalidResponseException.expectField("objects",
+                                                                   "path");
+                    }
+                    objects = readElements(parser);
+                    break;
+                case "crosspoint":
+                    crosspoint = readValue(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        if (objects == null) {
+            throw InvalidResponseException.expectField("objects", "path");
+        }
+        return new Path(crosspoint, labels, objects);
+    }
+
+    /**
+     * Read a result of gremlin, a json object is read as a vertex or an
+     * edge if it has the field 'type', as a path if both the fields 'labels'
+     * and 'objects' are lists, otherwise as a map, and other values are read
+     * as they are
+     */
+    @SuppressWarnings("unchecked")
+    static Object readResult(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            return readValue(parser);
+        }
+        Map<String, Object> object = (Map<String, Object>) readValue(parser);
+        Object type = object.get("type");
+        if ("vertex".equals(type)) {
+            return toVertex(object);
+        } else if ("edge".equals(type)) {
+            return toEdge(object);
+        } else if (type == null && isPath(object)) {
+            return toPath(object);
+        }
+        return object;
+    }
+
+    private static List<Object> readElements(JsonParser parser)
+                                             throws IOException {
+        List<Object> elements = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.getCurrentToken() == JsonToken.START_OBJECT) {
+                elements.add(readObject(parser));
+            } else {
+                elements.add(readValue(parser));
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Read a path element of object, which is a vertex or an edge if it
+     * has the field 'type', otherwise a map
+     */
+    @SuppressWarnings("unchecked")
+    private static Object readObject(JsonParser parser) throws IOException {
+        Map<String, Object> object = (Map<String, Object>) readValue(parser);
+        Object type = object.get("type");
+        if (type == null) {
+            return object;
+        }
+        if (type.equals("vertex")) {
+            return toVertex(object);
+        } else if (type.equals("edge")) {
+            return toEdge(object);
+        } else {
+            throw InvalidResponseException.expectField("vertex/edge", type);
+        }
+    }
+
+    private static boolean isPath(Map<String, Object> object) {
+        return object.get("labels") instanceof List &&
+               object.get("objects") instanceof List;
+    }
+
+    private static Path toPath(Map<String, Object> object) {
+        Object labels = object.get("labels");
+        if (!(labels instanceof List)) {
+            throw InvalidResponseException.expectField("labels", "path");
+        }
+        Object objects = object.get("objects");
+        if (!(objects instanceof List)) {
+            throw InvalidResponseException.expectField("objects", "path");
+        }
+        return new Path(object.get("crosspoint"), toElements(labels),
+                        toElements(objects));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> toElements(Object values) {
+        List<Object> elements = new ArrayList<>();
+        for (Object value : (List<Object>) values) {
+            if (value instanceof Map) {
+                Map<String, Object> map = (Map<String, Object>) value;
+                Object type = map.get("type");
+                if ("vertex".equals(type)) {
+                    value = toVertex(map);
+                } else if ("edge".equals(type)) {
+                    value = toEdge(map);
+                }
+            }
+            elements.add(value);
+        }
+        return elements;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Vertex toVertex(Map<String, Object> object) {
+        if (!object.containsKey("id")) {
+            throw InvalidResponseException.expectField("id", object);
+        }
+        Object label = object.get("label");
+        if (!(label instanceof String)) {
+            throw InvalidResponseException.expectField("label", object);
+        }
+        Object properties = object.get("properties");
+        if (!(properties instanceof Map)) {
+            throw InvalidResponseException.expectField("properties", object);
+        }
+        Vertex vertex = new Vertex((String) label);
+        vertex.id(object.get("id"));
+        VertexDeserializer.pruneProperties(vertex,
+                                           (Map<String, Object>) properties);
+        return vertex;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Edge toEdge(Map<String, Object> object) {
+        Object label = object.get("label");
+        if (!(label instanceof String)) {
+            throw InvalidResponseException.expectField("label", object);
+        }
+        Edge edge = new Edge((String) label);
+        Object id = object.get("id");
+        edge.id(id == null ? null : id.toString());
+        edge.source(object.get("outV"));
+        edge.target(object.get("inV"));
+        edge.sourceLabel((String) object.get("outVLabel"));
+        edge.targetLabel((String) object.get("inVLabel"));
+        Object properties = object.get("properties");
+        if (properties instanceof Map) {
+            // Take the values as they are like the bean deserialization
+            edge.properties().putAll((Map<String, Object>) properties);
+        }
+        return edge;
+    }
+
+    /**
+     * Read a value of any type like ObjectMapper does for Object.class
+     */
+    static Object readValue(JsonParser parser) throws IOException {
+        switch (parser.getCurrentToken()) {
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return true;
+            case VALUE_FALSE:
+                return false;
+            case VALUE_NULL:
+                return null;
+            case START_ARRAY:
+                List<Object> list = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    list.add(readValue(parser));
+                }
+                return list;
+            case START_OBJECT:
+                Map<String, Object> map = new LinkedHashMap<>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String key = parser.getCurrentName();
+                    parser.nextToken();
+                    map.put(key, readValue(parser));
+                }
+                return map;
+            default:
+                throw new InvalidResponseException("Unexpected token '%s'",
+                                                   parser.getCurrentToken());
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.baidu.hugegraph.serializer;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.baidu.hugegraph.exception.InvalidResponseException;
+import com.baidu.hugegraph.rest.SerializeException;
+import com.baidu.hugegraph.structure.gremlin.Result;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * ResultIterator decodes the rows of a gremlin response one by one while
+ * iterating, a row is decoded like ResultSet does and is released once it
+ * has been consumed. The row of null is returned as null like ResultSet.
+ */
+public class ResultIterator implements Iterator<Result>, AutoCloseable {
+
+    private final JsonParser parser;
+    private Result next;
+    private boolean fetched;
+    private boolean finished;
+    private long count;
+
+    public ResultIterator(String json) {
+        this.next = null;
+        this.fetched = false;
+        this.finished = false;
+        this.count = 0L;
+        try {
+            this.parser = PathParser.factory().createParser(json);
+            if (!this.seek("result", "response", JsonToken.START_OBJECT) ||
+                !this.seek("data", "result", JsonToken.START_ARRAY)) {
+                // The data of null means no result
+                this.close();
+            }
+        } catch (IOException e) {
+            throw new SerializeException("Failed to deserialize json", e);
+        }
+    }
+
+    /**
+     * The count of rows returned by next() so far
+     */
+    public long count() {
+        return this.count;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.fetched) {
+            return true;
+        }
+        if (this.finished) {
+            return false;
+        }
+        try {
+            if (this.parser.nextToken() == JsonToken.END_ARRAY) {
+                this.close();
+                return false;
+            }
+            Object object = PathParser.readResult(this.parser);
+            this.next = object == null ? null : new Result(object);
+            this.fetched = true;
+        } catch (IOException e) {
+            this.close();
+            throw new SerializeException("Failed to deserialize json", e);
+        }
+        return true;
+    }
+
+    @Override
+    public Result next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Result result = this.next;
+        this.next = null;
+        this.fetched = false;
+        this.count++;
+        return result;
+    }
+
+    @Override
+    public void close() {
+        this.finished = true;
+        try {
+            this.parser.close();
+        } catch (IOException ignored) {
+            // The parser of a string can't fail to close
+        }
+    }
+
+    /**
+     * Move to the value of the field in current object, return false if
+     * the value is null
+     */
+    private boolean seek(String field, String parent, JsonToken expected)
+                         throws IOException {
+        JsonToken token = this.parser.getCurrentToken();
+        if (token == null) {
+            token = this.parser.nextToken();
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw InvalidResponseException.expectField(field, parent);
+        }
+        while (this.parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = this.parser.getCurrentName();
+            token = this.parser.nextToken();
+            if (!field.equals(name)) {
+                this.parser.skipChildren();
+                continue;
+            }
+            if (token == JsonToken.VALUE_NULL) {
+                return false;
+            }
+            if (token == expected) {
+                return true;
+            }
+            break;
+        }
+        throw InvalidResponseException.expectField(field, parent);
+    }
+}
@@ -49,12 +49,12 @@ public class VertexDeserializer extends JsonDeserializer<Vertex> {
         Vertex vertex = new Vertex(label);
         vertex.id(id);
         Map<String, Object> props = mapper.convertValue(propNode, Map.class);
-        this.pruneProperties(vertex, props);
+        pruneProperties(vertex, props);
         return vertex;
     }
 
     @SuppressWarnings("unchecked")
-    private void pruneProperties(Vertex vertex, Map<String, Object> props) {
+    static void pruneProperties(Vertex vertex, Map<String, Object> props) {
         Map<String, Object> vertexProps = vertex.properties();
         for (Map.Entry<String, Object> entry : props.entrySet()) {
             String key = entry.getKey();
@@ -26,6 +26,7 @@ import java.util.Set;
 import java.util.UUID;
 
 import com.baidu.hugegraph.driver.GraphManager;
+import com.baidu.hugegraph.driver.GraphSession;
 import com.baidu.hugegraph.util.E;
 import com.baidu.hugegraph.util.ReflectionUtil;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -34,6 +35,8 @@ public abstract class GraphElement extends Element {
 
     // Hold a graphManager object to call graphApi
     protected GraphManager manager;
+    // Hold a graphSession object to defer the property updates
+    protected GraphSession session;
 
     @JsonProperty("label")
     protected String label;
@@ -46,6 +49,13 @@ public abstract class GraphElement extends Element {
         this.manager = manager;
     }
 
+    public void attachSession(GraphSession session) {
+        E.checkState(session == null || !this.fresh(),
+                     "Can't attach session to the element which is not " +
+                     "created yet: %s", this);
+        this.session = session;
+    }
+
     public String label() {
         return this.label;
     }
@@ -58,6 +68,10 @@ public abstract class GraphElement extends Element {
         return this.manager == null;
     }
 
+    protected boolean deferred() {
+        return this.session != null;
+    }
+
     public Object property(String key) {
         return this.properties.get(key);
     }
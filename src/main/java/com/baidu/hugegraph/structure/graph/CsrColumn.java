@@ -0,0 +1,537 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.structure.graph;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.baidu.hugegraph.util.JsonUtil;
+
+/**
+ * CsrColumn stores the values of a property key of all vertices or edges in
+ * a CsrGraph, the value of the element with index `i` is at position `i`.
+ * The primitive values are stored unboxed and the strings are dictionary
+ * encoded, other values are kept as objects, or as json strings if the
+ * column is read from a snapshot file.
+ */
+public abstract class CsrColumn {
+
+    public enum Type {
+
+        INT,
+        LONG,
+        BOOLEAN,
+        DOUBLE,
+        STRING,
+        OBJECT
+    }
+
+    public abstract Type type();
+
+    public abstract int size();
+
+    /**
+     * @return the value at the index or null if absent
+     */
+    public abstract Object get(int index);
+
+    public boolean present(int index) {
+        return this.get(index) != null;
+    }
+
+    /**
+     * Create the most compact column which can store the values
+     */
+    public static CsrColumn of(Object[] values) {
+        Builder builder = new Builder();
+        for (int i = 0; i < values.length; i++) {
+            builder.add(i, values[i]);
+        }
+        return builder.build(null, values.length);
+    }
+
+    private static Type typeOf(Object value) {
+        if (value instanceof Integer) {
+            return Type.INT;
+        } else if (value instanceof Long) {
+            return Type.LONG;
+        } else if (value instanceof Boolean) {
+            return Type.BOOLEAN;
+        } else if (value instanceof Double) {
+            return Type.DOUBLE;
+        } else if (value instanceof String) {
+            return Type.STRING;
+        } else {
+            return Type.OBJECT;
+        }
+    }
+
+    private static Type widen(Type type, Type valueType) {
+        if (type == valueType) {
+            return type;
+        }
+        // The small numbers are decoded as Integer and the big ones as Long
+        if ((type == Type.INT || type == Type.LONG) &&
+            (valueType == Type.INT || valueType == Type.LONG)) {
+            return Type.LONG;
+        }
+        return Type.OBJECT;
+    }
+
+    /**
+     * @return the bitmap of absent values, or null if all values are present
+     */
+    private static LongBuffer absentsOf(BitSet presents, int size) {
+        if (presents.cardinality() == size) {
+            return null;
+        }
+        BitSet absents = new BitSet(size);
+        absents.set(0, size);
+        absents.andNot(presents);
+        return LongBuffer.wrap(absents.toLongArray());
+    }
+
+    private static boolean absent(LongBuffer absents, int index) {
+        if (absents == null) {
+            return false;
+        }
+        int word = index >>> 6;
+        return word < absents.limit() &&
+               (absents.get(word) & (1L << index)) != 0L;
+    }
+
+    public static class LongColumn extends CsrColumn {
+
+        private final Type type;
+        private final LongBuffer values;
+        // The bitmap of absent values, null if all the values are present
+        private final LongBuffer absents;
+
+        public LongColumn(Type type, LongBuffer values, LongBuffer absents) {
+            assert type == Type.INT || type == Type.LONG ||
+                   type == Type.BOOLEAN;
+            this.type = type;
+            this.values = values;
+            this.absents = absents;
+        }
+
+        @Override
+        public Type type() {
+            return this.type;
+        }
+
+        @Override
+        public int size() {
+            return this.values.limit();
+        }
+
+        @Override
+        public boolean present(int index) {
+            return !absent(this.absents, index);
+        }
+
+        @Override
+        public Object get(int index) {
+            if (!this.present(index)) {
+                return null;
+            }
+            long value = this.values.get(index);
+            switch (this.type) {
+                case INT:
+                    return (int) value;
+                case BOOLEAN:
+                    return value != 0L;
+                default:
+                    return value;
+            }
+        }
+
+        /**
+         * Read the value without boxing, it's 0 if absent
+         */
+        public long getLong(int index) {
+            return this.values.get(index);
+        }
+
+        public LongBuffer values() {
+            return this.values.asReadOnlyBuffer();
+        }
+
+        public LongBuffer absents() {
+            return this.absents == null ? null :
+                   this.absents.asReadOnlyBuffer();
+        }
+    }
+
+    public static class DoubleColumn extends CsrColumn {
+
+        private final DoubleBuffer values;
+        private final LongBuffer absents;
+
+        public DoubleColumn(DoubleBuffer values, LongBuffer absents) {
+            this.values = values;
+            this.absents = absents;
+        }
+
+        @Override
+        public Type type() {
+            return Type.DOUBLE;
+        }
+
+        @Override
+        public int size() {
+            return this.values.limit();
+        }
+
+        @Override
+        public boolean present(int index) {
+            return !absent(this.absents, index);
+        }
+
+        @Override
+        public Object get(int index) {
+            return this.present(index) ? this.values.get(index) : null;
+        }
+
+        /**
+         * Read the value without boxing, it's 0.0 if absent
+         */
+        public double getDouble(int index) {
+            return this.values.get(index);
+        }
+
+        public DoubleBuffer values() {
+            return this.values.asReadOnlyBuffer();
+        }
+
+        public LongBuffer absents() {
+            return this.absents == null ? null :
+                   this.absents.asReadOnlyBuffer();
+        }
+    }
+
+    public static class StringColumn extends CsrColumn {
+
+        // The code of absent value is -1
+        private final IntBuffer codes;
+        private final StringPool dictionary;
+
+        public StringColumn(IntBuffer codes, StringPool dictionary) {
+            this.codes = codes;
+            this.dictionary = dictionary;
+        }
+
+        @Override
+        public Type type() {
+            return Type.STRING;
+        }
+
+        @Override
+        public int size() {
+            return this.codes.limit();
+        }
+
+        @Override
+        public Object get(int index) {
+            int code = this.codes.get(index);
+            return code < 0 ? null : this.dictionary.get(code);
+        }
+
+        public IntBuffer codes() {
+            return this.codes.asReadOnlyBuffer();
+        }
+
+        public StringPool dictionary() {
+            return this.dictionary;
+        }
+    }
+
+    public static class ObjectColumn extends CsrColumn {
+
+        private final Object[] values;
+
+        public ObjectColumn(Object[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Type type() {
+            return Type.OBJECT;
+        }
+
+        @Override
+        public int size() {
+            return this.values.length;
+        }
+
+        @Override
+        public Object get(int index) {
+            return this.values[index];
+        }
+    }
+
+    /**
+     * Builder collects the values of a property key of the elements having
+     * it, so it's sized by these elements rather than all the elements. The
+     * primitive values are stored unboxed and the strings are dictionary
+     * encoded as they're added, and the column type is widened if needed.
+     */
+    static class Builder {
+
+        private static final int INIT_CAPACITY = 8;
+
+        private Type type;
+        // The indexes of the elements in the added order
+        private int[] indexes;
+        // The primitive values or the codes of the strings
+        private long[] longs;
+        private double[] doubles;
+        private Object[] objects;
+        private Map<String, Integer> dictionary;
+        private int size;
+
+        Builder() {
+            this.type = null;
+            this.indexes = new int[INIT_CAPACITY];
+            this.size = 0;
+        }
+
+        public void add(int index, Object value) {
+            if (value == null) {
+                return;
+            }
+            Type valueType = typeOf(value);
+            if (this.type == null) {
+                this.type = valueType;
+                this.allocate();
+            } else if (this.type != valueType) {
+                Type type = widen(this.type, valueType);
+                if (type == Type.OBJECT && this.type != Type.OBJECT) {
+                    this.boxValues();
+                }
+                this.type = type;
+            }
+            if (this.size == this.indexes.length) {
+                this.grow();
+            }
+
+            this.indexes[this.size] = index;
+            switch (this.type) {
+                case INT:
+                case LONG:
+                    this.longs[this.size] = ((Number) value).longValue();
+                    break;
+                case BOOLEAN:
+                    this.longs[this.size] = (Boolean) value ? 1L : 0L;
+                    break;
+                case DOUBLE:
+                    this.doubles[this.size] = (Double) value;
+                    break;
+                case STRING:
+                    Map<String, Integer> codes = this.dictionary;
+                    this.longs[this.size] = codes.computeIfAbsent(
+                                            (String) value,
+                                            k -> codes.size());
+                    break;
+                default:
+                    this.objects[this.size] = value;
+                    break;
+            }
+            this.size++;
+        }
+
+        /**
+         * Build the column of `size` elements, the mapping (null means the
+         * identity) maps the added index of element to the index in the
+         * column, the values of the elements mapped to -1 are dropped
+         */
+        public CsrColumn build(int[] mapping, int size) {
+            BitSet presents = new BitSet(size);
+            int[] positions = new int[this.size];
+            for (int i = 0; i < this.size; i++) {
+                int index = this.indexes[i];
+                positions[i] = mapping == null ? index : mapping[index];
+                if (positions[i] >= 0) {
+                    presents.set(positions[i]);
+                }
+            }
+
+            Type type = this.type == null ? Type.OBJECT : this.type;
+            switch (type) {
+                case INT:
+                case LONG:
+                case BOOLEAN:
+                    long[] longs = new long[size];
+                    for (int i = 0; i < this.size; i++) {
+                        if (positions[i] >= 0) {
+                            longs[positions[i]] = this.longs[i];
+                        }
+                    }
+                    return new LongColumn(type, LongBuffer.wrap(longs),
+                                          absentsOf(presents, size));
+                case DOUBLE:
+                    double[] doubles = new double[size];
+                    for (int i = 0; i < this.size; i++) {
+                        if (positions[i] >= 0) {
+                            doubles[positions[i]] = this.doubles[i];
+                        }
+                    }
+                    return new DoubleColumn(DoubleBuffer.wrap(doubles),
+                                            absentsOf(presents, size));
+                case STRING:
+                    int[] codes = new int[size];
+                    Arrays.fill(codes, -1);
+                    for (int i = 0; i < this.size; i++) {
+                        if (positions[i] >= 0) {
+                            codes[positions[i]] = (int) this.longs[i];
+                        }
+                    }
+                    return new StringColumn(IntBuffer.wrap(codes),
+                                            StringPool.of(this.strings()));
+                default:
+                    Object[] objects = new Object[size];
+                    for (int i = 0; i < this.size; i++) {
+                        if (positions[i] >= 0) {
+                            objects[positions[i]] = this.objects[i];
+                        }
+                    }
+                    return new ObjectColumn(objects);
+            }
+        }
+
+        private void allocate() {
+            int capacity = this.indexes.length;
+            switch (this.type) {
+                case DOUBLE:
+                    this.doubles = new double[capacity];
+                    break;
+                case STRING:
+                    this.dictionary = new HashMap<>();
+                    this.longs = new long[capacity];
+                    break;
+                case OBJECT:
+                    this.objects = new Object[capacity];
+                    break;
+                default:
+                    this.longs = new long[capacity];
+                    break;
+            }
+        }
+
+        private void grow() {
+            int capacity = this.indexes.length << 1;
+            this.indexes = Arrays.copyOf(this.indexes, capacity);
+            if (this.longs != null) {
+                this.longs = Arrays.copyOf(this.longs, capacity);
+            }
+            if (this.doubles != null) {
+                this.doubles = Arrays.copyOf(this.doubles, capacity);
+            }
+            if (this.objects != null) {
+                this.objects = Arrays.copyOf(this.objects, capacity);
+            }
+        }
+
+        private void boxValues() {
+            String[] strings = this.type == Type.STRING ? this.strings() : null;
+            Object[] objects = new Object[this.indexes.length];
+            for (int i = 0; i < this.size; i++) {
+                switch (this.type) {
+                    case INT:
+                        objects[i] = (int) this.longs[i];
+                        break;
+                    case LONG:
+                        objects[i] = this.longs[i];
+                        break;
+                    case BOOLEAN:
+                        objects[i] = this.longs[i] != 0L;
+                        break;
+                    case DOUBLE:
+                        objects[i] = this.doubles[i];
+                        break;
+                    default:
+                        assert this.type == Type.STRING;
+                        objects[i] = strings[(int) this.longs[i]];
+                        break;
+                }
+            }
+            this.objects = objects;
+            this.longs = null;
+            this.doubles = null;
+            this.dictionary = null;
+        }
+
+        private String[] strings() {
+            String[] strings = new String[this.dictionary.size()];
+            for (Map.Entry<String, Integer> e : this.dictionary.entrySet()) {
+                strings[e.getValue()] = e.getKey();
+            }
+            return strings;
+        }
+    }
+
+    /**
+     * JsonColumn stores the values of OBJECT type as json strings, which are
+     * decoded when read, the absent value is stored as an empty string
+     */
+    public static class JsonColumn extends CsrColumn {
+
+        private final StringPool values;
+
+        public JsonColumn(StringPool values) {
+            this.values = values;
+        }
+
+        public static JsonColumn of(CsrColumn column) {
+            String[] values = new String[column.size()];
+            for (int i = 0; i < values.length; i++) {
+                Object value = column.get(i);
+                values[i] = value == null ? "" : JsonUtil.toJson(value);
+            }
+            return new JsonColumn(StringPool.of(values));
+        }
+
+        @Override
+        public Type type() {
+            return Type.OBJECT;
+        }
+
+        @Override
+        public int size() {
+            return this.values.size();
+        }
+
+        @Override
+        public Object get(int index) {
+            String json = this.values.get(index);
+            return json.isEmpty() ? null : JsonUtil.fromJson(json,
+                                                              Object.class);
+        }
+
+        public StringPool values() {
+            return this.values;
+        }
+    }
+}
@@ -0,0 +1,897 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.structure.graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.IntBinaryOperator;
+
+import org.slf4j.Logger;
+
+import com.baidu.hugegraph.structure.GraphElement;
+import com.baidu.hugegraph.util.E;
+import com.baidu.hugegraph.util.Log;
+
+/**
+ * CsrGraph is an immutable snapshot of graph in compressed sparse row layout,
+ * it's an alternative of `Graph` which can hold much more vertices and edges
+ * in the same heap, since a vertex or an edge is stored as a few entries of
+ * primitive arrays rather than objects.
+ *
+ * Each vertex is identified by a dense int index, the numeric ids are sorted
+ * before the string ids. Each edge is identified by an int index too, the
+ * edges are grouped by source vertex, so the out edges of vertex `v` are
+ * the ones in [outStart(v), outEnd(v)), the in edges are referred by
+ * `inEdge(i)` for i in [inStart(v), inEnd(v)). The properties are stored in
+ * columns per property key.
+ */
+public class CsrGraph {
+
+    private static final Logger LOG = Log.logger(CsrGraph.class);
+
+    // The vertex index of numeric id is the position in numberIds
+    final LongBuffer numberIds;
+    // The vertex index of string id is the position plus numberIds size
+    final StringPool stringIds;
+    final IntBuffer vertexLabels;
+    final String[] vertexLabelNames;
+    final Map<String, CsrColumn> vertexColumns;
+
+    final IntBuffer outOffsets;
+    final IntBuffer inOffsets;
+    final IntBuffer inEdges;
+    final IntBuffer edgeSources;
+    final IntBuffer edgeTargets;
+    final IntBuffer edgeLabels;
+    final String[] edgeLabelNames;
+    final StringPool edgeIds;
+    final Map<String, CsrColumn> edgeColumns;
+
+    CsrGraph(LongBuffer numberIds, StringPool stringIds,
+             IntBuffer vertexLabels, String[] vertexLabelNames,
+             Map<String, CsrColumn> vertexColumns,
+             IntBuffer outOffsets, IntBuffer inOffsets, IntBuffer inEdges,
+             IntBuffer edgeSources, IntBuffer edgeTargets,
+             IntBuffer edgeLabels, String[] edgeLabelNames,
+             StringPool edgeIds, Map<String, CsrColumn> edgeColumns) {
+        this.numberIds = numberIds;
+        this.stringIds = stringIds;
+        this.vertexLabels = vertexLabels;
+        this.vertexLabelNames = vertexLabelNames;
+        this.vertexColumns = vertexColumns;
+        this.outOffsets = outOffsets;
+        this.inOffsets = inOffsets;
+        this.inEdges = inEdges;
+        this.edgeSources = edgeSources;
+        this.edgeTargets = edgeTargets;
+        this.edgeLabels = edgeLabels;
+        this.edgeLabelNames = edgeLabelNames;
+        this.edgeIds = edgeIds;
+        this.edgeColumns = edgeColumns;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static CsrGraph of(List<Vertex> vertices, List<Edge> edges) {
+        return builder().addVertices(vertices).addEdges(edges).build();
+    }
+
+    public static CsrGraph of(Graph graph) {
+        Builder builder = builder();
+        for (Iterator<Graph.HugeVertex> it = graph.vertices(); it.hasNext();) {
+            builder.addVertex(it.next().vertex());
+        }
+        for (Iterator<Graph.HugeEdge> it = graph.edges(); it.hasNext();) {
+            builder.addEdge(it.next().edge());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Reopen the snapshot written by `write()`, the arrays are mapped from
+     * the file and loaded lazily by the OS
+     * @throws com.baidu.hugegraph.exception.InvalidOperationException if
+     *         the file isn't a snapshot or the schema version mismatches
+     */
+    public static CsrGraph open(File file, long schemaVersion)
+                                throws IOException {
+        return CsrSnapshot.read(file, schemaVersion);
+    }
+
+    /**
+     * Write the snapshot into the file, it's written to a temporary file
+     * first and then renamed, so an existing snapshot is replaced atomically
+     */
+    public void write(File file, long schemaVersion) throws IOException {
+        CsrSnapshot.write(this, file, schemaVersion);
+    }
+
+    public int verticesSize() {
+        return this.vertexLabels.limit();
+    }
+
+    public int edgesSize() {
+        return this.edgeTargets.limit();
+    }
+
+    /**
+     * @return the index of the vertex or -1 if not exists
+     */
+    public int index(Object id) {
+        return index(this.numberIds, this.stringIds, id);
+    }
+
+    private static int index(LongBuffer numberIds, StringPool stringIds,
+                             Object id) {
+        if (id instanceof Number) {
+            return search(numberIds, ((Number) id).longValue());
+        } else if (id instanceof String) {
+            int index = stringIds.search(StringPool.encode((String) id));
+            return index < 0 ? -1 : index + numberIds.limit();
+        }
+        return -1;
+    }
+
+    private static int search(LongBuffer values, long key) {
+        int low = 0;
+        int high = values.limit() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = values.get(mid);
+            if (value < key) {
+                low = mid + 1;
+            } else if (value > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public Object id(int vertex) {
+        int numbers = this.numberIds.limit();
+        if (vertex < numbers) {
+            return this.numberIds.get(vertex);
+        }
+        return this.stringIds.get(vertex - numbers);
+    }
+
+    public int vertexLabelCode(int vertex) {
+        return this.vertexLabels.get(vertex);
+    }
+
+    public String vertexLabel(int vertex) {
+        return this.vertexLabelNames[this.vertexLabels.get(vertex)];
+    }
+
+    /**
+     * @return the code of the vertex label or -1 if no vertex has the label
+     */
+    public int vertexLabelCode(String label) {
+        return indexOf(this.vertexLabelNames, label);
+    }
+
+    public int outStart(int vertex) {
+        return this.outOffsets.get(vertex);
+    }
+
+    public int outEnd(int vertex) {
+        return this.outOffsets.get(vertex + 1);
+    }
+
+    public int outDegree(int vertex) {
+        return this.outEnd(vertex) - this.outStart(vertex);
+    }
+
+    public int inStart(int vertex) {
+        return this.inOffsets.get(vertex);
+    }
+
+    public int inEnd(int vertex) {
+        return this.inOffsets.get(vertex + 1);
+    }
+
+    public int inDegree(int vertex) {
+        return this.inEnd(vertex) - this.inStart(vertex);
+    }
+
+    /**
+     * @return the index of the edge at the position of the in adjacency
+     */
+    public int inEdge(int position) {
+        return this.inEdges.get(position);
+    }
+
+    public int edgeSource(int edge) {
+        return this.edgeSources.get(edge);
+    }
+
+    public int edgeTarget(int edge) {
+        return this.edgeTargets.get(edge);
+    }
+
+    public int edgeLabelCode(int edge) {
+        return this.edgeLabels.get(edge);
+    }
+
+    public String edgeLabel(int edge) {
+        return this.edgeLabelNames[this.edgeLabels.get(edge)];
+    }
+
+    /**
+     * @return the code of the edge label or -1 if no edge has the label
+     */
+    public int edgeLabelCode(String label) {
+        return indexOf(this.edgeLabelNames, label);
+    }
+
+    public String edgeId(int edge) {
+        String id = this.edgeIds.get(edge);
+        return id.isEmpty() ? null : id;
+    }
+
+    public Object vertexProperty(int vertex, String key) {
+        CsrColumn column = this.vertexColumns.get(key);
+        return column == null ? null : column.get(vertex);
+    }
+
+    public Object edgeProperty(int edge, String key) {
+        CsrColumn column = this.edgeColumns.get(key);
+        return column == null ? null : column.get(edge);
+    }
+
+    /**
+     * @return the column of the vertex property key or null if not exists
+     */
+    public CsrColumn vertexColumn(String key) {
+        return this.vertexColumns.get(key);
+    }
+
+    /**
+     * @return the column of the edge property key or null if not exists
+     */
+    public CsrColumn edgeColumn(String key) {
+        return this.edgeColumns.get(key);
+    }
+
+    public VertexView vertex(Object id) {
+        int index = this.index(id);
+        return index < 0 ? null : new VertexView(index);
+    }
+
+    public VertexView vertexAt(int index) {
+        E.checkArgument(index >= 0 && index < this.verticesSize(),
+                        "Invalid vertex index %s", index);
+        return new VertexView(index);
+    }
+
+    public EdgeView edgeAt(int index) {
+        E.checkArgument(index >= 0 && index < this.edgesSize(),
+                        "Invalid edge index %s", index);
+        return new EdgeView(index);
+    }
+
+    public Iterator<VertexView> vertices() {
+        return new IndexIterator<>(this.verticesSize(), VertexView::new);
+    }
+
+    public Iterator<EdgeView> edges() {
+        return new IndexIterator<>(this.edgesSize(), EdgeView::new);
+    }
+
+    private Map<String, Object> properties(Map<String, CsrColumn> columns,
+                                           int index) {
+        Map<String, Object> properties = new HashMap<>();
+        for (Map.Entry<String, CsrColumn> e : columns.entrySet()) {
+            Object value = e.getValue().get(index);
+            if (value != null) {
+                properties.put(e.getKey(), value);
+            }
+        }
+        return properties;
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A read-only view of vertex, the counterpart of `Graph.HugeVertex`
+     */
+    public class VertexView {
+
+        private final int index;
+
+        private VertexView(int index) {
+            this.index = index;
+        }
+
+        public int index() {
+            return this.index;
+        }
+
+        public Object id() {
+            return CsrGraph.this.id(this.index);
+        }
+
+        public String label() {
+            return CsrGraph.this.vertexLabel(this.index);
+        }
+
+        public Object property(String key) {
+            return CsrGraph.this.vertexProperty(this.index, key);
+        }
+
+        public Map<String, Object> properties() {
+            return CsrGraph.this.properties(CsrGraph.this.vertexColumns,
+                                            this.index);
+        }
+
+        public List<EdgeView> outEdges() {
+            int start = CsrGraph.this.outStart(this.index);
+            int end = CsrGraph.this.outEnd(this.index);
+            return new EdgeViews(end - start, i -> start + i);
+        }
+
+        public List<EdgeView> inEdges() {
+            int start = CsrGraph.this.inStart(this.index);
+            int end = CsrGraph.this.inEnd(this.index);
+            return new EdgeViews(end - start,
+                                 i -> CsrGraph.this.inEdge(start + i));
+        }
+
+        /**
+         * @return the out edges followed by the in edges, like
+         *         `HugeVertex.getEdges()` a self-loop edge appears twice
+         */
+        public List<EdgeView> getEdges() {
+            List<EdgeView> outs = this.outEdges();
+            List<EdgeView> ins = this.inEdges();
+            return new EdgeViews(outs.size() + ins.size(), i -> {
+                if (i < outs.size()) {
+                    return outs.get(i).index;
+                }
+                return ins.get(i - outs.size()).index;
+            });
+        }
+
+        /**
+         * Materialize the vertex, the numeric id is returned as Long
+         */
+        public Vertex vertex() {
+            Vertex vertex = new Vertex(this.label());
+            vertex.id(this.id());
+            vertex.properties().putAll(this.properties());
+            return vertex;
+        }
+
+        private CsrGraph graph() {
+            return CsrGraph.this;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof VertexView)) {
+                return false;
+            }
+            VertexView other = (VertexView) object;
+            return this.graph() == other.graph() && this.index == other.index;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.index;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("VertexView{id=%s, label=%s, outDegree=%s, " +
+                                 "inDegree=%s}", this.id(), this.label(),
+                                 CsrGraph.this.outDegree(this.index),
+                                 CsrGraph.this.inDegree(this.index));
+        }
+    }
+
+    /**
+     * A read-only view of edge, the counterpart of `Graph.HugeEdge`
+     */
+    public class EdgeView {
+
+        private final int index;
+
+        private EdgeView(int index) {
+            this.index = index;
+        }
+
+        public int index() {
+            return this.index;
+        }
+
+        public String id() {
+            return CsrGraph.this.edgeId(this.index);
+        }
+
+        public String label() {
+            return CsrGraph.this.edgeLabel(this.index);
+        }
+
+        public VertexView source() {
+            return new VertexView(CsrGraph.this.edgeSource(this.index));
+        }
+
+        public VertexView target() {
+            return new VertexView(CsrGraph.this.edgeTarget(this.index));
+        }
+
+        public VertexView other(VertexView vertex) {
+            int source = CsrGraph.this.edgeSource(this.index);
+            return vertex.index == source ? this.target() : this.source();
+        }
+
+        public Object property(String key) {
+            return CsrGraph.this.edgeProperty(this.index, key);
+        }
+
+        public Map<String, Object> properties() {
+            return CsrGraph.this.properties(CsrGraph.this.edgeColumns,
+                                            this.index);
+        }
+
+        /**
+         * Materialize the edge, the numeric vertex ids are returned as Long
+         */
+        public Edge edge() {
+            VertexView source = this.source();
+            VertexView target = this.target();
+            Edge edge = new Edge(this.label());
+            edge.id(this.id());
+            edge.source(source.id());
+            edge.sourceLabel(source.label());
+            edge.target(target.id());
+            edge.targetLabel(target.label());
+            edge.properties().putAll(this.properties());
+            return edge;
+        }
+
+        private CsrGraph graph() {
+            return CsrGraph.this;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof EdgeView)) {
+                return false;
+            }
+            EdgeView other = (EdgeView) object;
+            return this.graph() == other.graph() && this.index == other.index;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.index;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("EdgeView{id=%s, label=%s, source=%s, " +
+                                 "target=%s}", this.id(), this.label(),
+                                 this.source().id(), this.target().id());
+        }
+    }
+
+    private interface IndexMapper<T> {
+
+        T map(int index);
+    }
+
+    private interface IntMapper {
+
+        int map(int index);
+    }
+
+    private class EdgeViews extends AbstractList<EdgeView> {
+
+        private final int size;
+        private final IntMapper mapper;
+
+        private EdgeViews(int size, IntMapper mapper) {
+            this.size = size;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public EdgeView get(int index) {
+            E.checkArgument(index >= 0 && index < this.size,
+                            "Invalid index %s", index);
+            return new EdgeView(this.mapper.map(index));
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+    }
+
+    private static class IndexIterator<T> implements Iterator<T> {
+
+        private final int size;
+        private final IndexMapper<T> mapper;
+        private int cursor;
+
+        private IndexIterator(int size, IndexMapper<T> mapper) {
+            this.size = size;
+            this.mapper = mapper;
+            this.cursor = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.cursor < this.size;
+        }
+
+        @Override
+        public T next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return this.mapper.map(this.cursor++);
+        }
+    }
+
+    /**
+     * Builder encodes the vertices and edges as they're added, so they can
+     * be streamed into it without being held, like by `GraphLoader`, and
+     * compresses them into a CsrGraph. A vertex added later overrides the
+     * one with the same id and the edges whose source or target vertex
+     * doesn't exist are skipped.
+     */
+    public static class Builder {
+
+        private static final int INIT_CAPACITY = 16;
+
+        // The ids of vertices and their added indexes
+        private long[] numberIds;
+        private int[] numberVertices;
+        private int numbers;
+        private final List<byte[]> stringIds;
+        private int[] stringVertices;
+        // The label codes of vertices in the added order
+        private int[] vertexLabels;
+        private int vertices;
+        private final Map<String, Integer> vertexLabelCodes;
+        private final Map<String, CsrColumn.Builder> vertexColumns;
+
+        // The endpoints, ids and label codes of edges in the added order
+        private final List<Object> edgeSources;
+        private final List<Object> edgeTargets;
+        private final List<byte[]> edgeIds;
+        private int[] edgeLabels;
+        private final Map<String, Integer> edgeLabelCodes;
+        private final Map<String, CsrColumn.Builder> edgeColumns;
+
+        private Builder() {
+            this.numberIds = new long[INIT_CAPACITY];
+            this.numberVertices = new int[INIT_CAPACITY];
+            this.numbers = 0;
+            this.stringIds = new ArrayList<>();
+            this.stringVertices = new int[INIT_CAPACITY];
+            this.vertexLabels = new int[INIT_CAPACITY];
+            this.vertices = 0;
+            this.vertexLabelCodes = new LinkedHashMap<>();
+            this.vertexColumns = new HashMap<>();
+
+            this.edgeSources = new ArrayList<>();
+            this.edgeTargets = new ArrayList<>();
+            this.edgeIds = new ArrayList<>();
+            this.edgeLabels = new int[INIT_CAPACITY];
+            this.edgeLabelCodes = new LinkedHashMap<>();
+            this.edgeColumns = new HashMap<>();
+        }
+
+        public Builder addVertex(Vertex vertex) {
+            E.checkArgumentNotNull(vertex, "The vertex can't be null");
+            Object id = vertex.id();
+            E.checkArgument(id instanceof Number || id instanceof String,
+                            "The vertex id must be number or string, " +
+                            "but got '%s'", id);
+            int label = code(this.vertexLabelCodes, vertex.label());
+
+            int index = this.vertices++;
+            this.vertexLabels = grow(this.vertexLabels, index);
+            this.vertexLabels[index] = label;
+            if (id instanceof Number) {
+                this.numberIds = grow(this.numberIds, this.numbers);
+                this.numberVertices = grow(this.numberVertices, this.numbers);
+                this.numberIds[this.numbers] = ((Number) id).longValue();
+                this.numberVertices[this.numbers++] = index;
+            } else {
+                int position = this.stringIds.size();
+                this.stringVertices = grow(this.stringVertices, position);
+                this.stringVertices[position] = index;
+                this.stringIds.add(StringPool.encode((String) id));
+            }
+            addProperties(this.vertexColumns, index, vertex);
+            return this;
+        }
+
+        public Builder addVertices(Collection<Vertex> vertices) {
+            vertices.forEach(this::addVertex);
+            return this;
+        }
+
+        public Builder addEdge(Edge edge) {
+            E.checkArgumentNotNull(edge, "The edge can't be null");
+            int label = code(this.edgeLabelCodes, edge.label());
+
+            int index = this.edgeIds.size();
+            this.edgeLabels = grow(this.edgeLabels, index);
+            this.edgeLabels[index] = label;
+            this.edgeSources.add(edge.source());
+            this.edgeTargets.add(edge.target());
+            this.edgeIds.add(StringPool.encode(edge.id() == null ?
+                                               "" : edge.id()));
+            addProperties(this.edgeColumns, index, edge);
+            return this;
+        }
+
+        public Builder addEdges(Collection<Edge> edges) {
+            edges.forEach(this::addEdge);
+            return this;
+        }
+
+        public CsrGraph build() {
+            // Sort the ids and drop the overridden vertices
+            int[] numberOrder = dedup(this.numbers, (i, j) -> {
+                return Long.compare(this.numberIds[i], this.numberIds[j]);
+            });
+            int[] stringOrder = dedup(this.stringIds.size(), (i, j) -> {
+                return StringPool.compare(this.stringIds.get(i),
+                                          this.stringIds.get(j));
+            });
+
+            int verticesSize = numberOrder.length + stringOrder.length;
+            // The added index of each vertex
+            int[] added = new int[verticesSize];
+            long[] numberIds = new long[numberOrder.length];
+            for (int i = 0; i < numberOrder.length; i++) {
+                numberIds[i] = this.numberIds[numberOrder[i]];
+                added[i] = this.numberVertices[numberOrder[i]];
+            }
+            byte[][] stringIds = new byte[stringOrder.length][];
+            for (int i = 0; i < stringOrder.length; i++) {
+                stringIds[i] = this.stringIds.get(stringOrder[i]);
+                added[numberOrder.length + i] =
+                        this.stringVertices[stringOrder[i]];
+            }
+
+            int[] mapping = new int[this.vertices];
+            Arrays.fill(mapping, -1);
+            // Code the labels in the order of the vertices
+            String[] labels = names(this.vertexLabelCodes);
+            Map<String, Integer> vertexLabelCodes = new LinkedHashMap<>();
+            int[] vertexLabels = new int[verticesSize];
+            for (int i = 0; i < verticesSize; i++) {
+                mapping[added[i]] = i;
+                vertexLabels[i] = code(vertexLabelCodes,
+                                       labels[this.vertexLabels[added[i]]]);
+            }
+            Map<String, CsrColumn> vertexColumns = columns(
+                                                   this.vertexColumns,
+                                                   mapping, verticesSize);
+
+            return this.buildEdges(LongBuffer.wrap(numberIds),
+                                   StringPool.of(stringIds),
+                                   IntBuffer.wrap(vertexLabels),
+                                   names(vertexLabelCodes), vertexColumns);
+        }
+
+        private CsrGraph buildEdges(LongBuffer numberIds, StringPool stringIds,
+                                    IntBuffer vertexLabels,
+                                    String[] vertexLabelNames,
+                                    Map<String, CsrColumn> vertexColumns) {
+            int verticesSize = vertexLabels.limit();
+            int addedSize = this.edgeIds.size();
+            int[] sources = new int[addedSize];
+            int[] targets = new int[addedSize];
+            int[] outOffsets = new int[verticesSize + 1];
+            int[] inOffsets = new int[verticesSize + 1];
+            int edgesSize = 0;
+            for (int i = 0; i < addedSize; i++) {
+                sources[i] = index(numberIds, stringIds,
+                                   this.edgeSources.get(i));
+                targets[i] = index(numberIds, stringIds,
+                                   this.edgeTargets.get(i));
+                if (sources[i] < 0 || targets[i] < 0) {
+                    continue;
+                }
+                outOffsets[sources[i] + 1]++;
+                inOffsets[targets[i] + 1]++;
+                edgesSize++;
+            }
+            if (edgesSize < addedSize) {
+                LOG.warn("Skipped {} edges whose vertices don't exist",
+                         addedSize - edgesSize);
+            }
+            for (int i = 0; i < verticesSize; i++) {
+                outOffsets[i + 1] += outOffsets[i];
+                inOffsets[i + 1] += inOffsets[i];
+            }
+
+            // Place the edges grouped by source, keeping the added order
+            int[] cursors = Arrays.copyOf(outOffsets, verticesSize);
+            int[] mapping = new int[addedSize];
+            int[] added = new int[edgesSize];
+            for (int i = 0; i < addedSize; i++) {
+                if (sources[i] < 0 || targets[i] < 0) {
+                    mapping[i] = -1;
+                    continue;
+                }
+                mapping[i] = cursors[sources[i]]++;
+                added[mapping[i]] = i;
+            }
+            int[] edgeSources = new int[edgesSize];
+            int[] edgeTargets = new int[edgesSize];
+            int[] edgeLabels = new int[edgesSize];
+            byte[][] edgeIds = new byte[edgesSize][];
+            String[] labels = names(this.edgeLabelCodes);
+            Map<String, Integer> edgeLabelCodes = new LinkedHashMap<>();
+            for (int i = 0; i < edgesSize; i++) {
+                edgeSources[i] = sources[added[i]];
+                edgeTargets[i] = targets[added[i]];
+                edgeLabels[i] = code(edgeLabelCodes,
+                                     labels[this.edgeLabels[added[i]]]);
+                edgeIds[i] = this.edgeIds.get(added[i]);
+            }
+
+            cursors = Arrays.copyOf(inOffsets, verticesSize);
+            int[] inEdges = new int[edgesSize];
+            for (int i = 0; i < edgesSize; i++) {
+                inEdges[cursors[edgeTargets[i]]++] = i;
+            }
+
+            return new CsrGraph(numberIds, stringIds, vertexLabels,
+                                vertexLabelNames, vertexColumns,
+                                IntBuffer.wrap(outOffsets),
+                                IntBuffer.wrap(inOffsets),
+                                IntBuffer.wrap(inEdges),
+                                IntBuffer.wrap(edgeSources),
+                                IntBuffer.wrap(edgeTargets),
+                                IntBuffer.wrap(edgeLabels),
+                                names(edgeLabelCodes),
+                                StringPool.of(edgeIds),
+                                columns(this.edgeColumns, mapping,
+                                        edgesSize));
+        }
+
+        /**
+         * Sort the positions [0, size) by the comparator and drop the
+         * equal ones except the last added one
+         */
+        private static int[] dedup(int size, IntBinaryOperator comparator) {
+            int[] order = new int[size];
+            int[] buffer = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            // Bottom-up merge sort, it's stable so the last one is latest
+            for (int width = 1; width < size; width <<= 1) {
+                for (int low = 0; low < size; low += width << 1) {
+                    int mid = Math.min(low + width, size);
+                    int high = Math.min(low + (width << 1), size);
+                    int i = low;
+                    int j = mid;
+                    int k = low;
+                    while (i < mid && j < high) {
+                        if (comparator.applyAsInt(order[i], order[j]) <= 0) {
+                            buffer[k++] = order[i++];
+                        } else {
+                            buffer[k++] = order[j++];
+                        }
+                    }
+                    while (i < mid) {
+                        buffer[k++] = order[i++];
+                    }
+                    while (j < high) {
+                        buffer[k++] = order[j++];
+                    }
+                }
+                int[] sorted = buffer;
+                buffer = order;
+                order = sorted;
+            }
+
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (i + 1 < size &&
+                    comparator.applyAsInt(order[i], order[i + 1]) == 0) {
+                    continue;
+                }
+                order[count++] = order[i];
+            }
+            return count == size ? order : Arrays.copyOf(order, count);
+        }
+
+        private static int[] grow(int[] array, int index) {
+            if (index < array.length) {
+                return array;
+            }
+            return Arrays.copyOf(array, array.length << 1);
+        }
+
+        private static long[] grow(long[] array, int index) {
+            if (index < array.length) {
+                return array;
+            }
+            return Arrays.copyOf(array, array.length << 1);
+        }
+
+        private static int code(Map<String, Integer> codes, String name) {
+            E.checkArgumentNotNull(name, "The label can't be null");
+            return codes.computeIfAbsent(name, k -> codes.size());
+        }
+
+        private static String[] names(Map<String, Integer> codes) {
+            return codes.keySet().toArray(new String[0]);
+        }
+
+        private static void addProperties(Map<String, CsrColumn.Builder>
+                                          columns, int index,
+                                          GraphElement element) {
+            for (Map.Entry<String, Object> e :
+                 element.properties().entrySet()) {
+                columns.computeIfAbsent(e.getKey(), k -> {
+                    return new CsrColumn.Builder();
+                }).add(index, e.getValue());
+            }
+        }
+
+        private static Map<String, CsrColumn> columns(
+                                              Map<String, CsrColumn.Builder>
+                                              builders, int[] mapping,
+                                              int size) {
+            Map<String, CsrColumn> columns = new HashMap<>(builders.size());
+            for (Map.Entry<String, CsrColumn.Builder> e :
+                 builders.entrySet()) {
+                columns.put(e.getKey(), e.getValue().build(mapping, size));
+            }
+            return columns;
+        }
+    }
+}
@@ -0,0 +1,511 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.structure.graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.baidu.hugegraph.exception.InvalidOperationException;
+
+/**
+ * The binary file format of CsrGraph snapshot, all the numbers are stored in
+ * big-endian:
+ *
+ *   header:  magic(int) format-version(int) schema-version(long)
+ *            created-time(long) vertices(int) edges(int)
+ *   vertex:  number-ids(longs) string-ids(pool) labels(ints) label-names
+ *            columns
+ *   edge:    out-offsets(ints) in-offsets(ints) in-edges(ints)
+ *            sources(ints) targets(ints) labels(ints) label-names
+ *            ids(pool) columns
+ *
+ * Each array is prefixed by its length and aligned to 8 bytes, so it can be
+ * mapped as a buffer directly without deserializing.
+ */
+public final class CsrSnapshot {
+
+    public static final int MAGIC = 0x48474353;
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int NULL_LENGTH = -1;
+
+    public static Header header(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                                                    StandardOpenOption.READ)) {
+            return readHeader(new Reader(channel, file), file);
+        }
+    }
+
+    public static CsrGraph read(File file, long schemaVersion)
+                                throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                                                    StandardOpenOption.READ)) {
+            Reader reader = new Reader(channel, file);
+            Header header = readHeader(reader, file);
+            if (header.schemaVersion() != schemaVersion) {
+                throw new InvalidOperationException(
+                          "The snapshot '%s' is stale, its schema version " +
+                          "is %s but expect %s", file,
+                          header.schemaVersion(), schemaVersion);
+            }
+
+            LongBuffer numberIds = reader.longs();
+            StringPool stringIds = reader.pool();
+            IntBuffer vertexLabels = reader.ints();
+            String[] vertexLabelNames = reader.names();
+            Map<String, CsrColumn> vertexColumns = reader.columns();
+
+            IntBuffer outOffsets = reader.ints();
+            IntBuffer inOffsets = reader.ints();
+            IntBuffer inEdges = reader.ints();
+            IntBuffer edgeSources = reader.ints();
+            IntBuffer edgeTargets = reader.ints();
+            IntBuffer edgeLabels = reader.ints();
+            String[] edgeLabelNames = reader.names();
+            StringPool edgeIds = reader.pool();
+            Map<String, CsrColumn> edgeColumns = reader.columns();
+
+            if (vertexLabels.limit() != header.vertices() ||
+                edgeTargets.limit() != header.edges()) {
+                throw reader.corrupted("the sizes don't match the header");
+            }
+            return new CsrGraph(numberIds, stringIds, vertexLabels,
+                                vertexLabelNames, vertexColumns,
+                                outOffsets, inOffsets, inEdges,
+                                edgeSources, edgeTargets, edgeLabels,
+                                edgeLabelNames, edgeIds, edgeColumns);
+        }
+    }
+
+    public static void write(CsrGraph graph, File file, long schemaVersion)
+                             throws IOException {
+        File temp = new File(file.getAbsolutePath() + ".tmp");
+        try (Writer writer = new Writer(temp)) {
+            writer.writeInt(MAGIC);
+            writer.writeInt(FORMAT_VERSION);
+            writer.writeLong(schemaVersion);
+            writer.writeLong(System.currentTimeMillis());
+            writer.writeInt(graph.verticesSize());
+            writer.writeInt(graph.edgesSize());
+
+            writer.longs(graph.numberIds);
+            writer.pool(graph.stringIds);
+            writer.ints(graph.vertexLabels);
+            writer.names(graph.vertexLabelNames);
+            writer.columns(graph.vertexColumns);
+
+            writer.ints(graph.outOffsets);
+            writer.ints(graph.inOffsets);
+            writer.ints(graph.inEdges);
+            writer.ints(graph.edgeSources);
+            writer.ints(graph.edgeTargets);
+            writer.ints(graph.edgeLabels);
+            writer.names(graph.edgeLabelNames);
+            writer.pool(graph.edgeIds);
+            writer.columns(graph.edgeColumns);
+            writer.sync();
+        }
+        Files.move(temp.toPath(), file.toPath(),
+                   StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Header readHeader(Reader reader, File file)
+                                     throws IOException {
+        if (reader.readInt() != MAGIC) {
+            throw new InvalidOperationException(
+                      "The file '%s' isn't a graph snapshot", file);
+        }
+        int formatVersion = reader.readInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new InvalidOperationException(
+                      "Unsupported format version %s of snapshot '%s', " +
+                      "expect %s", formatVersion, file, FORMAT_VERSION);
+        }
+        return new Header(formatVersion, reader.readLong(), reader.readLong(),
+                          reader.readInt(), reader.readInt());
+    }
+
+    public static final class Header {
+
+        private final int formatVersion;
+        private final long schemaVersion;
+        private final long created;
+        private final int vertices;
+        private final int edges;
+
+        private Header(int formatVersion, long schemaVersion, long created,
+                       int vertices, int edges) {
+            this.formatVersion = formatVersion;
+            this.schemaVersion = schemaVersion;
+            this.created = created;
+            this.vertices = vertices;
+            this.edges = edges;
+        }
+
+        public int formatVersion() {
+            return this.formatVersion;
+        }
+
+        public long schemaVersion() {
+            return this.schemaVersion;
+        }
+
+        public long created() {
+            return this.created;
+        }
+
+        public int vertices() {
+            return this.vertices;
+        }
+
+        public int edges() {
+            return this.edges;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Header{formatVersion=%s, schemaVersion=%s, " +
+                                 "created=%s, vertices=%s, edges=%s}",
+                                 this.formatVersion, this.schemaVersion,
+                                 this.created, this.vertices, this.edges);
+        }
+    }
+
+    private static class Writer implements AutoCloseable {
+
+        private final FileOutputStream file;
+        private final DataOutputStream output;
+        private long position;
+
+        private Writer(File file) throws IOException {
+            this.file = new FileOutputStream(file);
+            this.output = new DataOutputStream(new BufferedOutputStream(
+                          this.file, 1 << 16));
+            this.position = 0L;
+        }
+
+        private void writeInt(int value) throws IOException {
+            this.output.writeInt(value);
+            this.position += Integer.BYTES;
+        }
+
+        private void writeLong(long value) throws IOException {
+            this.output.writeLong(value);
+            this.position += Long.BYTES;
+        }
+
+        private void length(int length) throws IOException {
+            this.writeInt(length);
+            while (this.position % Long.BYTES != 0) {
+                this.output.writeByte(0);
+                this.position++;
+            }
+        }
+
+        private void ints(IntBuffer values) throws IOException {
+            this.length(values.limit());
+            for (int i = 0; i < values.limit(); i++) {
+                this.output.writeInt(values.get(i));
+            }
+            this.position += (long) values.limit() * Integer.BYTES;
+        }
+
+        private void longs(LongBuffer values) throws IOException {
+            if (values == null) {
+                this.length(NULL_LENGTH);
+                return;
+            }
+            this.length(values.limit());
+            for (int i = 0; i < values.limit(); i++) {
+                this.output.writeLong(values.get(i));
+            }
+            this.position += (long) values.limit() * Long.BYTES;
+        }
+
+        private void doubles(DoubleBuffer values) throws IOException {
+            this.length(values.limit());
+            for (int i = 0; i < values.limit(); i++) {
+                this.output.writeDouble(values.get(i));
+            }
+            this.position += (long) values.limit() * Double.BYTES;
+        }
+
+        private void bytes(ByteBuffer values) throws IOException {
+            this.length(values.limit());
+            for (int i = 0; i < values.limit(); i++) {
+                this.output.writeByte(values.get(i));
+            }
+            this.position += values.limit();
+        }
+
+        private void string(String value) throws IOException {
+            this.bytes(ByteBuffer.wrap(StringPool.encode(value)));
+        }
+
+        private void pool(StringPool pool) throws IOException {
+            this.ints(pool.offsets());
+            this.bytes(pool.bytes());
+        }
+
+        private void names(String[] names) throws IOException {
+            this.writeInt(names.length);
+            for (String name : names) {
+                this.string(name);
+            }
+        }
+
+        private void columns(Map<String, CsrColumn> columns)
+                             throws IOException {
+            this.writeInt(columns.size());
+            for (Map.Entry<String, CsrColumn> e : columns.entrySet()) {
+                CsrColumn column = e.getValue();
+                this.string(e.getKey());
+                this.writeInt(column.type().ordinal());
+                switch (column.type()) {
+                    case INT:
+                    case LONG:
+                    case BOOLEAN:
+                        CsrColumn.LongColumn longs;
+                        longs = (CsrColumn.LongColumn) column;
+                        this.longs(longs.values());
+                        this.longs(longs.absents());
+                        break;
+                    case DOUBLE:
+                        CsrColumn.DoubleColumn doubles;
+                        doubles = (CsrColumn.DoubleColumn) column;
+                        this.doubles(doubles.values());
+                        this.longs(doubles.absents());
+                        break;
+                    case STRING:
+                        CsrColumn.StringColumn strings;
+                        strings = (CsrColumn.StringColumn) column;
+                        this.ints(strings.codes());
+                        this.pool(strings.dictionary());
+                        break;
+                    default:
+                        assert column.type() == CsrColumn.Type.OBJECT;
+                        if (!(column instanceof CsrColumn.JsonColumn)) {
+                            column = CsrColumn.JsonColumn.of(column);
+                        }
+                        this.pool(((CsrColumn.JsonColumn) column).values());
+                        break;
+                }
+            }
+        }
+
+        /**
+         * Flush the data to the disk, so that the file moved over the
+         * snapshot is complete even if the system crashes after the move
+         */
+        private void sync() throws IOException {
+            this.output.flush();
+            this.file.getChannel().force(true);
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.output.close();
+        }
+    }
+
+    private static class Reader {
+
+        private final FileChannel channel;
+        private final File file;
+        private long position;
+
+        private Reader(FileChannel channel, File file) {
+            this.channel = channel;
+            this.file = file;
+            this.position = 0L;
+        }
+
+        private ByteBuffer read(int size) throws IOException {
+            // Check before allocating, the size may be garbage
+            this.checkRemaining(size);
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            while (buffer.hasRemaining()) {
+                int read = this.channel.read(buffer, this.position +
+                                                     buffer.position());
+                if (read < 0) {
+                    throw this.corrupted("unexpected end of file");
+                }
+            }
+            this.position += size;
+            // Cast to Buffer to run on Java 8 when compiled by newer JDK
+            ((Buffer) buffer).flip();
+            return buffer;
+        }
+
+        private int readInt() throws IOException {
+            return this.read(Integer.BYTES).getInt();
+        }
+
+        private long readLong() throws IOException {
+            return this.read(Long.BYTES).getLong();
+        }
+
+        private int length() throws IOException {
+            return this.length(false);
+        }
+
+        private int length(boolean nullable) throws IOException {
+            int length = this.readInt();
+            if (length < 0 && !(nullable && length == NULL_LENGTH)) {
+                throw this.corrupted("invalid length %s", length);
+            }
+            this.position += (Long.BYTES - this.position % Long.BYTES) %
+                             Long.BYTES;
+            return length;
+        }
+
+        /**
+         * Read the count of the elements followed, each one takes at least
+         * the min bytes, so a garbage count is found before allocating
+         */
+        private int count(int minBytes) throws IOException {
+            int count = this.readInt();
+            if (count < 0) {
+                throw this.corrupted("invalid count %s", count);
+            }
+            this.checkRemaining((long) count * minBytes);
+            return count;
+        }
+
+        private void checkRemaining(long size) throws IOException {
+            if (size < 0L || this.position + size > this.channel.size()) {
+                throw this.corrupted("unexpected end of file");
+            }
+        }
+
+        private InvalidOperationException corrupted(String reason,
+                                                    Object... args) {
+            return new InvalidOperationException(
+                       "The snapshot '%s' is corrupted, %s", this.file,
+                       String.format(reason, args));
+        }
+
+        private ByteBuffer map(long size) throws IOException {
+            this.checkRemaining(size);
+            ByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_ONLY,
+                                                 this.position, size);
+            this.position += size;
+            return buffer;
+        }
+
+        private IntBuffer ints() throws IOException {
+            int length = this.length();
+            return this.map((long) length * Integer.BYTES).asIntBuffer();
+        }
+
+        private LongBuffer longs() throws IOException {
+            int length = this.length(true);
+            if (length == NULL_LENGTH) {
+                return null;
+            }
+            return this.map((long) length * Long.BYTES).asLongBuffer();
+        }
+
+        private DoubleBuffer doubles() throws IOException {
+            int length = this.length();
+            return this.map((long) length * Double.BYTES).asDoubleBuffer();
+        }
+
+        private ByteBuffer bytes() throws IOException {
+            return this.map(this.length());
+        }
+
+        private String string() throws IOException {
+            int length = this.length();
+            return new String(this.read(length).array(),
+                              StandardCharsets.UTF_8);
+        }
+
+        private StringPool pool() throws IOException {
+            IntBuffer offsets = this.ints();
+            return new StringPool(this.bytes(), offsets);
+        }
+
+        private String[] names() throws IOException {
+            String[] names = new String[this.count(Integer.BYTES)];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = this.string();
+            }
+            return names;
+        }
+
+        private CsrColumn.Type columnType() throws IOException {
+            int ordinal = this.readInt();
+            CsrColumn.Type[] types = CsrColumn.Type.values();
+            if (ordinal < 0 || ordinal >= types.length) {
+                throw this.corrupted("invalid column type %s", ordinal);
+            }
+            return types[ordinal];
+        }
+
+        private Map<String, CsrColumn> columns() throws IOException {
+            // Each column has at least a key and a type
+            int size = this.count(Integer.BYTES * 2);
+            Map<String, CsrColumn> columns = new HashMap<>(size);
+            for (int i = 0; i < size; i++) {
+                String key = this.string();
+                CsrColumn.Type type = this.columnType();
+                CsrColumn column;
+                switch (type) {
+                    case INT:
+                    case LONG:
+                    case BOOLEAN:
+                        column = new CsrColumn.LongColumn(type, this.longs(),
+                                                          this.longs());
+                        break;
+                    case DOUBLE:
+                        column = new CsrColumn.DoubleColumn(this.doubles(),
+                                                            this.longs());
+                        break;
+                    case STRING:
+                        column = new CsrColumn.StringColumn(this.ints(),
+                                                            this.pool());
+                        break;
+                    default:
+                        column = new CsrColumn.JsonColumn(this.pool());
+                        break;
+                }
+                columns.put(key, column);
+            }
+            return columns;
+        }
+    }
+}
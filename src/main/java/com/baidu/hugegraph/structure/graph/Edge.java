@@ -105,6 +105,11 @@ public class Edge extends GraphElement {
         E.checkNotNull(value, "The property value can not be null");
         if (this.fresh()) {
             return (Edge) super.property(key, value);
+        } else if (this.deferred()) {
+            boolean existed = this.properties.containsKey(key);
+            super.property(key, value);
+            this.session.updateProperty(this, key, value, existed);
+            return this;
         } else {
             return this.setProperty(key, value);
         }
@@ -132,6 +137,11 @@ public class Edge extends GraphElement {
                       "The edge '%s' doesn't have the property '%s'",
                       this.id, key);
         }
+        if (this.deferred()) {
+            Object value = this.properties.remove(key);
+            this.session.removeProperty(this, key, value);
+            return this;
+        }
         Edge edge = new Edge(this.label);
         edge.id(this.id);
         edge.source(this.source);
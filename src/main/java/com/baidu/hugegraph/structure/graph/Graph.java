@@ -19,11 +19,16 @@
 
 package com.baidu.hugegraph.structure.graph;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.Logger;
 
@@ -33,13 +38,17 @@ import com.baidu.hugegraph.util.Log;
 /**
  * HugeGraph is a mirror of server-side data(vertex/edge), it used to speed up
  * data access. Note, however, the memory can't hold large amounts of data.
+ *
+ * The vertices and edges are kept in copy-on-write segments, the changes by
+ * `apply()` are published without blocking the readers, a reader iterating
+ * the graph sees the version when the iteration started.
  */
 public class Graph {
 
     private static final Logger LOG = Log.logger(Graph.class);
 
-    private Map<Object, HugeVertex> hugeVerticesMap;
-    private List<HugeEdge> hugeEdges;
+    private SegmentedMap<Object, HugeVertex> hugeVerticesMap;
+    private SegmentedMap<Object, HugeEdge> hugeEdgesMap;
 
     public Graph(GraphManager graph) {
         LOG.debug("Loading Graph...");
@@ -58,8 +67,13 @@ public class Graph {
         this.mergeEdges2Vertices(vertices, edges);
     }
 
+    protected Graph() {
+        this.hugeVerticesMap = new SegmentedMap<>(0);
+        this.hugeEdgesMap = new SegmentedMap<>(0);
+    }
+
     public Iterator<HugeVertex> vertices() {
-        return this.hugeVerticesMap.values().iterator();
+        return this.hugeVerticesMap.values();
     }
 
     public HugeVertex vertex(Object id) {
@@ -67,36 +81,293 @@ public class Graph {
     }
 
     public Iterator<HugeEdge> edges() {
-        return this.hugeEdges.iterator();
+        return this.hugeEdgesMap.values();
     }
 
-    private void mergeEdges2Vertices(List<Vertex> vertices,
-                                     List<Edge> edges) {
-        this.hugeVerticesMap = new HashMap<>(vertices.size());
+    public HugeEdge edge(String id) {
+        return this.hugeEdgesMap.get(id);
+    }
+
+    public int verticesSize() {
+        return this.hugeVerticesMap.size();
+    }
+
+    public int edgesSize() {
+        return this.hugeEdgesMap.size();
+    }
+
+    /**
+     * Write a CsrGraph snapshot of the graph into the file, it can be
+     * reopened by `CsrGraph.open()` on startup instead of reloading from
+     * server, the schema version is used to detect the stale snapshot
+     */
+    public synchronized void writeSnapshot(File file, long schemaVersion)
+                                           throws IOException {
+        CsrGraph.of(this).write(file, schemaVersion);
+    }
+
+    /**
+     * Apply the changes to the graph, the existing vertices and edges are
+     * updated in place so that the references held by readers keep valid,
+     * the cost is proportional to the size of the delta
+     * @return the count of the edges skipped due to missing vertices
+     */
+    public synchronized int apply(GraphDelta delta) {
+        SegmentedMap<Object, HugeVertex>.Editor vertices;
+        SegmentedMap<Object, HugeEdge>.Editor edges;
+        vertices = this.hugeVerticesMap.edit();
+        edges = this.hugeEdgesMap.edit();
+        Adjacency adjacency = new Adjacency();
+
+        for (String id : delta.removedEdges()) {
+            HugeEdge edge = edges.remove(id);
+            if (edge != null) {
+                adjacency.remove(edge);
+            }
+        }
+        for (Object id : delta.removedVertices()) {
+            HugeVertex vertex = vertices.remove(id);
+            if (vertex == null) {
+                continue;
+            }
+            for (HugeEdge edge : adjacency.edges(vertex)) {
+                edges.remove(edgeKey(edge.edge()));
+                adjacency.remove(edge);
+            }
+        }
+
+        List<Runnable> updates = new ArrayList<>();
+        for (Vertex v : delta.vertices()) {
+            HugeVertex vertex = vertices.get(v.id());
+            if (vertex != null) {
+                updates.add(() -> vertex.vertex(v));
+            } else {
+                vertices.put(v.id(), new HugeVertex(v));
+            }
+        }
+        int skipped = 0;
+        for (Edge e : delta.edges()) {
+            HugeVertex src = vertices.get(e.source());
+            HugeVertex tgt = vertices.get(e.target());
+            if (src == null || tgt == null) {
+                skipped++;
+                continue;
+            }
+            HugeEdge edge = edges.get(e.id());
+            if (edge != null && edge.source() == src &&
+                edge.target() == tgt) {
+                updates.add(() -> edge.edge(e));
+                continue;
+            }
+            if (edge != null) {
+                adjacency.remove(edge);
+            }
+            HugeEdge newEdge = new HugeEdge(e);
+            newEdge.source(src);
+            newEdge.target(tgt);
+            edges.put(e.id(), newEdge);
+            adjacency.add(newEdge);
+        }
+
+        // Publish the changes
+        vertices.commit();
+        edges.commit();
+        adjacency.commit();
+        updates.forEach(Runnable::run);
+        if (skipped > 0) {
+            LOG.warn("Skipped {} edges whose vertices don't exist", skipped);
+        }
+        return skipped;
+    }
+
+    /**
+     * Start a bulk load into the graph, all the batches are merged into the
+     * same editors without copying the touched segments and edge lists for
+     * each batch, and they are published once by `Bulk.commit()`
+     */
+    Bulk bulk() {
+        return new Bulk();
+    }
+
+    protected synchronized void addVertices(Collection<Vertex> vertices) {
+        SegmentedMap<Object, HugeVertex>.Editor editor;
+        editor = this.hugeVerticesMap.edit();
         for (Vertex v : vertices) {
-            this.hugeVerticesMap.put(v.id(), new HugeVertex(v));
+            editor.put(v.id(), new HugeVertex(v));
         }
+        editor.commit();
+    }
 
-        this.hugeEdges = new ArrayList<>(edges.size());
+    /**
+     * Add edges whose source and target vertices exist
+     * @return the count of the edges skipped due to missing vertices
+     */
+    protected synchronized int addEdges(Collection<Edge> edges) {
+        SegmentedMap<Object, HugeEdge>.Editor editor;
+        editor = this.hugeEdgesMap.edit();
+        Adjacency adjacency = new Adjacency();
+        int skipped = 0;
         for (Edge e : edges) {
             HugeVertex src = this.hugeVerticesMap.get(e.source());
             HugeVertex tgt = this.hugeVerticesMap.get(e.target());
+            if (src == null || tgt == null) {
+                skipped++;
+                continue;
+            }
 
             HugeEdge edge = new HugeEdge(e);
             edge.source(src);
             edge.target(tgt);
 
-            src.addEdge(edge);
-            tgt.addEdge(edge);
+            adjacency.add(edge);
+            editor.put(edgeKey(e), edge);
+        }
+        editor.commit();
+        adjacency.commit();
+        return skipped;
+    }
 
-            this.hugeEdges.add(edge);
+    private void mergeEdges2Vertices(List<Vertex> vertices,
+                                     List<Edge> edges) {
+        this.hugeVerticesMap = new SegmentedMap<>(vertices.size());
+        this.hugeEdgesMap = new SegmentedMap<>(edges.size());
+        this.addVertices(vertices);
+        int skipped = this.addEdges(edges);
+        if (skipped > 0) {
+            LOG.warn("Skipped {} edges whose vertices don't exist", skipped);
+        }
+    }
+
+    private static Object edgeKey(Edge edge) {
+        // The edge created locally has no id
+        return edge.id() != null ? edge.id() : edge;
+    }
+
+    /**
+     * Bulk collects the vertices and edges of many batches, the batches can
+     * be added concurrently and are invisible to readers until committed
+     */
+    class Bulk {
+
+        private final SegmentedMap<Object, HugeVertex>.Editor vertices;
+        private final SegmentedMap<Object, HugeEdge>.Editor edges;
+        private final Adjacency adjacency;
+
+        private Bulk() {
+            synchronized (Graph.this) {
+                this.vertices = Graph.this.hugeVerticesMap.edit();
+                this.edges = Graph.this.hugeEdgesMap.edit();
+            }
+            this.adjacency = new Adjacency();
+        }
+
+        public synchronized void addVertices(Collection<Vertex> vertices) {
+            for (Vertex v : vertices) {
+                this.vertices.put(v.id(), new HugeVertex(v));
+            }
+        }
+
+        /**
+         * Add edges whose source and target vertices exist in the graph or
+         * the bulk
+         * @return the count of the edges skipped due to missing vertices
+         */
+        public synchronized int addEdges(Collection<Edge> edges) {
+            int skipped = 0;
+            for (Edge e : edges) {
+                HugeVertex src = this.vertices.get(e.source());
+                HugeVertex tgt = this.vertices.get(e.target());
+                if (src == null || tgt == null) {
+                    skipped++;
+                    continue;
+                }
+
+                HugeEdge edge = new HugeEdge(e);
+                edge.source(src);
+                edge.target(tgt);
+
+                this.adjacency.add(edge);
+                this.edges.put(edgeKey(e), edge);
+            }
+            return skipped;
+        }
+
+        public void commit() {
+            synchronized (Graph.this) {
+                synchronized (this) {
+                    this.vertices.commit();
+                    this.edges.commit();
+                    this.adjacency.commit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Adjacency collects the edges added to or removed from each vertex,
+     * and installs a new edge list for each changed vertex on commit
+     */
+    private static class Adjacency {
+
+        private final Map<HugeVertex, List<HugeEdge>> added;
+        private final Map<HugeVertex, Set<HugeEdge>> removed;
+
+        private Adjacency() {
+            this.added = new IdentityHashMap<>();
+            this.removed = new IdentityHashMap<>();
+        }
+
+        private void add(HugeEdge edge) {
+            this.added(edge.source()).add(edge);
+            this.added(edge.target()).add(edge);
+        }
+
+        private void remove(HugeEdge edge) {
+            this.removed(edge.source()).add(edge);
+            this.removed(edge.target()).add(edge);
+        }
+
+        /**
+         * @return the current edges of the vertex including the added ones
+         */
+        private List<HugeEdge> edges(HugeVertex vertex) {
+            List<HugeEdge> edges = new ArrayList<>(vertex.getEdges());
+            edges.addAll(this.added.getOrDefault(vertex,
+                                                 Collections.emptyList()));
+            Set<HugeEdge> removed = this.removed.get(vertex);
+            if (removed != null) {
+                edges.removeIf(removed::contains);
+            }
+            return edges;
+        }
+
+        private void commit() {
+            Set<HugeVertex> vertices = Collections.newSetFromMap(
+                                       new IdentityHashMap<>());
+            vertices.addAll(this.added.keySet());
+            vertices.addAll(this.removed.keySet());
+            for (HugeVertex vertex : vertices) {
+                vertex.edges(this.edges(vertex));
+            }
+        }
+
+        private List<HugeEdge> added(HugeVertex vertex) {
+            return this.added.computeIfAbsent(vertex, v -> {
+                return new ArrayList<>();
+            });
+        }
+
+        private Set<HugeEdge> removed(HugeVertex vertex) {
+            return this.removed.computeIfAbsent(vertex, v -> {
+                return Collections.newSetFromMap(new IdentityHashMap<>());
+            });
         }
     }
 
     public static class HugeVertex {
 
-        private Vertex vertex;
-        private List<HugeEdge> edges;
+        private volatile Vertex vertex;
+        private volatile List<HugeEdge> edges;
 
         public HugeVertex(Vertex v) {
             this.vertex = v;
@@ -115,6 +386,14 @@ public class Graph {
             this.edges.add(e);
         }
 
+        /**
+         * Replace the edges with a new list rather than modify the current
+         * one, which may be iterating by readers
+         */
+        void edges(List<HugeEdge> edges) {
+            this.edges = edges;
+        }
+
         public List<HugeEdge> getEdges() {
             return this.edges;
         }
@@ -128,7 +407,7 @@ public class Graph {
 
     public static class HugeEdge {
 
-        private Edge edge;
+        private volatile Edge edge;
         private HugeVertex source;
         private HugeVertex target;
 
@@ -140,6 +419,10 @@ public class Graph {
             return this.edge;
         }
 
+        public void edge(Edge edge) {
+            this.edge = edge;
+        }
+
         public HugeVertex source() {
             return this.source;
         }
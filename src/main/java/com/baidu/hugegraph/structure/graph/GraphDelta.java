@@ -0,0 +1,127 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.structure.graph;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.baidu.hugegraph.util.E;
+
+/**
+ * GraphDelta is a set of changes to apply to a Graph mirror by
+ * `Graph.apply()`, the removals are applied before the additions, so
+ * removing and then putting an element replaces it with a fresh one,
+ * and putting an existing element updates it in place.
+ */
+public class GraphDelta {
+
+    private final Map<Object, Vertex> vertices;
+    private final Set<Object> removedVertices;
+    private final Map<String, Edge> edges;
+    private final Set<String> removedEdges;
+
+    public GraphDelta() {
+        this.vertices = new LinkedHashMap<>();
+        this.removedVertices = new LinkedHashSet<>();
+        this.edges = new LinkedHashMap<>();
+        this.removedEdges = new LinkedHashSet<>();
+    }
+
+    /**
+     * Add or update the vertex
+     */
+    public GraphDelta putVertex(Vertex vertex) {
+        E.checkArgumentNotNull(vertex, "The vertex can't be null");
+        E.checkArgumentNotNull(vertex.id(), "The vertex id can't be null");
+        this.vertices.put(vertex.id(), vertex);
+        return this;
+    }
+
+    public GraphDelta putVertices(Collection<Vertex> vertices) {
+        vertices.forEach(this::putVertex);
+        return this;
+    }
+
+    public GraphDelta removeVertex(Object id) {
+        E.checkArgumentNotNull(id, "The vertex id can't be null");
+        this.vertices.remove(id);
+        this.removedVertices.add(id);
+        return this;
+    }
+
+    /**
+     * Add or update the edge
+     */
+    public GraphDelta putEdge(Edge edge) {
+        E.checkArgumentNotNull(edge, "The edge can't be null");
+        E.checkArgumentNotNull(edge.id(), "The edge id can't be null");
+        this.edges.put(edge.id(), edge);
+        return this;
+    }
+
+    public GraphDelta putEdges(Collection<Edge> edges) {
+        edges.forEach(this::putEdge);
+        return this;
+    }
+
+    public GraphDelta removeEdge(String id) {
+        E.checkArgumentNotNull(id, "The edge id can't be null");
+        this.edges.remove(id);
+        this.removedEdges.add(id);
+        return this;
+    }
+
+    public Collection<Vertex> vertices() {
+        return Collections.unmodifiableCollection(this.vertices.values());
+    }
+
+    public Set<Object> removedVertices() {
+        return Collections.unmodifiableSet(this.removedVertices);
+    }
+
+    public Collection<Edge> edges() {
+        return Collections.unmodifiableCollection(this.edges.values());
+    }
+
+    public Set<String> removedEdges() {
+        return Collections.unmodifiableSet(this.removedEdges);
+    }
+
+    public int size() {
+        return this.vertices.size() + this.removedVertices.size() +
+               this.edges.size() + this.removedEdges.size();
+    }
+
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("GraphDelta{vertices=%s, removedVertices=%s, " +
+                             "edges=%s, removedEdges=%s}",
+                             this.vertices.size(), this.removedVertices.size(),
+                             this.edges.size(), this.removedEdges.size());
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.structure.graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+import org.slf4j.Logger;
+
+import com.baidu.hugegraph.driver.TraverserManager;
+import com.baidu.hugegraph.exception.InvalidOperationException;
+import com.baidu.hugegraph.rest.ClientException;
+import com.baidu.hugegraph.structure.constant.HugeType;
+import com.baidu.hugegraph.util.E;
+import com.baidu.hugegraph.util.ExecutorUtil;
+import com.baidu.hugegraph.util.Log;
+
+/**
+ * GraphLoader builds a Graph by scanning the vertex shards and then the
+ * edge shards concurrently, the elements of each shard are merged into the
+ * Graph as soon as the shard is scanned, so at most `parallelism` shards
+ * are held in memory besides the Graph itself. The elements can also be
+ * encoded into a CsrGraph directly by `loadCsr()`.
+ */
+public class GraphLoader {
+
+    private static final Logger LOG = Log.logger(GraphLoader.class);
+
+    private static final long DEFAULT_SPLIT_SIZE = 1024 * 1024 * 1024L;
+    private static final int DEFAULT_PARALLELISM = 8;
+
+    private final TraverserManager traverser;
+    private long splitSize;
+    private int parallelism;
+    private long capacity;
+    private Consumer<Progress> listener;
+
+    public GraphLoader(TraverserManager traverser) {
+        E.checkNotNull(traverser, "Traverser manager");
+        this.traverser = traverser;
+        this.splitSize = DEFAULT_SPLIT_SIZE;
+        this.parallelism = DEFAULT_PARALLELISM;
+        this.capacity = -1L;
+        this.listener = null;
+    }
+
+    public GraphLoader splitSize(long splitSize) {
+        E.checkArgument(splitSize > 0L,
+                        "The split size must be > 0, but got %s", splitSize);
+        this.splitSize = splitSize;
+        return this;
+    }
+
+    public GraphLoader parallelism(int parallelism) {
+        E.checkArgument(parallelism > 0,
+                        "The parallelism must be > 0, but got %s",
+                        parallelism);
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Set the max count of vertices and edges to hold, the loading fails
+     * once it's exceeded, -1 means no limit. The elements of the shard
+     * exceeding it are not merged, but the shards being scanned at that
+     * time (at most `parallelism`) are still held until they're returned
+     */
+    public GraphLoader capacity(long capacity) {
+        E.checkArgument(capacity > 0L || capacity == -1L,
+                        "The capacity must be > 0 or == -1, but got %s",
+                        capacity);
+        this.capacity = capacity;
+        return this;
+    }
+
+    public GraphLoader listener(Consumer<Progress> listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    public Graph load() {
+        Graph graph = new Graph();
+        // The graph is published once after all the shards are merged
+        Graph.Bulk bulk = graph.bulk();
+        this.load(bulk::addVertices, bulk::addEdges);
+        bulk.commit();
+        LOG.debug("Loaded graph with {} vertices and {} edges",
+                  graph.verticesSize(), graph.edgesSize());
+        return graph;
+    }
+
+    /**
+     * Load the vertices and edges into a CsrGraph directly instead of a
+     * Graph, the elements of each shard are encoded into the builder as
+     * soon as the shard is scanned, so neither a Graph nor the elements are
+     * held during loading
+     */
+    public CsrGraph loadCsr() {
+        CsrGraph.Builder builder = CsrGraph.builder();
+        this.load(vertices -> {
+            synchronized (builder) {
+                builder.addVertices(vertices);
+            }
+        }, edges -> {
+            synchronized (builder) {
+                builder.addEdges(edges);
+            }
+            // The edges with missing vertices are skipped when built
+            return 0;
+        });
+        CsrGraph graph = builder.build();
+        LOG.debug("Loaded csr graph with {} vertices and {} edges",
+                  graph.verticesSize(), graph.edgesSize());
+        return graph;
+    }
+
+    private void load(Consumer<List<Vertex>> vertexMerger,
+                      ToIntFunction<List<Edge>> edgeMerger) {
+        AtomicLong loaded = new AtomicLong(0L);
+        ExecutorService executor = ExecutorUtil.newFixedThreadPool(
+                                   this.parallelism, "graph-loader");
+        try {
+            List<Shard> shards = this.traverser.vertexShards(this.splitSize);
+            LOG.debug("Loading vertices from {} shards", shards.size());
+            this.load(executor, HugeType.VERTEX, shards, loaded,
+                      this.traverser::vertices, vertexMerger);
+
+            shards = this.traverser.edgeShards(this.splitSize);
+            LOG.debug("Loading edges from {} shards", shards.size());
+            AtomicLong skipped = new AtomicLong(0L);
+            this.load(executor, HugeType.EDGE, shards, loaded,
+                      this.traverser::edges, edges -> {
+                skipped.addAndGet(edgeMerger.applyAsInt(edges));
+            });
+            if (skipped.get() > 0L) {
+                LOG.warn("Skipped {} edges whose vertices don't exist, " +
+                         "they may be added during loading", skipped.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private <T> void load(ExecutorService executor, HugeType type,
+                          List<Shard> shards, AtomicLong loaded,
+                          Function<Shard, List<T>> scanner,
+                          Consumer<List<T>> merger) {
+        CompletionService<Integer> service;
+        service = new ExecutorCompletionService<>(executor);
+        List<Future<Integer>> futures = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            futures.add(service.submit(() -> {
+                // Don't scan more shards once the capacity is exceeded
+                this.checkCapacity(loaded.get());
+                List<T> elements = scanner.apply(shard);
+                this.checkCapacity(loaded.addAndGet(elements.size()));
+                merger.accept(elements);
+                return elements.size();
+            }));
+        }
+
+        try {
+            for (int done = 1; done <= shards.size(); done++) {
+                service.take().get();
+                if (this.listener != null) {
+                    this.listener.accept(new Progress(type, done,
+                                                      shards.size(),
+                                                      loaded.get()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClientException("Interrupted while loading %s", e,
+                                      type.string());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ClientException("Failed to load %s", cause,
+                                      type.string());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private void checkCapacity(long count) {
+        if (this.capacity != -1L && count > this.capacity) {
+            throw new InvalidOperationException(
+                      "The count of loaded elements exceeded capacity %s",
+                      this.capacity);
+        }
+    }
+
+    public static class Progress {
+
+        private final HugeType type;
+        private final int loadedShards;
+        private final int totalShards;
+        private final long loadedElements;
+
+        public Progress(HugeType type, int loadedShards, int totalShards,
+                        long loadedElements) {
+            this.type = type;
+            this.loadedShards = loadedShards;
+            this.totalShards = totalShards;
+            this.loadedElements = loadedElements;
+        }
+
+        public HugeType type() {
+            return this.type;
+        }
+
+        public int loadedShards() {
+            return this.loadedShards;
+        }
+
+        public int totalShards() {
+            return this.totalShards;
+        }
+
+        /**
+         * The count of vertices and edges loaded so far
+         */
+        public long loadedElements() {
+            return this.loadedElements;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Progress{type=%s, shards=%s/%s, " +
+                                 "elements=%s}", this.type, this.loadedShards,
+                                 this.totalShards, this.loadedElements);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.structure.graph;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+
+import com.baidu.hugegraph.date.SafeDateFormat;
+import com.baidu.hugegraph.driver.GraphManager;
+import com.baidu.hugegraph.driver.TraverserManager;
+import com.baidu.hugegraph.exception.InvalidOperationException;
+import com.baidu.hugegraph.structure.GraphElement;
+import com.baidu.hugegraph.util.E;
+import com.baidu.hugegraph.util.ExecutorUtil;
+import com.baidu.hugegraph.util.JsonUtil;
+import com.baidu.hugegraph.util.Log;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * GraphRefresher keeps a Graph mirror fresh by applying the deltas pulled
+ * from a DeltaSource instead of reloading the whole graph. The source can be
+ * a change feed implemented by the caller, a query by a timestamp property,
+ * or a diff against a full scan of the shards.
+ */
+public class GraphRefresher implements AutoCloseable {
+
+    private static final Logger LOG = Log.logger(GraphRefresher.class);
+
+    private final Graph graph;
+    private ScheduledExecutorService scheduler;
+
+    public GraphRefresher(Graph graph) {
+        E.checkNotNull(graph, "graph");
+        this.graph = graph;
+        this.scheduler = null;
+    }
+
+    /**
+     * Pull a delta from the source and apply it to the graph
+     * @return the delta applied
+     */
+    public GraphDelta refresh(DeltaSource source) {
+        GraphDelta delta = source.next();
+        if (delta != null && !delta.isEmpty()) {
+            LOG.debug("Applying {}", delta);
+            this.graph.apply(delta);
+        }
+        return delta;
+    }
+
+    /**
+     * Refresh from the source with fixed delay in milliseconds until closed,
+     * the failures are logged and retried at the next time
+     */
+    public synchronized void schedule(DeltaSource source, long interval) {
+        E.checkArgument(interval > 0L,
+                        "The refresh interval must be > 0, but got %s",
+                        interval);
+        if (this.scheduler == null) {
+            this.scheduler = ExecutorUtil.newScheduledThreadPool(
+                             "graph-refresher");
+        }
+        this.scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                this.refresh(source);
+            } catch (Throwable e) {
+                LOG.warn("Failed to refresh graph", e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Query the vertices of the label whose timestamp property is not less
+     * than the max timestamp seen last time, note that the removed vertices
+     * can't be found in this way. The property can be a number or a date,
+     * and `since` is in milliseconds
+     */
+    public static DeltaSource vertexTimestamp(GraphManager manager,
+                                              String label, String key,
+                                              long since, int pageSize) {
+        return new TimestampSource<Vertex>(key, since, (condition) -> {
+            return manager.iterateVertices(label, condition, pageSize);
+        }, GraphDelta::putVertex);
+    }
+
+    /**
+     * Query the edges of the label whose timestamp property is not less
+     * than the max timestamp seen last time, note that the removed edges
+     * can't be found in this way
+     */
+    public static DeltaSource edgeTimestamp(GraphManager manager,
+                                            String label, String key,
+                                            long since, int pageSize) {
+        return new TimestampSource<Edge>(key, since, (condition) -> {
+            return manager.iterateEdges(label, condition, pageSize);
+        }, GraphDelta::putEdge);
+    }
+
+    /**
+     * Scan all the shards and diff the elements with the graph, all kinds
+     * of changes are found at the cost of a full scan, but only the changes
+     * are applied to the graph
+     */
+    public static DeltaSource shardDiff(TraverserManager traverser,
+                                        Graph graph, long splitSize) {
+        return new ShardDiffSource(traverser, graph, splitSize);
+    }
+
+    @FunctionalInterface
+    public interface DeltaSource {
+
+        /**
+         * @return the changes since last call, null or empty if unchanged
+         */
+        GraphDelta next();
+    }
+
+    private interface Query<T> {
+
+        Iterator<T> query(Map<String, Object> condition);
+    }
+
+    private interface Collector<T> {
+
+        void collect(GraphDelta delta, T element);
+    }
+
+    private static class TimestampSource<T extends GraphElement>
+                   implements DeltaSource {
+
+        // The date formats of server, the longer ones must be tried first
+        private static final DateFormat[] DATE_FORMATS = new DateFormat[]{
+                new SafeDateFormat("yyyy-MM-dd HH:mm:ss.SSS"),
+                new SafeDateFormat("yyyy-MM-dd HH:mm:ss"),
+                new SafeDateFormat("yyyy-MM-dd")
+        };
+
+        private final String key;
+        private final Query<T> query;
+        private final Collector<T> collector;
+        /*
+         * The max timestamp seen, the date string returned by server is
+         * sent back as is, so it's parsed by server in its own time zone
+         */
+        private Object since;
+        private long sinceTime;
+
+        private TimestampSource(String key, long since, Query<T> query,
+                                Collector<T> collector) {
+            E.checkArgumentNotNull(key, "The timestamp key can't be null");
+            this.key = key;
+            this.since = since;
+            this.sinceTime = since;
+            this.query = query;
+            this.collector = collector;
+        }
+
+        @Override
+        public GraphDelta next() {
+            /*
+             * Use P.gte instead of P.gt to not miss the elements updated at
+             * the same time as the latest one, they may be seen twice
+             */
+            String condition = String.format("P.gte(%s)",
+                                             JsonUtil.toJson(this.since));
+            Iterator<T> elements = this.query.query(ImmutableMap.of(
+                                   this.key, condition));
+            GraphDelta delta = new GraphDelta();
+            while (elements.hasNext()) {
+                T element = elements.next();
+                this.collector.collect(delta, element);
+                Object time = element.property(this.key);
+                if (time == null) {
+                    continue;
+                }
+                long millis = this.millis(time);
+                if (millis > this.sinceTime) {
+                    this.sinceTime = millis;
+                    this.since = time instanceof String ? time : millis;
+                }
+            }
+            return delta;
+        }
+
+        private long millis(Object time) {
+            if (time instanceof Number) {
+                return ((Number) time).longValue();
+            } else if (time instanceof Date) {
+                return ((Date) time).getTime();
+            } else if (time instanceof String) {
+                for (DateFormat format : DATE_FORMATS) {
+                    try {
+                        return format.parse((String) time).getTime();
+                    } catch (ParseException ignored) {
+                        // Try the next format
+                    }
+                }
+            }
+            throw new InvalidOperationException(
+                      "The timestamp property '%s' must be a number or " +
+                      "date, but got '%s'", this.key, time);
+        }
+    }
+
+    private static class ShardDiffSource implements DeltaSource {
+
+        private final TraverserManager traverser;
+        private final Graph graph;
+        private final long splitSize;
+
+        private ShardDiffSource(TraverserManager traverser, Graph graph,
+                                long splitSize) {
+            E.checkArgument(splitSize > 0L,
+                            "The split size must be > 0, but got %s",
+                            splitSize);
+            this.traverser = traverser;
+            this.graph = graph;
+            this.splitSize = splitSize;
+        }
+
+        @Override
+        public GraphDelta next() {
+            GraphDelta delta = new GraphDelta();
+
+            Set<Object> seen = new HashSet<>(this.graph.verticesSize());
+            for (Shard shard : this.traverser.vertexShards(this.splitSize)) {
+                for (Vertex vertex : this.traverser.vertices(shard)) {
+                    seen.add(vertex.id());
+                    Graph.HugeVertex current = this.graph.vertex(vertex.id());
+                    if (current == null || !same(current.vertex(), vertex)) {
+                        delta.putVertex(vertex);
+                    }
+                }
+            }
+            for (Iterator<Graph.HugeVertex> it = this.graph.vertices();
+                 it.hasNext();) {
+                Object id = it.next().vertex().id();
+                if (!seen.contains(id)) {
+                    delta.removeVertex(id);
+                }
+            }
+
+            seen = new HashSet<>(this.graph.edgesSize());
+            for (Shard shard : this.traverser.edgeShards(this.splitSize)) {
+                for (Edge edge : this.traverser.edges(shard)) {
+                    seen.add(edge.id());
+                    Graph.HugeEdge current = this.graph.edge(edge.id());
+                    if (current == null || !same(current.edge(), edge)) {
+                        delta.putEdge(edge);
+                    }
+                }
+            }
+            for (Iterator<Graph.HugeEdge> it = this.graph.edges();
+                 it.hasNext();) {
+                String id = it.next().edge().id();
+                if (id != null && !seen.contains(id)) {
+                    delta.removeEdge(id);
+                }
+            }
+            return delta;
+        }
+
+        private static boolean same(Vertex v1, Vertex v2) {
+            return Objects.equals(v1.label(), v2.label()) &&
+                   Objects.equals(v1.properties(), v2.properties());
+        }
+
+        private static boolean same(Edge e1, Edge e2) {
+            return Objects.equals(e1.label(), e2.label()) &&
+                   Objects.equals(e1.source(), e2.source()) &&
+                   Objects.equals(e1.target(), e2.target()) &&
+                   Objects.equals(e1.properties(), e2.properties());
+        }
+    }
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.structure.graph;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+import com.baidu.hugegraph.rest.SerializeException;
+import com.baidu.hugegraph.util.E;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * IdList is a compact immutable list of vertex ids, the numeric ids are
+ * stored in a long[] without boxing, the string ids are stored in a
+ * String[] and interned, so the same id returned by different traversals
+ * shares one String. The ids of mixed types are stored as objects.
+ *
+ * Note that get() returns the numeric ids as Long, while kout() and
+ * kneighbor() decode the small ones as Integer, so indexOf() and
+ * contains() compare the integral numbers by value: contains(1) is true
+ * for a list of 1L.
+ */
+public abstract class IdList extends AbstractList<Object>
+                             implements RandomAccess {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final Interner<String> INTERNER =
+                                          Interners.newWeakInterner();
+
+    /**
+     * @return whether all the ids are numbers which can be read by
+     *         getLong() without boxing
+     */
+    public abstract boolean numeric();
+
+    public long getLong(int index) {
+        E.checkState(false, "The ids are not all numeric");
+        return 0L;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return super.indexOf(normalize(o));
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return super.lastIndexOf(normalize(o));
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return this.indexOf(o) >= 0;
+    }
+
+    public String getString(int index) {
+        return this.get(index).toString();
+    }
+
+    public static IdList of(long... ids) {
+        return new LongIdList(ids.clone(), ids.length);
+    }
+
+    public static IdList of(String... ids) {
+        String[] interned = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            E.checkArgumentNotNull(ids[i], "The id can't be null");
+            interned[i] = INTERNER.intern(ids[i]);
+        }
+        return new StringIdList(interned, interned.length);
+    }
+
+    public static IdList of(Collection<?> ids) {
+        if (ids instanceof IdList) {
+            return (IdList) ids;
+        }
+        Builder builder = new Builder(ids.size());
+        for (Object id : ids) {
+            builder.add(id);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Decode the ids in the array field of a json object token by token,
+     * without building a tree or boxing the numeric ids
+     */
+    public static IdList parse(String json, String field) {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new SerializeException("Expect a json object, " +
+                                             "but got '%s'",
+                                             parser.getCurrentToken());
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (field.equals(name) && token == JsonToken.START_ARRAY) {
+                    return parse(parser);
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException e) {
+            throw new SerializeException("Failed to deserialize json", e);
+        }
+        throw new SerializeException("Can't find array field '%s'", field);
+    }
+
+    /**
+     * Widen the integral numbers to Long like the stored ids
+     */
+    private static Object normalize(Object id) {
+        if (id instanceof Integer || id instanceof Short ||
+            id instanceof Byte) {
+            return ((Number) id).longValue();
+        }
+        return id;
+    }
+
+    private static IdList parse(JsonParser parser) throws IOException {
+        Builder builder = new Builder(16);
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.VALUE_NUMBER_INT) {
+                builder.add(parser.getLongValue());
+            } else if (token == JsonToken.VALUE_STRING) {
+                builder.add(parser.getText());
+            } else {
+                throw new SerializeException("Expect a vertex id, " +
+                                             "but got '%s'", token);
+            }
+        }
+        return builder.build();
+    }
+
+    private static class LongIdList extends IdList {
+
+        private final long[] ids;
+        private final int size;
+
+        private LongIdList(long[] ids, int size) {
+            this.ids = ids;
+            this.size = size;
+        }
+
+        @Override
+        public boolean numeric() {
+            return true;
+        }
+
+        @Override
+        public long getLong(int index) {
+            E.checkArgument(index >= 0 && index < this.size,
+                            "Invalid index %s of %s ids", index, this.size);
+            return this.ids[index];
+        }
+
+        @Override
+        public String getString(int index) {
+            return String.valueOf(this.getLong(index));
+        }
+
+        @Override
+        public Object get(int index) {
+            return this.getLong(index);
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            Object id = normalize(o);
+            if (!(id instanceof Long)) {
+                return -1;
+            }
+            long value = (Long) id;
+            for (int i = 0; i < this.size; i++) {
+                if (this.ids[i] == value) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            Object id = normalize(o);
+            if (!(id instanceof Long)) {
+                return -1;
+            }
+            long value = (Long) id;
+            for (int i = this.size; i-- > 0;) {
+                if (this.ids[i] == value) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+    }
+
+    private static class StringIdList extends IdList {
+
+        private final String[] ids;
+        private final int size;
+
+        private StringIdList(String[] ids, int size) {
+            this.ids = ids;
+            this.size = size;
+        }
+
+        @Override
+        public boolean numeric() {
+            return false;
+        }
+
+        @Override
+        public String getString(int index) {
+            E.checkArgument(index >= 0 && index < this.size,
+                            "Invalid index %s of %s ids", index, this.size);
+            return this.ids[index];
+        }
+
+        @Override
+        public Object get(int index) {
+            return this.getString(index);
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+    }
+
+    private static class ObjectIdList extends IdList {
+
+        private final Object[] ids;
+        private final int size;
+
+        private ObjectIdList(Object[] ids, int size) {
+            this.ids = ids;
+            this.size = size;
+        }
+
+        @Override
+        public boolean numeric() {
+            return false;
+        }
+
+        @Override
+        public Object get(int index) {
+            E.checkArgument(index >= 0 && index < this.size,
+                            "Invalid index %s of %s ids", index, this.size);
+            return this.ids[index];
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+    }
+
+    /**
+     * Builder keeps the ids in a long[] or String[] until an id of the
+     * other type is added, then switches to an Object[]
+     */
+    private static class Builder {
+
+        private final int capacity;
+        private long[] longs;
+        private String[] strings;
+        private Object[] objects;
+        private int size;
+
+        private Builder(int capacity) {
+            this.capacity = Math.max(capacity, 1);
+            this.longs = null;
+            this.strings = null;
+            this.objects = null;
+            this.size = 0;
+        }
+
+        private void add(long id) {
+            if (this.objects == null && this.strings == null) {
+                if (this.longs == null) {
+                    this.longs = new long[this.capacity];
+                } else if (this.size == this.longs.length) {
+                    this.longs = Arrays.copyOf(this.longs, this.size << 1);
+                }
+                this.longs[this.size++] = id;
+            } else {
+                this.addObject(id);
+            }
+        }
+
+        private void add(String id) {
+            id = INTERNER.intern(id);
+            if (this.objects == null && this.longs == null) {
+                if (this.strings == null) {
+                    this.strings = new String[this.capacity];
+                } else if (this.size == this.strings.length) {
+                    this.strings = Arrays.copyOf(this.strings,
+                                                 this.size << 1);
+                }
+                this.strings[this.size++] = id;
+            } else {
+                this.addObject(id);
+            }
+        }
+
+        private void add(Object id) {
+            if (id instanceof Number) {
+                this.add(((Number) id).longValue());
+            } else if (id instanceof String) {
+                this.add((String) id);
+            } else {
+                E.checkArgument(false,
+                                "The vertex id must be either String or " +
+                                "Number, but got '%s'", id);
+            }
+        }
+
+        private void addObject(Object id) {
+            if (this.objects == null) {
+                this.objects = new Object[Math.max(this.capacity,
+                                                   this.size << 1)];
+                for (int i = 0; i < this.size; i++) {
+                    this.objects[i] = this.longs != null ?
+                                      (Object) this.longs[i] :
+                                      this.strings[i];
+                }
+                this.longs = null;
+                this.strings = null;
+            } else if (this.size == this.objects.length) {
+                this.objects = Arrays.copyOf(this.objects, this.size << 1);
+            }
+            this.objects[this.size++] = id;
+        }
+
+        private IdList build() {
+            // Trim the spare capacity since the list is held by users
+            if (this.objects != null) {
+                return new ObjectIdList(Arrays.copyOf(this.objects,
+                                                      this.size),
+                                        this.size);
+            } else if (this.strings != null) {
+                return new StringIdList(Arrays.copyOf(this.strings,
+                                                      this.size),
+                                        this.size);
+            } else if (this.longs != null) {
+                return new LongIdList(Arrays.copyOf(this.longs, this.size),
+                                      this.size);
+            }
+            return new LongIdList(new long[0], 0);
+        }
+    }
+}
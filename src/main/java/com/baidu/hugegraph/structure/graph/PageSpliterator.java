@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.structure.graph;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.baidu.hugegraph.driver.GraphManager;
+import com.baidu.hugegraph.structure.GraphElement;
+import com.baidu.hugegraph.util.E;
+
+/**
+ * PageSpliterator fetches the pages lazily one by one, a split hands over
+ * the rest of the current page (or the next page) to another thread, so
+ * that the elements can be processed in parallel while the pages are
+ * fetched in order.
+ */
+public class PageSpliterator<T extends GraphElement>
+       implements Spliterator<T>, AutoCloseable {
+
+    private static final int CHARACTERISTICS = ORDERED | NONNULL;
+
+    private final GraphManager graphManager;
+    private final Function<String, Pageable<T>> pageFetcher;
+    private List<T> results;
+    private String page;
+    private int cursor;
+    private volatile boolean closed;
+
+    public PageSpliterator(GraphManager graphManager,
+                           Function<String, Pageable<T>> pageFetcher) {
+        E.checkNotNull(graphManager, "Graph manager");
+        E.checkNotNull(pageFetcher, "Page fetcher");
+        this.graphManager = graphManager;
+        this.pageFetcher = pageFetcher;
+        this.results = null;
+        // The empty string means the first page, null means no more page
+        this.page = "";
+        this.cursor = 0;
+        this.closed = false;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (this.closed || !this.fetchIfNeeded()) {
+            return false;
+        }
+        T elem = this.results.get(this.cursor++);
+        action.accept(this.attach(elem));
+        return true;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        if (this.closed || !this.fetchIfNeeded()) {
+            return null;
+        }
+        int size = this.results.size() - this.cursor;
+        Object[] elems = new Object[size];
+        for (int i = 0; i < size; i++) {
+            elems[i] = this.attach(this.results.get(this.cursor++));
+        }
+        return Spliterators.spliterator(elems, CHARACTERISTICS);
+    }
+
+    @Override
+    public long estimateSize() {
+        // The server doesn't report the total count of a paged query
+        if (this.page == null && this.results != null) {
+            return this.results.size() - this.cursor;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return CHARACTERISTICS;
+    }
+
+    /**
+     * Stop fetching more pages, it may be called by another thread while
+     * the spliterator is traversed, so only the volatile flag is set and
+     * the current page is left to the traversing thread
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+    }
+
+    private boolean fetchIfNeeded() {
+        while (!this.closed &&
+               (this.results == null || this.cursor >= this.results.size())) {
+            if (this.page == null) {
+                return false;
+            }
+            Pageable<T> pageable = this.pageFetcher.apply(this.page);
+            this.results = pageable.results();
+            this.page = pageable.page();
+            this.cursor = 0;
+            if (this.results == null) {
+                return false;
+            }
+        }
+        return !this.closed;
+    }
+
+    private T attach(T elem) {
+        E.checkState(elem != null,
+                     "The server data is invalid, some records are null");
+        elem.attachManager(this.graphManager);
+        return elem;
+    }
+}
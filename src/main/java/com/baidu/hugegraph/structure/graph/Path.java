@@ -19,26 +19,28 @@
 
 package com.baidu.hugegraph.structure.graph;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.google.common.collect.ImmutableList;
 
+/**
+ * Path is immutable, it's built at once by a constructor or a Builder.
+ */
 public class Path {
 
     @JsonProperty
-    private List<Object> labels;
+    private final List<Object> labels;
     @JsonProperty
-    private List<Object> objects;
+    private final List<Object> objects;
     @JsonProperty
-    private Object crosspoint;
+    private final Object crosspoint;
 
     public Path() {
-        this(ImmutableList.of());
+        this(Collections.emptyList());
     }
 
     public Path(List<Object> objects) {
@@ -46,35 +48,32 @@ public class Path {
     }
 
     public Path(Object crosspoint, List<Object> objects) {
-        this.crosspoint = crosspoint;
-        this.labels = new CopyOnWriteArrayList<>();
-        this.objects = new CopyOnWriteArrayList<>(objects);
+        this(crosspoint, null, objects);
     }
 
-    public List<Object> labels() {
-        return Collections.unmodifiableList(this.labels);
+    public Path(Object crosspoint, List<Object> labels, List<Object> objects) {
+        this.crosspoint = crosspoint;
+        this.labels = labels == null ? Collections.emptyList() :
+                      freeze(labels);
+        this.objects = freeze(objects);
     }
 
-    public void labels(Object... labels) {
-        this.labels.addAll(Arrays.asList(labels));
+    public static Builder builder() {
+        return new Builder();
     }
 
-    public List<Object> objects() {
-        return Collections.unmodifiableList(this.objects);
+    public List<Object> labels() {
+        return this.labels;
     }
 
-    public void objects(Object... objects) {
-        this.objects.addAll(Arrays.asList(objects));
+    public List<Object> objects() {
+        return this.objects;
     }
 
     public Object crosspoint() {
         return this.crosspoint;
     }
 
-    public void crosspoint(Object crosspoint) {
-        this.crosspoint = crosspoint;
-    }
-
     public int size() {
         return this.objects.size();
     }
@@ -90,9 +89,51 @@ public class Path {
                Objects.equals(this.crosspoint, other.crosspoint);
     }
 
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.labels, this.objects, this.crosspoint);
+    }
+
     @Override
     public String toString() {
         return String.format("{labels=%s, objects=%s, crosspoint=%s}",
                              this.labels, this.objects, this.crosspoint);
     }
+
+    private static List<Object> freeze(List<Object> list) {
+        // Copy to an array once, the elements may be null
+        return Collections.unmodifiableList(Arrays.asList(list.toArray()));
+    }
+
+    public static class Builder {
+
+        private final List<Object> labels;
+        private final List<Object> objects;
+        private Object crosspoint;
+
+        private Builder() {
+            this.labels = new ArrayList<>();
+            this.objects = new ArrayList<>();
+            this.crosspoint = null;
+        }
+
+        public Builder labels(Object... labels) {
+            this.labels.addAll(Arrays.asList(labels));
+            return this;
+        }
+
+        public Builder objects(Object... objects) {
+            this.objects.addAll(Arrays.asList(objects));
+            return this;
+        }
+
+        public Builder crosspoint(Object crosspoint) {
+            this.crosspoint = crosspoint;
+            return this;
+        }
+
+        public Path build() {
+            return new Path(this.crosspoint, this.labels, this.objects);
+        }
+    }
 }
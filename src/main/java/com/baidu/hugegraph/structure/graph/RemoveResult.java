@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.structure.graph;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The outcome of a batch removal, it records the count of removed elements
+ * and the failure of each id that could not be removed.
+ */
+public class RemoveResult {
+
+    private final AtomicLong succeed;
+    private final Map<Object, Throwable> failures;
+
+    public RemoveResult() {
+        this.succeed = new AtomicLong(0L);
+        this.failures = new ConcurrentHashMap<>();
+    }
+
+    public void increaseSucceed() {
+        this.succeed.incrementAndGet();
+    }
+
+    public void fail(Object id, Throwable cause) {
+        this.failures.put(id, cause);
+    }
+
+    public long succeed() {
+        return this.succeed.get();
+    }
+
+    public long failed() {
+        return this.failures.size();
+    }
+
+    public long total() {
+        return this.succeed() + this.failed();
+    }
+
+    public Map<Object, Throwable> failures() {
+        return Collections.unmodifiableMap(this.failures);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RemoveResult{succeed=%s, failed=%s}",
+                             this.succeed(), this.failed());
+    }
+}
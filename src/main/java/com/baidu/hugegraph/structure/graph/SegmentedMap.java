@@ -0,0 +1,207 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.structure.graph;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.baidu.hugegraph.util.E;
+
+/**
+ * SegmentedMap is a copy-on-write map split into small segments, readers
+ * never block and always see a published version, an edit copies only the
+ * segments it touches and publishes them all at once, so the cost of a
+ * change is proportional to its size rather than the size of the map.
+ * Edits must be serialized by the caller.
+ */
+final class SegmentedMap<K, V> {
+
+    // The expected count of entries per segment
+    private static final int SEGMENT_SIZE = 64;
+    private static final int MIN_SEGMENTS = 16;
+
+    private volatile Version<K, V> version;
+
+    SegmentedMap(int expectedSize) {
+        this.version = new Version<>(segments(expectedSize), 0);
+    }
+
+    public V get(Object key) {
+        Version<K, V> version = this.version;
+        return version.segments[version.segment(key)].get(key);
+    }
+
+    public int size() {
+        return this.version.size;
+    }
+
+    /**
+     * @return the values of the current version, later edits are not seen
+     */
+    public Iterator<V> values() {
+        return new ValueIterator<>(this.version.segments);
+    }
+
+    public Editor edit() {
+        return new Editor(this.version);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <K, V> Map<K, V>[] segments(int expectedSize) {
+        int count = MIN_SEGMENTS;
+        while (count * SEGMENT_SIZE < expectedSize && count < (1 << 30)) {
+            count <<= 1;
+        }
+        Map<K, V>[] segments = new Map[count];
+        Arrays.fill(segments, Collections.emptyMap());
+        return segments;
+    }
+
+    private static class Version<K, V> {
+
+        private final Map<K, V>[] segments;
+        private final int size;
+
+        private Version(Map<K, V>[] segments, int size) {
+            this.segments = segments;
+            this.size = size;
+        }
+
+        private int segment(Object key) {
+            int hash = key.hashCode();
+            hash ^= hash >>> 16;
+            return hash & (this.segments.length - 1);
+        }
+    }
+
+    /**
+     * Editor collects the changes into the copies of touched segments, the
+     * changes are invisible to readers until `commit()`
+     */
+    public class Editor {
+
+        private final Version<K, V> base;
+        private final Map<Integer, Map<K, V>> copies;
+        private int size;
+
+        private Editor(Version<K, V> base) {
+            this.base = base;
+            this.copies = new HashMap<>();
+            this.size = base.size;
+        }
+
+        public V get(Object key) {
+            int segment = this.base.segment(key);
+            Map<K, V> copy = this.copies.get(segment);
+            if (copy != null) {
+                return copy.get(key);
+            }
+            return this.base.segments[segment].get(key);
+        }
+
+        public V put(K key, V value) {
+            V old = this.copy(key).put(key, value);
+            if (old == null) {
+                this.size++;
+            }
+            return old;
+        }
+
+        public V remove(Object key) {
+            if (this.get(key) == null) {
+                return null;
+            }
+            this.size--;
+            return this.copy(key).remove(key);
+        }
+
+        public void commit() {
+            E.checkState(SegmentedMap.this.version == this.base,
+                         "The map has been edited concurrently");
+            Map<K, V>[] segments = Arrays.copyOf(this.base.segments,
+                                                 this.base.segments.length);
+            for (Map.Entry<Integer, Map<K, V>> e : this.copies.entrySet()) {
+                segments[e.getKey()] = e.getValue();
+            }
+            if (this.size > segments.length * SEGMENT_SIZE * 4) {
+                // Rehash into more segments when the map grows a lot
+                Map<K, V>[] grown = segments(this.size);
+                Version<K, V> version = new Version<>(grown, this.size);
+                for (Map<K, V> segment : segments) {
+                    for (Map.Entry<K, V> e : segment.entrySet()) {
+                        int index = version.segment(e.getKey());
+                        if (grown[index].isEmpty()) {
+                            grown[index] = new HashMap<>();
+                        }
+                        grown[index].put(e.getKey(), e.getValue());
+                    }
+                }
+                SegmentedMap.this.version = version;
+            } else {
+                SegmentedMap.this.version = new Version<>(segments,
+                                                          this.size);
+            }
+        }
+
+        private Map<K, V> copy(Object key) {
+            int segment = this.base.segment(key);
+            return this.copies.computeIfAbsent(segment, s -> {
+                return new HashMap<>(this.base.segments[s]);
+            });
+        }
+    }
+
+    private static class ValueIterator<V> implements Iterator<V> {
+
+        private final Map<?, V>[] segments;
+        private int segment;
+        private Iterator<V> current;
+
+        private ValueIterator(Map<?, V>[] segments) {
+            this.segments = segments;
+            this.segment = 0;
+            this.current = Collections.emptyIterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!this.current.hasNext()) {
+                if (this.segment >= this.segments.length) {
+                    return false;
+                }
+                this.current = this.segments[this.segment++].values()
+                                                            .iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public V next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return this.current.next();
+        }
+    }
+}
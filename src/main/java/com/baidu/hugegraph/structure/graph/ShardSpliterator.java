@@ -0,0 +1,127 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.structure.graph;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.baidu.hugegraph.driver.GraphManager;
+import com.baidu.hugegraph.structure.GraphElement;
+import com.baidu.hugegraph.util.E;
+
+/**
+ * ShardSpliterator scans the shards lazily, it's split by halving the
+ * shards not scanned yet, so each thread of a parallel stream scans its
+ * own shards. The size is estimated by the lengths of the shards.
+ */
+public class ShardSpliterator<T extends GraphElement>
+       implements Spliterator<T>, AutoCloseable {
+
+    private final GraphManager graphManager;
+    private final List<Shard> shards;
+    private final Function<Shard, List<T>> scanner;
+    // Shared by all the split instances
+    private final AtomicBoolean closed;
+    private int from;
+    private final int to;
+    private List<T> results;
+    private int cursor;
+
+    public ShardSpliterator(GraphManager graphManager, List<Shard> shards,
+                            Function<Shard, List<T>> scanner) {
+        this(graphManager, shards, scanner, new AtomicBoolean(false),
+             0, shards.size());
+    }
+
+    private ShardSpliterator(GraphManager graphManager, List<Shard> shards,
+                             Function<Shard, List<T>> scanner,
+                             AtomicBoolean closed, int from, int to) {
+        E.checkNotNull(graphManager, "Graph manager");
+        E.checkNotNull(scanner, "Shard scanner");
+        this.graphManager = graphManager;
+        this.shards = shards;
+        this.scanner = scanner;
+        this.closed = closed;
+        this.from = from;
+        this.to = to;
+        this.results = null;
+        this.cursor = 0;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        while (this.results == null || this.cursor >= this.results.size()) {
+            if (this.closed.get() || this.from >= this.to) {
+                return false;
+            }
+            this.results = this.scanner.apply(this.shards.get(this.from++));
+            this.cursor = 0;
+        }
+        if (this.closed.get()) {
+            return false;
+        }
+        T elem = this.results.get(this.cursor++);
+        E.checkState(elem != null,
+                     "The server data is invalid, some records are null");
+        elem.attachManager(this.graphManager);
+        action.accept(elem);
+        return true;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        int mid = (this.from + this.to) >>> 1;
+        if (this.closed.get() || mid <= this.from) {
+            return null;
+        }
+        Spliterator<T> prefix = new ShardSpliterator<>(this.graphManager,
+                                                       this.shards,
+                                                       this.scanner,
+                                                       this.closed,
+                                                       this.from, mid);
+        this.from = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        long size = 0L;
+        if (this.results != null) {
+            size += this.results.size() - this.cursor;
+        }
+        for (int i = this.from; i < this.to; i++) {
+            size += this.shards.get(i).length();
+        }
+        return size;
+    }
+
+    @Override
+    public int characteristics() {
+        return NONNULL;
+    }
+
+    @Override
+    public void close() {
+        this.closed.set(true);
+    }
+}
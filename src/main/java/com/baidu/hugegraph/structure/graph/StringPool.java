@@ -0,0 +1,159 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.structure.graph;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.baidu.hugegraph.util.E;
+
+/**
+ * StringPool stores strings as UTF-8 bytes in one buffer, each string costs
+ * its encoded length and a 4-bytes offset instead of a String object. The
+ * buffers may be heap arrays or regions mapped from a snapshot file.
+ */
+public class StringPool {
+
+    private final ByteBuffer bytes;
+    private final IntBuffer offsets;
+
+    public StringPool(ByteBuffer bytes, IntBuffer offsets) {
+        E.checkArgument(offsets.limit() > 0 &&
+                        offsets.get(offsets.limit() - 1) == bytes.limit(),
+                        "Invalid offsets of string pool");
+        this.bytes = bytes;
+        this.offsets = offsets;
+    }
+
+    public static StringPool of(byte[][] strings) {
+        int length = 0;
+        for (byte[] string : strings) {
+            length += string.length;
+        }
+        byte[] bytes = new byte[length];
+        int[] offsets = new int[strings.length + 1];
+        int offset = 0;
+        for (int i = 0; i < strings.length; i++) {
+            offsets[i] = offset;
+            System.arraycopy(strings[i], 0, bytes, offset, strings[i].length);
+            offset += strings[i].length;
+        }
+        offsets[strings.length] = offset;
+        return new StringPool(ByteBuffer.wrap(bytes), IntBuffer.wrap(offsets));
+    }
+
+    public static StringPool of(String[] strings) {
+        byte[][] encoded = new byte[strings.length][];
+        for (int i = 0; i < strings.length; i++) {
+            encoded[i] = encode(strings[i]);
+        }
+        return of(encoded);
+    }
+
+    public int size() {
+        return this.offsets.limit() - 1;
+    }
+
+    public String get(int index) {
+        int offset = this.offsets.get(index);
+        int length = this.offsets.get(index + 1) - offset;
+        if (this.bytes.hasArray()) {
+            return new String(this.bytes.array(),
+                              this.bytes.arrayOffset() + offset, length,
+                              StandardCharsets.UTF_8);
+        }
+        byte[] string = new byte[length];
+        ByteBuffer buffer = this.bytes.duplicate();
+        // Cast to Buffer to run on Java 8 when compiled by newer JDK
+        ((Buffer) buffer).position(offset);
+        buffer.get(string);
+        return new String(string, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return a read-only duplicate of the encoded bytes
+     */
+    public ByteBuffer bytes() {
+        return this.bytes.asReadOnlyBuffer();
+    }
+
+    /**
+     * @return a read-only duplicate of the offsets, with an extra ending
+     *         offset after the last string
+     */
+    public IntBuffer offsets() {
+        return this.offsets.asReadOnlyBuffer();
+    }
+
+    /**
+     * Binary search the encoded key, the strings must be sorted by
+     * `compare(byte[], byte[])`
+     * @return the index of the key or -1 if not found
+     */
+    public int search(byte[] key) {
+        int low = 0;
+        int high = this.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = this.compare(mid, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compare(int index, byte[] key) {
+        int offset = this.offsets.get(index);
+        int length = this.offsets.get(index + 1) - offset;
+        int min = Math.min(length, key.length);
+        for (int i = 0; i < min; i++) {
+            int cmp = (this.bytes.get(offset + i) & 0xff) - (key[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - key.length;
+    }
+
+    public static byte[] encode(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compare the encoded strings as unsigned bytes
+     */
+    public static int compare(byte[] a, byte[] b) {
+        int min = Math.min(a.length, b.length);
+        for (int i = 0; i < min; i++) {
+            int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return a.length - b.length;
+    }
+}
@@ -59,6 +59,11 @@ public class Vertex extends GraphElement {
         E.checkNotNull(value, "The property value can not be null");
         if (this.fresh()) {
             return (Vertex) super.property(key, value);
+        } else if (this.deferred()) {
+            boolean existed = this.properties.containsKey(key);
+            super.property(key, value);
+            this.session.updateProperty(this, key, value, existed);
+            return this;
         } else {
             return this.setProperty(key, value);
         }
@@ -84,6 +89,11 @@ public class Vertex extends GraphElement {
                       "The vertex '%s' doesn't have the property '%s'",
                       this.id, key);
         }
+        if (this.deferred()) {
+            Object value = this.properties.remove(key);
+            this.session.removeProperty(this, key, value);
+            return this;
+        }
         Vertex vertex = new Vertex(this.label);
         vertex.id(this.id);
         Object value = this.properties.get(key);
@@ -20,35 +20,39 @@
 package com.baidu.hugegraph.structure.gremlin;
 
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
-import com.baidu.hugegraph.rest.SerializeException;
-import com.baidu.hugegraph.serializer.PathDeserializer;
-import com.baidu.hugegraph.serializer.VertexDeserializer;
-import com.baidu.hugegraph.structure.graph.Edge;
-import com.baidu.hugegraph.structure.graph.Path;
-import com.baidu.hugegraph.structure.graph.Vertex;
+import com.baidu.hugegraph.serializer.GremlinResultDeserializer;
 import com.baidu.hugegraph.util.E;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
+/**
+ * The data of ResultSet is decoded into vertices, edges, paths or plain
+ * values once when the response is read, and the Result of each index is
+ * created at the first access then reused.
+ */
 public class ResultSet {
 
-    private static ObjectMapper mapper = new ObjectMapper();
-
     @JsonProperty
+    @JsonDeserialize(using = GremlinResultDeserializer.class)
     private List<Object> data;
     @JsonProperty
     private Map<String, ?> meta;
 
-    static {
-        SimpleModule module = new SimpleModule();
-        module.addDeserializer(Vertex.class, new VertexDeserializer());
-        module.addDeserializer(Path.class, new PathDeserializer());
-        mapper.registerModule(module);
+    private Result[] results;
+
+    public ResultSet() {
+        this.data = null;
+        this.meta = null;
+        this.results = null;
+    }
+
+    public ResultSet(List<Object> data) {
+        this.data = data;
+        this.meta = null;
+        this.results = null;
     }
 
     public List<Object> data() {
@@ -64,47 +68,22 @@ public class ResultSet {
             return null;
         }
 
-        Object object = this.data().get(index);
+        Object object = this.data.get(index);
         if (object == null) {
             return null;
         }
 
-        Class<?> clazz = this.parseResultClass(object);
-        if (clazz.equals(object.getClass())) {
-            return new Result(object);
+        Result[] results = this.results;
+        if (results == null) {
+            results = new Result[this.data.size()];
+            this.results = results;
         }
-
-        try {
-            String rawValue = mapper.writeValueAsString(object);
-            return new Result(mapper.readValue(rawValue, clazz));
-        } catch (Exception e) {
-            throw new SerializeException(
-                      "Failed to deserialize: %s", e, object);
+        Result result = results[index];
+        if (result == null) {
+            result = new Result(object);
+            results[index] = result;
         }
-    }
-
-    /**
-     * TODO: Still need to constantly add and optimize
-     */
-    private Class<?> parseResultClass(Object object) {
-        if (object.getClass().equals(LinkedHashMap.class)) {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> map = (Map<String, Object>) object;
-            String type = (String) map.get("type");
-            if (type != null) {
-                if (type.equals("vertex")) {
-                    return Vertex.class;
-                } else if (type.equals("edge")) {
-                    return Edge.class;
-                }
-            } else {
-                if (map.get("labels") != null) {
-                    return Path.class;
-                }
-            }
-        }
-
-        return object.getClass();
+        return result;
     }
 
     public Iterator<Result> iterator() {
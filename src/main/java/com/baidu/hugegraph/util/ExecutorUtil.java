@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class ExecutorUtil {
+
+    public static ExecutorService newFixedThreadPool(int size, String name) {
+        E.checkArgument(size > 0,
+                        "The size of thread pool must be > 0, but got %s",
+                        size);
+        return Executors.newFixedThreadPool(size, threadFactory(name));
+    }
+
+    /**
+     * Create a fixed thread pool whose threads exit after being idle for
+     * the timeout (in ms), it suits a pool held by a long-lived object
+     * which is used from time to time
+     */
+    public static ExecutorService newFixedThreadPool(int size, String name,
+                                                     long idleTimeout) {
+        E.checkArgument(size > 0,
+                        "The size of thread pool must be > 0, but got %s",
+                        size);
+        E.checkArgument(idleTimeout > 0L,
+                        "The idle timeout must be > 0, but got %s",
+                        idleTimeout);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                                      size, size, idleTimeout,
+                                      TimeUnit.MILLISECONDS,
+                                      new LinkedBlockingQueue<>(),
+                                      threadFactory(name));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public static ScheduledExecutorService newScheduledThreadPool(
+                                           String name) {
+        return Executors.newSingleThreadScheduledExecutor(threadFactory(name));
+    }
+
+    /**
+     * The threads created are daemon threads, so an unclosed client
+     * won't prevent the JVM from exiting
+     */
+    public static ThreadFactory threadFactory(String name) {
+        E.checkArgumentNotNull(name, "The thread name can't be null");
+        AtomicInteger number = new AtomicInteger(0);
+        return runnable -> {
+            String threadName = name + "-" + number.getAndIncrement();
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
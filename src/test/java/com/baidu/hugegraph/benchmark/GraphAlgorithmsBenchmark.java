@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.benchmark;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import com.baidu.hugegraph.algorithm.GraphAlgorithms;
+import com.baidu.hugegraph.structure.constant.Direction;
+import com.baidu.hugegraph.structure.graph.CsrGraph;
+import com.baidu.hugegraph.structure.graph.Edge;
+import com.baidu.hugegraph.structure.graph.Vertex;
+
+/**
+ * Benchmark the local graph algorithms on a generated graph, the edges are
+ * generated with skewed degrees to be closer to real graphs.
+ *
+ * Usage: GraphAlgorithmsBenchmark [vertices] [edges] [rounds]
+ * the defaults are 200000 vertices, 2000000 edges and 5 rounds.
+ */
+public class GraphAlgorithmsBenchmark {
+
+    private static final int WARMUP_ROUNDS = 2;
+
+    public static void main(String[] args) {
+        int vertices = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int edges = args.length > 1 ? Integer.parseInt(args[1]) : 2000000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        long start = System.currentTimeMillis();
+        CsrGraph graph = generate(vertices, edges, new Random(20181001L));
+        System.out.printf("Generated graph with %s vertices and %s edges " +
+                          "in %s ms%n", graph.verticesSize(),
+                          graph.edgesSize(),
+                          System.currentTimeMillis() - start);
+
+        GraphAlgorithms algorithms = new GraphAlgorithms(graph);
+        int[] sources = {0, vertices / 2, vertices - 1};
+        run("bfs", rounds, () -> {
+            return algorithms.bfs(sources, Direction.OUT, null, -1);
+        });
+        run("kout(depth=3)", rounds, () -> {
+            return algorithms.kout(0, Direction.BOTH, null, 3);
+        });
+        run("kneighbor(depth=2)", rounds, () -> {
+            return algorithms.kneighbor(0, Direction.BOTH, null, 2);
+        });
+        run("weightedShortestPath", rounds, () -> {
+            return algorithms.weightedShortestPath(0, vertices - 1,
+                                                   Direction.OUT, null,
+                                                   "weight", 1.0D);
+        });
+        run("weaklyConnectedComponents", rounds,
+            algorithms::weaklyConnectedComponents);
+        run("stronglyConnectedComponents", rounds,
+            algorithms::stronglyConnectedComponents);
+        run("pageRank(iterations=20)", rounds, () -> {
+            return algorithms.pageRank(0.85D, 20, 0.0D);
+        });
+        run("triangles", rounds, algorithms::triangles);
+        run("labelPropagation(iterations=10)", rounds, () -> {
+            return algorithms.labelPropagation(10);
+        });
+    }
+
+    private static void run(String name, int rounds, Supplier<?> task) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            task.get();
+        }
+        long total = 0L;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            task.get();
+            total += System.nanoTime() - start;
+        }
+        System.out.printf("%-32s %10.2f ms/op%n", name,
+                          total / 1e6D / rounds);
+    }
+
+    private static CsrGraph generate(int vertices, int edges, Random random) {
+        CsrGraph.Builder builder = CsrGraph.builder();
+        for (int i = 0; i < vertices; i++) {
+            Vertex vertex = new Vertex("node");
+            vertex.id((long) i);
+            builder.addVertex(vertex);
+        }
+        for (int i = 0; i < edges; i++) {
+            Edge edge = new Edge("link");
+            edge.id(String.valueOf(i));
+            edge.source((long) skewed(random, vertices));
+            edge.target((long) random.nextInt(vertices));
+            edge.property("weight", random.nextDouble());
+            builder.addEdge(edge);
+        }
+        return builder.build();
+    }
+
+    private static int skewed(Random random, int bound) {
+        // Square the uniform value to make the small ids hubs
+        double value = random.nextDouble();
+        return (int) (value * value * bound);
+    }
+}
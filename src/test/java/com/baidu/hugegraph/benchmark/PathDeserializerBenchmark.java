@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.baidu.hugegraph.serializer.PathDeserializer;
+import com.baidu.hugegraph.serializer.VertexDeserializer;
+import com.baidu.hugegraph.structure.graph.Edge;
+import com.baidu.hugegraph.structure.graph.Path;
+import com.baidu.hugegraph.structure.graph.Vertex;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+/**
+ * Benchmark PathDeserializer against the tree based decoding it replaced,
+ * which read each path into a JsonNode tree, converted every element by
+ * ObjectMapper and appended them into a CopyOnWriteArrayList.
+ *
+ * Usage: PathDeserializerBenchmark [long path size] [paths] [rounds]
+ * the defaults are a path of 20000 vertices, 100000 paths of 6 ids and
+ * 10 rounds.
+ */
+public class PathDeserializerBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+
+    private static final TypeReference<List<Path>> PATHS =
+                         new TypeReference<List<Path>>() {};
+
+    public static void main(String[] args) throws IOException {
+        int pathSize = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int paths = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        ObjectMapper mapper = new ObjectMapper();
+        SimpleModule module = new SimpleModule();
+        module.addDeserializer(Path.class, new PathDeserializer());
+        mapper.registerModule(module);
+        TreePathDecoder tree = new TreePathDecoder();
+
+        String longPath = longPath(pathSize);
+        run("long path (tree)", rounds, () -> {
+            return tree.decode(tree.mapper.readTree(longPath));
+        });
+        run("long path (streaming)", rounds, () -> {
+            return mapper.readValue(longPath, Path.class);
+        });
+
+        String widePaths = widePaths(paths);
+        run("wide paths (tree)", rounds, () -> {
+            List<Object> results = new ArrayList<>();
+            for (JsonNode node : tree.mapper.readTree(widePaths)) {
+                results.add(tree.decode(node));
+            }
+            return results;
+        });
+        run("wide paths (streaming)", rounds, () -> {
+            return mapper.readValue(widePaths, PATHS);
+        });
+    }
+
+    private static void run(String name, int rounds, Task task)
+                            throws IOException {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            task.run();
+        }
+        long total = 0L;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            task.run();
+            total += System.nanoTime() - start;
+        }
+        System.out.printf("%-32s %10.2f ms/op%n", name,
+                          total / 1e6D / rounds);
+    }
+
+    private static String longPath(int size) {
+        StringBuilder json = new StringBuilder("{\"labels\": [], " +
+                                               "\"objects\": [");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                json.append(", ");
+            }
+            json.append(String.format(
+                        "{\"id\": \"1:v%s\", \"label\": \"person\", " +
+                        "\"type\": \"vertex\", \"properties\": " +
+                        "{\"age\": [{\"id\": \"age\", \"value\": %s}]}}",
+                        i, i % 100));
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String widePaths(int count) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(", ");
+            }
+            json.append("{\"objects\": [");
+            for (int j = 0; j < 6; j++) {
+                if (j > 0) {
+                    json.append(", ");
+                }
+                json.append('"').append(j).append(":v").append(i + j)
+                    .append('"');
+            }
+            json.append("]}");
+        }
+        return json.append("]").toString();
+    }
+
+    @FunctionalInterface
+    private interface Task {
+
+        Object run() throws IOException;
+    }
+
+    private static class TreePathDecoder {
+
+        private final ObjectMapper mapper;
+
+        public TreePathDecoder() {
+            this.mapper = new ObjectMapper();
+            SimpleModule module = new SimpleModule();
+            module.addDeserializer(Vertex.class, new VertexDeserializer());
+            this.mapper.registerModule(module);
+        }
+
+        public List<Object> decode(JsonNode node) {
+            List<Object> objects = new CopyOnWriteArrayList<>();
+            Iterator<JsonNode> elements = node.get("objects").elements();
+            while (elements.hasNext()) {
+                JsonNode element = elements.next();
+                JsonNode type = element.get("type");
+                if (type == null) {
+                    objects.add(this.mapper.convertValue(element,
+                                                         Object.class));
+                } else if (type.asText().equals("vertex")) {
+                    objects.add(this.mapper.convertValue(element,
+                                                         Vertex.class));
+                } else {
+                    objects.add(this.mapper.convertValue(element,
+                                                         Edge.class));
+                }
+            }
+            return objects;
+        }
+    }
+}
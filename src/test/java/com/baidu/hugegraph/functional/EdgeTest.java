@@ -19,8 +19,10 @@
 
 package com.baidu.hugegraph.functional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.junit.After;
 import org.junit.Before;
@@ -30,6 +32,7 @@ import com.baidu.hugegraph.BaseClientTest;
 import com.baidu.hugegraph.exception.InvalidOperationException;
 import com.baidu.hugegraph.structure.constant.Direction;
 import com.baidu.hugegraph.structure.graph.Edge;
+import com.baidu.hugegraph.structure.graph.RemoveResult;
 import com.baidu.hugegraph.testutil.Assert;
 import com.baidu.hugegraph.testutil.Utils;
 import com.google.common.collect.ImmutableList;
@@ -50,6 +53,27 @@ public class EdgeTest extends BaseFuncTest {
         BaseFuncTest.clearData();
     }
 
+    @Test
+    public void testRemoveEdges() {
+        BaseClientTest.initEdge();
+
+        List<String> ids = new ArrayList<>();
+        graph().listEdges().forEach(e -> ids.add(e.id()));
+        int count = ids.size();
+        ids.add("not-exist-id");
+
+        List<Object> processed = new CopyOnWriteArrayList<>();
+        RemoveResult result = graph().removeEdges(ids.iterator(), 2,
+                                                  (id, e) -> {
+            processed.add(id);
+        });
+        Assert.assertEquals(count + 1, processed.size());
+        Assert.assertEquals(count, result.succeed());
+        Assert.assertEquals(1, result.failed());
+        Assert.assertTrue(result.failures().containsKey("not-exist-id"));
+        Assert.assertEquals(0, graph().listEdges().size());
+    }
+
     @Test
     public void testAddEdgeProperty() {
         Object peterId = getVertexId("person", "name", "peter");
@@ -19,16 +19,20 @@
 
 package com.baidu.hugegraph.functional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import com.baidu.hugegraph.BaseClientTest;
+import com.baidu.hugegraph.driver.GraphSession;
 import com.baidu.hugegraph.exception.InvalidOperationException;
 import com.baidu.hugegraph.structure.constant.T;
+import com.baidu.hugegraph.structure.graph.RemoveResult;
 import com.baidu.hugegraph.structure.graph.Vertex;
 import com.baidu.hugegraph.testutil.Assert;
 import com.baidu.hugegraph.testutil.Utils;
@@ -211,6 +215,54 @@ public class VertexTest extends BaseFuncTest {
         });
     }
 
+    @Test
+    public void testUpdateVertexPropertyInSession() {
+        Vertex vadas = graph().addVertex(T.label, "person", "name", "vadas",
+                                         "age", 19, "city", "Beijing");
+        try (GraphSession session = graph().session(10, 0L)) {
+            session.attach(vadas);
+            vadas.property("age", 20);
+            vadas.property("city", "Shanghai");
+            vadas.removeProperty("city");
+            Assert.assertEquals(1, session.pending());
+
+            Vertex vertex = graph().getVertex(vadas.id());
+            Map<String, Object> props = ImmutableMap.of("name", "vadas",
+                                                        "age", 19,
+                                                        "city", "Beijing");
+            Assert.assertEquals(props, vertex.properties());
+
+            session.flush();
+            Assert.assertEquals(0, session.pending());
+        }
+
+        Vertex vertex = graph().getVertex(vadas.id());
+        Map<String, Object> props = ImmutableMap.of("name", "vadas",
+                                                    "age", 20);
+        Assert.assertEquals(props, vertex.properties());
+        Assert.assertEquals(props, vadas.properties());
+    }
+
+    @Test
+    public void testRemoveVertices() {
+        BaseClientTest.initVertex();
+
+        List<Object> ids = new ArrayList<>();
+        graph().listVertices().forEach(v -> ids.add(v.id()));
+        ids.add("not-exist-id");
+
+        List<Object> processed = new CopyOnWriteArrayList<>();
+        RemoveResult result = graph().removeVertices(ids.iterator(), 2,
+                                                     (id, e) -> {
+            processed.add(id);
+        });
+        Assert.assertEquals(7, processed.size());
+        Assert.assertEquals(6, result.succeed());
+        Assert.assertEquals(1, result.failed());
+        Assert.assertTrue(result.failures().containsKey("not-exist-id"));
+        Assert.assertEquals(0, graph().listVertices().size());
+    }
+
     @Test
     public void testGetAllVertices() {
         BaseClientTest.initVertex();
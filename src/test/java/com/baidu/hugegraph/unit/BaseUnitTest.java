@@ -1,8 +1,13 @@
 package com.baidu.hugegraph.unit;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import com.baidu.hugegraph.rest.SerializeException;
+import com.baidu.hugegraph.structure.Task;
+import com.baidu.hugegraph.util.E;
+import com.baidu.hugegraph.util.JsonUtil;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class BaseUnitTest {
@@ -27,4 +32,20 @@ public class BaseUnitTest {
         }
     }
 
+    /**
+     * Build a task as it's read from server, the properties are given as
+     * key-value pairs like `Task.P.PROGRESS, 10`
+     */
+    public static Task task(long id, String status, Object... properties) {
+        E.checkArgument(properties.length % 2 == 0,
+                        "The properties must be key-value pairs");
+        Map<String, Object> task = new LinkedHashMap<>();
+        task.put("id", id);
+        task.put(Task.P.STATUS, status);
+        for (int i = 0; i < properties.length; i += 2) {
+            task.put((String) properties[i], properties[i + 1]);
+        }
+        return JsonUtil.fromJson(JsonUtil.toJson(task), Task.class);
+    }
+
 }
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.unit;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.baidu.hugegraph.driver.BatchTraverser;
+import com.baidu.hugegraph.driver.BatchTraverser.Result;
+import com.baidu.hugegraph.driver.TraverserManager;
+import com.baidu.hugegraph.structure.constant.Direction;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.collect.ImmutableList;
+
+public class BatchTraverserTest {
+
+    private TraverserManager traverser;
+    private AtomicInteger running;
+    private AtomicInteger maxRunning;
+
+    @Before
+    public void setup() {
+        this.traverser = Mockito.mock(TraverserManager.class);
+        this.running = new AtomicInteger(0);
+        this.maxRunning = new AtomicInteger(0);
+        Mockito.when(this.traverser.kout(Mockito.any(), Mockito.any(),
+                                         Mockito.any(), Mockito.anyInt(),
+                                         Mockito.anyBoolean(),
+                                         Mockito.anyLong(), Mockito.anyLong(),
+                                         Mockito.anyLong()))
+               .thenAnswer(invocation -> {
+            int source = invocation.getArgument(0);
+            int running = this.running.incrementAndGet();
+            this.maxRunning.accumulateAndGet(running, Math::max);
+            try {
+                Thread.sleep(5L);
+            } finally {
+                this.running.decrementAndGet();
+            }
+            if (source == 13) {
+                throw new IllegalStateException("Vertex 13 is broken");
+            }
+            return ImmutableList.of(source + 1);
+        });
+    }
+
+    @Test
+    public void testKout() {
+        BatchTraverser batch = new BatchTraverser(this.traverser)
+                               .parallelism(4);
+        Set<Object> sources = new HashSet<>();
+        int failures = 0;
+        try (BatchTraverser.Results<List<Object>> results = batch.kout(
+             sources(100), Direction.OUT, null, 2, true, -1L, -1L, -1L)) {
+            while (results.hasNext()) {
+                Result<List<Object>> result = results.next();
+                Assert.assertTrue(sources.add(result.source()));
+                if (result.succeed()) {
+                    int source = (int) result.source();
+                    Assert.assertEquals(ImmutableList.of(source + 1),
+                                        result.result());
+                } else {
+                    Assert.assertEquals(13, result.source());
+                    Assert.assertNull(result.result());
+                    Assert.assertEquals("Vertex 13 is broken",
+                                        result.error().getMessage());
+                    failures++;
+                }
+            }
+        }
+        Assert.assertEquals(100, sources.size());
+        Assert.assertEquals(1, failures);
+        Assert.assertTrue(this.maxRunning.get() <= 4);
+    }
+
+    @Test
+    public void testRateLimit() {
+        BatchTraverser batch = new BatchTraverser(this.traverser)
+                               .parallelism(8).rateLimit(50.0D);
+        long start = System.currentTimeMillis();
+        BatchTraverser.Results<List<Object>> results = batch.kout(
+                sources(20), Direction.OUT, null, 2, true, -1L, -1L, -1L);
+        int count = 0;
+        while (results.hasNext()) {
+            results.next();
+            count++;
+        }
+        Assert.assertEquals(20, count);
+        // 20 requests at 50 per second take at least 380ms
+        Assert.assertTrue(System.currentTimeMillis() - start >= 300L);
+        Assert.assertFalse(results.hasNext());
+    }
+
+    @Test
+    public void testStopEarly() {
+        long before = traverserThreads();
+        try (BatchTraverser batch = new BatchTraverser(this.traverser)
+                                    .parallelism(4)) {
+            for (int i = 0; i < 10; i++) {
+                try (BatchTraverser.Results<List<Object>> results =
+                     batch.kout(sources(100), Direction.OUT, null, 2, true,
+                                -1L, -1L, -1L)) {
+                    Assert.assertTrue(results.hasNext());
+                    results.next();
+                }
+            }
+            // The threads are shared by the results
+            Assert.assertTrue(traverserThreads() - before <= 4L);
+        }
+
+        BatchTraverser batch = new BatchTraverser(this.traverser);
+        batch.close();
+        Assert.assertThrows(IllegalStateException.class, () -> {
+            batch.kout(sources(1), Direction.OUT, null, 2, true,
+                       -1L, -1L, -1L);
+        });
+    }
+
+    @Test
+    public void testInvalidOptions() {
+        BatchTraverser batch = new BatchTraverser(this.traverser);
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            batch.parallelism(0);
+        });
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            batch.rateLimit(0.0D);
+        });
+    }
+
+    private static long traverserThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                     .filter(t -> t.getName().startsWith("batch-traverser"))
+                     .count();
+    }
+
+    private static Iterator<Object> sources(int count) {
+        return IntStream.range(0, count).boxed()
+                        .collect(Collectors.<Object>toList()).iterator();
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.unit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.baidu.hugegraph.structure.graph.CsrColumn;
+import com.baidu.hugegraph.structure.graph.CsrGraph;
+import com.baidu.hugegraph.structure.graph.CsrGraph.EdgeView;
+import com.baidu.hugegraph.structure.graph.CsrGraph.VertexView;
+import com.baidu.hugegraph.structure.graph.Edge;
+import com.baidu.hugegraph.structure.graph.Graph;
+import com.baidu.hugegraph.structure.graph.Vertex;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+public class CsrGraphTest {
+
+    private List<Vertex> vertices;
+    private List<Edge> edges;
+
+    @Before
+    public void setup() {
+        Vertex marko = vertex("person", "marko", "age", 29, "city", "Beijing");
+        Vertex vadas = vertex("person", "vadas", "age", 27, "city", "Hongkong");
+        Vertex josh = vertex("person", "josh", "age", 32, "city", "Beijing");
+        Vertex lop = vertex("software", 1, "lang", "java", "price", 328.5D);
+        Vertex ripple = vertex("software", 2, "lang", "java");
+
+        this.vertices = ImmutableList.of(marko, vadas, josh, lop, ripple);
+        this.edges = ImmutableList.of(
+                     edge("e1", "knows", marko, vadas, "weight", 0.5D),
+                     edge("e2", "knows", marko, josh, "weight", 1.0D),
+                     edge("e3", "created", marko, lop, "weight", 0.4D),
+                     edge("e4", "created", josh, ripple, "weight", 1.0D),
+                     edge("e5", "created", josh, lop, "weight", 0.4D),
+                     edge("e6", "knows", josh, josh, "weight", 0.1D));
+    }
+
+    @Test
+    public void testVertexIndex() {
+        CsrGraph graph = CsrGraph.of(this.vertices, this.edges);
+        Assert.assertEquals(5, graph.verticesSize());
+        Assert.assertEquals(6, graph.edgesSize());
+
+        // The numeric ids are before the string ids
+        Assert.assertEquals(0, graph.index(1));
+        Assert.assertEquals(1, graph.index(2L));
+        Assert.assertEquals(1L, graph.id(0));
+        for (Vertex vertex : this.vertices) {
+            int index = graph.index(vertex.id());
+            Assert.assertTrue(index >= 0);
+            Assert.assertEquals(vertex.label(), graph.vertexLabel(index));
+        }
+        Assert.assertEquals(-1, graph.index("peter"));
+        Assert.assertEquals(-1, graph.index(3));
+        Assert.assertNull(graph.vertex("peter"));
+    }
+
+    @Test
+    public void testAdjacency() {
+        CsrGraph graph = CsrGraph.of(this.vertices, this.edges);
+        VertexView marko = graph.vertex("marko");
+        Assert.assertEquals(ImmutableList.of("e1", "e2", "e3"),
+                            ids(marko.outEdges()));
+        Assert.assertEquals(ImmutableList.of(), ids(marko.inEdges()));
+
+        VertexView josh = graph.vertex("josh");
+        Assert.assertEquals(ImmutableList.of("e4", "e5", "e6"),
+                            ids(josh.outEdges()));
+        Assert.assertEquals(ImmutableSet.of("e2", "e6"),
+                            ImmutableSet.copyOf(ids(josh.inEdges())));
+        // The self-loop edge appears twice like HugeVertex
+        Assert.assertEquals(5, josh.getEdges().size());
+
+        VertexView lop = graph.vertex(1);
+        Assert.assertEquals(ImmutableSet.of("e3", "e5"),
+                            ImmutableSet.copyOf(ids(lop.inEdges())));
+        for (EdgeView edge : lop.inEdges()) {
+            Assert.assertEquals("created", edge.label());
+            Assert.assertEquals(lop, edge.target());
+            Assert.assertEquals(edge.source(), edge.other(lop));
+        }
+
+        int knows = graph.edgeLabelCode("knows");
+        int count = 0;
+        int v = graph.index("marko");
+        for (int e = graph.outStart(v); e < graph.outEnd(v); e++) {
+            if (graph.edgeLabelCode(e) == knows) {
+                count++;
+            }
+        }
+        Assert.assertEquals(2, count);
+        Assert.assertEquals(-1, graph.edgeLabelCode("uses"));
+    }
+
+    @Test
+    public void testProperties() {
+        CsrGraph graph = CsrGraph.of(this.vertices, this.edges);
+        VertexView marko = graph.vertex("marko");
+        Assert.assertEquals(29, marko.property("age"));
+        Assert.assertEquals(ImmutableMap.of("age", 29, "city", "Beijing"),
+                            marko.properties());
+        Assert.assertNull(marko.property("lang"));
+
+        VertexView ripple = graph.vertex(2);
+        Assert.assertEquals("java", ripple.property("lang"));
+        Assert.assertNull(ripple.property("price"));
+        Assert.assertEquals(328.5D, graph.vertex(1).property("price"));
+
+        Assert.assertEquals(CsrColumn.Type.INT,
+                            graph.vertexColumn("age").type());
+        Assert.assertEquals(CsrColumn.Type.STRING,
+                            graph.vertexColumn("city").type());
+        CsrColumn weight = graph.edgeColumn("weight");
+        Assert.assertEquals(CsrColumn.Type.DOUBLE, weight.type());
+        EdgeView e2 = graph.vertex("marko").outEdges().get(1);
+        Assert.assertEquals(1.0D, ((CsrColumn.DoubleColumn) weight)
+                                  .getDouble(e2.index()), 0.0D);
+    }
+
+    @Test
+    public void testPropertiesWidened() {
+        // The small numbers are decoded as Integer and big ones as Long
+        List<Vertex> vertices = ImmutableList.of(
+                vertex("person", 1, "score", 1, "tag", "a"),
+                vertex("person", 2, "score", 1L << 40, "tag", 2),
+                vertex("person", 3));
+        CsrGraph graph = CsrGraph.of(vertices, ImmutableList.of());
+        CsrColumn score = graph.vertexColumn("score");
+        Assert.assertEquals(CsrColumn.Type.LONG, score.type());
+        Assert.assertEquals(1L, graph.vertex(1).property("score"));
+        Assert.assertEquals(1L << 40, graph.vertex(2).property("score"));
+        Assert.assertNull(graph.vertex(3).property("score"));
+
+        CsrColumn tag = graph.vertexColumn("tag");
+        Assert.assertEquals(CsrColumn.Type.OBJECT, tag.type());
+        Assert.assertEquals("a", graph.vertex(1).property("tag"));
+        Assert.assertEquals(2, graph.vertex(2).property("tag"));
+        Assert.assertNull(graph.vertex(3).property("tag"));
+    }
+
+    @Test
+    public void testMaterialize() {
+        CsrGraph graph = CsrGraph.of(this.vertices, this.edges);
+        Vertex josh = graph.vertex("josh").vertex();
+        Assert.assertEquals("josh", josh.id());
+        Assert.assertEquals("person", josh.label());
+        Assert.assertEquals(ImmutableMap.of("age", 32, "city", "Beijing"),
+                            josh.properties());
+
+        Edge edge = graph.vertex("josh").outEdges().get(0).edge();
+        Assert.assertEquals("e4", edge.id());
+        Assert.assertEquals("created", edge.label());
+        Assert.assertEquals("josh", edge.source());
+        Assert.assertEquals(2L, edge.target());
+        Assert.assertEquals("software", edge.targetLabel());
+        Assert.assertEquals(ImmutableMap.of("weight", 1.0D),
+                            edge.properties());
+    }
+
+    @Test
+    public void testBuildFromGraph() {
+        Edge dangling = edge("e7", "knows", this.vertices.get(0),
+                             vertex("person", "peter"));
+        List<Edge> edges = ImmutableList.<Edge>builder().addAll(this.edges)
+                                                        .add(dangling)
+                                                        .build();
+        CsrGraph graph = CsrGraph.of(new Graph(this.vertices, edges));
+        Assert.assertEquals(5, graph.verticesSize());
+        Assert.assertEquals(6, graph.edgesSize());
+
+        int count = 0;
+        for (Iterator<EdgeView> it = graph.edges(); it.hasNext();) {
+            EdgeView edge = it.next();
+            Assert.assertNotNull(edge.source());
+            count++;
+        }
+        Assert.assertEquals(6, count);
+    }
+
+    @Test
+    public void testOverrideVertex() {
+        Vertex marko = vertex("person", "marko", "age", 30);
+        CsrGraph graph = CsrGraph.builder().addVertices(this.vertices)
+                                           .addVertex(marko)
+                                           .addEdges(this.edges)
+                                           .build();
+        Assert.assertEquals(5, graph.verticesSize());
+        Assert.assertEquals(30, graph.vertex("marko").property("age"));
+        Assert.assertNull(graph.vertex("marko").property("city"));
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            CsrGraph.builder().addVertex(vertex("person", null));
+        });
+    }
+
+    @Test
+    public void testOverrideManyVertices() {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            ids.add(i);
+        }
+        Collections.shuffle(ids, new Random(1));
+        CsrGraph.Builder builder = CsrGraph.builder();
+        for (int id : ids) {
+            builder.addVertex(vertex("person", id, "version", 1));
+            builder.addVertex(vertex("person", "s" + id, "version", 1));
+        }
+        for (int id : ids.subList(0, 100)) {
+            builder.addVertex(vertex("person", id, "version", 2));
+            builder.addVertex(vertex("person", "s" + id, "version", 2));
+        }
+        CsrGraph graph = builder.build();
+        Assert.assertEquals(2000, graph.verticesSize());
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals((long) i, graph.id(i));
+            int version = ids.indexOf(i) < 100 ? 2 : 1;
+            Assert.assertEquals(version, graph.vertex(i).property("version"));
+            Assert.assertEquals(version, graph.vertex("s" + i)
+                                              .property("version"));
+        }
+    }
+
+    private static List<String> ids(List<EdgeView> edges) {
+        return edges.stream().map(EdgeView::id).collect(Collectors.toList());
+    }
+
+    private static Vertex vertex(String label, Object id,
+                                 Object... properties) {
+        Vertex vertex = new Vertex(label);
+        vertex.id(id);
+        for (int i = 0; i < properties.length; i += 2) {
+            vertex.property((String) properties[i], properties[i + 1]);
+        }
+        return vertex;
+    }
+
+    private static Edge edge(String id, String label, Vertex source,
+                             Vertex target, Object... properties) {
+        Edge edge = new Edge(label);
+        edge.id(id);
+        edge.source(source);
+        edge.target(target);
+        for (int i = 0; i < properties.length; i += 2) {
+            edge.property((String) properties[i], properties[i + 1]);
+        }
+        return edge;
+    }
+}
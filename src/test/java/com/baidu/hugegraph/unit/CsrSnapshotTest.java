@@ -0,0 +1,245 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.unit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.baidu.hugegraph.exception.InvalidOperationException;
+import com.baidu.hugegraph.structure.graph.CsrGraph;
+import com.baidu.hugegraph.structure.graph.CsrGraph.EdgeView;
+import com.baidu.hugegraph.structure.graph.CsrGraph.VertexView;
+import com.baidu.hugegraph.structure.graph.CsrSnapshot;
+import com.baidu.hugegraph.structure.graph.Edge;
+import com.baidu.hugegraph.structure.graph.Graph;
+import com.baidu.hugegraph.structure.graph.Vertex;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+public class CsrSnapshotTest {
+
+    private static final long SCHEMA_VERSION = 1234L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndOpen() throws IOException {
+        CsrGraph origin = graph();
+        File file = this.folder.newFile("graph.snapshot");
+        origin.write(file, SCHEMA_VERSION);
+
+        CsrSnapshot.Header header = CsrSnapshot.header(file);
+        Assert.assertEquals(CsrSnapshot.FORMAT_VERSION,
+                            header.formatVersion());
+        Assert.assertEquals(SCHEMA_VERSION, header.schemaVersion());
+        Assert.assertEquals(4, header.vertices());
+        Assert.assertEquals(4, header.edges());
+
+        CsrGraph graph = CsrGraph.open(file, SCHEMA_VERSION);
+        Assert.assertEquals(origin.verticesSize(), graph.verticesSize());
+        Assert.assertEquals(origin.edgesSize(), graph.edgesSize());
+        for (int i = 0; i < origin.verticesSize(); i++) {
+            VertexView expected = origin.vertexAt(i);
+            VertexView actual = graph.vertexAt(i);
+            Assert.assertEquals(expected.id(), actual.id());
+            Assert.assertEquals(expected.label(), actual.label());
+            Assert.assertEquals(expected.properties(), actual.properties());
+            Assert.assertEquals(ids(expected.getEdges()),
+                                ids(actual.getEdges()));
+        }
+        for (int i = 0; i < origin.edgesSize(); i++) {
+            EdgeView expected = origin.edgeAt(i);
+            EdgeView actual = graph.edgeAt(i);
+            Assert.assertEquals(expected.id(), actual.id());
+            Assert.assertEquals(expected.label(), actual.label());
+            Assert.assertEquals(expected.source().id(), actual.source().id());
+            Assert.assertEquals(expected.target().id(), actual.target().id());
+            Assert.assertEquals(expected.properties(), actual.properties());
+        }
+
+        Assert.assertEquals(3, graph.index("marko"));
+        Assert.assertEquals(0, graph.index(1));
+        Assert.assertEquals(-1, graph.index("peter"));
+        Assert.assertEquals(ImmutableList.of("java", "c++"),
+                            graph.vertex(1).property("tags"));
+        Assert.assertNull(graph.vertex(2).property("tags"));
+    }
+
+    @Test
+    public void testWriteFromGraph() throws IOException {
+        File file = this.folder.newFile("graph.snapshot");
+        new Graph(vertices(), edges()).writeSnapshot(file, SCHEMA_VERSION);
+        CsrGraph graph = CsrGraph.open(file, SCHEMA_VERSION);
+        Assert.assertEquals(4, graph.verticesSize());
+        Assert.assertEquals(ImmutableMap.of("age", 29, "student", false),
+                            graph.vertex("marko").properties());
+    }
+
+    @Test
+    public void testOpenStaleSnapshot() throws IOException {
+        File file = this.folder.newFile("graph.snapshot");
+        graph().write(file, SCHEMA_VERSION);
+        Assert.assertThrows(InvalidOperationException.class, () -> {
+            CsrGraph.open(file, SCHEMA_VERSION + 1);
+        });
+    }
+
+    @Test
+    public void testOpenInvalidFile() throws IOException {
+        File file = this.folder.newFile("graph.snapshot");
+        Files.write(file.toPath(), new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        Assert.assertThrows(InvalidOperationException.class, () -> {
+            CsrGraph.open(file, SCHEMA_VERSION);
+        });
+    }
+
+    @Test
+    public void testOpenCorruptedFile() throws IOException {
+        File file = this.folder.newFile("graph.snapshot");
+        graph().write(file, SCHEMA_VERSION);
+        Assert.assertFalse(new File(file.getPath() + ".tmp").exists());
+
+        // Overwrite the type of column 'price' following its name
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        byte[] key = "price".getBytes(StandardCharsets.UTF_8);
+        int offset = indexOf(bytes, key) + key.length;
+        ByteBuffer.wrap(bytes).putInt(offset, Integer.MAX_VALUE);
+        Files.write(file.toPath(), bytes);
+        Assert.assertThrows(InvalidOperationException.class, () -> {
+            CsrGraph.open(file, SCHEMA_VERSION);
+        }, e -> {
+            Assert.assertTrue(e.getMessage(),
+                              e.getMessage().contains("invalid column type"));
+        });
+    }
+
+    @Test
+    public void testOpenTruncatedFile() throws IOException {
+        File file = this.folder.newFile("graph.snapshot");
+        graph().write(file, SCHEMA_VERSION);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+        assertCorrupted(file, "unexpected end of file");
+    }
+
+    @Test
+    public void testOpenFileWithInvalidLength() throws IOException {
+        File file = this.folder.newFile("graph.snapshot");
+        graph().write(file, SCHEMA_VERSION);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        // The length of key 'price' is ahead of it, followed by padding
+        byte[] key = "price".getBytes(StandardCharsets.UTF_8);
+        int offset = indexOf(bytes, key);
+        while (ByteBuffer.wrap(bytes).getInt(offset) != key.length) {
+            offset--;
+        }
+
+        // A huge length is found before allocating the string
+        ByteBuffer.wrap(bytes).putInt(offset, Integer.MAX_VALUE);
+        Files.write(file.toPath(), bytes);
+        assertCorrupted(file, "unexpected end of file");
+
+        ByteBuffer.wrap(bytes).putInt(offset, -2);
+        Files.write(file.toPath(), bytes);
+        assertCorrupted(file, "invalid length -2");
+    }
+
+    private static void assertCorrupted(File file, String reason) {
+        Assert.assertThrows(InvalidOperationException.class, () -> {
+            CsrGraph.open(file, SCHEMA_VERSION);
+        }, e -> {
+            Assert.assertEquals(String.format(
+                                "The snapshot '%s' is corrupted, %s",
+                                file, reason), e.getMessage());
+        });
+    }
+
+    private static int indexOf(byte[] bytes, byte[] key) {
+        for (int i = 0; i + key.length <= bytes.length; i++) {
+            int j = 0;
+            while (j < key.length && bytes[i + j] == key[j]) {
+                j++;
+            }
+            if (j == key.length) {
+                return i;
+            }
+        }
+        throw new AssertionError("Not found");
+    }
+
+    private static CsrGraph graph() {
+        return CsrGraph.of(vertices(), edges());
+    }
+
+    private static List<Vertex> vertices() {
+        Vertex marko = new Vertex("person");
+        marko.id("marko");
+        marko.property("age", 29);
+        marko.property("student", false);
+        Vertex josh = new Vertex("person");
+        josh.id("josh");
+        josh.property("age", 32);
+        Vertex lop = new Vertex("software");
+        lop.id(1);
+        lop.property("price", 328.5D);
+        lop.property("tags", ImmutableList.of("java", "c++"));
+        Vertex ripple = new Vertex("software");
+        ripple.id(2L);
+        return ImmutableList.of(marko, josh, lop, ripple);
+    }
+
+    private static List<Edge> edges() {
+        List<Vertex> vertices = vertices();
+        return ImmutableList.of(
+               edge("e1", "knows", vertices.get(0), vertices.get(1), 2017L),
+               edge("e2", "created", vertices.get(0), vertices.get(2), null),
+               edge("e3", "created", vertices.get(1), vertices.get(2), 2016L),
+               edge("e4", "created", vertices.get(1), vertices.get(3), null));
+    }
+
+    private static Edge edge(String id, String label, Vertex source,
+                             Vertex target, Long date) {
+        Edge edge = new Edge(label);
+        edge.id(id);
+        edge.source(source);
+        edge.target(target);
+        if (date != null) {
+            edge.property("date", date);
+        }
+        return edge;
+    }
+
+    private static List<String> ids(List<EdgeView> edges) {
+        ImmutableList.Builder<String> ids = ImmutableList.builder();
+        edges.forEach(edge -> ids.add(edge.id()));
+        return ids.build();
+    }
+}
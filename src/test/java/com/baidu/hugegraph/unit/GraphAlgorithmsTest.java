@@ -0,0 +1,190 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.unit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.baidu.hugegraph.algorithm.GraphAlgorithms;
+import com.baidu.hugegraph.algorithm.WeightedPath;
+import com.baidu.hugegraph.structure.constant.Direction;
+import com.baidu.hugegraph.structure.graph.CsrGraph;
+import com.baidu.hugegraph.structure.graph.Edge;
+import com.baidu.hugegraph.structure.graph.Vertex;
+import com.baidu.hugegraph.testutil.Assert;
+
+public class GraphAlgorithmsTest {
+
+    private GraphAlgorithms algorithms;
+
+    @Before
+    public void setup() {
+        /*
+         * The vertex ids are the same as the indexes:
+         * 0 -> 1 -> 2 -> 0 is a cycle, 2 -> 3 <-> 4, 0 -> 3,
+         * 5 -> 6 is isolated from them and 7 has no edge
+         */
+        CsrGraph graph = graph(8, new int[][]{
+                {0, 1, 1}, {1, 2, 1}, {2, 0, 1}, {2, 3, 5},
+                {3, 4, 1}, {4, 3, 1}, {0, 3, 10}, {5, 6, 1}
+        });
+        this.algorithms = new GraphAlgorithms(graph);
+    }
+
+    @Test
+    public void testBfs() {
+        int[] depths = this.algorithms.bfs(new int[]{0}, Direction.OUT,
+                                           null, -1);
+        Assert.assertArrayEquals(new int[]{0, 1, 2, 1, 2, -1, -1, -1},
+                                 depths);
+
+        depths = this.algorithms.bfs(new int[]{0, 5}, Direction.BOTH,
+                                     null, 1);
+        Assert.assertArrayEquals(new int[]{0, 1, 1, 1, -1, 0, 1, -1},
+                                 depths);
+
+        depths = this.algorithms.bfs(new int[]{0}, Direction.OUT,
+                                     "heavy", -1);
+        Assert.assertArrayEquals(new int[]{0, -1, -1, 1, -1, -1, -1, -1},
+                                 depths);
+    }
+
+    @Test
+    public void testKoutAndKneighbor() {
+        Assert.assertArrayEquals(new int[]{2, 4},
+                                 this.algorithms.kout(0, Direction.OUT,
+                                                      null, 2));
+        Assert.assertArrayEquals(new int[]{0, 1, 2, 3, 4},
+                                 this.algorithms.kneighbor(0, Direction.OUT,
+                                                           null, 2));
+        Assert.assertArrayEquals(new int[]{0, 1, 2},
+                                 this.algorithms.kneighbor(0, Direction.IN,
+                                                           null, 2));
+    }
+
+    @Test
+    public void testKneighborIncludingSource() {
+        // Like the server, the source is returned even if it's isolated
+        Assert.assertArrayEquals(new int[]{7},
+                                 this.algorithms.kneighbor(7, Direction.BOTH,
+                                                           null, 2));
+        Assert.assertArrayEquals(new int[]{5, 6},
+                                 this.algorithms.kneighbor(5, Direction.OUT,
+                                                           null, 1));
+    }
+
+    @Test
+    public void testWeightedShortestPath() {
+        WeightedPath path = this.algorithms.weightedShortestPath(
+                            0, 3, Direction.OUT, null, "weight", 1.0D);
+        Assert.assertEquals(7.0D, path.weight(), 0.0D);
+        Assert.assertArrayEquals(new int[]{0, 1, 2, 3}, path.vertices());
+
+        path = this.algorithms.weightedShortestPath(0, 3, Direction.OUT,
+                                                    null, null, 1.0D);
+        Assert.assertEquals(1.0D, path.weight(), 0.0D);
+        Assert.assertArrayEquals(new int[]{0, 3}, path.vertices());
+
+        Assert.assertNull(this.algorithms.weightedShortestPath(
+                          0, 5, Direction.BOTH, null, "weight", 1.0D));
+    }
+
+    @Test
+    public void testConnectedComponents() {
+        Assert.assertArrayEquals(new int[]{0, 0, 0, 0, 0, 5, 5, 7},
+                                 this.algorithms.weaklyConnectedComponents());
+        Assert.assertArrayEquals(new int[]{0, 0, 0, 3, 3, 5, 6, 7},
+                                 this.algorithms
+                                     .stronglyConnectedComponents());
+    }
+
+    @Test
+    public void testPageRank() {
+        double[] ranks = this.algorithms.pageRank(0.85D, 100, 1e-10D);
+        double sum = 0.0D;
+        for (double rank : ranks) {
+            sum += rank;
+        }
+        Assert.assertEquals(1.0D, sum, 1e-9D);
+        Assert.assertTrue(ranks[3] > ranks[0]);
+        Assert.assertTrue(ranks[6] > ranks[5]);
+        Assert.assertEquals(ranks[5], ranks[7], 1e-12D);
+    }
+
+    @Test
+    public void testTriangles() {
+        // The triangles are {0, 1, 2} and {0, 2, 3}
+        Assert.assertEquals(2L, this.algorithms.triangles());
+    }
+
+    @Test
+    public void testLabelPropagation() {
+        CsrGraph graph = graph(6, new int[][]{
+                {0, 1, 1}, {1, 2, 1}, {2, 0, 1},
+                {3, 4, 1}, {4, 5, 1}, {5, 3, 1}
+        });
+        int[] labels = new GraphAlgorithms(graph).labelPropagation(10);
+        Assert.assertArrayEquals(new int[]{0, 0, 0, 3, 3, 3}, labels);
+    }
+
+    @Test
+    public void testParallelMatchesSequential() {
+        int size = 20000;
+        int[][] edges = new int[size * 4][];
+        Random random = new Random(1);
+        for (int i = 0; i < edges.length; i++) {
+            edges[i] = new int[]{random.nextInt(size), random.nextInt(size),
+                                 1};
+        }
+        CsrGraph graph = graph(size, edges);
+        GraphAlgorithms algorithms = new GraphAlgorithms(graph);
+        int[] depths = algorithms.bfs(new int[]{0}, Direction.BOTH, null, -1);
+        int[] components = algorithms.weaklyConnectedComponents();
+        for (int v = 0; v < size; v++) {
+            // Reachable from 0 iff in the same weakly connected component
+            Assert.assertEquals(depths[v] >= 0,
+                                components[v] == components[0]);
+        }
+    }
+
+    private static CsrGraph graph(int vertices, int[][] edges) {
+        List<Vertex> vertexList = new ArrayList<>(vertices);
+        for (int i = 0; i < vertices; i++) {
+            Vertex vertex = new Vertex("node");
+            vertex.id((long) i);
+            vertexList.add(vertex);
+        }
+        List<Edge> edgeList = new ArrayList<>(edges.length);
+        for (int i = 0; i < edges.length; i++) {
+            int[] e = edges[i];
+            Edge edge = new Edge(e[2] > 1 ? "heavy" : "light");
+            edge.id("e" + i);
+            edge.source((long) e[0]);
+            edge.target((long) e[1]);
+            edge.property("weight", (double) e[2]);
+            edgeList.add(edge);
+        }
+        return CsrGraph.of(vertexList, edgeList);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.baidu.hugegraph.unit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.baidu.hugegraph.driver.TraverserManager;
+import com.baidu.hugegraph.exception.InvalidOperationException;
+import com.baidu.hugegraph.structure.constant.HugeType;
+import com.baidu.hugegraph.structure.graph.CsrGraph;
+import com.baidu.hugegraph.structure.graph.Edge;
+import com.baidu.hugegraph.structure.graph.Graph;
+import com.baidu.hugegraph.structure.graph.GraphLoader;
+import com.baidu.hugegraph.structure.graph.Shard;
+import com.baidu.hugegraph.structure.graph.Vertex;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.collect.ImmutableList;
+
+public class GraphLoaderTest {
+
+    private TraverserManager traverser;
+    private List<Shard> vertexShards;
+    private List<Shard> edgeShards;
+
+    @Before
+    public void setup() {
+        this.traverser = Mockito.mock(TraverserManager.class);
+        // 4 vertex shards of 2 vertices each
+        this.vertexShards = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Shard shard = new Shard("v" + i, "v" + (i + 1), 0L);
+            this.vertexShards.add(shard);
+            Mockito.when(this.traverser.vertices(shard))
+                   .thenReturn(ImmutableList.of(vertex(i * 2),
+                                                vertex(i * 2 + 1)));
+        }
+        // 3 edge shards linking the neighbor vertices
+        this.edgeShards = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Shard shard = new Shard("e" + i, "e" + (i + 1), 0L);
+            this.edgeShards.add(shard);
+            Mockito.when(this.traverser.edges(shard))
+                   .thenReturn(ImmutableList.of(edge(i * 2, i * 2 + 1),
+                                                edge(i * 2 + 1, i * 2 + 2)));
+        }
+        Mockito.when(this.traverser.vertexShards(Mockito.anyLong()))
+               .thenReturn(this.vertexShards);
+        Mockito.when(this.traverser.edgeShards(Mockito.anyLong()))
+               .thenReturn(this.edgeShards);
+    }
+
+    @Test
+    public void testLoad() {
+        List<GraphLoader.Progress> progresses = Collections.synchronizedList(
+                                                new ArrayList<>());
+        Graph graph = new GraphLoader(this.traverser).parallelism(3)
+                                                     .splitSize(1024L)
+                                                     .listener(
+                                                      progresses::add)
+                                                     .load();
+        Assert.assertEquals(8, graph.verticesSize());
+        Assert.assertEquals(6, graph.edgesSize());
+        Assert.assertEquals(2, graph.vertex(1).getEdges().size());
+        Assert.assertEquals(1, graph.vertex(0).getEdges().size());
+        Assert.assertEquals(1, graph.vertex(6).getEdges().size());
+
+        // Each shard is scanned once
+        for (Shard shard : this.vertexShards) {
+            Mockito.verify(this.traverser).vertices(shard);
+        }
+        for (Shard shard : this.edgeShards) {
+            Mockito.verify(this.traverser).edges(shard);
+        }
+        Mockito.verify(this.traverser).vertexShards(1024L);
+
+        Assert.assertEquals(7, progresses.size());
+        GraphLoader.Progress last = progresses.get(3);
+        Assert.assertEquals(HugeType.VERTEX, last.type());
+        Assert.assertEquals(4, last.loadedShards());
+        Assert.assertEquals(4, last.totalShards());
+        Assert.assertEquals(8L, last.loadedElements());
+        last = progresses.get(6);
+        Assert.assertEquals(HugeType.EDGE, last.type());
+        Assert.assertEquals(3, last.loadedShards());
+        Assert.assertEquals(14L, last.loadedElements());
+    }
+
+    @Test
+    public void testLoadWithMissingVertices() {
+        Shard shard = this.edgeShards.get(2);
+        Mockito.when(this.traverser.edges(shard))
+               .thenReturn(ImmutableList.of(edge(4, 5), edge(5, 100),
+                                            edge(100, 101)));
+        Graph graph = new GraphLoader(this.traverser).load();
+        // The edges whose source or target is missing are skipped
+        Assert.assertEquals(5, graph.edgesSize());
+        Assert.assertEquals(2, graph.vertex(4).getEdges().size());
+        Assert.assertEquals(1, graph.vertex(5).getEdges().size());
+        Assert.assertNull(graph.vertex(100));
+    }
+
+    @Test
+    public void testLoadExceedingCapacity() {
+        GraphLoader loader = new GraphLoader(this.traverser).parallelism(1)
+                                                            .capacity(5L);
+        Assert.assertThrows(InvalidOperationException.class, () -> {
+            loader.load();
+        }, e -> {
+            Assert.assertEquals("The count of loaded elements exceeded " +
+                                "capacity 5", e.getMessage());
+        });
+        // The shards after the exceeding one are not scanned
+        Mockito.verify(this.traverser).vertices(this.vertexShards.get(2));
+        Mockito.verify(this.traverser, Mockito.never())
+               .vertices(this.vertexShards.get(3));
+        Mockito.verify(this.traverser, Mockito.never())
+               .edges(Mockito.any(Shard.class));
+
+        // The capacity holding all the elements
+        Graph graph = new GraphLoader(this.traverser).capacity(14L).load();
+        Assert.assertEquals(8, graph.verticesSize());
+    }
+
+    @Test
+    public void testLoadCsr() {
+        Shard shard = this.edgeShards.get(2);
+        Mockito.when(this.traverser.edges(shard))
+               .thenReturn(ImmutableList.of(edge(4, 5), edge(5, 100)));
+        CsrGraph graph = new GraphLoader(this.traverser).parallelism(2)
+                                                        .loadCsr();
+        Assert.assertEquals(8, graph.verticesSize());
+        Assert.assertEquals(5, graph.edgesSize());
+        Assert.assertEquals(1, graph.vertex(4).outEdges().size());
+        Assert.assertEquals(1, graph.vertex(4).inEdges().size());
+        Assert.assertEquals("4>5", graph.vertex(4).outEdges().get(0).id());
+        Assert.assertEquals(0, graph.vertex(5).outEdges().size());
+
+        Assert.assertThrows(InvalidOperationException.class, () -> {
+            new GraphLoader(this.traverser).capacity(5L).loadCsr();
+        });
+    }
+
+    @Test
+    public void testInvalidOptions() {
+        GraphLoader loader = new GraphLoader(this.traverser);
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            loader.parallelism(0);
+        });
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            loader.splitSize(0L);
+        });
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            loader.capacity(0L);
+        });
+    }
+
+    private static Vertex vertex(int id) {
+        Vertex vertex = new Vertex("person");
+        vertex.id(id);
+        return vertex;
+    }
+
+    private static Edge edge(int source, int target) {
+        Edge edge = new Edge("knows");
+        edge.id(source + ">" + target);
+        edge.source(source);
+        edge.target(target);
+        return edge;
+    }
+}
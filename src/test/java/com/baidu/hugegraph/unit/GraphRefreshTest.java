@@ -0,0 +1,244 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.unit;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.baidu.hugegraph.driver.GraphManager;
+import com.baidu.hugegraph.driver.TraverserManager;
+import com.baidu.hugegraph.exception.InvalidOperationException;
+import com.baidu.hugegraph.structure.graph.Edge;
+import com.baidu.hugegraph.structure.graph.Graph;
+import com.baidu.hugegraph.structure.graph.Graph.HugeEdge;
+import com.baidu.hugegraph.structure.graph.Graph.HugeVertex;
+import com.baidu.hugegraph.structure.graph.GraphDelta;
+import com.baidu.hugegraph.structure.graph.GraphRefresher;
+import com.baidu.hugegraph.structure.graph.Shard;
+import com.baidu.hugegraph.structure.graph.Vertex;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+public class GraphRefreshTest {
+
+    private Vertex marko;
+    private Vertex josh;
+    private Vertex lop;
+    private Graph graph;
+
+    @Before
+    public void setup() {
+        this.marko = vertex("marko", 29);
+        this.josh = vertex("josh", 32);
+        this.lop = vertex("lop", 0);
+        this.graph = new Graph(ImmutableList.of(this.marko, this.josh,
+                                                this.lop),
+                               ImmutableList.of(
+                               edge("e1", this.marko, this.josh),
+                               edge("e2", this.marko, this.lop),
+                               edge("e3", this.josh, this.lop)));
+    }
+
+    @Test
+    public void testApplyUpdates() {
+        HugeVertex marko = this.graph.vertex("marko");
+        Vertex updated = vertex("marko", 30);
+        Edge e1 = edge("e1", this.marko, this.josh);
+        e1.property("weight", 0.5D);
+
+        GraphDelta delta = new GraphDelta().putVertex(updated).putEdge(e1);
+        Assert.assertEquals(0, this.graph.apply(delta));
+
+        // The vertex is updated in place
+        Assert.assertSame(marko, this.graph.vertex("marko"));
+        Assert.assertEquals(30, marko.vertex().property("age"));
+        Assert.assertEquals(0.5D, this.graph.edge("e1").edge()
+                                            .property("weight"));
+        Assert.assertEquals(3, this.graph.verticesSize());
+        Assert.assertEquals(3, this.graph.edgesSize());
+        Assert.assertEquals(ImmutableSet.of("e1", "e2"), ids(marko));
+    }
+
+    @Test
+    public void testApplyAdditionsAndRemovals() {
+        Vertex peter = vertex("peter", 35);
+        GraphDelta delta = new GraphDelta();
+        delta.putVertex(peter)
+             .putEdge(edge("e4", peter, this.lop))
+             .putEdge(edge("e5", vertex("vadas", 27), this.lop))
+             .removeEdge("e2");
+        Assert.assertEquals(1, this.graph.apply(delta));
+
+        Assert.assertEquals(4, this.graph.verticesSize());
+        Assert.assertEquals(3, this.graph.edgesSize());
+        Assert.assertNull(this.graph.edge("e2"));
+        Assert.assertEquals(ImmutableSet.of("e1"),
+                            ids(this.graph.vertex("marko")));
+        Assert.assertEquals(ImmutableSet.of("e3", "e4"),
+                            ids(this.graph.vertex("lop")));
+
+        // Removing vertex also removes its edges
+        this.graph.apply(new GraphDelta().removeVertex("josh"));
+        Assert.assertEquals(3, this.graph.verticesSize());
+        Assert.assertEquals(1, this.graph.edgesSize());
+        Assert.assertEquals(ImmutableSet.of(),
+                            ids(this.graph.vertex("marko")));
+        Assert.assertEquals(ImmutableSet.of("e4"),
+                            ids(this.graph.vertex("lop")));
+    }
+
+    @Test
+    public void testReadersSeeOldVersion() {
+        Iterator<HugeEdge> edges = this.graph.edges();
+        HugeVertex lop = this.graph.vertex("lop");
+        List<HugeEdge> lopEdges = lop.getEdges();
+
+        this.graph.apply(new GraphDelta().removeVertex("marko"));
+
+        int count = 0;
+        while (edges.hasNext()) {
+            edges.next();
+            count++;
+        }
+        Assert.assertEquals(3, count);
+        Assert.assertEquals(2, lopEdges.size());
+        Assert.assertEquals(1, lop.getEdges().size());
+        Assert.assertEquals(1, this.graph.edgesSize());
+    }
+
+    @Test
+    public void testApplyManyChanges() {
+        GraphDelta delta = new GraphDelta();
+        for (int i = 0; i < 10000; i++) {
+            Vertex vertex = vertex("v" + i, i);
+            delta.putVertex(vertex).putEdge(edge("x" + i, this.marko, vertex));
+        }
+        this.graph.apply(delta);
+        Assert.assertEquals(10003, this.graph.verticesSize());
+        Assert.assertEquals(10003, this.graph.edgesSize());
+        Assert.assertEquals(10002, this.graph.vertex("marko")
+                                             .getEdges().size());
+        Assert.assertEquals(9999, this.graph.vertex("v9999").vertex()
+                                            .property("age"));
+    }
+
+    @Test
+    public void testShardDiff() {
+        Shard shard = new Shard("0", "1", 0L);
+        Vertex marko = vertex("marko", 30);
+        Vertex peter = vertex("peter", 35);
+        TraverserManager traverser = Mockito.mock(TraverserManager.class);
+        Mockito.when(traverser.vertexShards(Mockito.anyLong()))
+               .thenReturn(ImmutableList.of(shard));
+        Mockito.when(traverser.edgeShards(Mockito.anyLong()))
+               .thenReturn(ImmutableList.of(shard));
+        Mockito.when(traverser.vertices(shard))
+               .thenReturn(ImmutableList.of(marko, this.josh, peter));
+        Mockito.when(traverser.edges(shard))
+               .thenReturn(ImmutableList.of(edge("e1", marko, this.josh),
+                                            edge("e6", peter, this.josh)));
+
+        GraphRefresher.DeltaSource source;
+        source = GraphRefresher.shardDiff(traverser, this.graph, 1024L);
+        GraphDelta delta = new GraphRefresher(this.graph).refresh(source);
+        Assert.assertEquals(2, delta.vertices().size());
+        Assert.assertEquals(ImmutableSet.of("lop"), delta.removedVertices());
+        Assert.assertEquals(1, delta.edges().size());
+        Assert.assertEquals(ImmutableSet.of("e2", "e3"),
+                            delta.removedEdges());
+
+        Assert.assertEquals(ImmutableSet.of("e1", "e6"),
+                            ids(this.graph.vertex("josh")));
+        Assert.assertEquals(30, this.graph.vertex("marko").vertex()
+                                          .property("age"));
+        Assert.assertNull(this.graph.vertex("lop"));
+
+        // Nothing changed since last refresh
+        Assert.assertTrue(source.next().isEmpty());
+    }
+
+    @Test
+    public void testTimestampWithDates() {
+        Vertex marko = vertex("marko", 30);
+        marko.property("time", "2018-01-02 10:00:00.000");
+        Vertex peter = vertex("peter", 35);
+        peter.property("time", "2018-01-01");
+        Vertex vadas = vertex("vadas", 27);
+        vadas.property("time", "2018-01-01 23:59:59");
+        GraphManager manager = Mockito.mock(GraphManager.class);
+        Mockito.doAnswer(i -> ImmutableList.of(marko, peter, vadas)
+                                           .iterator())
+               .when(manager).iterateVertices(Mockito.eq("person"),
+                                              Mockito.anyMap(),
+                                              Mockito.eq(100));
+
+        GraphRefresher.DeltaSource source;
+        source = GraphRefresher.vertexTimestamp(manager, "person", "time",
+                                                0L, 100);
+        GraphDelta delta = new GraphRefresher(this.graph).refresh(source);
+        Assert.assertEquals(3, delta.vertices().size());
+        source.next();
+
+        // The latest date string is sent back as is
+        Mockito.verify(manager).iterateVertices(
+                "person", ImmutableMap.of("time", "P.gte(0)"), 100);
+        Mockito.verify(manager).iterateVertices(
+                "person",
+                ImmutableMap.of("time", "P.gte(\"2018-01-02 10:00:00.000\")"),
+                100);
+
+        vadas.property("time", "yesterday");
+        Assert.assertThrows(InvalidOperationException.class, () -> {
+            source.next();
+        }, e -> {
+            Assert.assertEquals("The timestamp property 'time' must be a " +
+                                "number or date, but got 'yesterday'",
+                                e.getMessage());
+        });
+    }
+
+    private static Set<String> ids(HugeVertex vertex) {
+        return vertex.getEdges().stream().map(e -> e.edge().id())
+                     .collect(Collectors.toSet());
+    }
+
+    private static Vertex vertex(String id, int age) {
+        Vertex vertex = new Vertex("person");
+        vertex.id(id);
+        vertex.property("age", age);
+        return vertex;
+    }
+
+    private static Edge edge(String id, Vertex source, Vertex target) {
+        Edge edge = new Edge("knows");
+        edge.id(id);
+        edge.source(source);
+        edge.target(target);
+        return edge;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.baidu.hugegraph.unit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.baidu.hugegraph.driver.GraphManager;
+import com.baidu.hugegraph.driver.GraphSession;
+import com.baidu.hugegraph.exception.InvalidOperationException;
+import com.baidu.hugegraph.rest.ClientException;
+import com.baidu.hugegraph.structure.graph.Vertex;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+public class GraphSessionTest {
+
+    private GraphManager manager;
+    private List<Map<String, Object>> appended;
+    private AtomicInteger running;
+    private AtomicInteger maxRunning;
+    private volatile Object failedId;
+
+    @Before
+    public void setup() {
+        this.manager = Mockito.mock(GraphManager.class);
+        this.appended = Collections.synchronizedList(new ArrayList<>());
+        this.running = new AtomicInteger(0);
+        this.maxRunning = new AtomicInteger(0);
+        Mockito.when(this.manager.appendVertexProperty(Mockito.any()))
+               .thenAnswer(invocation -> {
+            Vertex delta = invocation.getArgument(0);
+            int running = this.running.incrementAndGet();
+            this.maxRunning.accumulateAndGet(running, Math::max);
+            try {
+                Thread.sleep(20L);
+                if (delta.id().equals(this.failedId)) {
+                    throw new ClientException("Failed to append '%s'",
+                                              delta.id());
+                }
+                this.appended.add(ImmutableMap.copyOf(delta.properties()));
+                return delta;
+            } finally {
+                this.running.decrementAndGet();
+            }
+        });
+    }
+
+    @Test
+    public void testFlushInParallel() {
+        GraphSession session = new GraphSession(this.manager, 100, 0L, 4);
+        for (int i = 0; i < 8; i++) {
+            session.attach(this.vertex(i)).property("age", i);
+        }
+        Assert.assertEquals(8, session.pending());
+        session.flush();
+        Assert.assertEquals(0, session.pending());
+        Assert.assertEquals(8, this.appended.size());
+        Assert.assertTrue(this.maxRunning.get() > 1);
+        Assert.assertTrue(this.maxRunning.get() <= 4);
+    }
+
+    @Test
+    public void testFlushWithFailure() {
+        GraphSession session = new GraphSession(this.manager, 100, 0L);
+        Vertex v1 = session.attach(this.vertex(1));
+        Vertex v2 = session.attach(this.vertex(2));
+        v1.property("age", 1);
+        v1.property("city", "Beijing");
+        v2.property("age", 2);
+
+        this.failedId = 1;
+        Assert.assertThrows(InvalidOperationException.class, () -> {
+            session.flush();
+        }, e -> {
+            Assert.assertEquals("Failed to flush 1 of 2 elements: [1]",
+                                e.getMessage());
+        });
+        // The failed changes are kept, the others are sent
+        Assert.assertEquals(1, session.pending());
+        Assert.assertEquals(1, this.appended.size());
+
+        // The newer change takes precedence over the failed one
+        v1.property("age", 10);
+        this.failedId = null;
+        session.flush();
+        Assert.assertEquals(0, session.pending());
+        Assert.assertEquals(ImmutableMap.of("age", 10, "city", "Beijing"),
+                            this.appended.get(1));
+    }
+
+    @Test
+    public void testRemoveAddedProperty() {
+        GraphSession session = new GraphSession(this.manager, 100, 0L);
+        Vertex vertex = this.vertex(1);
+        vertex.properties().put("age", 1);
+        session.attach(vertex);
+
+        // The property only appended in the session is just dropped
+        vertex.property("city", "Beijing");
+        vertex.removeProperty("city");
+        Assert.assertEquals(0, session.pending());
+
+        // The property the server has is eliminated
+        vertex.property("age", 2);
+        vertex.removeProperty("age");
+        Assert.assertEquals(1, session.pending());
+        session.close();
+        Mockito.verify(this.manager, Mockito.never())
+               .appendVertexProperty(Mockito.any());
+        Mockito.verify(this.manager).eliminateVertexProperty(
+                Mockito.argThat(v -> v.properties().keySet()
+                                      .equals(ImmutableSet.of("age"))));
+    }
+
+    private Vertex vertex(int id) {
+        Vertex vertex = new Vertex("person");
+        vertex.id(id);
+        vertex.attachManager(this.manager);
+        return vertex;
+    }
+}
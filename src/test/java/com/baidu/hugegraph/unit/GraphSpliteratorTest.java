@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.unit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.baidu.hugegraph.driver.GraphManager;
+import com.baidu.hugegraph.structure.graph.PageSpliterator;
+import com.baidu.hugegraph.structure.graph.Shard;
+import com.baidu.hugegraph.structure.graph.ShardSpliterator;
+import com.baidu.hugegraph.structure.graph.Vertex;
+import com.baidu.hugegraph.structure.graph.Vertices;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+public class GraphSpliteratorTest {
+
+    private static final Map<String, Integer> PAGES = ImmutableMap.of(
+                                                      "", 0, "p1", 1, "p2", 2);
+
+    private GraphManager manager;
+    private AtomicInteger fetched;
+
+    @Before
+    public void setup() {
+        this.manager = Mockito.mock(GraphManager.class);
+        this.fetched = new AtomicInteger(0);
+    }
+
+    @Test
+    public void testPageSpliterator() {
+        Stream<Vertex> stream = StreamSupport.stream(this.pages(), false);
+        List<Object> ids = stream.map(Vertex::id).collect(Collectors.toList());
+        Assert.assertEquals(ImmutableList.of(0, 1, 2, 3, 4, 5, 6, 7, 8),
+                            ids);
+        Assert.assertEquals(3, this.fetched.get());
+    }
+
+    @Test
+    public void testPageSpliteratorParallel() {
+        Stream<Vertex> stream = StreamSupport.stream(this.pages(), true);
+        List<Object> ids = stream.map(Vertex::id).collect(Collectors.toList());
+        Assert.assertEquals(ImmutableList.of(0, 1, 2, 3, 4, 5, 6, 7, 8),
+                            ids);
+    }
+
+    @Test
+    public void testPageSpliteratorClose() {
+        PageSpliterator<Vertex> spliterator = this.pages();
+        Stream<Vertex> stream = StreamSupport.stream(spliterator, false);
+        try (Stream<Vertex> closeable = stream.onClose(spliterator::close)) {
+            Assert.assertEquals(0, closeable.findFirst().get().id());
+        }
+        Assert.assertFalse(spliterator.tryAdvance(v -> {}));
+        Assert.assertEquals(1, this.fetched.get());
+    }
+
+    @Test
+    public void testPageSpliteratorCloseWhileTraversing() {
+        PageSpliterator<Vertex> spliterator = this.pages();
+        // Closed by the action while the current page is being read
+        Assert.assertTrue(spliterator.tryAdvance(v -> spliterator.close()));
+        Assert.assertFalse(spliterator.tryAdvance(v -> {}));
+        Assert.assertNull(spliterator.trySplit());
+        Assert.assertEquals(1, this.fetched.get());
+    }
+
+    @Test
+    public void testShardSpliterator() {
+        List<Shard> shards = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            shards.add(new Shard(String.valueOf(i), String.valueOf(i + 1), 2));
+        }
+        ShardSpliterator<Vertex> spliterator = new ShardSpliterator<>(
+                                               this.manager, shards, shard -> {
+            this.fetched.incrementAndGet();
+            int start = Integer.parseInt(shard.start());
+            return ImmutableList.of(vertex(start * 2), vertex(start * 2 + 1));
+        });
+        Assert.assertEquals(8, spliterator.estimateSize());
+
+        Spliterator<Vertex> prefix = spliterator.trySplit();
+        Assert.assertEquals(4, prefix.estimateSize());
+        Assert.assertEquals(4, spliterator.estimateSize());
+        Assert.assertEquals(0, this.fetched.get());
+
+        Stream<Vertex> stream = StreamSupport.stream(spliterator, true);
+        Assert.assertEquals(ImmutableList.of(4, 5, 6, 7),
+                            stream.map(Vertex::id).sorted()
+                                  .collect(Collectors.toList()));
+        Assert.assertEquals(2, this.fetched.get());
+    }
+
+    private PageSpliterator<Vertex> pages() {
+        return new PageSpliterator<>(this.manager, page -> {
+            int index = PAGES.get(page);
+            this.fetched.incrementAndGet();
+            List<Vertex> vertices = ImmutableList.of(vertex(index * 3),
+                                                     vertex(index * 3 + 1),
+                                                     vertex(index * 3 + 2));
+            String next = index < 2 ? "p" + (index + 1) : null;
+            return new Vertices(vertices, next);
+        });
+    }
+
+    private static Vertex vertex(int id) {
+        Vertex vertex = new Vertex("person");
+        vertex.id(id);
+        return vertex;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.baidu.hugegraph.unit;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.baidu.hugegraph.api.gremlin.GremlinRequest;
+import com.baidu.hugegraph.client.RestClient;
+import com.baidu.hugegraph.driver.GremlinManager;
+import com.baidu.hugegraph.driver.PreparedGremlin;
+import com.baidu.hugegraph.rest.RestResult;
+import com.baidu.hugegraph.structure.constant.Direction;
+import com.baidu.hugegraph.structure.graph.Vertex;
+import com.baidu.hugegraph.structure.gremlin.Response;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+public class GremlinBindingTest {
+
+    private List<GremlinRequest> requests;
+    private GremlinManager gremlin;
+
+    @Before
+    public void setup() {
+        this.requests = new ArrayList<>();
+        RestClient client = Mockito.mock(RestClient.class);
+        Mockito.when(client.post(Mockito.anyString(), Mockito.any()))
+               .thenAnswer(invocation -> {
+            this.requests.add(invocation.getArgument(1));
+            RestResult result = Mockito.mock(RestResult.class);
+            Mockito.when(result.readObject(Response.class))
+                   .thenReturn(new Response());
+            return result;
+        });
+        this.gremlin = new GremlinManager(client, "hugegraph");
+    }
+
+    @Test
+    public void testTypedBindings() {
+        Vertex marko = new Vertex("person");
+        marko.id("person:marko");
+
+        this.gremlin.gremlin("g.V(id).has('age', gt(age))")
+                    .binding("id", marko)
+                    .binding("age", 29)
+                    .binding("ids", ImmutableList.of(1L, marko))
+                    .binding("props", ImmutableMap.of("date", new Date(10L)))
+                    .binding("direction", Direction.OUT)
+                    .binding("names", new String[]{"marko", "josh"})
+                    .execute();
+
+        GremlinRequest request = this.requests.get(0);
+        Assert.assertEquals("person:marko", request.bindings.get("id"));
+        Assert.assertEquals(29, request.bindings.get("age"));
+        Assert.assertEquals(ImmutableList.of(1L, "person:marko"),
+                            request.bindings.get("ids"));
+        Assert.assertEquals(ImmutableMap.of("date", 10L),
+                            request.bindings.get("props"));
+        Assert.assertEquals("OUT", request.bindings.get("direction"));
+        Assert.assertEquals(ImmutableList.of("marko", "josh"),
+                            request.bindings.get("names"));
+    }
+
+    @Test
+    public void testInvalidBindings() {
+        GremlinRequest.Builder builder = this.gremlin.gremlin("g.V(id)");
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            builder.binding("a-b", 1);
+        });
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            builder.binding("1a", 1);
+        });
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            builder.binding(null, 1);
+        });
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            builder.binding("id", null);
+        });
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            builder.binding("id", new Object());
+        });
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            builder.binding("id", new Vertex("person"));
+        });
+    }
+
+    @Test
+    public void testPreparedGremlin() {
+        PreparedGremlin prepared = this.gremlin.prepare(
+                                   "g.V(id).out().limit(n)");
+        for (int i = 0; i < 5; i++) {
+            prepared.executeWith("id", i, "n", 10);
+        }
+        prepared.execute(ImmutableMap.of("id", "person:marko", "n", 1));
+
+        Assert.assertEquals(6L, prepared.executions());
+        Assert.assertEquals(6, this.requests.size());
+        for (GremlinRequest request : this.requests) {
+            Assert.assertEquals("g.V(id).out().limit(n)", request.gremlin);
+        }
+        Assert.assertEquals(4, this.requests.get(4).bindings.get("id"));
+        Assert.assertEquals("person:marko",
+                            this.requests.get(5).bindings.get("id"));
+
+        // Only the first execution brings a new script to server
+        CacheStats stats = this.gremlin.scriptStats();
+        Assert.assertEquals(5L, stats.hitCount());
+        Assert.assertEquals(1L, stats.missCount());
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            prepared.executeWith("id");
+        });
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            this.gremlin.prepare("");
+        });
+    }
+
+    @Test
+    public void testScriptStatsWithConcatenatedScripts() {
+        for (int i = 0; i < 3; i++) {
+            this.gremlin.gremlin("g.V(" + i + ")").execute();
+        }
+        this.gremlin.gremlin("g.V(0)").execute();
+
+        CacheStats stats = this.gremlin.scriptStats();
+        Assert.assertEquals(1L, stats.hitCount());
+        Assert.assertEquals(3L, stats.missCount());
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.baidu.hugegraph.unit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.baidu.hugegraph.api.gremlin.GremlinRequest;
+import com.baidu.hugegraph.client.RestClient;
+import com.baidu.hugegraph.driver.GremlinManager;
+import com.baidu.hugegraph.driver.PagedResultIterator;
+import com.baidu.hugegraph.rest.RestResult;
+import com.baidu.hugegraph.serializer.ResultIterator;
+import com.baidu.hugegraph.structure.graph.Vertex;
+import com.baidu.hugegraph.structure.gremlin.Result;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.collect.ImmutableList;
+
+public class GremlinStreamTest {
+
+    private RestClient client;
+    private GremlinManager gremlin;
+    private List<GremlinRequest> requests;
+    private int total;
+
+    @Before
+    public void setup() {
+        this.requests = new ArrayList<>();
+        this.total = 0;
+        this.client = Mockito.mock(RestClient.class);
+        Mockito.when(this.client.post(Mockito.anyString(), Mockito.any()))
+               .thenAnswer(invocation -> {
+            GremlinRequest request = invocation.getArgument(1);
+            this.requests.add(request);
+            long from = (long) request.bindings.get("__range_from");
+            long to = Math.min((long) request.bindings.get("__range_to"),
+                               this.total);
+            List<Object> rows = new ArrayList<>();
+            for (long i = from; i < to; i++) {
+                rows.add(i);
+            }
+            return mockResult(response(rows.toString()));
+        });
+        this.gremlin = new GremlinManager(this.client, "hugegraph");
+    }
+
+    @Test
+    public void testExecuteStream() {
+        String data = "[{\"id\": \"person:marko\", \"label\": \"person\","
+                      + "\"type\": \"vertex\", \"properties\": {}},"
+                      + "null, 29, \"marko\"]";
+        RestResult result = mockResult(response(data));
+        Mockito.doReturn(result).when(this.client)
+               .post(Mockito.anyString(), Mockito.any());
+
+        ResultIterator results = this.gremlin.gremlin("g.V()")
+                                             .executeStream();
+        Assert.assertTrue(results.hasNext());
+        Assert.assertTrue(results.hasNext());
+        Result vertex = results.next();
+        Assert.assertEquals(Vertex.class, vertex.getObject().getClass());
+        Assert.assertEquals("person:marko", vertex.getVertex().id());
+        Assert.assertNull(results.next());
+        Assert.assertEquals(29, results.next().getInt());
+        Assert.assertEquals("marko", results.next().getString());
+        Assert.assertFalse(results.hasNext());
+        Assert.assertEquals(4L, results.count());
+        Assert.assertThrows(NoSuchElementException.class, results::next);
+    }
+
+    @Test
+    public void testExecuteStreamWithNullData() {
+        RestResult result = mockResult(response("null"));
+        Mockito.doReturn(result).when(this.client)
+               .post(Mockito.anyString(), Mockito.any());
+
+        ResultIterator results = this.gremlin.gremlin("g.V()")
+                                             .executeStream();
+        Assert.assertFalse(results.hasNext());
+    }
+
+    @Test
+    public void testExecuteStreamAndClose() {
+        RestResult result = mockResult(response("[1, 2, 3]"));
+        Mockito.doReturn(result).when(this.client)
+               .post(Mockito.anyString(), Mockito.any());
+
+        ResultIterator results = this.gremlin.gremlin("g.V()")
+                                             .executeStream();
+        Assert.assertEquals(1, results.next().getInt());
+        results.close();
+        Assert.assertFalse(results.hasNext());
+    }
+
+    @Test
+    public void testExecutePaged() {
+        this.total = 23;
+        PagedResultIterator results = this.gremlin.gremlin("g.V().id() ")
+                                                  .executePaged(10);
+        // No page is fetched until the rows are consumed
+        Assert.assertEquals(0, results.pages());
+
+        List<Long> values = new ArrayList<>();
+        while (results.hasNext()) {
+            values.add(results.next().getLong());
+        }
+        Assert.assertEquals(23, values.size());
+        for (int i = 0; i < values.size(); i++) {
+            Assert.assertEquals((long) i, (long) values.get(i));
+        }
+        Assert.assertEquals(3, results.pages());
+
+        GremlinRequest last = this.requests.get(2);
+        Assert.assertEquals("g.V().id().range(__range_from, __range_to)",
+                            last.gremlin);
+        Assert.assertEquals(20L, last.bindings.get("__range_from"));
+        Assert.assertEquals(30L, last.bindings.get("__range_to"));
+        Assert.assertEquals("__g_hugegraph", last.aliases.get("g"));
+    }
+
+    @Test
+    public void testExecutePagedWithFullLastPage() {
+        this.total = 20;
+        PagedResultIterator results = this.gremlin.gremlin("g.V().id()")
+                                                  .executePaged(10);
+        int count = 0;
+        while (results.hasNext()) {
+            results.next();
+            count++;
+        }
+        Assert.assertEquals(20, count);
+        // The empty page tells there is no more row
+        Assert.assertEquals(3, results.pages());
+    }
+
+    @Test
+    public void testExecutePagedAndClose() {
+        this.total = 100;
+        PagedResultIterator results = this.gremlin.gremlin("g.V().id()")
+                                                  .executePaged(10);
+        Assert.assertEquals(0L, results.next().getLong());
+        results.close();
+        Assert.assertFalse(results.hasNext());
+        Assert.assertEquals(1, results.pages());
+    }
+
+    @Test
+    public void testExecutePagedWithInvalidPageSize() {
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            this.gremlin.gremlin("g.V()").executePaged(0);
+        });
+        Assert.assertEquals(ImmutableList.of(), this.requests);
+    }
+
+    private static String response(String data) {
+        return "{\"requestId\": \"c8d5a2f6-3a29-4a43-a3b1-0f1e9d0e6a52\","
+               + "\"status\": {\"message\": \"\", \"code\": 200,"
+               + "\"attributes\": {}},"
+               + "\"result\": {\"data\": " + data + ", \"meta\": {}}}";
+    }
+
+    private static RestResult mockResult(String content) {
+        RestResult result = Mockito.mock(RestResult.class);
+        Mockito.when(result.content()).thenReturn(content);
+        return result;
+    }
+}
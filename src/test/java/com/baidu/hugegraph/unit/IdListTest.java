@@ -0,0 +1,177 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.unit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.baidu.hugegraph.client.RestClient;
+import com.baidu.hugegraph.driver.GraphManager;
+import com.baidu.hugegraph.driver.TraverserManager;
+import com.baidu.hugegraph.rest.RestResult;
+import com.baidu.hugegraph.rest.SerializeException;
+import com.baidu.hugegraph.structure.constant.Direction;
+import com.baidu.hugegraph.structure.graph.IdList;
+import com.baidu.hugegraph.structure.graph.Vertex;
+import com.baidu.hugegraph.testutil.Assert;
+import com.baidu.hugegraph.util.JsonUtil;
+import com.google.common.collect.ImmutableList;
+
+public class IdListTest {
+
+    @Test
+    public void testParseNumericIds() {
+        IdList ids = IdList.parse("{\"vertices\": [1, 2, 8589934592]}",
+                                  "vertices");
+        Assert.assertTrue(ids.numeric());
+        Assert.assertEquals(3, ids.size());
+        Assert.assertEquals(8589934592L, ids.getLong(2));
+        Assert.assertEquals(ImmutableList.of(1L, 2L, 8589934592L), ids);
+        Assert.assertEquals("2", ids.getString(1));
+        Assert.assertThrows(UnsupportedOperationException.class, () -> {
+            ids.add(3L);
+        });
+    }
+
+    @Test
+    public void testParseStringIds() {
+        String json = "{\"size\": 2, \"vertices\": [\"1:marko\", \"2:lop\"]," +
+                      " \"other\": {\"vertices\": 1}}";
+        IdList ids = IdList.parse(json, "vertices");
+        Assert.assertFalse(ids.numeric());
+        Assert.assertEquals(ImmutableList.of("1:marko", "2:lop"), ids);
+        // The same ids are interned
+        IdList again = IdList.parse(json, "vertices");
+        Assert.assertSame(ids.getString(0), again.getString(0));
+        Assert.assertThrows(IllegalStateException.class, () -> {
+            ids.getLong(0);
+        }, e -> {
+            Assert.assertEquals("The ids are not all numeric",
+                                e.getMessage());
+        });
+    }
+
+    @Test
+    public void testParseMixedIds() {
+        IdList ids = IdList.parse("{\"vertices\": [1, \"1:marko\", 2]}",
+                                  "vertices");
+        Assert.assertFalse(ids.numeric());
+        Assert.assertEquals(ImmutableList.of(1L, "1:marko", 2L), ids);
+        Assert.assertTrue(ids.contains(2));
+        Assert.assertEquals(1, ids.indexOf("1:marko"));
+
+        ids = IdList.parse("{\"vertices\": []}", "vertices");
+        Assert.assertTrue(ids.isEmpty());
+    }
+
+    @Test
+    public void testParseInvalidJson() {
+        Assert.assertThrows(SerializeException.class, () -> {
+            IdList.parse("{\"paths\": []}", "vertices");
+        });
+        Assert.assertThrows(SerializeException.class, () -> {
+            IdList.parse("{\"vertices\": [1.5]}", "vertices");
+        });
+        Assert.assertThrows(SerializeException.class, () -> {
+            IdList.parse("[1, 2]", "vertices");
+        });
+    }
+
+    @Test
+    public void testOf() {
+        IdList ids = IdList.of(ImmutableList.of(1, 2L));
+        Assert.assertTrue(ids.numeric());
+        Assert.assertEquals(ImmutableList.of(1L, 2L), ids);
+        Assert.assertSame(ids, IdList.of(ids));
+        Assert.assertEquals(ImmutableList.of("a"), IdList.of("a"));
+        Assert.assertEquals(ImmutableList.of(7L), IdList.of(7L));
+    }
+
+    @Test
+    public void testContainsIntegerIds() {
+        // The numeric ids are Long, but they equal the Integer ids by value
+        IdList ids = IdList.of(ImmutableList.of(1, 2, 1));
+        Assert.assertEquals(1L, ids.get(0));
+        Assert.assertTrue(ids.contains(1));
+        Assert.assertTrue(ids.contains(2L));
+        Assert.assertTrue(ids.contains((short) 2));
+        Assert.assertFalse(ids.contains(3));
+        Assert.assertFalse(ids.contains("1"));
+        Assert.assertFalse(ids.contains(1.0D));
+        Assert.assertEquals(0, ids.indexOf(1));
+        Assert.assertEquals(2, ids.lastIndexOf(1));
+        Assert.assertEquals(-1, ids.indexOf(null));
+    }
+
+    @Test
+    public void testKoutIdsAndLazyVertices() {
+        RestClient client = Mockito.mock(RestClient.class);
+        AtomicInteger batches = new AtomicInteger(0);
+        Mockito.when(client.get(Mockito.anyString(), Mockito.anyMap()))
+               .thenAnswer(invocation -> {
+            Map<String, Object> params = invocation.getArgument(1);
+            RestResult result = Mockito.mock(RestResult.class);
+            Mockito.when(result.content())
+                   .thenReturn("{\"vertices\": [1, 2, 3, 4, 5]}");
+            if (params.containsKey("ids")) {
+                batches.incrementAndGet();
+                @SuppressWarnings("unchecked")
+                List<String> ids = (List<String>) params.get("ids");
+                List<Vertex> vertices = new ArrayList<>();
+                for (String id : ids) {
+                    // The vertex 4 doesn't exist
+                    if (!id.equals("4")) {
+                        Vertex vertex = new Vertex("person");
+                        vertex.id(JsonUtil.fromJson(id, Integer.class));
+                        vertices.add(vertex);
+                    }
+                }
+                Mockito.when(result.readList("vertices", Vertex.class))
+                       .thenReturn(vertices);
+            }
+            return result;
+        });
+        GraphManager graphManager = Mockito.mock(GraphManager.class);
+        TraverserManager traverser = new TraverserManager(client,
+                                                          graphManager);
+
+        IdList ids = traverser.koutIds(0L, Direction.OUT, null, 2, true,
+                                       -1L, -1L, -1L);
+        Assert.assertTrue(ids.numeric());
+        Assert.assertEquals(5, ids.size());
+
+        List<Vertex> vertices = traverser.lazyVertices(ids, 2);
+        Assert.assertEquals(5, vertices.size());
+        Assert.assertEquals(0, batches.get());
+        Assert.assertEquals(5, vertices.get(4).id());
+        Assert.assertEquals(1, batches.get());
+        Assert.assertNull(vertices.get(3));
+        Assert.assertEquals(3, vertices.get(2).id());
+        Assert.assertEquals(2, batches.get());
+        Assert.assertEquals(1, vertices.get(0).id());
+        vertices.get(1);
+        Assert.assertEquals(3, batches.get());
+    }
+}
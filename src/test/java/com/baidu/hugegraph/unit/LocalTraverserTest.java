@@ -0,0 +1,258 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.unit;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import com.baidu.hugegraph.algorithm.LocalTraverser;
+import com.baidu.hugegraph.client.RestClient;
+import com.baidu.hugegraph.driver.GraphManager;
+import com.baidu.hugegraph.driver.TraverserManager;
+import com.baidu.hugegraph.rest.RestResult;
+import com.baidu.hugegraph.structure.constant.Direction;
+import com.baidu.hugegraph.structure.graph.CsrGraph;
+import com.baidu.hugegraph.structure.graph.Edge;
+import com.baidu.hugegraph.structure.graph.Path;
+import com.baidu.hugegraph.structure.graph.Vertex;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+public class LocalTraverserTest {
+
+    private CsrGraph graph;
+    private LocalTraverser traverser;
+
+    @Before
+    public void setup() {
+        /*
+         * The vertex ids are the same as the indexes:
+         * 0 -a-> 1 -a-> 3 -a-> 4 -a-> 5, 0 -a-> 2 -a-> 3, 1 -b-> 5
+         */
+        this.graph = graph(6, new Object[][]{
+                {0, 1, "a"}, {0, 2, "a"}, {1, 3, "a"}, {2, 3, "a"},
+                {3, 4, "a"}, {4, 5, "a"}, {1, 5, "b"}
+        });
+        this.traverser = new LocalTraverser(this.graph);
+    }
+
+    @Test
+    public void testKout() {
+        Assert.assertEquals(ImmutableSet.of(3, 5),
+                            set(this.traverser.kout(0, Direction.OUT, null,
+                                                    2, true, -1L, -1L, -1L)));
+        Assert.assertEquals(ImmutableSet.of(3),
+                            set(this.traverser.kout(0, Direction.OUT, "a",
+                                                    2, true, -1L, -1L, -1L)));
+        Assert.assertEquals(ImmutableSet.of(4),
+                            set(this.traverser.kout(0, Direction.OUT, null,
+                                                    3, false, 2L, -1L, 1L)));
+        Assert.assertEquals(ImmutableSet.of(0),
+                            set(this.traverser.kout(3, Direction.IN, "a",
+                                                    2, true, 2L, 4L, 2L)));
+        Assert.assertEquals(ImmutableSet.of(),
+                            set(this.traverser.kout(0, Direction.OUT, "c",
+                                                    2, true, -1L, -1L, -1L)));
+    }
+
+    @Test
+    public void testKoutTruncated() {
+        // The vertex 0 has more edges than the degree
+        Assert.assertNull(this.traverser.kout(0, Direction.OUT, null, 2,
+                                              true, 1L, -1L, -1L));
+        // The server fails for capacity before reaching the depth
+        Assert.assertNull(this.traverser.kout(0, Direction.OUT, null, 2,
+                                              true, -1L, 3L, -1L));
+        // The last layer is truncated by limit
+        Assert.assertNull(this.traverser.kout(0, Direction.OUT, null, 2,
+                                              true, -1L, -1L, 1L));
+        Assert.assertEquals(ImmutableSet.of(3, 5),
+                            set(this.traverser.kout(0, Direction.OUT, null,
+                                                    2, true, 2L, 5L, 2L)));
+    }
+
+    @Test
+    public void testKneighbor() {
+        Assert.assertEquals(ImmutableSet.of(0, 1, 2, 3, 5),
+                            set(this.traverser.kneighbor(0, Direction.OUT,
+                                                         null, 2, -1L, -1L)));
+        Assert.assertEquals(ImmutableSet.of(0, 1, 2, 3),
+                            set(this.traverser.kneighbor(0, Direction.OUT,
+                                                         "a", 2, -1L, 4L)));
+        Assert.assertEquals(ImmutableSet.of(0, 1, 2, 3, 5),
+                            set(this.traverser.kneighbor(0, Direction.OUT,
+                                                         null, 2, 2L, 5L)));
+        Assert.assertNull(this.traverser.kneighbor(0, Direction.OUT, null,
+                                                   2, -1L, 4L));
+        Assert.assertNull(this.traverser.kneighbor(3, Direction.BOTH, null,
+                                                   1, 2L, -1L));
+    }
+
+    @Test
+    public void testKneighborIncludingSource() {
+        // The server returns the source even if nothing is reachable
+        Assert.assertEquals(ImmutableSet.of(0),
+                            set(this.traverser.kneighbor(0, Direction.IN,
+                                                         null, 2, -1L, -1L)));
+        Assert.assertEquals(ImmutableSet.of(1, 5),
+                            set(this.traverser.kneighbor(5, Direction.IN,
+                                                         "b", 1, -1L, -1L)));
+    }
+
+    @Test
+    public void testShortestPath() {
+        Path path = this.traverser.shortestPath(0, 5, Direction.OUT, null, 3,
+                                                -1L, -1L);
+        Assert.assertEquals(ImmutableList.of(0, 1, 5), path.objects());
+
+        path = this.traverser.shortestPath(5, 0, Direction.IN, null, 3,
+                                           -1L, -1L);
+        Assert.assertEquals(ImmutableList.of(5, 1, 0), path.objects());
+
+        // Not reachable within the depth
+        path = this.traverser.shortestPath(0, 4, Direction.OUT, "a", 2,
+                                           -1L, -1L);
+        Assert.assertEquals(ImmutableList.of(), path.objects());
+
+        // There are two shortest paths
+        Assert.assertNull(this.traverser.shortestPath(0, 3, Direction.OUT,
+                                                      null, 3, -1L, -1L));
+        Assert.assertNull(this.traverser.shortestPath(0, 5, Direction.OUT,
+                                                      null, 3, 1L, -1L));
+        Assert.assertNull(this.traverser.shortestPath(0, 5, Direction.OUT,
+                                                      null, 3, -1L, 4L));
+    }
+
+    @Test
+    public void testPaths() {
+        List<Path> paths = this.traverser.paths(0, 3, Direction.OUT, null, 3,
+                                                -1L, -1L, -1L);
+        Assert.assertEquals(ImmutableSet.of(ImmutableList.of(0, 1, 3),
+                                            ImmutableList.of(0, 2, 3)),
+                            objects(paths));
+
+        paths = this.traverser.paths(0, 5, Direction.OUT, null, 4,
+                                     -1L, -1L, 3L);
+        Assert.assertEquals(ImmutableSet.of(ImmutableList.of(0, 1, 5),
+                                            ImmutableList.of(0, 1, 3, 4, 5),
+                                            ImmutableList.of(0, 2, 3, 4, 5)),
+                            objects(paths));
+
+        paths = this.traverser.paths(0, 5, Direction.OUT, null, 3,
+                                     -1L, -1L, -1L);
+        Assert.assertEquals(ImmutableSet.of(ImmutableList.of(0, 1, 5)),
+                            objects(paths));
+
+        Assert.assertNull(this.traverser.paths(0, 5, Direction.OUT, null, 4,
+                                               -1L, -1L, 2L));
+    }
+
+    @Test
+    public void testCoverage() {
+        this.traverser.labels("a").maxDepth(2);
+        Assert.assertEquals(ImmutableSet.of(3),
+                            set(this.traverser.kout(0, Direction.OUT, "a",
+                                                    2, true, -1L, -1L, -1L)));
+        Assert.assertNull(this.traverser.kout(0, Direction.OUT, null, 2,
+                                              true, -1L, -1L, -1L));
+        Assert.assertNull(this.traverser.kout(0, Direction.OUT, "b", 2,
+                                              true, -1L, -1L, -1L));
+        Assert.assertNull(this.traverser.kout(0, Direction.OUT, "a", 3,
+                                              true, -1L, -1L, -1L));
+        Assert.assertNull(this.traverser.kout(9, Direction.OUT, "a", 2,
+                                              true, -1L, -1L, -1L));
+        Assert.assertEquals(1L, this.traverser.hits());
+        Assert.assertEquals(4L, this.traverser.misses());
+    }
+
+    @Test
+    public void testRouting() {
+        RestClient client = Mockito.mock(RestClient.class);
+        GraphManager graphManager = Mockito.mock(GraphManager.class);
+        Mockito.when(graphManager.graph()).thenReturn("hugegraph");
+        RestResult result = Mockito.mock(RestResult.class);
+        Mockito.when(result.readList("vertices", Object.class))
+               .thenReturn(ImmutableList.of(7));
+        Mockito.when(client.get(Mockito.anyString(), Mockito.anyMap()))
+               .thenReturn(result);
+
+        TraverserManager manager = new TraverserManager(client, graphManager);
+        manager.local(this.traverser);
+
+        Assert.assertEquals(ImmutableSet.of(3, 5),
+                            set(manager.kout(0, Direction.OUT, 2)));
+        Mockito.verify(client, Mockito.never())
+               .get(Mockito.anyString(), Mockito.anyMap());
+
+        // Fall back to server when truncated by limit
+        Assert.assertEquals(ImmutableList.of(7),
+                            manager.kout(0, Direction.OUT, null, 2, true,
+                                         -1L, 100L, 1L));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Object>> params =
+                ArgumentCaptor.forClass(Map.class);
+        Mockito.verify(client).get(Mockito.anyString(), params.capture());
+        Assert.assertEquals(100L, params.getValue().get("capacity"));
+        Assert.assertEquals(1L, params.getValue().get("limit"));
+    }
+
+    private static Set<Object> set(List<Object> ids) {
+        Assert.assertNotNull(ids);
+        return new HashSet<>(ids);
+    }
+
+    private static Set<List<Object>> objects(List<Path> paths) {
+        Assert.assertNotNull(paths);
+        Set<List<Object>> objects = new HashSet<>();
+        for (Path path : paths) {
+            objects.add(path.objects());
+        }
+        Assert.assertEquals(paths.size(), objects.size());
+        return objects;
+    }
+
+    private static CsrGraph graph(int vertices, Object[][] edges) {
+        List<Vertex> vertexList = new ArrayList<>(vertices);
+        for (int i = 0; i < vertices; i++) {
+            Vertex vertex = new Vertex("node");
+            vertex.id((long) i);
+            vertexList.add(vertex);
+        }
+        List<Edge> edgeList = new ArrayList<>(edges.length);
+        for (int i = 0; i < edges.length; i++) {
+            Object[] e = edges[i];
+            Edge edge = new Edge((String) e[2]);
+            edge.id("e" + i);
+            edge.source(((Integer) e[0]).longValue());
+            edge.target(((Integer) e[1]).longValue());
+            edgeList.add(edge);
+        }
+        return CsrGraph.of(vertexList, edgeList);
+    }
+}
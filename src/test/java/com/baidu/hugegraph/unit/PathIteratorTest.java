@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.unit;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+import com.baidu.hugegraph.exception.InvalidResponseException;
+import com.baidu.hugegraph.serializer.PathDeserializer;
+import com.baidu.hugegraph.serializer.PathIterator;
+import com.baidu.hugegraph.structure.graph.Path;
+import com.baidu.hugegraph.structure.graph.Vertex;
+import com.baidu.hugegraph.testutil.Assert;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+public class PathIteratorTest {
+
+    private static final String PATHS = "{\"size\": 3, \"paths\": [" +
+            "{\"objects\": [1, 2, 8589934592]}, " +
+            "{\"crosspoint\": \"2:lop\", \"objects\": [\"1:marko\", " +
+            "\"2:lop\"]}, " +
+            "{\"labels\": [[], [\"a\"]], \"objects\": [1.5, " +
+            "{\"city\": \"Beijing\", \"tags\": [true, null]}]}" +
+            "], \"paths_size\": 3}";
+
+    @Test
+    public void testIterate() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        SimpleModule module = new SimpleModule();
+        module.addDeserializer(Path.class, new PathDeserializer());
+        mapper.registerModule(module);
+        List<Path> expected = mapper.convertValue(
+                              mapper.readTree(PATHS).get("paths"),
+                              mapper.getTypeFactory().constructCollectionType(
+                              List.class, Path.class));
+
+        PathIterator paths = new PathIterator(PATHS, "paths");
+        for (Path path : expected) {
+            Assert.assertTrue(paths.hasNext());
+            Assert.assertEquals(path, paths.next());
+        }
+        Assert.assertFalse(paths.hasNext());
+        Assert.assertThrows(NoSuchElementException.class, () -> {
+            paths.next();
+        });
+
+        Assert.assertEquals(3, expected.size());
+        Assert.assertEquals(ImmutableList.of(1, 2, 8589934592L),
+                            expected.get(0).objects());
+        Assert.assertEquals("2:lop", expected.get(1).crosspoint());
+        Assert.assertEquals(ImmutableMap.of("city", "Beijing",
+                                            "tags", Arrays.asList(true, null)),
+                            expected.get(2).objects().get(1));
+    }
+
+    @Test
+    public void testIterateTypedObjects() {
+        String json = "{\"paths\": [{\"objects\": [{\"id\": \"1:marko\", " +
+                      "\"label\": \"person\", \"type\": \"vertex\", " +
+                      "\"properties\": {\"age\": [{\"id\": \"age\", " +
+                      "\"value\": 29}]}}]}]}";
+        PathIterator paths = new PathIterator(json, "paths");
+        Path path = paths.next();
+        Vertex vertex = (Vertex) path.objects().get(0);
+        Assert.assertEquals("1:marko", vertex.id());
+        Assert.assertEquals(29, vertex.property("age"));
+        Assert.assertFalse(paths.hasNext());
+    }
+
+    @Test
+    public void testIterateInvalidResponse() {
+        Assert.assertThrows(InvalidResponseException.class, () -> {
+            new PathIterator("{\"crosspoints\": []}", "paths");
+        });
+        PathIterator paths = new PathIterator("{\"paths\": [{\"labels\": " +
+                                              "[]}]}", "paths");
+        Assert.assertThrows(InvalidResponseException.class, () -> {
+            paths.hasNext();
+        });
+        Assert.assertFalse(new PathIterator("{\"paths\": []}", "paths")
+                           .hasNext());
+    }
+}
@@ -19,13 +19,19 @@
 
 package com.baidu.hugegraph.unit;
 
+import java.io.IOException;
+
 import org.junit.Test;
 
+import com.baidu.hugegraph.exception.InvalidResponseException;
+import com.baidu.hugegraph.serializer.PathDeserializer;
 import com.baidu.hugegraph.structure.graph.Edge;
 import com.baidu.hugegraph.structure.graph.Path;
 import com.baidu.hugegraph.structure.graph.Vertex;
 import com.baidu.hugegraph.testutil.Assert;
 import com.baidu.hugegraph.testutil.Utils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.google.common.collect.ImmutableList;
 
 public class PathSerializerTest extends BaseUnitTest {
@@ -47,11 +53,10 @@ public class PathSerializerTest extends BaseUnitTest {
         edge.property("date", "20160110");
         edge.property("weight", 0.5);
 
-        Path path = new Path();
-        path.labels(ImmutableList.of());
-        path.labels(ImmutableList.of());
-        path.objects(vertex);
-        path.objects(edge);
+        Path path = Path.builder()
+                        .labels(ImmutableList.of(), ImmutableList.of())
+                        .objects(vertex, edge)
+                        .build();
 
         String json = serialize(path);
         Path pathCopy = deserialize(json, Path.class);
@@ -128,4 +133,66 @@ public class PathSerializerTest extends BaseUnitTest {
                                  ImmutableList.of("Wuhan", "Hongkong")},
                                  path.objects().toArray());
     }
+
+    @Test
+    public void testDeserializePathWithPathDeserializer() throws IOException {
+        String json = "{"
+                + "\"labels\":[[], [\"b\"]],"
+                + "\"objects\":["
+                + "{\"id\": \"1:marko\", \"label\": \"person\","
+                + " \"type\": \"vertex\", \"properties\": {\"age\":"
+                + " [{\"id\": \"1:marko>age\", \"value\": 29}]}},"
+                + "{\"id\": \"S1:marko>1>>S2:lop\", \"label\": \"created\","
+                + " \"type\": \"edge\", \"outV\": \"1:marko\","
+                + " \"outVLabel\": \"person\", \"inV\": \"2:lop\","
+                + " \"inVLabel\": \"software\","
+                + " \"properties\": {\"weight\": 0.4}}"
+                + "],"
+                + "\"crosspoint\": \"2:lop\""
+                + "}";
+
+        ObjectMapper mapper = new ObjectMapper();
+        SimpleModule module = new SimpleModule();
+        module.addDeserializer(Path.class, new PathDeserializer());
+        mapper.registerModule(module);
+        Path path = mapper.readValue(json, Path.class);
+
+        Assert.assertEquals(ImmutableList.of(ImmutableList.of(),
+                                             ImmutableList.of("b")),
+                            path.labels());
+        Assert.assertEquals("2:lop", path.crosspoint());
+        Vertex vertex = (Vertex) path.objects().get(0);
+        Assert.assertEquals("1:marko", vertex.id());
+        Assert.assertEquals("person", vertex.label());
+        Assert.assertEquals(29, vertex.property("age"));
+        Edge edge = (Edge) path.objects().get(1);
+        Assert.assertEquals("S1:marko>1>>S2:lop", edge.id());
+        Assert.assertEquals("1:marko", edge.source());
+        Assert.assertEquals("software", edge.targetLabel());
+        Assert.assertEquals(0.4, edge.property("weight"));
+
+        Assert.assertThrows(InvalidResponseException.class, () -> {
+            mapper.readValue("{\"labels\": []}", Path.class);
+        });
+        Assert.assertThrows(InvalidResponseException.class, () -> {
+            mapper.readValue("{\"objects\": [{\"type\": \"vertex\", " +
+                             "\"label\": \"person\"}]}", Path.class);
+        });
+    }
+
+    @Test
+    public void testPathImmutable() {
+        Path path = Path.builder().objects("marko", "lop")
+                        .crosspoint("lop").build();
+        Assert.assertEquals(new Path("lop", ImmutableList.of("marko", "lop")),
+                            path);
+        Assert.assertEquals(new Path("lop", ImmutableList.of("marko", "lop"))
+                            .hashCode(), path.hashCode());
+        Assert.assertThrows(UnsupportedOperationException.class, () -> {
+            path.objects().add("josh");
+        });
+        Assert.assertThrows(UnsupportedOperationException.class, () -> {
+            path.labels().add("a");
+        });
+    }
 }
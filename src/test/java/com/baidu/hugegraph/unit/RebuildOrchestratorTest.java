@@ -0,0 +1,255 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.baidu.hugegraph.unit;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.baidu.hugegraph.api.task.TaskAPI;
+import com.baidu.hugegraph.driver.JobManager;
+import com.baidu.hugegraph.driver.RebuildOrchestrator;
+import com.baidu.hugegraph.driver.SchemaManager;
+import com.baidu.hugegraph.driver.TaskManager;
+import com.baidu.hugegraph.driver.TaskWatcher;
+import com.baidu.hugegraph.rest.ClientException;
+import com.baidu.hugegraph.structure.Task;
+import com.baidu.hugegraph.structure.schema.EdgeLabel;
+import com.baidu.hugegraph.structure.schema.IndexLabel;
+import com.baidu.hugegraph.structure.schema.PropertyKey;
+import com.baidu.hugegraph.structure.schema.VertexLabel;
+import com.baidu.hugegraph.testutil.Assert;
+import com.baidu.hugegraph.util.JsonUtil;
+import com.google.common.collect.ImmutableList;
+
+public class RebuildOrchestratorTest extends BaseUnitTest {
+
+    private SchemaManager schema;
+    private JobManager job;
+    private TaskManager task;
+
+    private AtomicInteger nextId;
+    // The index label and the count of polls before completion of tasks
+    private Map<Long, String> tasks;
+    private Map<Long, AtomicInteger> remains;
+    private List<String> submitted;
+    private AtomicInteger maxRunning;
+
+    @Before
+    public void setup() {
+        this.nextId = new AtomicInteger(0);
+        this.tasks = new ConcurrentHashMap<>();
+        this.remains = new ConcurrentHashMap<>();
+        this.submitted = new ArrayList<>();
+        this.maxRunning = new AtomicInteger(0);
+
+        this.schema = Mockito.mock(SchemaManager.class);
+        Mockito.when(this.schema.getIndexLabels()).thenReturn(ImmutableList.of(
+                indexLabel("personByName", "VERTEX_LABEL", "person"),
+                indexLabel("personByAge", "VERTEX_LABEL", "person"),
+                indexLabel("softwareByLang", "VERTEX_LABEL", "software"),
+                indexLabel("knowsByDate", "EDGE_LABEL", "knows"),
+                indexLabel("personEdgeByDate", "EDGE_LABEL", "person")));
+
+        this.job = Mockito.mock(JobManager.class);
+        Mockito.when(this.job.rebuild(Mockito.any(IndexLabel.class)))
+               .thenAnswer(invocation -> {
+            IndexLabel indexLabel = invocation.getArgument(0);
+            if (indexLabel.name().equals("broken")) {
+                throw new ClientException("Index label is broken");
+            }
+            long id = this.nextId.incrementAndGet();
+            this.tasks.put(id, indexLabel.name());
+            this.remains.put(id, new AtomicInteger(3));
+            this.submitted.add(indexLabel.name());
+            this.maxRunning.accumulateAndGet(this.remains.size(), Math::max);
+            return id;
+        });
+
+        TaskAPI taskAPI = Mockito.mock(TaskAPI.class);
+        Mockito.when(taskAPI.list(Mockito.anyList()))
+               .thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            List<Task> results = new ArrayList<>();
+            for (long id : ids) {
+                AtomicInteger remain = this.remains.get(id);
+                String status = "running";
+                int left = remain == null ? 0 : remain.decrementAndGet();
+                if (left <= 0) {
+                    this.remains.remove(id);
+                    status = this.tasks.get(id).equals("failing") ?
+                             "failed" : "success";
+                }
+                // Each poll rebuilds 40 elements in 1 second
+                int polls = 3 - Math.max(left, 0);
+                results.add(task(id, status, Task.P.PROGRESS, polls * 40,
+                                 Task.P.CREATE, 1000L,
+                                 Task.P.UPDATE, 1000L + polls * 1000L));
+            }
+            return results;
+        });
+        this.task = Mockito.mock(TaskManager.class);
+        Mockito.when(this.task.watcher()).thenAnswer(invocation -> {
+            return new TaskWatcher(taskAPI, 1L, 5L);
+        });
+    }
+
+    @Test
+    public void testIndexLabels() {
+        RebuildOrchestrator orchestrator = new RebuildOrchestrator(
+                                           this.schema, this.job, this.task);
+        List<IndexLabel> indexLabels = orchestrator.indexLabels(
+                ImmutableList.of(new VertexLabel("person"),
+                                 new EdgeLabel("knows"),
+                                 indexLabel("personByAge", "VERTEX_LABEL",
+                                            "person"),
+                                 indexLabel("other", "VERTEX_LABEL",
+                                            "other")));
+        Assert.assertEquals(ImmutableList.of("personByName", "personByAge",
+                                             "knowsByDate", "other"),
+                            names(indexLabels));
+        // The index labels are listed once
+        Mockito.verify(this.schema, Mockito.times(1)).getIndexLabels();
+
+        orchestrator.priority(Comparator.comparing(IndexLabel::name));
+        indexLabels = orchestrator.indexLabels(ImmutableList.of(
+                                               new VertexLabel("person")));
+        Assert.assertEquals(ImmutableList.of("personByAge", "personByName"),
+                            names(indexLabels));
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            PropertyKey propertyKey = new PropertyKey("name");
+            orchestrator.indexLabels(ImmutableList.of(propertyKey));
+        });
+    }
+
+    @Test
+    public void testRebuildWithConcurrency() {
+        List<String> reports = new ArrayList<>();
+        RebuildOrchestrator orchestrator = new RebuildOrchestrator(
+                                           this.schema, this.job, this.task)
+                                           .concurrency(2)
+                                           .listener(report -> {
+            reports.add(report.completed() + "/" + report.total());
+        });
+        RebuildOrchestrator.Report report = orchestrator.rebuild(
+                ImmutableList.of(new VertexLabel("person"),
+                                 new VertexLabel("software"),
+                                 new EdgeLabel("knows"),
+                                 new EdgeLabel("person")));
+
+        Assert.assertEquals(5, report.total());
+        Assert.assertEquals(5, report.succeed().size());
+        Assert.assertEquals(0, report.pending());
+        Assert.assertEquals(ImmutableList.of("personByName", "personByAge",
+                                             "softwareByLang", "knowsByDate",
+                                             "personEdgeByDate"),
+                            this.submitted);
+        Assert.assertEquals(2, this.maxRunning.get());
+        Assert.assertEquals(ImmutableList.of("1/5", "2/5", "3/5", "4/5",
+                                             "5/5"), reports);
+        Assert.assertEquals(5, report.tracker().progresses().size());
+        // The expected counts are unknown
+        Assert.assertEquals(-1L, report.expected());
+        Assert.assertEquals(600L, report.progress());
+    }
+
+    @Test
+    public void testRebuildWithEta() {
+        List<Long> etas = new ArrayList<>();
+        RebuildOrchestrator orchestrator = new RebuildOrchestrator(
+                                           this.schema, this.job, this.task)
+                                           .concurrency(1)
+                                           .expected(indexLabel -> 120L)
+                                           .listener(report -> {
+            etas.add(report.eta());
+        });
+        List<VertexLabel> labels = ImmutableList.of(
+                                   new VertexLabel("person"),
+                                   new VertexLabel("software"));
+        RebuildOrchestrator.Report report = orchestrator.rebuild(labels);
+
+        // The remaining index labels are rebuilt at 40 elements per second
+        Assert.assertEquals(ImmutableList.of(6000L, 3000L, 0L), etas);
+        Assert.assertEquals(360L, report.expected());
+        Assert.assertEquals(360L, report.progress());
+        Assert.assertEquals(3, report.tracker().progresses().size());
+
+        // Each rebuild has its own tracker
+        RebuildOrchestrator.Report again = orchestrator.rebuild(labels);
+        Assert.assertNotSame(report.tracker(), again.tracker());
+        Assert.assertEquals(3, again.tracker().progresses().size());
+        Assert.assertEquals(360L, again.progress());
+    }
+
+    @Test
+    public void testRebuildWithFailures() {
+        RebuildOrchestrator orchestrator = new RebuildOrchestrator(
+                                           this.schema, this.job, this.task)
+                                           .concurrency(4);
+        RebuildOrchestrator.Report report = orchestrator.rebuild(
+                ImmutableList.of(indexLabel("failing", "VERTEX_LABEL", "a"),
+                                 indexLabel("broken", "VERTEX_LABEL", "a"),
+                                 indexLabel("fine", "VERTEX_LABEL", "a")));
+
+        Assert.assertEquals(3, report.total());
+        Assert.assertEquals(ImmutableList.of("fine"),
+                            new ArrayList<>(report.succeed().keySet()));
+        Assert.assertEquals(2, report.failures().size());
+        Assert.assertEquals("Index label is broken",
+                            report.failures().get("broken").getMessage());
+        Assert.assertEquals("Task '1' is 'failed', result is 'null'",
+                            report.failures().get("failing").getMessage());
+    }
+
+    @Test
+    public void testInvalidOptions() {
+        RebuildOrchestrator orchestrator = new RebuildOrchestrator(
+                                           this.schema, this.job, this.task);
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            orchestrator.concurrency(0);
+        });
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            orchestrator.timeout(0L);
+        });
+    }
+
+    private static List<String> names(List<IndexLabel> indexLabels) {
+        List<String> names = new ArrayList<>();
+        for (IndexLabel indexLabel : indexLabels) {
+            names.add(indexLabel.name());
+        }
+        return names;
+    }
+
+    private static IndexLabel indexLabel(String name, String baseType,
+                                         String baseValue) {
+        String json = String.format("{\"name\": \"%s\", \"base_type\": " +
+                                    "\"%s\", \"base_value\": \"%s\"}",
+                                    name, baseType, baseValue);
+        return JsonUtil.fromJson(json, IndexLabel.class);
+    }
+}
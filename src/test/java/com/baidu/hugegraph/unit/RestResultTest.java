@@ -1078,4 +1078,115 @@ public class RestResultTest {
         result = results.next();
         Assert.assertEquals(null, result);
     }
+
+    @Test
+    public void testReadGremlinMixedResultsOnce() {
+        String json = "{"
+                + "\"requestId\": \"b1b3b9c2-2f4a-4a3e-9a51-7e3a0c9d2f10\","
+                + "\"status\": {"
+                + "\"message\": \"\","
+                + "\"code\": 200,"
+                + "\"attributes\": {}"
+                + "},"
+                + "\"result\": {"
+                + "\"data\": ["
+                + "{"
+                + "\"id\": \"person:marko\","
+                + "\"label\": \"person\","
+                + "\"type\": \"vertex\","
+                + "\"properties\": {"
+                + "\"name\": [{\"id\": \"person:marko>name\","
+                + "\"value\": \"marko\"}]"
+                + "}"
+                + "},"
+                + "{"
+                + "\"labels\": [[], []],"
+                + "\"objects\": ["
+                + "{"
+                + "\"id\": \"person:marko\","
+                + "\"label\": \"person\","
+                + "\"type\": \"vertex\","
+                + "\"properties\": {}"
+                + "},"
+                + "\"lop\""
+                + "]"
+                + "},"
+                + "{\"name\": \"marko\", \"age\": 29},"
+                + "29,"
+                + "\"marko\""
+                + "],"
+                + "\"meta\": {}"
+                + "}"
+                + "}";
+
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(200);
+        Mockito.when(this.mockResponse.getHeaders()).thenReturn(null);
+        Mockito.when(this.mockResponse.readEntity(String.class))
+               .thenReturn(json);
+        RestResult restResult = new RestResult(this.mockResponse);
+
+        Response response = restResult.readObject(Response.class);
+        Assert.assertEquals(200, response.status().code());
+
+        List<Object> data = response.result().data();
+        Assert.assertEquals(5, data.size());
+        Assert.assertEquals(Vertex.class, data.get(0).getClass());
+        Assert.assertEquals(Path.class, data.get(1).getClass());
+        Assert.assertEquals(ImmutableMap.of("name", "marko", "age", 29),
+                            data.get(2));
+        Assert.assertEquals(29, data.get(3));
+        Assert.assertEquals("marko", data.get(4));
+
+        Vertex marko = response.result().get(0).getVertex();
+        Assert.assertEquals("person:marko", marko.id());
+        Assert.assertEquals("marko", marko.property("name"));
+
+        Path path = response.result().get(1).getPath();
+        Assert.assertEquals(2, path.objects().size());
+        Assert.assertEquals(Vertex.class, path.objects().get(0).getClass());
+        Assert.assertEquals("lop", path.objects().get(1));
+
+        // The decoded results are reused by repeated access and iteration
+        Result first = response.result().get(0);
+        Assert.assertTrue(first == response.result().get(0));
+        Assert.assertTrue(first.getObject() == data.get(0));
+        Assert.assertTrue(first == response.result().iterator().next());
+    }
+
+    @Test
+    public void testReadGremlinMapWithLabels() {
+        String json = "{"
+                + "\"requestId\": \"b1b3b9c2-2f4a-4a3e-9a51-7e3a0c9d2f11\","
+                + "\"status\": {"
+                + "\"message\": \"\","
+                + "\"code\": 200,"
+                + "\"attributes\": {}"
+                + "},"
+                + "\"result\": {"
+                + "\"data\": ["
+                + "{\"labels\": \"person\", \"objects\": []},"
+                + "{\"labels\": [\"person\"], \"count\": 2}"
+                + "],"
+                + "\"meta\": {}"
+                + "}"
+                + "}";
+
+        Mockito.when(this.mockResponse.getStatus()).thenReturn(200);
+        Mockito.when(this.mockResponse.getHeaders()).thenReturn(null);
+        Mockito.when(this.mockResponse.readEntity(String.class))
+               .thenReturn(json);
+        RestResult restResult = new RestResult(this.mockResponse);
+
+        // The maps are not paths unless both labels and objects are lists
+        Response response = restResult.readObject(Response.class);
+        List<Object> data = response.result().data();
+        Assert.assertEquals(2, data.size());
+        Assert.assertEquals(ImmutableMap.of("labels", "person",
+                                            "objects", ImmutableList.of()),
+                            data.get(0));
+        Assert.assertEquals(ImmutableMap.of("labels",
+                                            ImmutableList.of("person"),
+                                            "count", 2),
+                            data.get(1));
+    }
 }
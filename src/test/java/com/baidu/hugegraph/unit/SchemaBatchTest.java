@@ -0,0 +1,189 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.baidu.hugegraph.unit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.stubbing.Answer;
+
+import com.baidu.hugegraph.driver.SchemaBatch;
+import com.baidu.hugegraph.driver.SchemaManager;
+import com.baidu.hugegraph.rest.ClientException;
+import com.baidu.hugegraph.structure.SchemaElement;
+import com.baidu.hugegraph.structure.schema.EdgeLabel;
+import com.baidu.hugegraph.structure.schema.IndexLabel;
+import com.baidu.hugegraph.structure.schema.PropertyKey;
+import com.baidu.hugegraph.structure.schema.VertexLabel;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.collect.ImmutableList;
+
+public class SchemaBatchTest {
+
+    private SchemaManager manager;
+    private List<String> created;
+    private AtomicInteger running;
+    private AtomicInteger maxRunning;
+
+    @Before
+    public void setup() {
+        this.created = Collections.synchronizedList(new ArrayList<>());
+        this.running = new AtomicInteger(0);
+        this.maxRunning = new AtomicInteger(0);
+        this.manager = Mockito.mock(SchemaManager.class);
+
+        Answer<Object> create = invocation -> {
+            SchemaElement element = invocation.getArgument(0);
+            int running = this.running.incrementAndGet();
+            this.maxRunning.accumulateAndGet(running, Math::max);
+            try {
+                Thread.sleep(20L);
+                if (element.name().equals("broken")) {
+                    throw new ClientException("Invalid '%s'", element.name());
+                }
+                this.created.add(element.name());
+                return element;
+            } finally {
+                this.running.decrementAndGet();
+            }
+        };
+        Mockito.when(this.manager.addPropertyKey(Mockito.any()))
+               .thenAnswer(create);
+        Mockito.when(this.manager.addVertexLabel(Mockito.any()))
+               .thenAnswer(create);
+        Mockito.when(this.manager.addEdgeLabel(Mockito.any()))
+               .thenAnswer(create);
+        Mockito.when(this.manager.addIndexLabel(Mockito.any()))
+               .thenAnswer(create);
+
+        PropertyKey name = new PropertyKey.BuilderImpl("name", this.manager)
+                                          .asText().build();
+        PropertyKey age = new PropertyKey.BuilderImpl("age", this.manager)
+                                         .asText().build();
+        Mockito.when(this.manager.getPropertyKeys())
+               .thenReturn(ImmutableList.of(name, age));
+        Mockito.when(this.manager.getVertexLabels())
+               .thenReturn(ImmutableList.of());
+        Mockito.when(this.manager.getEdgeLabels())
+               .thenReturn(ImmutableList.of());
+        Mockito.when(this.manager.getIndexLabels())
+               .thenReturn(ImmutableList.of());
+    }
+
+    @Test
+    public void testApply() {
+        SchemaBatch batch = new SchemaBatch(this.manager).parallelism(4);
+        // Add in reverse order of dependencies
+        batch.add(new IndexLabel.BuilderImpl("personByCity", this.manager)
+                                .onV("person").by("city"));
+        batch.add(new EdgeLabel.BuilderImpl("knows", this.manager)
+                               .link("person", "person").properties("date"));
+        batch.add(new VertexLabel.BuilderImpl("person", this.manager)
+                                 .properties("name", "city"));
+        batch.add(new VertexLabel.BuilderImpl("software", this.manager)
+                                 .properties("lang"));
+        for (String key : ImmutableList.of("city", "date", "lang", "price")) {
+            batch.add(new PropertyKey.BuilderImpl(key, this.manager)
+                                     .asText());
+        }
+        // Identical to the existing one
+        batch.add(new PropertyKey.BuilderImpl("name", this.manager).asText());
+        Assert.assertEquals(9, batch.size());
+
+        SchemaBatch.Report report = batch.apply();
+        Assert.assertTrue(report.success());
+        Assert.assertEquals(8, report.created().size());
+        Assert.assertEquals(1, report.skipped().size());
+        Assert.assertEquals("name", report.skipped().get(0).name());
+
+        assertBefore("city", "person");
+        assertBefore("lang", "software");
+        assertBefore("date", "knows");
+        assertBefore("person", "knows");
+        assertBefore("person", "personByCity");
+        assertBefore("city", "personByCity");
+        // The independent elements are created in parallel
+        Assert.assertTrue(this.maxRunning.get() > 1);
+        Assert.assertTrue(this.maxRunning.get() <= 4);
+
+        // The existing elements are listed once per type
+        Mockito.verify(this.manager, Mockito.times(1)).getPropertyKeys();
+        Mockito.verify(this.manager, Mockito.times(1)).getIndexLabels();
+    }
+
+    @Test
+    public void testApplyWithConflictAndFailure() {
+        SchemaBatch batch = new SchemaBatch(this.manager);
+        batch.add(new PropertyKey.BuilderImpl("age", this.manager).asInt());
+        batch.add(new PropertyKey.BuilderImpl("broken", this.manager));
+        batch.add(new VertexLabel.BuilderImpl("person", this.manager)
+                                 .properties("name", "age"));
+        batch.add(new VertexLabel.BuilderImpl("item", this.manager)
+                                 .properties("broken"));
+        batch.add(new IndexLabel.BuilderImpl("itemByBroken", this.manager)
+                                .onV("item").by("broken"));
+
+        SchemaBatch.Report report = batch.apply();
+        Assert.assertFalse(report.success());
+        Assert.assertEquals(1, report.conflicts().size());
+        SchemaElement age = report.conflicts().keySet().iterator().next();
+        Assert.assertEquals("age", age.name());
+        // The element depending on a conflicted one is still created
+        Assert.assertEquals(ImmutableList.of("person"), this.created);
+
+        Assert.assertEquals(3, report.failures().size());
+        List<String> messages = new ArrayList<>();
+        for (Throwable e : report.failures().values()) {
+            messages.add(e.getMessage());
+        }
+        Assert.assertEquals(ImmutableList.of(
+                "Invalid 'broken'",
+                "Skipped creating 'item' since its dependency failed",
+                "Skipped creating 'itemByBroken' since its dependency failed"),
+                messages);
+    }
+
+    @Test
+    public void testAddInvalidElements() {
+        SchemaBatch batch = new SchemaBatch(this.manager);
+        batch.add(new PropertyKey("name"));
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            batch.add(new PropertyKey("name"));
+        });
+        // The same name of different types is allowed
+        batch.add(new VertexLabel("name"));
+        Assert.assertEquals(2, batch.size());
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            batch.parallelism(0);
+        });
+    }
+
+    private void assertBefore(String first, String second) {
+        int i = this.created.indexOf(first);
+        int j = this.created.indexOf(second);
+        Assert.assertTrue(i >= 0 && j >= 0);
+        Assert.assertTrue(String.format("%s before %s", first, second),
+                          i < j);
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.baidu.hugegraph.unit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.stubbing.Answer;
+
+import com.baidu.hugegraph.driver.SchemaDiff;
+import com.baidu.hugegraph.driver.SchemaManager;
+import com.baidu.hugegraph.driver.SchemaPlan;
+import com.baidu.hugegraph.driver.TaskManager;
+import com.baidu.hugegraph.structure.SchemaElement;
+import com.baidu.hugegraph.structure.constant.HugeType;
+import com.baidu.hugegraph.structure.constant.IdStrategy;
+import com.baidu.hugegraph.structure.schema.EdgeLabel;
+import com.baidu.hugegraph.structure.schema.IndexLabel;
+import com.baidu.hugegraph.structure.schema.PropertyKey;
+import com.baidu.hugegraph.structure.schema.VertexLabel;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+public class SchemaDiffTest extends BaseUnitTest {
+
+    private SchemaManager schema;
+    private TaskManager task;
+    private List<String> executed;
+
+    @Before
+    public void setup() {
+        this.schema = Mockito.mock(SchemaManager.class);
+        this.task = Mockito.mock(TaskManager.class);
+        this.executed = Collections.synchronizedList(new ArrayList<>());
+
+        SchemaManager s = this.schema;
+        Mockito.when(s.getPropertyKeys()).thenReturn(ImmutableList.of(
+                new PropertyKey.BuilderImpl("name", s).asText().build(),
+                new PropertyKey.BuilderImpl("age", s).asInt()
+                                                     .userdata("a", 1)
+                                                     .build(),
+                new PropertyKey.BuilderImpl("unused", s).asText().build()));
+        Mockito.when(s.getVertexLabels()).thenReturn(ImmutableList.of(
+                new VertexLabel.BuilderImpl("person", s)
+                               .properties("name", "age").build(),
+                new VertexLabel.BuilderImpl("software", s).useAutomaticId()
+                               .properties("name").build()));
+        Mockito.when(s.getEdgeLabels()).thenReturn(ImmutableList.of(
+                new EdgeLabel.BuilderImpl("knows", s)
+                             .link("person", "person").build()));
+        Mockito.when(s.getIndexLabels()).thenReturn(ImmutableList.of(
+                new IndexLabel.BuilderImpl("softwareByName", s)
+                              .onV("software").by("name").build()));
+
+        Answer<Object> record = invocation -> {
+            String method = invocation.getMethod().getName();
+            Object arg = invocation.getArgument(0);
+            if (arg instanceof SchemaElement) {
+                SchemaElement element = (SchemaElement) arg;
+                this.executed.add(method + " " + element.name());
+                return element;
+            }
+            this.executed.add(method + " " + arg);
+            return 1L;
+        };
+        Mockito.when(s.addPropertyKey(Mockito.any())).thenAnswer(record);
+        Mockito.when(s.appendPropertyKey(Mockito.any())).thenAnswer(record);
+        Mockito.when(s.eliminatePropertyKey(Mockito.any()))
+               .thenAnswer(record);
+        Mockito.doAnswer(record).when(s).removePropertyKey(Mockito.any());
+        Mockito.when(s.addVertexLabel(Mockito.any())).thenAnswer(record);
+        Mockito.when(s.appendVertexLabel(Mockito.any())).thenAnswer(record);
+        Mockito.when(s.removeVertexLabel(Mockito.any())).thenAnswer(record);
+        Mockito.when(s.addIndexLabel(Mockito.any())).thenAnswer(record);
+        Mockito.when(this.task.waitUntilTaskCompletedAsync(1L))
+               .thenReturn(CompletableFuture.completedFuture(
+                           task(1L, "success")));
+    }
+
+    @Test
+    public void testPlan() {
+        SchemaPlan plan = this.desired().plan();
+        Assert.assertEquals(ImmutableList.of(
+                "REMOVE vertexlabels 'software'",
+                "REMOVE propertykeys 'unused'",
+                "APPEND propertykeys 'age'",
+                "ELIMINATE propertykeys 'age'",
+                "CREATE propertykeys 'city'",
+                "APPEND vertexlabels 'person'",
+                "CREATE vertexlabels 'software'",
+                "CREATE indexlabels 'softwareByName'",
+                "CREATE indexlabels 'personByCity'"),
+                strings(plan.steps()));
+        // Only the index labels created are rebuilt
+        Assert.assertEquals(ImmutableList.of("softwareByName",
+                                             "personByCity"),
+                            plan.rebuilds());
+
+        List<SchemaPlan.Step> steps = plan.steps();
+        // The deltas only contain the changed values
+        Assert.assertEquals(ImmutableMap.of("b", 2),
+                            steps.get(2).element().userdata());
+        Assert.assertEquals(ImmutableMap.of("a", 1),
+                            steps.get(3).element().userdata());
+        Assert.assertEquals(ImmutableSet.of("city"),
+                            steps.get(5).element().properties());
+
+        Assert.assertEquals(ImmutableList.of(steps.get(2)),
+                            steps.get(3).depends());
+        Assert.assertEquals(ImmutableList.of(steps.get(4)),
+                            steps.get(5).depends());
+        Assert.assertEquals(ImmutableList.of(steps.get(0)),
+                            steps.get(6).depends());
+        Assert.assertEquals(ImmutableList.of(steps.get(6)),
+                            steps.get(7).depends());
+        Assert.assertEquals(ImmutableList.of(steps.get(5), steps.get(4)),
+                            steps.get(8).depends());
+
+        // The live schema is listed once per type
+        Mockito.verify(this.schema, Mockito.times(1)).getPropertyKeys();
+        Mockito.verify(this.schema, Mockito.times(1)).getIndexLabels();
+    }
+
+    @Test
+    public void testPlanWithoutChanges() {
+        SchemaDiff diff = new SchemaDiff(this.schema, this.task);
+        for (SchemaElement element : this.schema.getPropertyKeys()) {
+            diff.add(element);
+        }
+        // The properties are compared regardless of the order
+        diff.add(new VertexLabel.BuilderImpl("person", this.schema)
+                                .properties("age", "name"));
+        Assert.assertTrue(diff.plan().isEmpty());
+    }
+
+    @Test
+    public void testExecute() {
+        SchemaPlan.Report report = this.desired().plan().execute(2);
+        Assert.assertTrue(report.success());
+        Assert.assertEquals(9, report.succeed().size());
+
+        assertBefore("removeVertexLabel software", "addVertexLabel software");
+        assertBefore("addVertexLabel software", "addIndexLabel softwareByName");
+        assertBefore("appendPropertyKey age", "eliminatePropertyKey age");
+        assertBefore("addPropertyKey city", "appendVertexLabel person");
+        assertBefore("appendVertexLabel person", "addIndexLabel personByCity");
+        Mockito.verify(this.task).waitUntilTaskCompletedAsync(1L);
+        Mockito.verify(this.schema).removePropertyKey("unused");
+    }
+
+    @Test
+    public void testExecuteWithFailedRemoval() {
+        Mockito.doReturn(CompletableFuture.completedFuture(task(1L, "failed")))
+               .when(this.task).waitUntilTaskCompletedAsync(1L);
+        SchemaPlan.Report report = this.desired().plan().execute();
+        Assert.assertFalse(report.success());
+        Assert.assertEquals(6, report.succeed().size());
+        Assert.assertEquals(ImmutableList.of(
+                "REMOVE vertexlabels 'software'",
+                "CREATE vertexlabels 'software'",
+                "CREATE indexlabels 'softwareByName'"),
+                strings(report.failures().keySet()));
+        Assert.assertFalse(this.executed.contains("addVertexLabel software"));
+    }
+
+    @Test
+    public void testPlanWithReferredElementChanged() {
+        // The type of 'age' is changed but 'person' refers to it
+        SchemaManager s = this.schema;
+        SchemaDiff diff = new SchemaDiff(s, this.task);
+        diff.allowRecreate(true);
+        diff.add(new PropertyKey.BuilderImpl("age", s).asLong()
+                                                      .userdata("a", 1));
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            diff.plan();
+        }, e -> {
+            Assert.assertEquals("Can't remove or recreate propertykeys " +
+                                "'age' since it's referred by vertexlabels " +
+                                "'person', which is kept", e.getMessage());
+        });
+
+        // The unlisted 'person' is removed and no longer refers to 'age'
+        diff.removeUnlisted(true);
+        Assert.assertEquals(ImmutableList.of(
+                "REMOVE edgelabels 'knows'",
+                "REMOVE vertexlabels 'person'",
+                "REMOVE vertexlabels 'software'",
+                "REMOVE propertykeys 'age'",
+                "REMOVE propertykeys 'name'",
+                "REMOVE propertykeys 'unused'",
+                "CREATE propertykeys 'age'"),
+                strings(diff.plan().steps()));
+
+        // The edge label refers to the recreated vertex label
+        SchemaDiff labels = new SchemaDiff(s, this.task);
+        labels.allowRecreate(true);
+        labels.add(new VertexLabel.BuilderImpl("person", s)
+                                  .useCustomizeStringId()
+                                  .properties("name", "age"));
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            labels.plan();
+        }, e -> {
+            Assert.assertEquals("Can't remove or recreate vertexlabels " +
+                                "'person' since it's referred by edgelabels " +
+                                "'knows', which is kept", e.getMessage());
+        });
+    }
+
+    @Test
+    public void testPlanWithConflicts() {
+        // The id strategy of 'software' can't be changed without recreating
+        SchemaPlan plan = this.desired().allowRecreate(false).plan();
+        Assert.assertEquals(ImmutableList.of(
+                "REMOVE propertykeys 'unused'",
+                "APPEND propertykeys 'age'",
+                "ELIMINATE propertykeys 'age'",
+                "CREATE propertykeys 'city'",
+                "APPEND vertexlabels 'person'",
+                "CREATE indexlabels 'personByCity'"),
+                strings(plan.steps()));
+        Assert.assertEquals(ImmutableList.of("personByCity"),
+                            plan.rebuilds());
+
+        Assert.assertEquals(1, plan.conflicts().size());
+        Map.Entry<SchemaElement, SchemaElement> conflict =
+                plan.conflicts().entrySet().iterator().next();
+        Assert.assertEquals("software", conflict.getKey().name());
+        Assert.assertEquals(IdStrategy.CUSTOMIZE_STRING,
+                            ((VertexLabel) conflict.getKey()).idStrategy());
+        Assert.assertEquals(IdStrategy.AUTOMATIC,
+                            ((VertexLabel) conflict.getValue()).idStrategy());
+
+        SchemaPlan.Report report = plan.execute();
+        Assert.assertTrue(report.success());
+        Assert.assertFalse(this.executed.contains(
+                           "removeVertexLabel software"));
+    }
+
+    @Test
+    public void testPlanKeepingIndexLabelOfRecreatedLabel() {
+        // The unlisted index label is removed with the recreated label
+        SchemaManager s = this.schema;
+        SchemaDiff diff = new SchemaDiff(s, this.task);
+        diff.allowRecreate(true);
+        diff.add(new VertexLabel.BuilderImpl("software", s)
+                                .useCustomizeStringId()
+                                .properties("name", "age"));
+        SchemaPlan plan = diff.plan();
+        Assert.assertEquals(ImmutableList.of(
+                "REMOVE vertexlabels 'software'",
+                "CREATE vertexlabels 'software'",
+                "CREATE indexlabels 'softwareByName'"),
+                strings(plan.steps()));
+        Assert.assertEquals(ImmutableList.of("softwareByName"),
+                            plan.rebuilds());
+
+        List<SchemaPlan.Step> steps = plan.steps();
+        IndexLabel indexLabel = (IndexLabel) steps.get(2).element();
+        Assert.assertEquals(HugeType.VERTEX_LABEL, indexLabel.baseType());
+        Assert.assertEquals("software", indexLabel.baseValue());
+        Assert.assertEquals(ImmutableList.of("name"),
+                            indexLabel.indexFields());
+        Assert.assertEquals(ImmutableList.of(steps.get(1)),
+                            steps.get(2).depends());
+
+        // It's removed if the unlisted elements are removed
+        diff.removeUnlisted(true);
+        Assert.assertFalse(strings(diff.plan().steps()).contains(
+                           "CREATE indexlabels 'softwareByName'"));
+
+        // The recreated label doesn't have the indexed property
+        SchemaDiff invalid = new SchemaDiff(s, this.task);
+        invalid.allowRecreate(true);
+        invalid.add(new VertexLabel.BuilderImpl("software", s)
+                                   .useCustomizeStringId()
+                                   .properties("age"));
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            invalid.plan();
+        }, e -> {
+            Assert.assertEquals("Can't keep indexlabels 'softwareByName' " +
+                                "of the recreated vertexlabels 'software' " +
+                                "since the fields [name] are not all its " +
+                                "properties, please add a proper one to " +
+                                "the desired schema or set " +
+                                "removeUnlisted(true)", e.getMessage());
+        });
+    }
+
+    @Test
+    public void testAddInvalidElements() {
+        SchemaDiff diff = new SchemaDiff(this.schema, this.task);
+        diff.add(new PropertyKey("name"));
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            diff.add(new PropertyKey("name"));
+        });
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            this.desired().plan().execute(0);
+        });
+    }
+
+    private SchemaDiff desired() {
+        SchemaManager s = this.schema;
+        SchemaDiff diff = new SchemaDiff(s, this.task);
+        diff.removeUnlisted(true);
+        diff.allowRecreate(true);
+        diff.add(new IndexLabel.BuilderImpl("softwareByName", s)
+                               .onV("software").by("name"));
+        diff.add(new IndexLabel.BuilderImpl("personByCity", s)
+                               .onV("person").by("city"));
+        diff.add(new EdgeLabel.BuilderImpl("knows", s)
+                              .link("person", "person"));
+        diff.add(new VertexLabel.BuilderImpl("person", s)
+                                .properties("name", "age", "city"));
+        diff.add(new VertexLabel.BuilderImpl("software", s)
+                                .useCustomizeStringId().properties("name"));
+        diff.add(new PropertyKey.BuilderImpl("name", s).asText());
+        diff.add(new PropertyKey.BuilderImpl("age", s).asInt()
+                                                      .userdata("b", 2));
+        diff.add(new PropertyKey.BuilderImpl("city", s).asText());
+        return diff;
+    }
+
+    private void assertBefore(String first, String second) {
+        int i = this.executed.indexOf(first);
+        int j = this.executed.indexOf(second);
+        Assert.assertTrue(first, i >= 0);
+        Assert.assertTrue(second, j >= 0);
+        Assert.assertTrue(String.format("%s before %s", first, second),
+                          i < j);
+    }
+
+    private static List<String> strings(Iterable<?> values) {
+        List<String> strings = new ArrayList<>();
+        for (Object value : values) {
+            strings.add(value.toString());
+        }
+        return strings;
+    }
+}
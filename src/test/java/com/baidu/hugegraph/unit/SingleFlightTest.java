@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.unit;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.baidu.hugegraph.client.RestClient;
+import com.baidu.hugegraph.exception.ServerException;
+import com.baidu.hugegraph.structure.graph.Vertex;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.collect.ImmutableMap;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class SingleFlightTest {
+
+    private static final String VERTEX = "{\"id\": \"1:marko\", " +
+                                         "\"label\": \"person\", " +
+                                         "\"type\": \"vertex\", " +
+                                         "\"properties\": {}}";
+    private static final String ERROR = "{\"exception\": \"NotFound\", " +
+                                        "\"message\": \"Not found\"}";
+
+    private HttpServer server;
+    private AtomicInteger requests;
+    private RestClient client;
+
+    @Before
+    public void setup() throws IOException {
+        this.requests = new AtomicInteger(0);
+        this.server = HttpServer.create(new InetSocketAddress(
+                                        "127.0.0.1", 0), 0);
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.server.createContext("/vertices", exchange -> {
+            this.requests.incrementAndGet();
+            try {
+                Thread.sleep(200L);
+            } catch (InterruptedException ignored) {
+                // Respond immediately
+            }
+            boolean missing = exchange.getRequestURI().toString()
+                                      .contains("missing");
+            respond(exchange, missing ? 404 : 200, missing ? ERROR : VERTEX);
+        });
+        this.server.start();
+        String url = "http://127.0.0.1:" + this.server.getAddress().getPort();
+        this.client = new RestClient(url, 10);
+        this.client.singleFlight(true);
+    }
+
+    @After
+    public void teardown() {
+        this.client.close();
+        this.server.stop(0);
+    }
+
+    @Test
+    public void testConcurrentGets() throws Exception {
+        List<Vertex> vertices = this.concurrently(8, () -> {
+            return this.client.get("vertices", ImmutableMap.of("id", 1))
+                              .readObject(Vertex.class);
+        });
+        Assert.assertEquals(1, this.requests.get());
+        Assert.assertEquals(8, vertices.size());
+        // Each caller decodes its own copy
+        Assert.assertNotSame(vertices.get(0), vertices.get(1));
+        Assert.assertEquals("1:marko", vertices.get(1).id());
+        vertices.get(0).property("age", 29);
+        Assert.assertNull(vertices.get(1).property("age"));
+
+        this.client.get("vertices", ImmutableMap.of("id", 1));
+        this.client.get("vertices", ImmutableMap.of("id", 2));
+        Assert.assertEquals(3, this.requests.get());
+    }
+
+    @Test
+    public void testConcurrentFailures() throws Exception {
+        List<Object> errors = this.concurrently(4, () -> {
+            try {
+                this.client.get("vertices", "missing");
+                return null;
+            } catch (ServerException e) {
+                return e.message();
+            }
+        });
+        Assert.assertEquals(1, this.requests.get());
+        for (Object error : errors) {
+            Assert.assertEquals("Not found", error);
+        }
+    }
+
+    @Test
+    public void testSingleFlightDisabled() throws Exception {
+        this.client.singleFlight(false);
+        this.concurrently(4, () -> this.client.get("vertices"));
+        Assert.assertEquals(4, this.requests.get());
+    }
+
+    private <T> List<T> concurrently(int threads,
+                                     Callable<T> task)
+                                     throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(1);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    latch.await();
+                    return task.call();
+                }));
+            }
+            latch.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status,
+                                String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type",
+                                          "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.unit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.baidu.hugegraph.client.RestClient;
+import com.baidu.hugegraph.driver.GraphManager;
+import com.baidu.hugegraph.driver.TraverserManager;
+import com.baidu.hugegraph.rest.RestResult;
+import com.baidu.hugegraph.structure.constant.Direction;
+import com.baidu.hugegraph.structure.graph.Edge;
+import com.baidu.hugegraph.structure.graph.Graph;
+import com.baidu.hugegraph.structure.graph.Vertex;
+import com.baidu.hugegraph.testutil.Assert;
+import com.baidu.hugegraph.util.JsonUtil;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+public class SubgraphTest {
+
+    private List<Edge> edges;
+    private RestClient client;
+    private TraverserManager traverser;
+
+    @Before
+    public void setup() {
+        // a -> b -> d -> e, a -> c -> d, and c -> d is created
+        this.edges = ImmutableList.of(edge("a", "b", "knows"),
+                                      edge("a", "c", "knows"),
+                                      edge("b", "d", "knows"),
+                                      edge("c", "d", "created"),
+                                      edge("d", "e", "knows"));
+
+        GraphManager graphManager = Mockito.mock(GraphManager.class);
+        Mockito.when(graphManager.graph()).thenReturn("hugegraph");
+        Mockito.when(graphManager.getEdges(Mockito.any(), Mockito.any(),
+                                           Mockito.any(), Mockito.any(),
+                                           Mockito.anyInt(),
+                                           Mockito.anyInt()))
+               .thenAnswer(invocation -> {
+            Object vertexId = invocation.getArgument(0);
+            String label = invocation.getArgument(2);
+            int limit = invocation.getArgument(5);
+            List<Edge> results = new ArrayList<>();
+            for (Edge edge : this.edges) {
+                if (edge.source().equals(vertexId) &&
+                    (label == null || label.equals(edge.label())) &&
+                    (limit == -1 || results.size() < limit)) {
+                    results.add(edge);
+                }
+            }
+            return results;
+        });
+
+        this.client = Mockito.mock(RestClient.class);
+        Mockito.when(this.client.get(Mockito.anyString(), Mockito.anyMap()))
+               .thenAnswer(invocation -> {
+            Map<String, Object> params = invocation.getArgument(1);
+            @SuppressWarnings("unchecked")
+            List<String> ids = (List<String>) params.get("ids");
+            List<Vertex> vertices = new ArrayList<>();
+            for (String id : ids) {
+                Vertex vertex = new Vertex("person");
+                vertex.id(JsonUtil.fromJson(id, String.class));
+                vertices.add(vertex);
+            }
+            RestResult result = Mockito.mock(RestResult.class);
+            Mockito.when(result.readList("vertices", Vertex.class))
+                   .thenReturn(vertices);
+            return result;
+        });
+        this.traverser = new TraverserManager(this.client, graphManager);
+    }
+
+    @Test
+    public void testSubgraph() {
+        Graph graph = this.traverser.subgraph("a", Direction.OUT, 2);
+        assertVertices(graph, "a", "b", "c", "d");
+        Assert.assertEquals(4, graph.edgesSize());
+        Assert.assertEquals(2, graph.vertex("d").getEdges().size());
+        // The vertices are fetched in one batch
+        Mockito.verify(this.client, Mockito.times(1))
+               .get(Mockito.anyString(), Mockito.anyMap());
+    }
+
+    @Test
+    public void testSubgraphReusingThreads() {
+        long before = fetcherThreads();
+        for (int i = 0; i < 5; i++) {
+            Graph graph = this.traverser.subgraph("a", Direction.OUT, 2);
+            assertVertices(graph, "a", "b", "c", "d");
+        }
+        // The threads are owned by the manager rather than each call
+        Assert.assertTrue(fetcherThreads() - before <= 8L);
+    }
+
+    @Test
+    public void testSubgraphWithLabels() {
+        Graph graph = this.traverser.subgraph("a", Direction.OUT,
+                                              ImmutableList.of("knows"), 3,
+                                              -1L, -1L);
+        assertVertices(graph, "a", "b", "c", "d", "e");
+        Assert.assertEquals(4, graph.edgesSize());
+        Assert.assertNull(graph.edge("c>d"));
+    }
+
+    @Test
+    public void testSubgraphWithDegreeAndLimit() {
+        Graph graph = this.traverser.subgraph("a", Direction.OUT, null, 2,
+                                              1L, -1L);
+        assertVertices(graph, "a", "b", "d");
+        Assert.assertEquals(2, graph.edgesSize());
+
+        graph = this.traverser.subgraph("a", Direction.OUT, null, 2,
+                                        -1L, 3L);
+        assertVertices(graph, "a", "b", "c");
+        Assert.assertEquals(2, graph.edgesSize());
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            this.traverser.subgraph("a", Direction.OUT, null, 0, -1L, -1L);
+        });
+    }
+
+    @Test
+    public void testSubgraphWithNumberIds() {
+        // The server returns long ids for the int id passed in
+        Edge edge = new Edge("knows");
+        edge.id("1>2");
+        edge.source(1L);
+        edge.target(2L);
+        GraphManager graphManager = Mockito.mock(GraphManager.class);
+        Mockito.when(graphManager.graph()).thenReturn("hugegraph");
+        Mockito.when(graphManager.getEdges(Mockito.any(), Mockito.any(),
+                                           Mockito.any(), Mockito.any(),
+                                           Mockito.anyInt(),
+                                           Mockito.anyInt()))
+               .thenReturn(ImmutableList.of(edge));
+        TraverserManager traverser = new TraverserManager(this.client,
+                                                          graphManager);
+
+        Graph graph = traverser.subgraph(1, Direction.BOTH, 3);
+        Assert.assertEquals(2, graph.verticesSize());
+        Mockito.verify(this.client).get(Mockito.anyString(), Mockito.eq(
+                       ImmutableMap.of("ids", ImmutableList.of("1", "2"))));
+    }
+
+    private static long fetcherThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                     .filter(t -> t.getName().startsWith("subgraph-fetcher"))
+                     .count();
+    }
+
+    private static void assertVertices(Graph graph, String... ids) {
+        Assert.assertEquals(ids.length, graph.verticesSize());
+        for (String id : ids) {
+            Assert.assertNotNull(graph.vertex(id));
+        }
+    }
+
+    private static Edge edge(String source, String target, String label) {
+        Edge edge = new Edge(label);
+        edge.id(source + ">" + target);
+        edge.source(source);
+        edge.target(target);
+        return edge;
+    }
+}
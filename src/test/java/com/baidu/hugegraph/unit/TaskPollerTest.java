@@ -0,0 +1,242 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.baidu.hugegraph.unit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.baidu.hugegraph.api.task.TaskAPI;
+import com.baidu.hugegraph.client.RestClient;
+import com.baidu.hugegraph.driver.GremlinManager;
+import com.baidu.hugegraph.driver.TaskPoller;
+import com.baidu.hugegraph.rest.ClientException;
+import com.baidu.hugegraph.rest.RestResult;
+import com.baidu.hugegraph.structure.Task;
+import com.baidu.hugegraph.structure.graph.Vertex;
+import com.baidu.hugegraph.structure.gremlin.ResultSet;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+public class TaskPollerTest extends BaseUnitTest {
+
+    private TaskAPI taskAPI;
+    // The count of polls left before each task is completed
+    private Map<Long, AtomicInteger> remains;
+    private Map<Long, AtomicInteger> polls;
+    private AtomicInteger lists;
+
+    @Before
+    public void setup() {
+        this.remains = new ConcurrentHashMap<>();
+        this.polls = new ConcurrentHashMap<>();
+        this.lists = new AtomicInteger();
+        this.taskAPI = Mockito.mock(TaskAPI.class);
+        Mockito.when(this.taskAPI.list(Mockito.anyList()))
+               .thenAnswer(invocation -> {
+            this.lists.incrementAndGet();
+            List<Long> ids = invocation.getArgument(0);
+            List<Task> tasks = new ArrayList<>();
+            for (long id : ids) {
+                tasks.add(this.poll(id));
+            }
+            return tasks;
+        });
+        Mockito.when(this.taskAPI.get(Mockito.anyLong()))
+               .thenAnswer(invocation -> {
+            return this.poll(invocation.getArgument(0));
+        });
+    }
+
+    private Task poll(long id) {
+        this.polls.computeIfAbsent(id, k -> new AtomicInteger())
+                  .incrementAndGet();
+        AtomicInteger remain = this.remains.get(id);
+        boolean done = remain != null && remain.decrementAndGet() <= 0;
+        return task(id, done ? "success" : "running");
+    }
+
+    @Test
+    public void testAwaitManyTasks() throws Exception {
+        TaskPoller poller = new TaskPoller(this.taskAPI, 5L, 50L);
+        List<CompletableFuture<Task>> futures = new ArrayList<>();
+        for (long id = 1; id <= 2000; id++) {
+            this.remains.put(id, new AtomicInteger((int) (id % 4) + 1));
+            futures.add(poller.await(id));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                         .get(10, TimeUnit.SECONDS);
+        for (int i = 0; i < futures.size(); i++) {
+            Task task = futures.get(i).get();
+            Assert.assertEquals(i + 1L, task.id());
+            Assert.assertTrue(task.success());
+        }
+        Assert.assertEquals(0, poller.pending());
+        // The tasks are listed in batches rather than one by one
+        Assert.assertTrue(this.lists.get() < 2000);
+        Mockito.verify(this.taskAPI, Mockito.never()).get(Mockito.anyLong());
+
+        // All the tasks are scheduled by one thread
+        long threads = Thread.getAllStackTraces().keySet().stream()
+                             .filter(t -> t.getName()
+                                           .startsWith("task-poller"))
+                             .count();
+        Assert.assertEquals(1L, threads);
+    }
+
+    @Test
+    public void testAwaitTaskMissingInList() throws Exception {
+        TaskPoller poller = new TaskPoller(this.taskAPI, 5L, 50L);
+        Mockito.doReturn(new ArrayList<>())
+               .when(this.taskAPI).list(Mockito.anyList());
+        this.remains.put(1L, new AtomicInteger(2));
+        Task task = poller.await(1L).get(5, TimeUnit.SECONDS);
+        Assert.assertTrue(task.success());
+        Mockito.verify(this.taskAPI, Mockito.times(2)).get(1L);
+    }
+
+    @Test
+    public void testAwaitWithBackoff() throws Exception {
+        TaskPoller poller = new TaskPoller(this.taskAPI, 10L, 200L);
+        this.remains.put(1L, new AtomicInteger(Integer.MAX_VALUE));
+        CompletableFuture<Task> future = poller.await(1L);
+
+        Thread.sleep(1000L);
+        Assert.assertFalse(future.isDone());
+        // Polled about 10 times rather than 100 times at min interval
+        int polls = this.polls.get(1L).get();
+        Assert.assertTrue(polls >= 5 && polls <= 15);
+
+        this.remains.get(1L).set(0);
+        Task task = future.get(1, TimeUnit.SECONDS);
+        Assert.assertTrue(task.success());
+    }
+
+    @Test
+    public void testAwaitSameTaskByManyWaiters() throws Exception {
+        TaskPoller poller = new TaskPoller(this.taskAPI, 5L, 50L);
+        this.remains.put(1L, new AtomicInteger(3));
+        List<CompletableFuture<Task>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(poller.await(1L));
+        }
+        for (CompletableFuture<Task> future : futures) {
+            Assert.assertTrue(future.get(5, TimeUnit.SECONDS).success());
+        }
+        Assert.assertTrue(this.polls.get(1L).get() <= 4);
+    }
+
+    @Test
+    public void testAwaitWithTimeout() throws Exception {
+        TaskPoller poller = new TaskPoller(this.taskAPI, 10L, 50L);
+        this.remains.put(1L, new AtomicInteger(Integer.MAX_VALUE));
+        CompletableFuture<Task> future = poller.await(1L, 100L);
+
+        Assert.assertThrows(ExecutionException.class, () -> {
+            future.get(5, TimeUnit.SECONDS);
+        }, e -> {
+            Assert.assertEquals(ClientException.class,
+                                e.getCause().getClass());
+        });
+        Thread.sleep(200L);
+        Assert.assertEquals(0, poller.pending());
+    }
+
+    @Test
+    public void testAwaitWithFailedPolls() {
+        TaskPoller poller = new TaskPoller(this.taskAPI, 5L, 10L);
+        Mockito.doThrow(new ClientException("Server is unavailable"))
+               .when(this.taskAPI).list(Mockito.anyList());
+        CompletableFuture<Task> future = poller.await(1L);
+
+        Assert.assertThrows(ExecutionException.class, () -> {
+            future.get(5, TimeUnit.SECONDS);
+        }, e -> {
+            Assert.assertEquals("Server is unavailable",
+                                e.getCause().getMessage());
+        });
+    }
+
+    @Test
+    public void testExecuteAsTaskAsync() throws Exception {
+        RestClient client = Mockito.mock(RestClient.class);
+        RestResult created = Mockito.mock(RestResult.class);
+        Mockito.when(created.readObject(Map.class))
+               .thenReturn(ImmutableMap.of("task_id", 7));
+        Mockito.when(client.post(Mockito.anyString(), Mockito.any()))
+               .thenReturn(created);
+
+        String result = "[{\"id\": \"person:marko\", \"label\": \"person\","
+                        + "\"type\": \"vertex\", \"properties\": {}}, 29]";
+        RestResult running = mockTasks(task(7L, "running"));
+        RestResult success = mockTasks(task(7L, "success",
+                                            Task.P.RESULT, result));
+        Mockito.when(client.get(Mockito.anyString(), Mockito.anyMap()))
+               .thenReturn(running, running, success);
+
+        GremlinManager gremlin = new GremlinManager(client, "hugegraph");
+        ResultSet results = gremlin.gremlin("g.V()").executeAsTaskAsync()
+                                   .get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(2, results.size());
+        Assert.assertEquals("person:marko", results.get(0).getVertex().id());
+        Assert.assertEquals(Vertex.class, results.data().get(0).getClass());
+        Assert.assertEquals(29, results.get(1).getInt());
+    }
+
+    @Test
+    public void testExecuteAsTaskAsyncWithFailedTask() {
+        RestClient client = Mockito.mock(RestClient.class);
+        RestResult created = Mockito.mock(RestResult.class);
+        Mockito.when(created.readObject(Map.class))
+               .thenReturn(ImmutableMap.of("task_id", 8));
+        Mockito.when(client.post(Mockito.anyString(), Mockito.any()))
+               .thenReturn(created);
+        RestResult failed = mockTasks(task(8L, "failed",
+                                               Task.P.RESULT, "Syntax error"));
+        Mockito.when(client.get(Mockito.anyString(), Mockito.anyMap()))
+               .thenReturn(failed);
+
+        GremlinManager gremlin = new GremlinManager(client, "hugegraph");
+        CompletableFuture<ResultSet> future = gremlin.gremlin("g.V(")
+                                                     .executeAsTaskAsync();
+        Assert.assertThrows(ExecutionException.class, () -> {
+            future.get(5, TimeUnit.SECONDS);
+        }, e -> {
+            Assert.assertEquals("Task '8' is 'failed', result is " +
+                                "'Syntax error'", e.getCause().getMessage());
+        });
+    }
+
+    private static RestResult mockTasks(Task task) {
+        RestResult result = Mockito.mock(RestResult.class);
+        Mockito.when(result.readList(TaskAPI.TASKS, Task.class))
+               .thenReturn(ImmutableList.of(task));
+        return result;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.baidu.hugegraph.unit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.baidu.hugegraph.api.task.TaskAPI;
+import com.baidu.hugegraph.driver.TaskProgressTracker;
+import com.baidu.hugegraph.driver.TaskProgressTracker.Progress;
+import com.baidu.hugegraph.driver.TaskWatcher;
+import com.baidu.hugegraph.structure.Task;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.collect.ImmutableList;
+
+public class TaskProgressTrackerTest extends BaseUnitTest {
+
+    private static final double DELTA = 0.0001;
+
+    @Test
+    public void testRateAndEta() {
+        TaskProgressTracker tracker = new TaskProgressTracker(0.3);
+        tracker.expect(1L, 1000L);
+
+        tracker.onProgress(task(1L, "running", 100L, 1000L, 11000L));
+        Progress progress = tracker.progress(1L);
+        // 100 in 10s since the creation
+        Assert.assertEquals(10.0, progress.rate(), DELTA);
+        Assert.assertEquals(90000L, progress.eta());
+        Assert.assertEquals(1000L, progress.total());
+
+        tracker.onProgress(task(1L, "running", 300L, 1000L, 21000L));
+        progress = tracker.progress(1L);
+        // 0.3 * 20/s + 0.7 * 10/s
+        Assert.assertEquals(13.0, progress.rate(), DELTA);
+        Assert.assertEquals((long) (700 * 1000.0 / 13.0), progress.eta());
+        Assert.assertEquals(progress.eta(), tracker.eta());
+        Assert.assertEquals(13.0, tracker.rate(), DELTA);
+
+        // A stalled sample lowers the rate smoothly
+        tracker.onProgress(task(1L, "running", 300L, 1000L, 31000L));
+        Assert.assertEquals(9.1, tracker.progress(1L).rate(), DELTA);
+
+        tracker.onCompleted(task(1L, "success", 1000L, 1000L, 41000L));
+        progress = tracker.progress(1L);
+        Assert.assertTrue(progress.completed());
+        Assert.assertEquals(0L, progress.eta());
+        Assert.assertEquals(0.0, tracker.rate(), DELTA);
+    }
+
+    @Test
+    public void testEtaWithoutTotal() {
+        TaskProgressTracker tracker = new TaskProgressTracker();
+        tracker.onProgress(task(1L, "running", 100L, 1000L, 11000L));
+        Assert.assertEquals(-1L, tracker.progress(1L).eta());
+        Assert.assertEquals(-1L, tracker.progress(1L).total());
+        Assert.assertEquals(-1L, tracker.eta());
+        Assert.assertNull(tracker.progress(2L));
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            tracker.expect(1L, 0L);
+        });
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            new TaskProgressTracker(0.0);
+        });
+    }
+
+    @Test
+    public void testCallbacksWithWatcher() {
+        Map<Long, Task> tasks = new ConcurrentHashMap<>();
+        TaskAPI taskAPI = Mockito.mock(TaskAPI.class);
+        Mockito.when(taskAPI.list(Mockito.anyList()))
+               .thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            List<Task> results = new ArrayList<>();
+            for (long id : ids) {
+                results.add(tasks.get(id));
+            }
+            return results;
+        });
+
+        TaskProgressTracker tracker = new TaskProgressTracker();
+        List<String> events = new ArrayList<>();
+        tracker.onProgress(p -> events.add("progress:" + p.id()));
+        tracker.onCompleted(p -> events.add("completed:" + p.id()));
+        TaskWatcher watcher = new TaskWatcher(taskAPI);
+        watcher.addListener(tracker);
+        watcher.watch(ImmutableList.of(1L, 2L));
+
+        tasks.put(1L, task(1L, "running", 10L, 1000L, 2000L));
+        tasks.put(2L, task(2L, "running", 10L, 1000L, 2000L));
+        watcher.refresh();
+        tasks.put(1L, task(1L, "success", 20L, 1000L, 3000L));
+        watcher.refresh();
+
+        Assert.assertEquals(ImmutableList.of("progress:1", "progress:2",
+                                             "completed:1"), events);
+        Assert.assertEquals(2, tracker.progresses().size());
+        Assert.assertEquals(10.0, tracker.rate(), DELTA);
+    }
+
+    private static Task task(long id, String status, long progress,
+                             long create, long update) {
+        return task(id, status, Task.P.PROGRESS, progress,
+                    Task.P.CREATE, create, Task.P.UPDATE, update);
+    }
+}
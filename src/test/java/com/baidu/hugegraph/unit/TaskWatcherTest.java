@@ -0,0 +1,208 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.baidu.hugegraph.unit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.baidu.hugegraph.api.task.TaskAPI;
+import com.baidu.hugegraph.driver.TaskWatcher;
+import com.baidu.hugegraph.rest.ClientException;
+import com.baidu.hugegraph.structure.Task;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.collect.ImmutableList;
+
+public class TaskWatcherTest extends BaseUnitTest {
+
+    private TaskAPI taskAPI;
+    // The progress of each task, a task is completed at progress 100
+    private Map<Long, Integer> progresses;
+
+    @Before
+    public void setup() {
+        this.progresses = new ConcurrentHashMap<>();
+        this.taskAPI = Mockito.mock(TaskAPI.class);
+        Mockito.when(this.taskAPI.list(Mockito.anyList()))
+               .thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            List<Task> tasks = new ArrayList<>();
+            for (long id : ids) {
+                if (this.progresses.containsKey(id)) {
+                    tasks.add(task(id, this.progresses.get(id)));
+                }
+            }
+            return tasks;
+        });
+        Mockito.when(this.taskAPI.get(Mockito.anyLong()))
+               .thenAnswer(invocation -> {
+            long id = invocation.getArgument(0);
+            return task(id, this.progresses.getOrDefault(id, 0));
+        });
+    }
+
+    @Test
+    public void testRefreshInBatches() {
+        TaskWatcher watcher = new TaskWatcher(this.taskAPI);
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 250; id++) {
+            this.progresses.put(id, id <= 10 ? 100 : 0);
+            ids.add(id);
+        }
+        watcher.watch(ids);
+        Assert.assertEquals(250, watcher.size());
+        Assert.assertEquals(250, watcher.pending());
+
+        Assert.assertEquals(10, watcher.refresh());
+        Assert.assertEquals(3L, watcher.requests());
+        Assert.assertEquals(240, watcher.pending());
+        Assert.assertTrue(watcher.task(1L).success());
+        Assert.assertFalse(watcher.task(11L).completed());
+
+        // Only the pending tasks are refreshed
+        watcher.refresh();
+        Assert.assertEquals(6L, watcher.requests());
+        Mockito.verify(this.taskAPI, Mockito.never()).get(Mockito.anyLong());
+    }
+
+    @Test
+    public void testRefreshMissingTask() {
+        TaskWatcher watcher = new TaskWatcher(this.taskAPI);
+        this.progresses.put(1L, 100);
+        watcher.watch(ImmutableList.of(1L, 2L));
+
+        Assert.assertEquals(1, watcher.refresh());
+        Assert.assertEquals(2L, watcher.requests());
+        Mockito.verify(this.taskAPI).get(2L);
+        Assert.assertEquals(1, watcher.pending());
+    }
+
+    @Test
+    public void testListeners() {
+        TaskWatcher watcher = new TaskWatcher(this.taskAPI);
+        List<String> events = new ArrayList<>();
+        watcher.addListener(new TaskWatcher.Listener() {
+            @Override
+            public void onProgress(Task task) {
+                events.add(task.id() + ":" + task.progress());
+            }
+
+            @Override
+            public void onCompleted(Task task) {
+                events.add(task.id() + ":" + task.status());
+            }
+        });
+        watcher.addListener(new TaskWatcher.Listener() {
+            @Override
+            public void onProgress(Task task) {
+                throw new RuntimeException("Ignored");
+            }
+        });
+        this.progresses.put(1L, 0);
+        watcher.watch(1L);
+
+        watcher.refresh();
+        watcher.refresh();
+        this.progresses.put(1L, 50);
+        watcher.refresh();
+        this.progresses.put(1L, 100);
+        watcher.refresh();
+        watcher.refresh();
+
+        Assert.assertEquals(ImmutableList.of("1:0", "1:50", "1:success"),
+                            events);
+    }
+
+    @Test
+    public void testAwaitAll() {
+        TaskWatcher watcher = new TaskWatcher(this.taskAPI, 5L, 20L);
+        for (long id = 1; id <= 3; id++) {
+            this.progresses.put(id, 0);
+            watcher.watch(id);
+        }
+        watcher.addListener(new TaskWatcher.Listener() {
+            @Override
+            public void onProgress(Task task) {
+                // Advance each task at each refresh
+                progresses.put(task.id(), (int) task.progress() + 25);
+            }
+        });
+
+        List<Task> tasks = watcher.awaitAll(5000L);
+        Assert.assertEquals(3, tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            Assert.assertEquals(i + 1L, tasks.get(i).id());
+            Assert.assertTrue(tasks.get(i).success());
+        }
+        Assert.assertEquals(0, watcher.pending());
+    }
+
+    @Test
+    public void testAwaitAny() {
+        TaskWatcher watcher = new TaskWatcher(this.taskAPI, 5L, 20L);
+        this.progresses.put(1L, 0);
+        this.progresses.put(2L, 100);
+        watcher.watch(ImmutableList.of(1L, 2L));
+
+        Task task = watcher.awaitAny(5000L);
+        Assert.assertEquals(2L, task.id());
+        Assert.assertEquals(1, watcher.size());
+
+        Assert.assertThrows(ClientException.class, () -> {
+            watcher.awaitAny(50L);
+        });
+
+        this.progresses.put(1L, 100);
+        task = watcher.awaitAny(5000L);
+        Assert.assertEquals(1L, task.id());
+        Assert.assertEquals(0, watcher.size());
+
+        Assert.assertThrows(IllegalStateException.class, () -> {
+            watcher.awaitAny(50L);
+        });
+    }
+
+    @Test
+    public void testAwaitAllWithTimeout() {
+        TaskWatcher watcher = new TaskWatcher(this.taskAPI, 5L, 20L);
+        this.progresses.put(1L, 100);
+        this.progresses.put(2L, 0);
+        watcher.watch(ImmutableList.of(1L, 2L));
+
+        Assert.assertThrows(ClientException.class, () -> {
+            watcher.awaitAll(100L);
+        }, e -> {
+            Assert.assertEquals("There are 1 tasks not completed in 100 ms",
+                                e.getMessage());
+        });
+        Assert.assertThrows(IllegalArgumentException.class, () -> {
+            watcher.awaitAll(0L);
+        });
+    }
+
+    private static Task task(long id, int progress) {
+        return task(id, progress >= 100 ? "success" : "running",
+                    Task.P.PROGRESS, progress);
+    }
+}
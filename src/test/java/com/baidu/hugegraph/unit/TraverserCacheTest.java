@@ -0,0 +1,160 @@
+/*
+ * Copyright 2017 HugeGraph Authors
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.baidu.hugegraph.unit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.baidu.hugegraph.client.RestClient;
+import com.baidu.hugegraph.driver.GraphManager;
+import com.baidu.hugegraph.driver.TraverserManager;
+import com.baidu.hugegraph.rest.RestResult;
+import com.baidu.hugegraph.structure.constant.Direction;
+import com.baidu.hugegraph.structure.graph.Vertex;
+import com.baidu.hugegraph.testutil.Assert;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+
+public class TraverserCacheTest {
+
+    private RestClient client;
+    private GraphManager graphManager;
+    private TraverserManager traverser;
+    private AtomicInteger requests;
+
+    @Before
+    public void setup() {
+        this.requests = new AtomicInteger(0);
+        this.client = Mockito.mock(RestClient.class);
+        Mockito.when(this.client.get(Mockito.anyString(), Mockito.anyMap()))
+               .thenAnswer(invocation -> {
+            this.requests.incrementAndGet();
+            Thread.sleep(20L);
+            RestResult result = Mockito.mock(RestResult.class);
+            Mockito.when(result.readList("vertices", Object.class))
+                   .thenReturn(new ArrayList<>(ImmutableList.of(2, 3)));
+            return result;
+        });
+        RestResult created = Mockito.mock(RestResult.class);
+        Mockito.when(created.readObject(Vertex.class))
+               .thenReturn(new Vertex("person"));
+        Mockito.when(this.client.post(Mockito.anyString(), Mockito.any()))
+               .thenReturn(created);
+
+        this.graphManager = new GraphManager(this.client, "hugegraph");
+        this.traverser = new TraverserManager(this.client, this.graphManager);
+    }
+
+    @Test
+    public void testCacheHit() {
+        this.traverser.cache(100L, 60000L, false);
+
+        List<Object> result = this.traverser.kout(1, Direction.OUT, 2);
+        Assert.assertEquals(ImmutableList.of(2, 3), result);
+        // The source id is normalized like the request parameter
+        Assert.assertSame(result, this.traverser.kout(1L, Direction.OUT, 2));
+        Assert.assertEquals(1, this.requests.get());
+
+        this.traverser.kout(1, Direction.IN, 2);
+        this.traverser.kneighbor(1, Direction.OUT, 2);
+        Assert.assertEquals(3, this.requests.get());
+
+        CacheStats stats = this.traverser.cacheStats();
+        Assert.assertEquals(1L, stats.hitCount());
+        Assert.assertEquals(3L, stats.missCount());
+
+        Assert.assertThrows(UnsupportedOperationException.class, () -> {
+            result.add(4);
+        });
+    }
+
+    @Test
+    public void testCacheDisabled() {
+        Assert.assertNull(this.traverser.cacheStats());
+        this.traverser.kout(1, Direction.OUT, 2);
+        this.traverser.kout(1, Direction.OUT, 2);
+        Assert.assertEquals(2, this.requests.get());
+
+        this.traverser.cache(100L, 60000L, false);
+        this.traverser.kout(1, Direction.OUT, 2);
+        this.traverser.disableCache();
+        this.traverser.kout(1, Direction.OUT, 2);
+        Assert.assertEquals(4, this.requests.get());
+    }
+
+    @Test
+    public void testSingleFlight() throws Exception {
+        this.traverser.cache(100L, 60000L, false);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch latch = new CountDownLatch(1);
+        try {
+            List<Future<List<Object>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    latch.await();
+                    return this.traverser.kout(1, Direction.OUT, 2);
+                }));
+            }
+            latch.countDown();
+            for (Future<List<Object>> future : futures) {
+                Assert.assertEquals(ImmutableList.of(2, 3), future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(1, this.requests.get());
+    }
+
+    @Test
+    public void testInvalidateOnWrite() {
+        this.traverser.cache(100L, 60000L, true);
+        this.traverser.kout(1, Direction.OUT, 2);
+        this.traverser.kout(1, Direction.OUT, 2);
+        Assert.assertEquals(1, this.requests.get());
+
+        this.graphManager.addVertex(new Vertex("person"));
+        this.traverser.kout(1, Direction.OUT, 2);
+        Assert.assertEquals(2, this.requests.get());
+
+        this.traverser.cache(100L, 60000L, false);
+        this.traverser.kout(1, Direction.OUT, 2);
+        this.graphManager.addVertex(new Vertex("person"));
+        this.traverser.kout(1, Direction.OUT, 2);
+        Assert.assertEquals(3, this.requests.get());
+    }
+
+    @Test
+    public void testCacheExpired() throws InterruptedException {
+        this.traverser.cache(100L, 50L, false);
+        this.traverser.kout(1, Direction.OUT, 2);
+        Thread.sleep(100L);
+        this.traverser.kout(1, Direction.OUT, 2);
+        Assert.assertEquals(2, this.requests.get());
+    }
+}
@@ -26,7 +26,29 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({
     VertexSerializerTest.class,
     PathSerializerTest.class,
-    RestResultTest.class
+    RestResultTest.class,
+    GraphSpliteratorTest.class,
+    CsrGraphTest.class,
+    CsrSnapshotTest.class,
+    GraphRefreshTest.class,
+    GraphAlgorithmsTest.class,
+    LocalTraverserTest.class,
+    SubgraphTest.class,
+    BatchTraverserTest.class,
+    TraverserCacheTest.class,
+    SingleFlightTest.class,
+    IdListTest.class,
+    PathIteratorTest.class,
+    GremlinStreamTest.class,
+    GremlinBindingTest.class,
+    TaskPollerTest.class,
+    TaskWatcherTest.class,
+    TaskProgressTrackerTest.class,
+    RebuildOrchestratorTest.class,
+    SchemaBatchTest.class,
+    SchemaDiffTest.class,
+    GraphSessionTest.class,
+    GraphLoaderTest.class
 })
 public class UnitTestSuite {
 }